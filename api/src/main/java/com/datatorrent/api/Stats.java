@@ -40,12 +40,35 @@ public interface Stats extends Serializable
   {
     public long checkpointStartTime;
     public long checkpointTime;
+    /**
+     * Serialized size and serialization time of the checkpoint broken down by field, keyed by the declaring class
+     * name and the field name. The entry keyed by the operator class name covers the whole checkpoint.
+     * This is only available when the storage agent profiles checkpoints, otherwise null.
+     */
+    public Map<String, FieldStats> fieldStats;
 
     @Override
     public String toString()
     {
       return "CheckpointStats{" + "checkpointStartTime=" + checkpointStartTime + ", checkpointTime=" + checkpointTime + '}';
     }
+
+    public static class FieldStats implements Serializable
+    {
+      private static final long serialVersionUID = 201604211200L;
+      /**
+       * Number of times the field was serialized, greater than one for fields of nested types that occur repeatedly.
+       */
+      public long count;
+      public long bytes;
+      public long serializationNanos;
+
+      @Override
+      public String toString()
+      {
+        return "FieldStats{" + "count=" + count + ", bytes=" + bytes + ", serializationNanos=" + serializationNanos + '}';
+      }
+    }
   }
 
   public static class OperatorStats implements Stats
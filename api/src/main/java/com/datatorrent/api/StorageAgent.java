@@ -95,4 +95,21 @@ public interface StorageAgent
     public void setApplicationAttributes(AttributeMap map);
   }
 
+  /**
+   * Interface for storage agents that can delete the artifacts of several windows of an operator in one call.
+   *
+   * @since 3.4.0
+   */
+  public interface BatchDeleteStorageAgent extends StorageAgent
+  {
+    /**
+     * Delete the artifacts related to store calls of the operatorId and each of the windowIds.
+     *
+     * @param operatorId
+     * @param windowIds
+     * @throws IOException
+     */
+    public void delete(int operatorId, long[] windowIds) throws IOException;
+  }
+
 }
@@ -36,6 +36,7 @@ import com.datatorrent.netlet.util.Slice;
 public abstract class Controller extends AuthClient
 {
   String id;
+  private volatile boolean authenticated;
 
   public Controller(String id)
   {
@@ -43,16 +44,28 @@ public abstract class Controller extends AuthClient
     this.id = id;
   }
 
+  /**
+   * The server expects the token only as the first message on the connection, so that a controller can
+   * issue multiple requests over the same connection.
+   */
+  private void authenticate()
+  {
+    if (!authenticated) {
+      sendAuthenticate();
+      authenticated = true;
+    }
+  }
+
   public void purge(String version, String sourceId, long windowId)
   {
-    sendAuthenticate();
+    authenticate();
     write(PurgeRequestTuple.getSerializedRequest(version, sourceId, windowId));
     logger.debug("Sent purge request sourceId = {}, windowId = {}", sourceId, Codec.getStringWindowId(windowId));
   }
 
   public void reset(String version, String sourceId, long windowId)
   {
-    sendAuthenticate();
+    authenticate();
     write(ResetRequestTuple.getSerializedRequest(version, sourceId, windowId));
     logger.debug("Sent reset request sourceId = {}, windowId = {}", sourceId, Codec.getStringWindowId(windowId));
   }
@@ -52,8 +52,7 @@ public class AsyncFSStorageAgent extends FSStorageAgent
 
   private boolean syncCheckpoint = false;
 
-  @SuppressWarnings("unused")
-  private AsyncFSStorageAgent()
+  protected AsyncFSStorageAgent()
   {
     super();
     conf = null;
@@ -95,6 +94,7 @@ public class AsyncFSStorageAgent extends FSStorageAgent
     try (FileOutputStream stream = new FileOutputStream(new File(directory, String.valueOf(windowId)))) {
       store(stream, object);
     }
+    profile(object, operatorId);
   }
 
   public void copyToHDFS(final int operatorId, final long windowId) throws IOException
@@ -146,6 +146,7 @@ public class AsyncFSStorageAgent extends FSStorageAgent
   {
     AsyncFSStorageAgent asyncFSStorageAgent = new AsyncFSStorageAgent(this.path, null);
     asyncFSStorageAgent.setSyncCheckpoint(syncCheckpoint);
+    asyncFSStorageAgent.setProfileCheckpoints(isProfileCheckpoints());
     return asyncFSStorageAgent;
   }
 
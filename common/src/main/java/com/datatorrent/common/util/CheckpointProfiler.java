@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+
+import com.datatorrent.api.Stats.CheckpointStats.FieldStats;
+
+/**
+ * Attributes the serialized size and the serialization time of a checkpoint to the fields of the operator and
+ * of the nested types it references.
+ * <p>
+ * The object is serialized with a separate Kryo instance into a discarding stream, so the profile is taken in
+ * addition to the regular checkpoint and does not influence what is stored. Field sizes and times are inclusive of
+ * the nested objects, which are also reported under their own declaring class.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class CheckpointProfiler
+{
+  private static final Kryo kryo;
+
+  static {
+    kryo = new Kryo();
+    kryo.setDefaultSerializer(ProfilingFieldSerializer.class);
+  }
+
+  private static Map<String, FieldStats> fieldStats;
+
+  private CheckpointProfiler()
+  {
+  }
+
+  /**
+   * Serializes the object and returns the size and serialization time by field, keyed by
+   * {@code <declaring class name>.<field name>}. The whole object is reported under its class name.
+   *
+   * @param object the checkpointed object
+   * @return field statistics
+   */
+  public static Map<String, FieldStats> profile(Object object)
+  {
+    synchronized (kryo) {
+      fieldStats = new HashMap<>();
+      try {
+        kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+        Output output = new Output(4096, Integer.MAX_VALUE);
+        output.setOutputStream(new DiscardingOutputStream());
+        long start = System.nanoTime();
+        kryo.writeClassAndObject(output, object);
+        output.flush();
+        add(object.getClass().getName(), output.total(), System.nanoTime() - start);
+        return fieldStats;
+      } finally {
+        fieldStats = null;
+      }
+    }
+  }
+
+  private static void add(String name, long bytes, long nanos)
+  {
+    FieldStats stats = fieldStats.get(name);
+    if (stats == null) {
+      stats = new FieldStats();
+      fieldStats.put(name, stats);
+    }
+    stats.count++;
+    stats.bytes += bytes;
+    stats.serializationNanos += nanos;
+  }
+
+  /**
+   * Field serializer that measures every field it writes. Only used for the profiling pass.
+   */
+  public static class ProfilingFieldSerializer<T> extends FieldSerializer<T>
+  {
+    public ProfilingFieldSerializer(Kryo kryo, Class<T> type)
+    {
+      super(kryo, type);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void write(Kryo kryo, Output output, T object)
+    {
+      for (CachedField field : getFields()) {
+        long startBytes = output.total();
+        long startNanos = System.nanoTime();
+        field.write(output, object);
+        add(field.getField().getDeclaringClass().getName() + "." + field.getField().getName(), output.total() - startBytes,
+            System.nanoTime() - startNanos);
+      }
+    }
+  }
+
+  private static class DiscardingOutputStream extends OutputStream
+  {
+    @Override
+    public void write(int b)
+    {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+    {
+    }
+  }
+}
@@ -18,6 +18,7 @@
  */
 package com.datatorrent.common.util;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectStreamException;
@@ -25,7 +26,12 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +51,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.Lists;
 
+import com.datatorrent.api.Stats.CheckpointStats.FieldStats;
 import com.datatorrent.api.StorageAgent;
 import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.netlet.util.DTThrowable;
@@ -54,13 +61,15 @@ import com.datatorrent.netlet.util.DTThrowable;
  *
  * @since 0.3.2
  */
-public class FSStorageAgent implements StorageAgent, Serializable
+public class FSStorageAgent implements StorageAgent, StorageAgent.BatchDeleteStorageAgent, Serializable
 {
   public static final String TMP_FILE = "_tmp";
   protected static final String STATELESS_CHECKPOINT_WINDOW_ID = Long.toHexString(Stateless.WINDOW_ID);
   public final String path;
   protected final transient FileContext fileContext;
   protected static final transient Kryo kryo;
+  private final transient ConcurrentMap<Integer, Map<String, FieldStats>> checkpointProfiles = new ConcurrentHashMap<>();
+  private boolean profileCheckpoints;
 
   static {
     kryo = new Kryo();
@@ -124,6 +133,7 @@ public class FSStorageAgent implements StorageAgent, Serializable
         }
       }
     }
+    profile(object, operatorId);
   }
 
   @Override
@@ -149,6 +159,40 @@ public class FSStorageAgent implements StorageAgent, Serializable
     fileContext.delete(lPath, false);
   }
 
+  @Override
+  public void delete(int operatorId, long[] windowIds) throws IOException
+  {
+    Set<String> windows = new HashSet<>(windowIds.length);
+    for (long windowId : windowIds) {
+      windows.add(Long.toHexString(windowId));
+    }
+
+    // list the directory of the operator once instead of resolving the path of every window
+    Path lPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId));
+    RemoteIterator<FileStatus> fileStatusRemoteIterator;
+    try {
+      fileStatusRemoteIterator = fileContext.listStatus(lPath);
+    } catch (FileNotFoundException e) {
+      return;
+    }
+    IOException failure = null;
+    while (fileStatusRemoteIterator.hasNext()) {
+      Path windowPath = fileStatusRemoteIterator.next().getPath();
+      if (windows.contains(windowPath.getName())) {
+        logger.debug("Deleting: {}", windowPath);
+        try {
+          fileContext.delete(windowPath, false);
+        } catch (IOException e) {
+          logger.debug("while deleting {}", windowPath, e);
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
   @Override
   public long[] getWindowIds(int operatorId) throws IOException
   {
@@ -194,9 +238,56 @@ public class FSStorageAgent implements StorageAgent, Serializable
     }
   }
 
+  /**
+   * Records the field breakdown of the checkpoint when profiling is enabled. Called after the checkpoint is
+   * saved; a failure to profile is logged and does not affect the checkpoint.
+   *
+   * @param object the checkpointed object
+   * @param operatorId operator id
+   */
+  protected void profile(Object object, int operatorId)
+  {
+    if (profileCheckpoints) {
+      try {
+        checkpointProfiles.put(operatorId, CheckpointProfiler.profile(object));
+      } catch (Exception e) {
+        logger.warn("Failed to profile the checkpoint of operator {}", operatorId, e);
+      }
+    }
+  }
+
+  /**
+   * Returns and clears the field breakdown of the last checkpoint saved for the operator.
+   *
+   * @param operatorId operator id
+   * @return field statistics or null when the checkpoint was not profiled
+   */
+  public Map<String, FieldStats> removeCheckpointProfile(int operatorId)
+  {
+    return checkpointProfiles.remove(operatorId);
+  }
+
   public Object readResolve() throws ObjectStreamException
   {
-    return new FSStorageAgent(this.path, null);
+    FSStorageAgent fsStorageAgent = new FSStorageAgent(this.path, null);
+    fsStorageAgent.setProfileCheckpoints(profileCheckpoints);
+    return fsStorageAgent;
+  }
+
+  public boolean isProfileCheckpoints()
+  {
+    return profileCheckpoints;
+  }
+
+  /**
+   * Enables attribution of checkpoint size and serialization time to the operator fields. The profile costs an
+   * additional serialization of the operator per checkpoint and is meant for finding state bloat during development.
+   *
+   * @param profileCheckpoints whether checkpoints are profiled
+   */
+  public void setProfileCheckpoints(boolean profileCheckpoints)
+  {
+    this.profileCheckpoints = profileCheckpoints;
   }
 
   private static final long serialVersionUID = 201404031201L;
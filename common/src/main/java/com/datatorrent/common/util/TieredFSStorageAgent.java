@@ -0,0 +1,388 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CreateFlag;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+
+import com.datatorrent.netlet.util.DTThrowable;
+
+/**
+ * Storage agent that keeps the most recent serialized checkpoints of each operator in an off-heap
+ * memory tier within the container and persists them to the file system lazily.
+ * <p>
+ * The in-memory tier is shared by all instances of the agent with the same path in a JVM, so that an
+ * operator that is redeployed in the same container is restored without going to the file system.
+ * Checkpoints are evicted from memory when they are superseded by a committed window or when more than
+ * {@link #getMaxMemoryCheckpoints()} persisted checkpoints are held for an operator.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class TieredFSStorageAgent extends AsyncFSStorageAgent
+{
+  public static final int DEFAULT_MAX_MEMORY_CHECKPOINTS = 2;
+
+  private static final ConcurrentMap<String, MemoryStore> memoryStores = new ConcurrentHashMap<>();
+
+  private int maxMemoryCheckpoints = DEFAULT_MAX_MEMORY_CHECKPOINTS;
+
+  private TieredFSStorageAgent()
+  {
+    super();
+  }
+
+  public TieredFSStorageAgent(String path, Configuration conf)
+  {
+    super(path, conf);
+  }
+
+  @Override
+  public void save(Object object, int operatorId, long windowId) throws IOException
+  {
+    ByteBufferOutputStream bos = new ByteBufferOutputStream(4096);
+    store(bos, object);
+    getMemoryStore().put(operatorId, windowId, bos.getBuffer(), maxMemoryCheckpoints);
+    if (isSyncCheckpoint()) {
+      copyToHDFS(operatorId, windowId);
+    }
+    profile(object, operatorId);
+  }
+
+  @Override
+  public void copyToHDFS(int operatorId, long windowId) throws IOException
+  {
+    MemoryStore memoryStore = getMemoryStore();
+    ByteBuffer buffer = memoryStore.get(operatorId, windowId);
+    if (buffer == null) {
+      throw new IOException("Checkpoint " + windowId + " of operator " + operatorId + " is not in memory");
+    }
+    String operatorIdStr = String.valueOf(operatorId);
+    String window = Long.toHexString(windowId);
+    Path lPath = new Path(path + Path.SEPARATOR + operatorIdStr + Path.SEPARATOR + TMP_FILE);
+    FSDataOutputStream stream = null;
+    boolean stateSaved = false;
+    try {
+      stream = fileContext.create(lPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE), Options.CreateOpts.CreateParent.createParent());
+      byte[] chunk = new byte[Math.min(buffer.remaining(), 64 * 1024)];
+      while (buffer.hasRemaining()) {
+        int length = Math.min(chunk.length, buffer.remaining());
+        buffer.get(chunk, 0, length);
+        stream.write(chunk, 0, length);
+      }
+      stateSaved = true;
+    } catch (Throwable t) {
+      logger.debug("while saving {} {}", operatorId, window, t);
+      stateSaved = false;
+      DTThrowable.rethrow(t);
+    } finally {
+      try {
+        if (stream != null) {
+          stream.close();
+        }
+      } catch (IOException ie) {
+        stateSaved = false;
+        throw new RuntimeException(ie);
+      } finally {
+        if (stateSaved) {
+          fileContext.rename(lPath, new Path(path + Path.SEPARATOR + operatorIdStr + Path.SEPARATOR + window), Options.Rename.OVERWRITE);
+          memoryStore.persisted(operatorId, windowId, maxMemoryCheckpoints);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Object load(int operatorId, long windowId) throws IOException
+  {
+    ByteBuffer buffer = getMemoryStore().get(operatorId, windowId);
+    if (buffer != null) {
+      logger.debug("Loading {}: {} from memory", operatorId, Long.toHexString(windowId));
+      return retrieve(new ByteBufferInputStream(buffer));
+    }
+    return super.load(operatorId, windowId);
+  }
+
+  @Override
+  public void delete(int operatorId, long windowId) throws IOException
+  {
+    getMemoryStore().remove(operatorId, windowId);
+    super.delete(operatorId, windowId);
+  }
+
+  @Override
+  public void delete(int operatorId, long[] windowIds) throws IOException
+  {
+    MemoryStore memoryStore = getMemoryStore();
+    for (long windowId : windowIds) {
+      memoryStore.remove(operatorId, windowId);
+    }
+    super.delete(operatorId, windowIds);
+  }
+
+  /**
+   * Evicts the in-memory checkpoints of the operator that are older than the committed window.
+   * The checkpoint of the committed window itself is retained as it remains a recovery point.
+   *
+   * @param operatorId operator id
+   * @param windowId committed window id
+   */
+  public void committed(int operatorId, long windowId)
+  {
+    getMemoryStore().evictBefore(operatorId, windowId);
+  }
+
+  private MemoryStore getMemoryStore()
+  {
+    MemoryStore memoryStore = memoryStores.get(path);
+    if (memoryStore == null) {
+      MemoryStore newStore = new MemoryStore();
+      memoryStore = memoryStores.putIfAbsent(path, newStore);
+      if (memoryStore == null) {
+        memoryStore = newStore;
+      }
+    }
+    return memoryStore;
+  }
+
+  @Override
+  public Object readResolve() throws ObjectStreamException
+  {
+    TieredFSStorageAgent agent = new TieredFSStorageAgent(this.path, null);
+    agent.setSyncCheckpoint(isSyncCheckpoint());
+    agent.setMaxMemoryCheckpoints(maxMemoryCheckpoints);
+    agent.setProfileCheckpoints(isProfileCheckpoints());
+    return agent;
+  }
+
+  public int getMaxMemoryCheckpoints()
+  {
+    return maxMemoryCheckpoints;
+  }
+
+  /**
+   * Sets the number of persisted checkpoints per operator that are kept in memory. Checkpoints that have not
+   * been persisted yet are never evicted due to this limit.
+   *
+   * @param maxMemoryCheckpoints number of checkpoints per operator
+   */
+  public void setMaxMemoryCheckpoints(int maxMemoryCheckpoints)
+  {
+    if (maxMemoryCheckpoints < 1) {
+      throw new IllegalArgumentException("maxMemoryCheckpoints should be at least 1");
+    }
+    this.maxMemoryCheckpoints = maxMemoryCheckpoints;
+  }
+
+  private static class MemoryCheckpoint
+  {
+    final ByteBuffer buffer;
+    boolean persisted;
+
+    MemoryCheckpoint(ByteBuffer buffer)
+    {
+      this.buffer = buffer;
+    }
+  }
+
+  private static class MemoryStore
+  {
+    private final Map<Integer, NavigableMap<Long, MemoryCheckpoint>> checkpoints = new HashMap<>();
+
+    synchronized void put(int operatorId, long windowId, ByteBuffer buffer, int maxCheckpoints)
+    {
+      NavigableMap<Long, MemoryCheckpoint> windows = checkpoints.get(operatorId);
+      if (windows == null) {
+        windows = new TreeMap<>();
+        checkpoints.put(operatorId, windows);
+      }
+      windows.put(windowId, new MemoryCheckpoint(buffer));
+      evictExcess(windows, maxCheckpoints);
+    }
+
+    /**
+     * Returns a read only view of the checkpoint, positioned at the beginning, so that concurrent readers
+     * do not interfere with each other.
+     */
+    synchronized ByteBuffer get(int operatorId, long windowId)
+    {
+      NavigableMap<Long, MemoryCheckpoint> windows = checkpoints.get(operatorId);
+      if (windows != null) {
+        MemoryCheckpoint checkpoint = windows.get(windowId);
+        if (checkpoint != null) {
+          return checkpoint.buffer.asReadOnlyBuffer();
+        }
+      }
+      return null;
+    }
+
+    synchronized void persisted(int operatorId, long windowId, int maxCheckpoints)
+    {
+      NavigableMap<Long, MemoryCheckpoint> windows = checkpoints.get(operatorId);
+      if (windows != null) {
+        MemoryCheckpoint checkpoint = windows.get(windowId);
+        if (checkpoint != null) {
+          checkpoint.persisted = true;
+        }
+        evictExcess(windows, maxCheckpoints);
+      }
+    }
+
+    synchronized void remove(int operatorId, long windowId)
+    {
+      NavigableMap<Long, MemoryCheckpoint> windows = checkpoints.get(operatorId);
+      if (windows != null) {
+        windows.remove(windowId);
+        if (windows.isEmpty()) {
+          checkpoints.remove(operatorId);
+        }
+      }
+    }
+
+    synchronized void evictBefore(int operatorId, long windowId)
+    {
+      NavigableMap<Long, MemoryCheckpoint> windows = checkpoints.get(operatorId);
+      if (windows != null) {
+        Iterator<MemoryCheckpoint> iterator = windows.headMap(windowId, false).values().iterator();
+        while (iterator.hasNext()) {
+          if (iterator.next().persisted) {
+            iterator.remove();
+          }
+        }
+      }
+    }
+
+    private static void evictExcess(NavigableMap<Long, MemoryCheckpoint> windows, int maxCheckpoints)
+    {
+      Iterator<MemoryCheckpoint> iterator = windows.values().iterator();
+      int excess = windows.size() - maxCheckpoints;
+      while (excess > 0 && iterator.hasNext()) {
+        if (iterator.next().persisted) {
+          iterator.remove();
+          excess--;
+        }
+      }
+    }
+  }
+
+  /**
+   * Output stream that serializes directly into off-heap memory. The buffer is doubled when full, so that the
+   * checkpoint is not first collected on the heap and then copied.
+   */
+  private static class ByteBufferOutputStream extends OutputStream
+  {
+    private ByteBuffer buffer;
+
+    ByteBufferOutputStream(int initialCapacity)
+    {
+      buffer = ByteBuffer.allocateDirect(initialCapacity);
+    }
+
+    private void ensureRemaining(int length)
+    {
+      if (buffer.remaining() < length) {
+        int capacity = Math.max(buffer.capacity() << 1, buffer.position() + length);
+        ByteBuffer newBuffer = ByteBuffer.allocateDirect(capacity);
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      ensureRemaining(1);
+      buffer.put((byte)b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      ensureRemaining(len);
+      buffer.put(b, off, len);
+    }
+
+    /**
+     * Returns the written bytes, positioned at the beginning.
+     */
+    ByteBuffer getBuffer()
+    {
+      ByteBuffer result = buffer.duplicate();
+      result.flip();
+      return result;
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream
+  {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer)
+    {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int length = Math.min(len, buffer.remaining());
+      buffer.get(b, off, length);
+      return length;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+      return buffer.remaining();
+    }
+  }
+
+  private static final long serialVersionUID = 201604181200L;
+  private static final Logger logger = LoggerFactory.getLogger(TieredFSStorageAgent.class);
+}
@@ -32,10 +32,15 @@ import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.fs.FileContext;
 import org.apache.hadoop.fs.Path;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.Maps;
 
 import com.datatorrent.api.Attribute;
 import com.datatorrent.api.DAG;
+import com.datatorrent.api.Stats.CheckpointStats.FieldStats;
 
 public class FSStorageAgentTest
 {
@@ -131,4 +136,91 @@ public class FSStorageAgentTest
     Assert.assertFalse("operator 1 window 1", fileContext.util().exists(new Path(appPath + "/" + 1 + "/" + 1)));
   }
 
+  @Test
+  public void testBatchDelete() throws IOException
+  {
+    for (int windowId = 1; windowId <= 3; windowId++) {
+      testMeta.storageAgent.save("state" + windowId, 1, windowId);
+    }
+    testMeta.storageAgent.save("state1", 2, 1);
+
+    testMeta.storageAgent.delete(1, new long[]{1, 2, 4});
+    Assert.assertArrayEquals("operator 1 windows", new long[]{3}, testMeta.storageAgent.getWindowIds(1));
+    Assert.assertArrayEquals("operator 2 windows", new long[]{1}, testMeta.storageAgent.getWindowIds(2));
+
+    // no checkpoints saved yet
+    testMeta.storageAgent.delete(3, new long[]{1});
+  }
+
+  @Test
+  public void testProfileCheckpoints() throws IOException
+  {
+    ProfiledState state = new ProfiledState();
+    state.nested.data = new byte[10000];
+
+    testMeta.storageAgent.save(state, 1, 1);
+    Assert.assertNull("not profiled", testMeta.storageAgent.removeCheckpointProfile(1));
+
+    testMeta.storageAgent.setProfileCheckpoints(true);
+    testMeta.storageAgent.save(state, 1, 2);
+    Map<String, FieldStats> fieldStats = testMeta.storageAgent.removeCheckpointProfile(1);
+    Assert.assertNotNull("profiled", fieldStats);
+    Assert.assertNull("profile is removed", testMeta.storageAgent.removeCheckpointProfile(1));
+
+    FieldStats total = fieldStats.get(ProfiledState.class.getName());
+    FieldStats nested = fieldStats.get(ProfiledState.class.getName() + ".nested");
+    FieldStats data = fieldStats.get(NestedState.class.getName() + ".data");
+    FieldStats count = fieldStats.get(ProfiledState.class.getName() + ".count");
+    Assert.assertTrue("data size " + data, data.bytes >= 10000);
+    Assert.assertTrue("nested includes data " + nested, nested.bytes >= data.bytes);
+    Assert.assertTrue("total includes nested " + total, total.bytes >= nested.bytes + count.bytes);
+    Assert.assertTrue("count size " + count, count.bytes < 10);
+
+    FSStorageAgent resolved = (FSStorageAgent)testMeta.storageAgent.readResolve();
+    Assert.assertTrue("profile setting retained", resolved.isProfileCheckpoints());
+  }
+
+  @Test
+  public void testProfileFailureKeepsCheckpoint() throws IOException
+  {
+    testMeta.storageAgent.setProfileCheckpoints(true);
+    testMeta.storageAgent.save(new SerializableOnce(), 1, 1);
+    Assert.assertNull("not profiled", testMeta.storageAgent.removeCheckpointProfile(1));
+    Assert.assertArrayEquals("checkpoint saved", new long[] {1}, testMeta.storageAgent.getWindowIds(1));
+    Assert.assertNotNull("checkpoint loaded", testMeta.storageAgent.load(1, 1));
+  }
+
+  /**
+   * Fails on the second serialization, which is the profiling pass after the checkpoint was written.
+   */
+  private static class SerializableOnce implements KryoSerializable
+  {
+    private transient boolean serialized;
+
+    @Override
+    public void write(Kryo kryo, Output output)
+    {
+      if (serialized) {
+        throw new IllegalStateException("already serialized");
+      }
+      serialized = true;
+    }
+
+    @Override
+    public void read(Kryo kryo, Input input)
+    {
+    }
+  }
+
+  private static class ProfiledState
+  {
+    int count = 1;
+    NestedState nested = new NestedState();
+  }
+
+  private static class NestedState
+  {
+    byte[] data;
+  }
+
 }
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.collect.Maps;
+
+public class TieredFSStorageAgentTest
+{
+  private static class TestMeta extends TestWatcher
+  {
+    String applicationPath;
+    TieredFSStorageAgent storageAgent;
+
+    @Override
+    protected void starting(Description description)
+    {
+      super.starting(description);
+      String basePath = "target/" + description.getClassName() + "/" + description.getMethodName();
+      applicationPath = basePath + "/app";
+      try {
+        FileUtils.forceMkdir(new File(basePath));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      storageAgent = new TieredFSStorageAgent(applicationPath, null);
+    }
+
+    @Override
+    protected void finished(Description description)
+    {
+      try {
+        FileUtils.deleteDirectory(new File("target/" + description.getClassName()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  private static Map<Integer, String> newData(int key, String value)
+  {
+    Map<Integer, String> data = Maps.newHashMap();
+    data.put(key, value);
+    return data;
+  }
+
+  private boolean isPersisted(int operatorId, long windowId) throws IOException
+  {
+    Path lPath = new Path(testMeta.applicationPath + "/" + operatorId + "/" + Long.toHexString(windowId));
+    return FileContext.getFileContext().util().exists(lPath);
+  }
+
+  @Test
+  public void testLoadFromMemory() throws IOException
+  {
+    Map<Integer, String> data = newData(1, "one");
+    testMeta.storageAgent.save(data, 1, 1);
+    Assert.assertFalse("not persisted", isPersisted(1, 1));
+    Assert.assertEquals("data from memory", data, testMeta.storageAgent.load(1, 1));
+
+    TieredFSStorageAgent sameContainerAgent = new TieredFSStorageAgent(testMeta.applicationPath, null);
+    Assert.assertEquals("data from shared memory", data, sameContainerAgent.load(1, 1));
+
+    testMeta.storageAgent.copyToHDFS(1, 1);
+    Assert.assertTrue("persisted", isPersisted(1, 1));
+  }
+
+  @Test
+  public void testEviction() throws IOException
+  {
+    testMeta.storageAgent.setMaxMemoryCheckpoints(1);
+    testMeta.storageAgent.save(newData(1, "one"), 1, 1);
+    testMeta.storageAgent.save(newData(2, "two"), 1, 2);
+    Assert.assertEquals("unpersisted checkpoint not evicted", newData(1, "one"), testMeta.storageAgent.load(1, 1));
+
+    testMeta.storageAgent.copyToHDFS(1, 1);
+    testMeta.storageAgent.copyToHDFS(1, 2);
+    testMeta.storageAgent.save(newData(3, "three"), 1, 3);
+    testMeta.storageAgent.copyToHDFS(1, 3);
+
+    // evicted checkpoints are loaded from the file system
+    testMeta.storageAgent.delete(1, 3);
+    FileContext.getFileContext().delete(new Path(testMeta.applicationPath + "/1/" + Long.toHexString(2)), false);
+    Assert.assertEquals("data from file system", newData(1, "one"), testMeta.storageAgent.load(1, 1));
+    try {
+      testMeta.storageAgent.load(1, 2);
+      Assert.fail("checkpoint 2 should have been evicted and deleted");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCommitted() throws IOException
+  {
+    testMeta.storageAgent.setMaxMemoryCheckpoints(10);
+    testMeta.storageAgent.save(newData(1, "one"), 1, 1);
+    testMeta.storageAgent.copyToHDFS(1, 1);
+    testMeta.storageAgent.save(newData(2, "two"), 1, 2);
+    testMeta.storageAgent.copyToHDFS(1, 2);
+
+    testMeta.storageAgent.committed(1, 2);
+    FileContext.getFileContext().delete(new Path(testMeta.applicationPath + "/1"), true);
+    Assert.assertEquals("committed checkpoint retained", newData(2, "two"), testMeta.storageAgent.load(1, 2));
+    try {
+      testMeta.storageAgent.load(1, 1);
+      Assert.fail("checkpoint 1 should have been evicted");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -25,9 +25,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datatorrent.bufferserver.client.Controller;
+import com.datatorrent.netlet.EventLoop;
 
 /**
  * Encapsulates buffer server control interface, used by the master for purging data.
+ * The connection is kept open so that it can carry multiple requests, until the
+ * buffer server closes it or an error occurs.
  */
 class BufferServerController extends Controller
 {
@@ -35,6 +38,8 @@ class BufferServerController extends Controller
    * Use a single thread group for all buffer server interactions.
    */
   InetSocketAddress addr;
+  byte[] token;
+  private volatile boolean closed;
 
   BufferServerController(String id)
   {
@@ -44,7 +49,32 @@ class BufferServerController extends Controller
   @Override
   public void onMessage(String message)
   {
-    logger.debug("Controller received {}, now disconnecting.", message);
+    logger.debug("Controller received {}", message);
+  }
+
+  @Override
+  public void disconnected()
+  {
+    closed = true;
+    super.disconnected();
+  }
+
+  @Override
+  public void handleException(Exception cce, EventLoop el)
+  {
+    closed = true;
+    logger.warn("Closing controller connection to {}", addr, cce);
+    el.disconnect(this);
+  }
+
+  boolean isClosed()
+  {
+    return closed;
+  }
+
+  void close()
+  {
+    closed = true;
     StreamingContainer.eventloop.disconnect(this);
   }
 
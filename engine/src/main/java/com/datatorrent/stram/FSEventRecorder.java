@@ -21,8 +21,13 @@ package com.datatorrent.stram;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import net.engio.mbassy.listener.Handler;
 
 import org.slf4j.Logger;
@@ -38,46 +43,90 @@ import com.datatorrent.netlet.util.DTThrowable;
 import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.api.StramEvent;
 import com.datatorrent.stram.client.EventsAgent;
-import com.datatorrent.stram.util.FSPartFileCollection;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection;
 import com.datatorrent.stram.util.SharedPubSubWebSocketClient;
 
 /**
  * <p>FSEventRecorder class.</p>
+ * <p>
+ * Events are queued by {@link #recordEventAsync(StramEvent)} and written in batches by the event recorder thread,
+ * which flushes the part file once per batch. Each event is published to the gateway on the events topic of the
+ * application as before, while subscribers of the {@link #BATCH_TOPIC_SUFFIX} topic receive the events of a batch
+ * in a single message that always carries a list of events, also when the batch holds a single event. The queue
+ * holds at most
+ * {@link #getQueueCapacity()} events, events that arrive while it is full are dropped and counted. Events of a type
+ * that exceed {@link #getMaxEventsPerTypePerSecond()} are not recorded individually either. Both are recorded as
+ * {@link StramEvent.EventSummaryEvent}s, so that mass redeploys do not flood the event log and delay shutdown.
+ * </p>
  *
  * @since 0.3.4
  */
 public class FSEventRecorder implements EventRecorder
 {
   public static final String VERSION = "1.0";
-  private final BlockingQueue<StramEvent> queue = new LinkedBlockingQueue<StramEvent>();
+  public static final String BATCH_TOPIC_SUFFIX = "batch";
+  public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+  public static final int DEFAULT_MAX_EVENTS_PER_TYPE_PER_SECOND = 100;
+  private static final String DROPPED_EVENT_TYPE = "*";
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+  private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private int maxEventsPerTypePerSecond = DEFAULT_MAX_EVENTS_PER_TYPE_PER_SECOND;
+  private BlockingQueue<StramEvent> queue;
+  private final AtomicLong droppedEventCount = new AtomicLong();
+  private final AtomicLong suppressedEventCount = new AtomicLong();
   private static final Logger LOG = LoggerFactory.getLogger(FSEventRecorder.class);
-  private FSPartFileCollection storage;
+  private FSIndexedPartFileCollection storage;
   private String basePath = ".";
   private transient StreamCodec<Object> streamCodec;
   private final URI pubSubUrl = null;
-  private int numSubscribers = 0;
+  private volatile int numSubscribers = 0;
+  private volatile int numBatchSubscribers = 0;
   private SharedPubSubWebSocketClient wsClient;
   private final String pubSubTopic;
+  private final String batchPubSubTopic;
   private final EventRecorderThread eventRecorderThread = new EventRecorderThread();
 
+  /**
+   * Rate limit state of an event type, accessed by the event recorder thread only.
+   */
+  private static class RateLimit
+  {
+    long periodStart;
+    int numRecorded;
+    long numSuppressed;
+    long firstSuppressedTime;
+    long lastSuppressedTime;
+  }
+
   private class EventRecorderThread extends Thread
   {
+    private final List<StramEvent> batch = new ArrayList<StramEvent>();
+    private final List<EventsAgent.EventInfo> publishBatch = new ArrayList<EventsAgent.EventInfo>();
+    private final Map<String, RateLimit> rateLimits = new HashMap<String, RateLimit>();
+    private long reportedDroppedEventCount;
+    private long droppedSince = System.currentTimeMillis();
+
     @Override
-    @SuppressWarnings("CallToThreadYield")
     public void run()
     {
       while (true) {
         try {
-          writeEvent(queue.take());
-          yield();
-          if (queue.isEmpty()) {
-            if (!storage.flushData() && wsClient != null) {
-              String topic = SharedPubSubWebSocketClient.LAST_INDEX_TOPIC_PREFIX + ".event." + storage.getBasePath();
-              wsClient.publish(topic, storage.getLatestIndexLine());
-            }
+          StramEvent event = queue.poll(1, TimeUnit.SECONDS);
+          if (event != null) {
+            batch.add(event);
+            queue.drainTo(batch, maxBatchSize - 1);
           }
+          processBatch(false);
         }
         catch (InterruptedException ex) {
+          // record what is already queued without waiting for further events
+          try {
+            queue.drainTo(batch);
+            processBatch(true);
+          } catch (Exception e) {
+            LOG.error("Caught Exception", e);
+          }
           return;
         }
         catch (Exception ex) {
@@ -86,12 +135,91 @@ public class FSEventRecorder implements EventRecorder
       }
     }
 
+    private void processBatch(boolean last) throws Exception
+    {
+      long now = System.currentTimeMillis();
+      boolean written = false;
+      try {
+        for (StramEvent event : batch) {
+          if (isRecorded(event, now)) {
+            writeEvent(event, publishBatch);
+            written = true;
+          }
+        }
+        written |= writeSummaries(now, last);
+        publish(publishBatch);
+      } finally {
+        batch.clear();
+        publishBatch.clear();
+      }
+      if (written) {
+        if (!storage.flushData() && wsClient != null) {
+          String topic = SharedPubSubWebSocketClient.LAST_INDEX_TOPIC_PREFIX + ".event." + storage.getBasePath();
+          wsClient.publish(topic, storage.getLatestIndexLine());
+        }
+      }
+    }
+
+    private boolean isRecorded(StramEvent event, long now)
+    {
+      RateLimit rateLimit = rateLimits.get(event.getType());
+      if (rateLimit == null) {
+        rateLimit = new RateLimit();
+        rateLimit.periodStart = now;
+        rateLimits.put(event.getType(), rateLimit);
+      }
+      if (rateLimit.numRecorded < maxEventsPerTypePerSecond) {
+        rateLimit.numRecorded++;
+        return true;
+      }
+      if (rateLimit.numSuppressed++ == 0) {
+        rateLimit.firstSuppressedTime = event.getTimestamp();
+      }
+      rateLimit.lastSuppressedTime = event.getTimestamp();
+      suppressedEventCount.incrementAndGet();
+      return false;
+    }
+
+    /**
+     * Records the summaries of the suppressed events of the rate limit periods that ended and of the dropped events.
+     */
+    private boolean writeSummaries(long now, boolean last) throws Exception
+    {
+      boolean written = false;
+      Iterator<Map.Entry<String, RateLimit>> it = rateLimits.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, RateLimit> entry = it.next();
+        RateLimit rateLimit = entry.getValue();
+        if (last || now - rateLimit.periodStart >= 1000) {
+          if (rateLimit.numSuppressed > 0) {
+            StramEvent summary = new StramEvent.EventSummaryEvent(entry.getKey(), rateLimit.numSuppressed,
+                rateLimit.firstSuppressedTime, rateLimit.lastSuppressedTime);
+            summary.setReason("Exceeded " + maxEventsPerTypePerSecond + " events per second");
+            writeEvent(summary, publishBatch);
+            written = true;
+          }
+          it.remove();
+        }
+      }
+      long dropped = droppedEventCount.get() - reportedDroppedEventCount;
+      if (dropped > 0) {
+        StramEvent summary = new StramEvent.EventSummaryEvent(DROPPED_EVENT_TYPE, dropped, droppedSince, now);
+        summary.setReason("Event queue full");
+        writeEvent(summary, publishBatch);
+        reportedDroppedEventCount += dropped;
+        written = true;
+      }
+      droppedSince = now;
+      return written;
+    }
+
   }
 
   public FSEventRecorder(String appid)
   {
     LOG.debug("Event recorder created for {}", appid);
     pubSubTopic = "applications." + appid + ".events";
+    batchPubSubTopic = pubSubTopic + "." + BATCH_TOPIC_SUFFIX;
   }
 
   public void setWebSocketClient(SharedPubSubWebSocketClient wsClient)
@@ -104,11 +232,63 @@ public class FSEventRecorder implements EventRecorder
     this.basePath = basePath;
   }
 
+  public int getQueueCapacity()
+  {
+    return queueCapacity;
+  }
+
+  /**
+   * Sets the maximum number of events waiting to be written, must be set before setup.
+   *
+   * @param queueCapacity
+   */
+  public void setQueueCapacity(int queueCapacity)
+  {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public int getMaxBatchSize()
+  {
+    return maxBatchSize;
+  }
+
+  public void setMaxBatchSize(int maxBatchSize)
+  {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public int getMaxEventsPerTypePerSecond()
+  {
+    return maxEventsPerTypePerSecond;
+  }
+
+  public void setMaxEventsPerTypePerSecond(int maxEventsPerTypePerSecond)
+  {
+    this.maxEventsPerTypePerSecond = maxEventsPerTypePerSecond;
+  }
+
+  /**
+   * Returns the number of events that were dropped because the queue was full.
+   */
+  public long getDroppedEventCount()
+  {
+    return droppedEventCount.get();
+  }
+
+  /**
+   * Returns the number of events that were only recorded in summaries because of the rate limit.
+   */
+  public long getSuppressedEventCount()
+  {
+    return suppressedEventCount.get();
+  }
+
   public void setup()
   {
     try {
+      queue = new LinkedBlockingQueue<StramEvent>(queueCapacity);
       streamCodec = new JsonStreamCodec<Object>();
-      storage = new FSPartFileCollection();
+      storage = new FSIndexedPartFileCollection();
       storage.setBasePath(basePath);
       storage.setup();
       storage.writeMetaData((VERSION + "\n").getBytes());
@@ -149,6 +329,9 @@ public class FSEventRecorder implements EventRecorder
     if (storage != null) {
       storage.teardown();
     }
+    if (droppedEventCount.get() > 0 || suppressedEventCount.get() > 0) {
+      LOG.info("Dropped {} events and summarized {} events", droppedEventCount.get(), suppressedEventCount.get());
+    }
   }
 
   @Handler
@@ -156,10 +339,39 @@ public class FSEventRecorder implements EventRecorder
   public void recordEventAsync(StramEvent event)
   {
     LOG.debug("Adding event {} to the queue", event.getType());
-    queue.add(event);
+    if (!queue.offer(event)) {
+      droppedEventCount.incrementAndGet();
+    }
   }
 
   public void writeEvent(StramEvent event) throws Exception
+  {
+    List<EventsAgent.EventInfo> publishBatch = new ArrayList<EventsAgent.EventInfo>(1);
+    writeEvent(event, publishBatch);
+    publish(publishBatch);
+  }
+
+  /**
+   * Publishes the events one by one on the events topic and as a list on the batch topic, for the topics that have
+   * subscribers.
+   */
+  private void publish(List<EventsAgent.EventInfo> publishBatch) throws IOException
+  {
+    if (publishBatch.isEmpty()) {
+      return;
+    }
+    LOG.debug("Publishing {} events through websocket to gateway", publishBatch.size());
+    if (numSubscribers > 0) {
+      for (EventsAgent.EventInfo eventInfo : publishBatch) {
+        wsClient.publish(pubSubTopic, eventInfo);
+      }
+    }
+    if (numBatchSubscribers > 0) {
+      wsClient.publish(batchPubSubTopic, publishBatch);
+    }
+  }
+
+  private void writeEvent(StramEvent event, List<EventsAgent.EventInfo> publishBatch) throws Exception
   {
     LOG.debug("Writing event {} to the storage", event.getType());
     ByteArrayOutputStream bos = new ByteArrayOutputStream();
@@ -173,16 +385,15 @@ public class FSEventRecorder implements EventRecorder
     Slice f = streamCodec.toByteArray(data);
     bos.write(f.buffer, f.offset, f.length);
     bos.write("\n".getBytes());
-    storage.writeDataItem(bos.toByteArray(), true);
-    if (numSubscribers > 0) {
-      LOG.debug("Publishing event {} through websocket to gateway", event.getType());
+    storage.writeDataItem(bos.toByteArray(), event.getTimestamp());
+    if (numSubscribers > 0 || numBatchSubscribers > 0) {
       EventsAgent.EventInfo eventInfo = new EventsAgent.EventInfo();
       eventInfo.id = event.getId();
       eventInfo.timestamp = event.getTimestamp();
       eventInfo.type = event.getType();
       eventInfo.data = data;
       eventInfo.data.remove("id");
-      wsClient.publish(pubSubTopic, eventInfo);
+      publishBatch.add(eventInfo);
     }
   }
 
@@ -204,6 +415,22 @@ public class FSEventRecorder implements EventRecorder
       }
 
     });
+    wsClient.addHandler(batchPubSubTopic, true, new SharedPubSubWebSocketClient.Handler()
+    {
+      @Override
+      public void onMessage(String type, String topic, Object data)
+      {
+        numBatchSubscribers = Integer.valueOf((String)data);
+        LOG.info("Number of batch subscribers is now {}", numBatchSubscribers);
+      }
+
+      @Override
+      public void onClose()
+      {
+        numBatchSubscribers = 0;
+      }
+
+    });
 
   }
 
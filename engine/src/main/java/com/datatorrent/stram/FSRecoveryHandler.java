@@ -29,6 +29,12 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.fs.Options.Rename;
 
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.stram.codec.SnapshotFormat;
+import com.datatorrent.stram.codec.SnapshotKryoFactory;
 import com.datatorrent.stram.util.FSUtil;
 
 /**
@@ -54,6 +60,14 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
   private static final String DIRECTORY_RECOVERY = "recovery";
   private static final String FILE_HEARTBEATURI = "heartbeatUri";
 
+  /**
+   * Magic number that identifies a snapshot with a header. Legacy snapshots are plain Java serialization streams.
+   */
+  private static final int SNAPSHOT_MAGIC = 0x41505853;
+  private static final byte SNAPSHOT_VERSION = 1;
+
+  private SnapshotFormat snapshotFormat = SnapshotFormat.JAVA;
+
   public FSRecoveryHandler(String appDir, Configuration conf) throws IOException
   {
     this.basedir = new Path(appDir, DIRECTORY_RECOVERY);
@@ -71,6 +85,21 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     return basedir.toUri().toString();
   }
 
+  public SnapshotFormat getSnapshotFormat()
+  {
+    return snapshotFormat;
+  }
+
+  /**
+   * Set the format for subsequent snapshots. Restore detects the format of the existing snapshot.
+   *
+   * @param snapshotFormat
+   */
+  public void setSnapshotFormat(SnapshotFormat snapshotFormat)
+  {
+    this.snapshotFormat = snapshotFormat;
+  }
+
   @Override
   public DataOutputStream rotateLog() throws IOException
   {
@@ -153,15 +182,28 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
       fs.rename(snapshotPath, snapshotBackupPath);
     }
 
-    LOG.debug("Writing checkpoint to {}", snapshotPath);
+    LOG.debug("Writing {} checkpoint to {}", snapshotFormat, snapshotPath);
     final FSDataOutputStream fsOutputStream = fs.create(snapshotPath);
     try {
-      ObjectOutputStream oos = new ObjectOutputStream(fsOutputStream);
-      try {
-        oos.writeObject(state);
-      }
-      finally {
-        oos.close();
+      if (snapshotFormat == SnapshotFormat.KRYO) {
+        fsOutputStream.writeInt(SNAPSHOT_MAGIC);
+        fsOutputStream.writeByte(SNAPSHOT_VERSION);
+        fsOutputStream.writeByte(snapshotFormat.ordinal());
+        Output output = new Output(fsOutputStream);
+        try {
+          SnapshotKryoFactory.newKryo(Thread.currentThread().getContextClassLoader()).writeClassAndObject(output, state);
+        } catch (KryoException e) {
+          throw new IOException("Failed to write checkpoint state", e);
+        } finally {
+          output.close();
+        }
+      } else {
+        ObjectOutputStream oos = new ObjectOutputStream(fsOutputStream);
+        try {
+          oos.writeObject(state);
+        } finally {
+          oos.close();
+        }
       }
     }
     finally {
@@ -231,10 +273,20 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     }
 
     LOG.debug("Reading checkpoint {}", snapshotPath);
-    InputStream is = fc.open(snapshotPath);
+    DataInputStream is = new DataInputStream(new BufferedInputStream(fc.open(snapshotPath)));
     // indeterministic class loading behavior
     // http://stackoverflow.com/questions/9110677/readresolve-not-working-an-instance-of-guavas-serializedform-appears
     final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    try {
+      is.mark(Integer.SIZE / Byte.SIZE);
+      if (is.readInt() == SNAPSHOT_MAGIC) {
+        return readSnapshot(is, loader);
+      }
+      is.reset();
+    } catch (EOFException e) {
+      is.close();
+      throw new IOException("Failed to read checkpointed state from " + snapshotPath, e);
+    }
     ObjectInputStream ois = new ObjectInputStream(is) {
       @Override
       protected Class<?> resolveClass(ObjectStreamClass objectStreamClass)
@@ -254,6 +306,26 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     }
   }
 
+  private Object readSnapshot(DataInputStream is, ClassLoader loader) throws IOException
+  {
+    try {
+      int version = is.readByte();
+      if (version > SNAPSHOT_VERSION) {
+        throw new IOException("Unsupported snapshot version " + version + " in " + snapshotPath);
+      }
+      int format = is.readByte();
+      if (format != SnapshotFormat.KRYO.ordinal()) {
+        throw new IOException("Unsupported snapshot format " + format + " in " + snapshotPath);
+      }
+      Input input = new Input(is);
+      return SnapshotKryoFactory.newKryo(loader).readClassAndObject(input);
+    } catch (KryoException e) {
+      throw new IOException("Failed to read checkpointed state", e);
+    } finally {
+      is.close();
+    }
+  }
+
   public void writeConnectUri(String uri) throws IOException
   {
     DataOutputStream out = fs.create(heartbeatPath, true);
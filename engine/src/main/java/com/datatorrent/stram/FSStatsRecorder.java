@@ -33,22 +33,27 @@ import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.annotation.RecordField;
 
 import com.datatorrent.netlet.util.Slice;
-import com.datatorrent.stram.util.FSPartFileCollection;
+import com.datatorrent.stram.util.FSStatsPartFileCollection;
 import com.datatorrent.stram.webapp.ContainerInfo;
 import com.datatorrent.stram.webapp.OperatorInfo;
 
 /**
  * <p>FSStatsRecorder class.</p>
+ * <p>
+ * Meta data is written as JSON lines, stats records in the binary format of {@link FSStatsPartFileCollection}.
+ * Stats written in format version {@link #VERSION} 1.0 contain JSON lines as well and remain readable.
+ * </p>
  *
  * @since 0.3.2
  */
 public class FSStatsRecorder implements StatsRecorder
 {
   public static final String VERSION = "1.0";
+  public static final String BINARY_VERSION = FSStatsPartFileCollection.VERSION;
   private static final Logger LOG = LoggerFactory.getLogger(FSStatsRecorder.class);
   private String basePath = ".";
-  private FSPartFileCollection containersStorage;
-  private final Map<String, FSPartFileCollection> logicalOperatorStorageMap = new ConcurrentHashMap<String, FSPartFileCollection>();
+  private FSStatsPartFileCollection containersStorage;
+  private final Map<String, FSStatsPartFileCollection> logicalOperatorStorageMap = new ConcurrentHashMap<String, FSStatsPartFileCollection>();
   private final Map<String, Integer> knownContainers = new HashMap<String, Integer>();
   private final Set<String> knownOperators = new HashSet<String>();
   private transient StreamCodec<Object> streamCodec;
@@ -65,16 +70,17 @@ public class FSStatsRecorder implements StatsRecorder
       while (true) {
         try {
           WriteOperation wo = queue.take();
-          if (wo.meta) {
+          if (wo.bytes != null) {
             wo.storage.writeMetaData(wo.bytes);
           }
           else {
-            wo.storage.writeDataItem(wo.bytes, true);
+            // encoded on this thread as the encoding depends on the current part file
+            wo.storage.writeRecord(wo.id, wo.timestamp, wo.stats);
           }
           Thread.yield();
           if (queue.isEmpty()) {
             containersStorage.flushData();
-            for (FSPartFileCollection operatorStorage : logicalOperatorStorageMap.values()) {
+            for (FSStatsPartFileCollection operatorStorage : logicalOperatorStorageMap.values()) {
               operatorStorage.flushData();
             }
           }
@@ -91,14 +97,26 @@ public class FSStatsRecorder implements StatsRecorder
   }
 
   private static class WriteOperation {
-    WriteOperation(FSPartFileCollection storage, byte[] bytes, boolean meta) {
+    WriteOperation(FSStatsPartFileCollection storage, byte[] bytes)
+    {
       this.storage = storage;
       this.bytes = bytes;
-      this.meta = meta;
     }
-    FSPartFileCollection storage;
+
+    WriteOperation(FSStatsPartFileCollection storage, int id, long timestamp, Map<String, Object> stats)
+    {
+      this.storage = storage;
+      this.id = id;
+      this.timestamp = timestamp;
+      this.stats = stats;
+    }
+    FSStatsPartFileCollection storage;
+    // meta data
     byte[] bytes;
-    boolean meta;
+    // stats record
+    int id;
+    long timestamp;
+    Map<String, Object> stats;
   }
 
   public void setBasePath(String basePath)
@@ -110,10 +128,10 @@ public class FSStatsRecorder implements StatsRecorder
   {
     try {
       streamCodec = new JsonStreamCodec<Object>();
-      containersStorage = new FSPartFileCollection();
+      containersStorage = new FSStatsPartFileCollection();
       containersStorage.setBasePath(basePath + "/containers");
       containersStorage.setup();
-      containersStorage.writeMetaData((VERSION + "\n").getBytes());
+      containersStorage.writeMetaData((BINARY_VERSION + "\n").getBytes());
       statsRecorderThread.start();
     }
     catch (Exception ex) {
@@ -132,7 +150,7 @@ public class FSStatsRecorder implements StatsRecorder
     if (containersStorage != null) {
       containersStorage.teardown();
     }
-    for (FSPartFileCollection operatorStorage : logicalOperatorStorageMap.values()) {
+    for (FSStatsPartFileCollection operatorStorage : logicalOperatorStorageMap.values()) {
       operatorStorage.teardown();
     }
   }
@@ -156,19 +174,13 @@ public class FSStatsRecorder implements StatsRecorder
         bos.write((String.valueOf(containerIndex) + ":").getBytes());
         bos.write(f.buffer, f.offset, f.length);
         bos.write("\n".getBytes());
-        queue.add(new WriteOperation(containersStorage, bos.toByteArray(), true));
+        queue.add(new WriteOperation(containersStorage, bos.toByteArray()));
       }
       else {
         containerIndex = knownContainers.get(entry.getKey());
       }
       Map<String, Object> fieldMap = extractRecordFields(containerInfo, "stats");
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      Slice f = streamCodec.toByteArray(fieldMap);
-      bos.write((String.valueOf(containerIndex) + ":").getBytes());
-      bos.write((String.valueOf(timestamp) + ":").getBytes());
-      bos.write(f.buffer, f.offset, f.length);
-      bos.write("\n".getBytes());
-      queue.add(new WriteOperation(containersStorage, bos.toByteArray(), false));
+      queue.add(new WriteOperation(containersStorage, containerIndex, timestamp, fieldMap));
     }
   }
 
@@ -176,12 +188,12 @@ public class FSStatsRecorder implements StatsRecorder
   public void recordOperators(List<OperatorInfo> operatorList, long timestamp) throws IOException
   {
     for (OperatorInfo operatorInfo : operatorList) {
-      FSPartFileCollection operatorStorage;
+      FSStatsPartFileCollection operatorStorage;
       if (!logicalOperatorStorageMap.containsKey(operatorInfo.name)) {
-        operatorStorage = new FSPartFileCollection();
+        operatorStorage = new FSStatsPartFileCollection();
         operatorStorage.setBasePath(basePath + "/operators/" + operatorInfo.name);
         operatorStorage.setup();
-        operatorStorage.writeMetaData((VERSION + "\n").getBytes());
+        operatorStorage.writeMetaData((BINARY_VERSION + "\n").getBytes());
         logicalOperatorStorageMap.put(operatorInfo.name, operatorStorage);
       }
       else {
@@ -194,16 +206,10 @@ public class FSStatsRecorder implements StatsRecorder
         Slice f = streamCodec.toByteArray(fieldMap);
         bos.write(f.buffer, f.offset, f.length);
         bos.write("\n".getBytes());
-        queue.add(new WriteOperation(operatorStorage, bos.toByteArray(), true));
+        queue.add(new WriteOperation(operatorStorage, bos.toByteArray()));
       }
       Map<String, Object> fieldMap = extractRecordFields(operatorInfo, "stats");
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      Slice f = streamCodec.toByteArray(fieldMap);
-      bos.write((operatorInfo.id + ":").getBytes());
-      bos.write((String.valueOf(timestamp) + ":").getBytes());
-      bos.write(f.buffer, f.offset, f.length);
-      bos.write("\n".getBytes());
-      queue.add(new WriteOperation(operatorStorage, bos.toByteArray(), false));
+      queue.add(new WriteOperation(operatorStorage, Integer.parseInt(operatorInfo.id), timestamp, fieldMap));
     }
   }
 
@@ -252,7 +258,7 @@ public class FSStatsRecorder implements StatsRecorder
   public void requestSync()
   {
     containersStorage.requestSync();
-    for (Map.Entry<String, FSPartFileCollection> entry : logicalOperatorStorageMap.entrySet()) {
+    for (Map.Entry<String, FSStatsPartFileCollection> entry : logicalOperatorStorageMap.entrySet()) {
       entry.getValue().requestSync();
     }
   }
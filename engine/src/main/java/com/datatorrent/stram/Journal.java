@@ -129,6 +129,22 @@ public final class Journal
     }
   }
 
+  /**
+   * Number of bytes written to the current output stream of the journal.
+   *
+   * @return size of the log since the last rotation
+   */
+  public long getSize()
+  {
+    final Output out = output.get();
+    if (out == null) {
+      return 0;
+    }
+    synchronized (out) {
+      return out.total();
+    }
+  }
+
   final void write(Recoverable op)
   {
     if (replayMode.get()) {
@@ -33,6 +33,7 @@ import org.apache.commons.lang.text.StrSubstitutor;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsAction;
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.security.Credentials;
@@ -76,7 +77,7 @@ public class LaunchContainerRunnable implements Runnable
   private final ByteBuffer tokens;
   private final Container container;
   private final NMClientAsync nmClient;
-  private final StreamingContainerAgent sca;
+  private final Collection<PTOperator> operators;
   private static final int MB_TO_B = 1024 * 1024;
 
   /**
@@ -86,12 +87,28 @@ public class LaunchContainerRunnable implements Runnable
    * @param tokens
    */
   public LaunchContainerRunnable(Container lcontainer, NMClientAsync nmClient, StreamingContainerAgent sca, ByteBuffer tokens)
+  {
+    this(lcontainer, nmClient, sca.getContainer().getPlan().getLogicalPlan(), sca.getContainer().getOperators(), tokens);
+  }
+
+  /**
+   * Launches a container for the given operators. Used for standby containers that are assigned operators after they
+   * started, the JVM options are then derived from the operators of the container that the standby container is
+   * sized for.
+   *
+   * @param lcontainer Allocated container
+   * @param nmClient
+   * @param dag
+   * @param operators operators that determine the JVM options
+   * @param tokens
+   */
+  public LaunchContainerRunnable(Container lcontainer, NMClientAsync nmClient, LogicalPlan dag, Collection<PTOperator> operators, ByteBuffer tokens)
   {
     this.container = lcontainer;
     this.nmClient = nmClient;
-    this.dag = sca.getContainer().getPlan().getLogicalPlan();
+    this.dag = dag;
     this.tokens = tokens;
-    this.sca = sca;
+    this.operators = operators;
   }
 
   private void setClasspath(Map<String, String> env)
@@ -119,19 +136,92 @@ public class LaunchContainerRunnable implements Runnable
   }
 
   public static void addFileToLocalResources(final String name, final FileStatus fileStatus, final LocalResourceType type, final Map<String, LocalResource> localResources)
+  {
+    addFileToLocalResources(name, fileStatus, type, LocalResourceVisibility.APPLICATION, localResources);
+  }
+
+  public static void addFileToLocalResources(final String name, final FileStatus fileStatus, final LocalResourceType type, final LocalResourceVisibility visibility, final Map<String, LocalResource> localResources)
   {
     final LocalResource localResource = LocalResource.newInstance(ConverterUtils.getYarnUrlFromPath(fileStatus.getPath()),
-            type, LocalResourceVisibility.APPLICATION, fileStatus.getLen(), fileStatus.getModificationTime());
+            type, visibility, fileStatus.getLen(), fileStatus.getModificationTime());
     localResources.put(name, localResource);
   }
 
   public static void addFilesToLocalResources(LocalResourceType type, String commaSeparatedFileNames, Map<String, LocalResource> localResources, FileSystem fs) throws IOException
   {
+    addFilesToLocalResources(type, commaSeparatedFileNames, localResources, fs, null, null);
+  }
+
+  /**
+   * Adds the files to the local resources. Files in the shared directory are localized with the given visibility,
+   * so that node managers can reuse them across applications, all other files with application visibility. Shared
+   * files that cannot be localized publicly, see {@link #isPublic}, are localized privately instead.
+   *
+   * @param type resource type
+   * @param commaSeparatedFileNames files
+   * @param localResources local resources to add to
+   * @param fs file system of the files
+   * @param sharedPath directory of the shared files, or null
+   * @param sharedVisibility visibility of the shared files
+   * @throws IOException
+   */
+  public static void addFilesToLocalResources(LocalResourceType type, String commaSeparatedFileNames, Map<String, LocalResource> localResources, FileSystem fs, String sharedPath, LocalResourceVisibility sharedVisibility) throws IOException
+  {
+    String sharedPrefix = null;
+    if (sharedPath != null) {
+      sharedPrefix = sharedPath.endsWith(Path.SEPARATOR) ? sharedPath : sharedPath + Path.SEPARATOR;
+    }
     String[] files = StringUtils.splitByWholeSeparator(commaSeparatedFileNames, StramClient.LIB_JARS_SEP);
+    Map<Path, Boolean> executableDirs = new HashMap<Path, Boolean>();
     for (String file : files) {
       final Path dst = new Path(file);
-      addFileToLocalResources(dst.getName(), fs.getFileStatus(dst), type, localResources);
+      FileStatus fileStatus = fs.getFileStatus(dst);
+      LocalResourceVisibility visibility = LocalResourceVisibility.APPLICATION;
+      if (sharedPrefix != null && sharedVisibility != null && file.startsWith(sharedPrefix)) {
+        visibility = sharedVisibility;
+        if (visibility == LocalResourceVisibility.PUBLIC && !isPublic(fs, fileStatus, executableDirs)) {
+          LOG.warn("{} or one of its parent directories is not accessible by everyone, localizing it with {} visibility",
+              file, LocalResourceVisibility.PRIVATE);
+          visibility = LocalResourceVisibility.PRIVATE;
+        }
+      }
+      addFileToLocalResources(dst.getName(), fileStatus, type, visibility, localResources);
+    }
+  }
+
+  /**
+   * Returns whether node managers can localize the file with PUBLIC visibility. As in YARN's
+   * ClientDistributedCacheManager, the file has to be readable by everyone and every parent directory has to be
+   * executable by everyone.
+   *
+   * @param fs file system of the file
+   * @param fileStatus status of the file
+   * @param executableDirs directories that were checked before, to avoid checking common parents for every file
+   * @return whether the file can be localized publicly
+   * @throws IOException
+   */
+  static boolean isPublic(FileSystem fs, FileStatus fileStatus, Map<Path, Boolean> executableDirs) throws IOException
+  {
+    return fileStatus.getPermission().getOtherAction().implies(FsAction.READ)
+        && isPublicDirectory(fs, fileStatus.getPath().getParent(), executableDirs);
+  }
+
+  /**
+   * Returns whether the directory and all its parents are executable by everyone.
+   */
+  static boolean isPublicDirectory(FileSystem fs, Path dir, Map<Path, Boolean> executableDirs) throws IOException
+  {
+    for (Path path = dir; path != null; path = path.getParent()) {
+      Boolean executable = executableDirs.get(path);
+      if (executable == null) {
+        executable = fs.getFileStatus(path).getPermission().getOtherAction().implies(FsAction.EXECUTE);
+        executableDirs.put(path, executable);
+      }
+      if (!executable) {
+        return false;
+      }
     }
+    return true;
   }
 
   /**
@@ -162,7 +252,8 @@ public class LaunchContainerRunnable implements Runnable
       // child VM dependencies
       FileSystem fs = StramClientUtils.newFileSystemInstance(nmClient.getConfig());
       try {
-        addFilesToLocalResources(LocalResourceType.FILE, dag.getAttributes().get(LogicalPlan.LIBRARY_JARS), localResources, fs);
+        addFilesToLocalResources(LocalResourceType.FILE, dag.getAttributes().get(LogicalPlan.LIBRARY_JARS), localResources, fs,
+            dag.getValue(LogicalPlan.LIBRARY_JARS_CACHE_PATH), dag.getValue(LogicalPlan.LIBRARY_JARS_CACHE_VISIBILITY));
         String archives = dag.getAttributes().get(LogicalPlan.ARCHIVES);
         if (archives != null) {
           addFilesToLocalResources(LocalResourceType.ARCHIVE, archives, localResources, fs);
@@ -233,7 +324,7 @@ public class LaunchContainerRunnable implements Runnable
 
     List<DAG.OperatorMeta> operatorMetaList = Lists.newArrayList();
     int bufferServerMemory = 0;
-    for(PTOperator operator: sca.getContainer().getOperators()){
+    for(PTOperator operator: operators){
       bufferServerMemory += operator.getBufferServerMemory();
       operatorMetaList.add(operator.getOperatorMeta());
     }
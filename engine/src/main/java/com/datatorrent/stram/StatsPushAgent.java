@@ -0,0 +1,355 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.service.AbstractService;
+
+import com.google.common.base.Objects;
+
+import com.datatorrent.api.Context.DAGContext;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.logical.LogicalPlan.OperatorMeta;
+import com.datatorrent.stram.util.JSONSerializationProvider;
+import com.datatorrent.stram.util.SharedPubSubWebSocketClient;
+import com.datatorrent.stram.webapp.ContainerInfo;
+import com.datatorrent.stram.webapp.OperatorInfo;
+
+/**
+ * Publishes the statistics of the physical operators and containers through the gateway pub/sub, so that
+ * clients receive updates as they happen instead of polling the web services.
+ * <p>
+ * Stats are published to the topic {@code applications.<appId>.stats} for all operators and containers,
+ * {@code applications.<appId>.stats.logicalOperators.<name>} for the partitions and unifiers of a logical operator
+ * and {@code applications.<appId>.stats.containers.<containerId>} for a container and its operators. A topic
+ * is only published to while it has subscribers, and the stats are not collected while no topic has subscribers.
+ * Topics of logical operators and containers that no longer exist are removed. The first message after a client
+ * subscribed contains all fields, subsequent messages only the fields that changed since the previous interval.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class StatsPushAgent extends AbstractService
+{
+  private static final Logger LOG = LoggerFactory.getLogger(StatsPushAgent.class);
+  private static final String ID = "id";
+  private static final String LOGICAL_NAME = "logicalName";
+  private static final String CONTAINER = "container";
+  private final StreamingContainerManager dnmgr;
+  private final ObjectMapper objectMapper = new JSONSerializationProvider().getContext(null);
+  private final StatsPushThread statsPushThread = new StatsPushThread();
+  private final ConcurrentMap<String, TopicState> topics = new ConcurrentHashMap<>();
+  private SharedPubSubWebSocketClient wsClient;
+  private String topicPrefix;
+  private long pushIntervalMillis;
+  // stats as of the previous interval, by id
+  private Map<String, Map<String, Object>> lastOperators = new HashMap<>();
+  private Map<String, Map<String, Object>> lastContainers = new HashMap<>();
+
+  public StatsPushAgent(StreamingContainerManager dnmgr)
+  {
+    super(StatsPushAgent.class.getName());
+    this.dnmgr = dnmgr;
+  }
+
+  @Override
+  protected void serviceInit(Configuration conf) throws Exception
+  {
+    wsClient = dnmgr.getWsClient();
+    topicPrefix = "applications." + dnmgr.getLogicalPlan().getValue(DAGContext.APPLICATION_ID) + ".stats";
+    pushIntervalMillis = dnmgr.getLogicalPlan().getValue(LogicalPlan.STATS_PUSH_INTERVAL_MILLIS);
+    super.serviceInit(conf);
+  }
+
+  @Override
+  protected void serviceStart() throws Exception
+  {
+    if (wsClient != null) {
+      addTopic(topicPrefix, null, null);
+      statsPushThread.start();
+    }
+    super.serviceStart();
+  }
+
+  @Override
+  protected void serviceStop() throws Exception
+  {
+    if (statsPushThread.isAlive()) {
+      statsPushThread.interrupt();
+      try {
+        statsPushThread.join();
+      } catch (InterruptedException ex) {
+        LOG.error("Error joining with {}", statsPushThread.getName(), ex);
+      }
+    }
+    super.serviceStop();
+  }
+
+  private void addTopic(String topic, String logicalOperator, String container)
+  {
+    if (topics.containsKey(topic)) {
+      return;
+    }
+    final TopicState state = new TopicState(topic, logicalOperator, container);
+    if (topics.putIfAbsent(topic, state) == null) {
+      state.handler = new SharedPubSubWebSocketClient.Handler()
+      {
+        @Override
+        public void onMessage(String type, String topic, Object data)
+        {
+          int numSubscribers = Integer.valueOf((String)data);
+          if (numSubscribers > state.numSubscribers) {
+            // the new subscriber needs all fields
+            state.sendFull = true;
+          }
+          state.numSubscribers = numSubscribers;
+          LOG.debug("Number of subscribers for {} is now {}", state.topic, numSubscribers);
+        }
+
+        @Override
+        public void onClose()
+        {
+          state.numSubscribers = 0;
+        }
+
+      };
+      wsClient.addHandler(topic, true, state.handler);
+    }
+  }
+
+  private void removeTopic(TopicState state)
+  {
+    if (topics.remove(state.topic, state)) {
+      LOG.debug("Removing topic {}", state.topic);
+      wsClient.removeHandler(state.topic, true, state.handler);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> toMap(Object info)
+  {
+    return objectMapper.convertValue(info, Map.class);
+  }
+
+  /**
+   * Returns the fields of the current stats that differ from the previous stats, always including the id.
+   */
+  private static Map<String, Object> diff(Map<String, Object> previous, Map<String, Object> current)
+  {
+    if (previous == null) {
+      return current;
+    }
+    Map<String, Object> changed = new LinkedHashMap<>();
+    changed.put(ID, current.get(ID));
+    for (Map.Entry<String, Object> entry : current.entrySet()) {
+      if (!Objects.equal(entry.getValue(), previous.get(entry.getKey()))) {
+        changed.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return changed.size() > 1 ? changed : null;
+  }
+
+  public void pushStats() throws IOException
+  {
+    Set<String> logicalOperators = new HashSet<>();
+    for (OperatorMeta om : dnmgr.getLogicalPlan().getAllOperators()) {
+      logicalOperators.add(om.getName());
+      addTopic(topicPrefix + ".logicalOperators." + om.getName(), om.getName(), null);
+    }
+    Set<String> containerIds = new HashSet<>();
+    for (StreamingContainerAgent sca : dnmgr.getContainerAgents()) {
+      String containerId = sca.container.getExternalId();
+      if (containerId != null) {
+        containerIds.add(containerId);
+        addTopic(topicPrefix + ".containers." + containerId, null, containerId);
+      }
+    }
+
+    boolean subscribed = false;
+    for (TopicState state : topics.values()) {
+      if (state.numSubscribers > 0) {
+        subscribed = true;
+        break;
+      }
+    }
+    if (subscribed) {
+      publishStats();
+    } else {
+      // the next subscriber receives all fields, changes need not be tracked until then
+      lastOperators = new HashMap<>();
+      lastContainers = new HashMap<>();
+    }
+
+    // after the removal was published to the subscribers
+    for (TopicState state : topics.values()) {
+      if ((state.logicalOperator != null && !logicalOperators.contains(state.logicalOperator))
+          || (state.container != null && !containerIds.contains(state.container))) {
+        removeTopic(state);
+      }
+    }
+  }
+
+  /**
+   * Takes one snapshot of the operator and container stats and publishes it to the topics with subscribers.
+   */
+  private void publishStats() throws IOException
+  {
+    Map<String, Map<String, Object>> operators = new HashMap<>();
+    for (OperatorInfo oi : dnmgr.getOperatorInfoList()) {
+      operators.put(oi.id, toMap(oi));
+    }
+    Map<String, Map<String, Object>> containers = new HashMap<>();
+    for (StreamingContainerAgent sca : dnmgr.getContainerAgents()) {
+      ContainerInfo ci = sca.getContainerInfo();
+      if (ci.id != null) {
+        containers.put(ci.id, toMap(ci));
+      }
+    }
+
+    // changes since the previous interval, computed once for all topics
+    Map<String, Map<String, Object>> changedOperators = new HashMap<>();
+    for (Map.Entry<String, Map<String, Object>> entry : operators.entrySet()) {
+      Map<String, Object> stats = diff(lastOperators.get(entry.getKey()), entry.getValue());
+      if (stats != null) {
+        changedOperators.put(entry.getKey(), stats);
+      }
+    }
+    Map<String, Map<String, Object>> removedOperators = new HashMap<>(lastOperators);
+    removedOperators.keySet().removeAll(operators.keySet());
+    Map<String, Map<String, Object>> changedContainers = new HashMap<>();
+    for (Map.Entry<String, Map<String, Object>> entry : containers.entrySet()) {
+      Map<String, Object> stats = diff(lastContainers.get(entry.getKey()), entry.getValue());
+      if (stats != null) {
+        changedContainers.put(entry.getKey(), stats);
+      }
+    }
+    Set<String> removedContainers = new HashSet<>(lastContainers.keySet());
+    removedContainers.removeAll(containers.keySet());
+
+    long time = System.currentTimeMillis();
+    for (TopicState state : topics.values()) {
+      if (state.numSubscribers <= 0) {
+        continue;
+      }
+      boolean full = state.sendFull;
+      state.sendFull = false;
+      List<Map<String, Object>> operatorStats = new ArrayList<>();
+      for (Map.Entry<String, Map<String, Object>> entry : (full ? operators : changedOperators).entrySet()) {
+        Map<String, Object> current = operators.get(entry.getKey());
+        if (state.matches((String)current.get(LOGICAL_NAME), (String)current.get(CONTAINER))) {
+          operatorStats.add(entry.getValue());
+        }
+      }
+      List<String> removedOperatorIds = new ArrayList<>();
+      for (Map.Entry<String, Map<String, Object>> entry : removedOperators.entrySet()) {
+        Map<String, Object> last = entry.getValue();
+        if (state.matches((String)last.get(LOGICAL_NAME), (String)last.get(CONTAINER))) {
+          removedOperatorIds.add(entry.getKey());
+        }
+      }
+      List<Map<String, Object>> containerStats = new ArrayList<>();
+      List<String> removedContainerIds = new ArrayList<>();
+      if (state.logicalOperator == null) {
+        for (Map.Entry<String, Map<String, Object>> entry : (full ? containers : changedContainers).entrySet()) {
+          if (state.container == null || state.container.equals(entry.getKey())) {
+            containerStats.add(entry.getValue());
+          }
+        }
+        for (String id : removedContainers) {
+          if (state.container == null || state.container.equals(id)) {
+            removedContainerIds.add(id);
+          }
+        }
+      }
+      if (full || !operatorStats.isEmpty() || !removedOperatorIds.isEmpty() || !containerStats.isEmpty() || !removedContainerIds.isEmpty()) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("time", time);
+        message.put("full", full);
+        message.put("operators", operatorStats);
+        message.put("removedOperators", removedOperatorIds);
+        message.put("containers", containerStats);
+        message.put("removedContainers", removedContainerIds);
+        wsClient.publish(state.topic, message);
+      }
+    }
+    lastOperators = operators;
+    lastContainers = containers;
+  }
+
+  private static class TopicState
+  {
+    final String topic;
+    // filters, null matches all
+    final String logicalOperator;
+    final String container;
+    volatile int numSubscribers;
+    volatile boolean sendFull = true;
+    SharedPubSubWebSocketClient.Handler handler;
+
+    TopicState(String topic, String logicalOperator, String container)
+    {
+      this.topic = topic;
+      this.logicalOperator = logicalOperator;
+      this.container = container;
+    }
+
+    boolean matches(String operatorLogicalName, String operatorContainer)
+    {
+      return (logicalOperator == null || logicalOperator.equals(operatorLogicalName))
+          && (container == null || container.equals(operatorContainer));
+    }
+  }
+
+  public class StatsPushThread extends Thread
+  {
+    @Override
+    public void run()
+    {
+      while (true) {
+        try {
+          pushStats();
+        } catch (Exception ex) {
+          LOG.warn("Error during pushing stats", ex);
+        }
+        try {
+          Thread.sleep(pushIntervalMillis);
+        } catch (InterruptedException ex) {
+          LOG.warn("Received interrupt, exiting stats push thread!");
+          return;
+        }
+      }
+    }
+  }
+
+}
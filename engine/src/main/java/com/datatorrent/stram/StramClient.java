@@ -34,6 +34,7 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -45,6 +46,7 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.security.Credentials;
 import org.apache.hadoop.security.UserGroupInformation;
@@ -94,6 +96,8 @@ import com.datatorrent.stram.plan.logical.LogicalPlan;
 public class StramClient
 {
   private static final Logger LOG = LoggerFactory.getLogger(StramClient.class);
+  private static final FsPermission PUBLIC_DIR_PERMISSION = new FsPermission((short)0755);
+  private static final FsPermission PUBLIC_FILE_PERMISSION = new FsPermission((short)0644);
   public static final String YARN_APPLICATION_TYPE = "DataTorrent";
   public static final String LIB_JARS_SEP = ",";
 
@@ -265,6 +269,82 @@ public class StramClient
     return csv.toString();
   }
 
+  /**
+   * Copies the local jars to the jar cache, where each jar is stored in a directory named after the hash of its
+   * content. Jars with a content that was copied before are not copied again. Jars that are not on the local file
+   * system are copied into the cache on every call. With public access, the permissions of cached jars are also
+   * fixed when a jar was cached by an earlier launch without public access.
+   *
+   * @param fs file system of the cache
+   * @param cacheDir jar cache directory
+   * @param files jars
+   * @param publicAccess whether to make the copied jars readable by everyone
+   * @return comma separated paths of the jars in the cache
+   * @throws IOException
+   */
+  String copyToJarCache(FileSystem fs, Path cacheDir, String[] files, boolean publicAccess) throws IOException
+  {
+    FileSystem localFs = FileSystem.getLocal(conf);
+    StringBuilder csv = new StringBuilder();
+    for (String file : files) {
+      Path src = new Path(file);
+      URI fileURI;
+      try {
+        fileURI = new URI(file);
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+      FileSystem srcFs = (fileURI.getScheme() == null || fileURI.getScheme().startsWith("file")) ? localFs : fs;
+      String hash;
+      InputStream is = srcFs.open(src);
+      try {
+        hash = DigestUtils.sha1Hex(is);
+      } finally {
+        is.close();
+      }
+      Path dir = new Path(cacheDir, hash);
+      Path dst = new Path(dir, src.getName());
+      if (fs.exists(dst) && fs.getFileStatus(dst).getLen() == srcFs.getFileStatus(src).getLen()) {
+        LOG.info("Using cached {} for {}", dst, file);
+      } else {
+        LOG.info("Copy {} to {}", file, dst);
+        // copy to a temporary file first, so that concurrent launches never use a partial jar
+        Path tmp = new Path(dir, "." + src.getName() + "." + System.nanoTime() + ".tmp");
+        FileUtil.copy(srcFs, src, fs, tmp, false, true, conf);
+        if (publicAccess) {
+          fs.setPermission(tmp, PUBLIC_FILE_PERMISSION);
+        }
+        if (!fs.rename(tmp, dst)) {
+          // another launch cached the same content concurrently
+          fs.delete(tmp, false);
+          if (!fs.exists(dst)) {
+            throw new IOException("Failed to rename " + tmp + " to " + dst);
+          }
+        }
+      }
+      if (publicAccess) {
+        setPublicPermission(fs, cacheDir, PUBLIC_DIR_PERMISSION);
+        setPublicPermission(fs, dir, PUBLIC_DIR_PERMISSION);
+        setPublicPermission(fs, dst, PUBLIC_FILE_PERMISSION);
+      }
+      if (csv.length() > 0) {
+        csv.append(LIB_JARS_SEP);
+      }
+      csv.append(dst.toString());
+    }
+    return csv.toString();
+  }
+
+  /**
+   * Sets the permission unless the path already grants everyone the access of the permission.
+   */
+  private static void setPublicPermission(FileSystem fs, Path path, FsPermission permission) throws IOException
+  {
+    if (!fs.getFileStatus(path).getPermission().getOtherAction().implies(permission.getOtherAction())) {
+      fs.setPermission(path, permission);
+    }
+  }
+
   public void copyInitialState(Path origAppDir) throws IOException
   {
     // locate previous snapshot
@@ -288,6 +368,7 @@ public class StramClient
 
     // write snapshot to new location
     recoveryHandler = new FSRecoveryHandler(newAppDir, conf);
+    recoveryHandler.setSnapshotFormat(this.dag.getValue(LogicalPlan.RECOVERY_SNAPSHOT_FORMAT));
     recoveryHandler.save(snapshot);
     OutputStream logOs = recoveryHandler.rotateLog();
     IOUtils.copy(logIs, logOs);
@@ -454,11 +535,30 @@ public class StramClient
       } else {
         appPath = new Path(configuredAppPath);
       }
-      String libJarsCsv = copyFromLocal(fs, appPath, localJarFiles.toArray(new String[]{}));
+      String libJarsCsv;
+      String jarCachePath = dag.getValue(LogicalPlan.LIBRARY_JARS_CACHE_PATH);
+      LocalResourceVisibility jarCacheVisibility = dag.getValue(LogicalPlan.LIBRARY_JARS_CACHE_VISIBILITY);
+      if (jarCachePath != null) {
+        Path jarCacheDir = fs.makeQualified(new Path(StramClientUtils.getDTDFSRootDir(fs, conf), jarCachePath));
+        libJarsCsv = copyToJarCache(fs, jarCacheDir, localJarFiles.toArray(new String[]{}), jarCacheVisibility == LocalResourceVisibility.PUBLIC);
+        if (jarCacheVisibility == LocalResourceVisibility.PUBLIC
+            && !LaunchContainerRunnable.isPublicDirectory(fs, jarCacheDir, new HashMap<Path, Boolean>())) {
+          // the containers launched by the application master use the same visibility
+          LOG.warn("{} or one of its parent directories is not accessible by everyone, localizing the cached jars with {} visibility",
+              jarCacheDir, LocalResourceVisibility.PRIVATE);
+          jarCacheVisibility = LocalResourceVisibility.PRIVATE;
+          dag.getAttributes().put(LogicalPlan.LIBRARY_JARS_CACHE_VISIBILITY, jarCacheVisibility);
+        }
+        // containers need the resolved path to identify the shared jars
+        jarCachePath = jarCacheDir.toString();
+        dag.getAttributes().put(LogicalPlan.LIBRARY_JARS_CACHE_PATH, jarCachePath);
+      } else {
+        libJarsCsv = copyFromLocal(fs, appPath, localJarFiles.toArray(new String[]{}));
+      }
 
       LOG.info("libjars: {}", libJarsCsv);
       dag.getAttributes().put(LogicalPlan.LIBRARY_JARS, libJarsCsv);
-      LaunchContainerRunnable.addFilesToLocalResources(LocalResourceType.FILE, libJarsCsv, localResources, fs);
+      LaunchContainerRunnable.addFilesToLocalResources(LocalResourceType.FILE, libJarsCsv, localResources, fs, jarCachePath, jarCacheVisibility);
 
       if (archives != null) {
         String[] localFiles = archives.split(",");
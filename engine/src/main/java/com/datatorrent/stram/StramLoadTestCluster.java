@@ -0,0 +1,527 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.net.NetUtils;
+
+import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.api.StreamingApplication;
+import com.datatorrent.common.util.AsyncFSStorageAgent;
+import com.datatorrent.stram.StreamingContainerAgent.ContainerStartRequest;
+import com.datatorrent.stram.StreamingContainerManager.ContainerResource;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeatResponse;
+import com.datatorrent.stram.engine.OperatorContext;
+import com.datatorrent.stram.engine.StreamingContainer;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.logical.LogicalPlan.InputPortMeta;
+import com.datatorrent.stram.plan.logical.LogicalPlan.StreamMeta;
+import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
+import com.datatorrent.stram.plan.physical.PTOperator;
+
+/**
+ * Launcher for load tests in local mode. Unlike {@link StramLocalCluster}, every container runs in a forked JVM and
+ * talks to the master through the RPC server used by the application master, and containers deploy their own buffer
+ * server, so that the threading and the serialization and network costs of streams between containers resemble a
+ * deployment on a cluster.
+ * <p>
+ * With {@link #setNetworkLatencyMillis(long)}, connections to the buffer servers are routed through a loopback proxy
+ * that delays the data in each direction. Publisher and subscriber both connect to the buffer server of the upstream
+ * container, so a tuple incurs the latency twice. At the end of the run, a report with the throughput and the latency
+ * of every stream is logged, see {@link #getStreamStats()}.
+ * </p>
+ * The forked containers use the class path of this JVM.
+ *
+ * @since 3.4.0
+ */
+public class StramLoadTestCluster implements Runnable
+{
+  private static final Logger LOG = LoggerFactory.getLogger(StramLoadTestCluster.class);
+  private static final File CLUSTER_WORK_DIR = new File("target", StramLoadTestCluster.class.getName());
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+  private final StreamingContainerManager dnmgr;
+  private final LoadTestContainerParent heartbeatListener;
+  private final Map<String, Process> childContainers = new ConcurrentHashMap<>();
+  // buffer server address reported by the container to proxy
+  private final Map<String, DelayingProxy> proxies = new ConcurrentHashMap<>();
+  private final String appPath;
+  private volatile boolean shutdown;
+  private long networkLatencyMillis;
+  private int containerSeq;
+  private List<StreamStats> streamStats = new ArrayList<>();
+
+  /**
+   * Throughput and latency of a logical stream.
+   */
+  public static class StreamStats
+  {
+    public final String name;
+    public final Locality locality;
+    /**
+     * Total number of tuples emitted by the physical sources of the stream.
+     */
+    public long totalTuples;
+    /**
+     * Moving average of the number of tuples per second emitted by the physical sources of the stream.
+     */
+    public long tuplesPerSecond;
+    /**
+     * Maximum latency of the physical sinks of the stream in milliseconds.
+     */
+    public long latencyMillis;
+
+    public StreamStats(String name, Locality locality)
+    {
+      this.name = name;
+      this.locality = locality;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%-30s %-16s %12d %12d %10d", name, locality == null ? "" : locality, totalTuples, tuplesPerSecond, latencyMillis);
+    }
+
+  }
+
+  private class LoadTestContainerParent extends StreamingContainerParent
+  {
+    LoadTestContainerParent(StreamingContainerManager dnmgr, int listenerThreadCount)
+    {
+      super(StramLoadTestCluster.class.getName(), dnmgr, null, listenerThreadCount);
+    }
+
+    @Override
+    public ContainerHeartbeatResponse processHeartbeat(ContainerHeartbeat msg)
+    {
+      if (shutdown) {
+        ContainerHeartbeatResponse rsp = new ContainerHeartbeatResponse();
+        rsp.shutdown = true;
+        return rsp;
+      }
+      if (msg.bufferServerHost != null && networkLatencyMillis > 0) {
+        DelayingProxy proxy = getProxy(msg.bufferServerHost, msg.bufferServerPort);
+        msg.bufferServerHost = proxy.getAddress().getAddress().getHostAddress();
+        msg.bufferServerPort = proxy.getAddress().getPort();
+      }
+      return super.processHeartbeat(msg);
+    }
+
+  }
+
+  public StramLoadTestCluster(LogicalPlan dag) throws IOException
+  {
+    dag.validate();
+    String pathUri = CLUSTER_WORK_DIR.toURI().toString();
+    FileContext.getLocalFSFileContext().delete(new Path(pathUri), true);
+
+    dag.getAttributes().put(LogicalPlan.APPLICATION_ID, "app_loadtest_" + System.currentTimeMillis());
+    if (dag.getAttributes().get(LogicalPlan.APPLICATION_PATH) == null) {
+      dag.getAttributes().put(LogicalPlan.APPLICATION_PATH, pathUri);
+    }
+    if (dag.getAttributes().get(OperatorContext.STORAGE_AGENT) == null) {
+      dag.setAttribute(OperatorContext.STORAGE_AGENT, new AsyncFSStorageAgent(new Path(pathUri, LogicalPlan.SUBDIR_CHECKPOINTS).toString(), null));
+    }
+    this.appPath = dag.assertAppPath();
+    this.dnmgr = new StreamingContainerManager(dag);
+
+    Configuration conf = new Configuration();
+    this.heartbeatListener = new LoadTestContainerParent(dnmgr, dag.getValue(LogicalPlan.HEARTBEAT_LISTENER_THREAD_COUNT));
+    heartbeatListener.init(conf);
+    heartbeatListener.start();
+    InetSocketAddress connectAddress = NetUtils.getConnectAddress(heartbeatListener.getAddress());
+    URI connectUri;
+    try {
+      connectUri = RecoverableRpcProxy.toConnectURI(connectAddress);
+    } catch (Exception e) {
+      throw new IOException("Invalid connect address " + connectAddress, e);
+    }
+    new FSRecoveryHandler(appPath, conf).writeConnectUri(connectUri.toString());
+  }
+
+  public StreamingContainerManager getStreamingContainerManager()
+  {
+    return dnmgr;
+  }
+
+  public long getNetworkLatencyMillis()
+  {
+    return networkLatencyMillis;
+  }
+
+  /**
+   * Sets the latency added to the data sent over each buffer server connection, 0 connects containers directly.
+   *
+   * @param networkLatencyMillis latency in milliseconds
+   */
+  public void setNetworkLatencyMillis(long networkLatencyMillis)
+  {
+    this.networkLatencyMillis = networkLatencyMillis;
+  }
+
+  /**
+   * Returns the throughput and latency of the streams, as of the end of the last run.
+   *
+   * @return stream stats in the order of the logical plan
+   */
+  public List<StreamStats> getStreamStats()
+  {
+    return streamStats;
+  }
+
+  public void shutdown()
+  {
+    shutdown = true;
+  }
+
+  @Override
+  public void run()
+  {
+    run(0);
+  }
+
+  /**
+   * Runs the application until all containers terminated or the given time elapsed, then logs the stream report and
+   * stops the containers.
+   *
+   * @param runMillis maximum run time, 0 to run until the application finishes
+   */
+  @SuppressWarnings("SleepWhileInLoop")
+  public void run(long runMillis)
+  {
+    long endMillis = System.currentTimeMillis() + runMillis;
+    try {
+      while (!shutdown) {
+        for (String containerId : dnmgr.containerStopRequests.values()) {
+          Process process = childContainers.get(containerId);
+          if (process != null) {
+            process.destroy();
+          }
+          dnmgr.containerStopRequests.remove(containerId);
+        }
+
+        ContainerStartRequest csr;
+        while ((csr = dnmgr.containerStartRequests.poll()) != null) {
+          launchContainer(csr);
+        }
+
+        for (Iterator<Map.Entry<String, Process>> it = childContainers.entrySet().iterator(); it.hasNext(); ) {
+          Map.Entry<String, Process> entry = it.next();
+          int exitStatus;
+          try {
+            exitStatus = entry.getValue().exitValue();
+          } catch (IllegalThreadStateException e) {
+            continue;
+          }
+          it.remove();
+          LOG.info("Container {} terminated with exit status {}", entry.getKey(), exitStatus);
+          if (exitStatus != 0) {
+            dnmgr.scheduleContainerRestart(entry.getKey());
+          }
+          dnmgr.removeContainerAgent(entry.getKey());
+        }
+
+        dnmgr.monitorHeartbeat();
+
+        if (childContainers.isEmpty() && dnmgr.containerStartRequests.isEmpty()) {
+          break;
+        }
+        if (runMillis > 0 && System.currentTimeMillis() > endMillis) {
+          break;
+        }
+        Thread.sleep(1000);
+      }
+    } catch (InterruptedException e) {
+      LOG.info("Load test interrupted");
+    } finally {
+      streamStats = collectStreamStats();
+      logStreamStats();
+      stopContainers();
+      heartbeatListener.stop();
+      for (DelayingProxy proxy : proxies.values()) {
+        proxy.close();
+      }
+      proxies.clear();
+      dnmgr.teardown();
+    }
+  }
+
+  private void launchContainer(ContainerStartRequest csr)
+  {
+    String containerId = "container_loadtest_" + containerSeq++;
+    ContainerResource resource = new ContainerResource(csr.container.getResourceRequestPriority(), containerId, "localhost", csr.container.getRequiredMemoryMB(), csr.container.getRequiredVCores(), null);
+    if (dnmgr.assignContainer(resource, null) == null) {
+      return;
+    }
+
+    List<String> command = new ArrayList<>();
+    command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+    String jvmOpts = dnmgr.getLogicalPlan().getValue(LogicalPlan.CONTAINER_JVM_OPTIONS);
+    if (!StringUtils.isBlank(jvmOpts)) {
+      command.addAll(Arrays.asList(jvmOpts.trim().split("\\s+")));
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(String.format("-D%s=%s", StreamingContainer.PROP_APP_PATH, appPath));
+    command.add(String.format("-D%scid=%s", StreamingApplication.DT_PREFIX, containerId));
+    command.add(StreamingContainer.class.getName());
+
+    File logFile = new File(CLUSTER_WORK_DIR, containerId + ".log");
+    ProcessBuilder pb = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile);
+    try {
+      childContainers.put(containerId, pb.start());
+      LOG.info("Started container {} with log {}", containerId, logFile);
+    } catch (IOException e) {
+      LOG.error("Failed to start container {}", containerId, e);
+      dnmgr.scheduleContainerRestart(containerId);
+      dnmgr.removeContainerAgent(containerId);
+    }
+  }
+
+  @SuppressWarnings("SleepWhileInLoop")
+  private void stopContainers()
+  {
+    // containers shut down with the next heartbeat response
+    shutdown = true;
+    long timeout = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+    for (Map.Entry<String, Process> entry : childContainers.entrySet()) {
+      Process process = entry.getValue();
+      try {
+        while (System.currentTimeMillis() < timeout) {
+          try {
+            process.exitValue();
+            break;
+          } catch (IllegalThreadStateException e) {
+            Thread.sleep(100);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      process.destroy();
+      LOG.info("Container {} stopped", entry.getKey());
+    }
+    childContainers.clear();
+  }
+
+  private List<StreamStats> collectStreamStats()
+  {
+    List<StreamStats> result = new ArrayList<>();
+    LogicalPlan dag = dnmgr.getLogicalPlan();
+    for (StreamMeta stream : dag.getAllStreams()) {
+      StreamStats stats = new StreamStats(stream.getName(), stream.getLocality());
+      double tuplesPMS = 0;
+      for (PTOperator oper : dnmgr.getPhysicalPlan().getAllOperators(stream.getSource().getOperatorMeta())) {
+        PortStatus ps = oper.stats.outputPortStatusList.get(stream.getSource().getPortName());
+        if (ps != null) {
+          stats.totalTuples += ps.totalTuples;
+          tuplesPMS += ps.tuplesPMSMA.getAvg();
+        }
+      }
+      stats.tuplesPerSecond = Math.round(tuplesPMS * 1000);
+      for (InputPortMeta sink : stream.getSinks()) {
+        for (PTOperator oper : dnmgr.getPhysicalPlan().getAllOperators(sink.getOperatorWrapper())) {
+          stats.latencyMillis = Math.max(stats.latencyMillis, oper.stats.getLatencyMA());
+        }
+      }
+      result.add(stats);
+    }
+    return result;
+  }
+
+  private void logStreamStats()
+  {
+    StringBuilder sb = new StringBuilder("Stream report, network latency ").append(networkLatencyMillis).append(" ms\n");
+    sb.append(String.format("%-30s %-16s %12s %12s %10s", "stream", "locality", "tuples", "tuples/s", "latency ms"));
+    for (StreamStats stats : streamStats) {
+      sb.append('\n').append(stats);
+    }
+    LOG.info(sb.toString());
+  }
+
+  private DelayingProxy getProxy(String host, int port)
+  {
+    String key = host + ":" + port;
+    DelayingProxy proxy = proxies.get(key);
+    if (proxy == null) {
+      synchronized (proxies) {
+        proxy = proxies.get(key);
+        if (proxy == null) {
+          try {
+            proxy = new DelayingProxy(new InetSocketAddress(host, port), networkLatencyMillis);
+          } catch (IOException e) {
+            throw new RuntimeException("Cannot start proxy for buffer server " + key, e);
+          }
+          proxies.put(key, proxy);
+          LOG.info("Buffer server {} proxied at {}", key, proxy.getAddress());
+        }
+      }
+    }
+    return proxy;
+  }
+
+  /**
+   * Loopback proxy that forwards connections to a buffer server and delays the data in each direction.
+   */
+  static class DelayingProxy implements Runnable
+  {
+    private final InetSocketAddress target;
+    private final long latencyNanos;
+    private final ServerSocket serverSocket;
+    private final List<Socket> sockets = new ArrayList<>();
+
+    DelayingProxy(InetSocketAddress target, long latencyMillis) throws IOException
+    {
+      this.target = target;
+      this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+      this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      Thread acceptor = new Thread(this, "proxy-" + target.getPort());
+      acceptor.setDaemon(true);
+      acceptor.start();
+    }
+
+    InetSocketAddress getAddress()
+    {
+      return (InetSocketAddress)serverSocket.getLocalSocketAddress();
+    }
+
+    @Override
+    public void run()
+    {
+      while (!serverSocket.isClosed()) {
+        try {
+          Socket client = serverSocket.accept();
+          Socket server = new Socket(target.getAddress(), target.getPort());
+          client.setTcpNoDelay(true);
+          server.setTcpNoDelay(true);
+          synchronized (sockets) {
+            sockets.add(client);
+            sockets.add(server);
+          }
+          forward(client, server);
+          forward(server, client);
+        } catch (IOException e) {
+          if (!serverSocket.isClosed()) {
+            LOG.warn("Proxy for {} failed to connect", target, e);
+          }
+        }
+      }
+    }
+
+    /**
+     * Forwards the data with a reader thread that timestamps the chunks it reads and a writer thread that writes them
+     * once they are due, so that the latency does not limit the throughput.
+     */
+    private void forward(final Socket from, final Socket to) throws IOException
+    {
+      final BlockingQueue<Object[]> chunks = new LinkedBlockingQueue<>();
+      final InputStream is = from.getInputStream();
+      final OutputStream os = to.getOutputStream();
+      Thread reader = new Thread("proxy-read-" + from.getPort())
+      {
+        @Override
+        public void run()
+        {
+          byte[] buffer = new byte[64 * 1024];
+          try {
+            int len;
+            while ((len = is.read(buffer)) > 0) {
+              chunks.add(new Object[]{System.nanoTime() + latencyNanos, Arrays.copyOf(buffer, len)});
+            }
+          } catch (IOException e) {
+            LOG.debug("Proxy connection closed", e);
+          } finally {
+            chunks.add(new Object[]{0L, null});
+          }
+        }
+
+      };
+      Thread writer = new Thread("proxy-write-" + to.getPort())
+      {
+        @Override
+        public void run()
+        {
+          try {
+            while (true) {
+              Object[] chunk = chunks.take();
+              if (chunk[1] == null) {
+                break;
+              }
+              long delayNanos = (Long)chunk[0] - System.nanoTime();
+              if (delayNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+              }
+              os.write((byte[])chunk[1]);
+            }
+          } catch (IOException | InterruptedException e) {
+            LOG.debug("Proxy connection closed", e);
+          } finally {
+            IOUtils.closeQuietly(from);
+            IOUtils.closeQuietly(to);
+          }
+        }
+
+      };
+      reader.setDaemon(true);
+      writer.setDaemon(true);
+      reader.start();
+      writer.start();
+    }
+
+    void close()
+    {
+      IOUtils.closeQuietly(serverSocket);
+      synchronized (sockets) {
+        for (Socket socket : sockets) {
+          IOUtils.closeQuietly(socket);
+        }
+        sockets.clear();
+      }
+    }
+
+  }
+
+}
@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import com.datatorrent.stram.debug.StdOutErrLog;
 import com.datatorrent.stram.util.VersionInfo;
+import com.datatorrent.stram.webapp.JarClassIndex;
 
 /**
  * Entry point for Streaming Application Master
@@ -77,6 +78,12 @@ public class StreamingAppMaster extends StramUtils.YarnContainerMain
       return;
     }
 
+    // the type graph cache stays off unless the directory is set explicitly, the master should not leave indexes of
+    // the application jars in the home directory of the user on the node
+    if (System.getProperty(JarClassIndex.CACHE_DIR_PROPERTY) == null) {
+      System.setProperty(JarClassIndex.CACHE_DIR_PROPERTY, "");
+    }
+
     Map<String, String> envs = System.getenv();
     ApplicationAttemptId appAttemptID = Records.newRecord(ApplicationAttemptId.class);
     if (!envs.containsKey(Environment.CONTAINER_ID.name())) {
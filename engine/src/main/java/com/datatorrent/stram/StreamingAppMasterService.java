@@ -154,6 +154,7 @@ public class StreamingAppMasterService extends CompositeService
   private final ClusterAppStats stats = new ClusterAppStats();
   private StramDelegationTokenManager delegationTokenManager = null;
   private AppDataPushAgent appDataPushAgent;
+  private StatsPushAgent statsPushAgent;
 
   public StreamingAppMasterService(ApplicationAttemptId appAttemptID)
   {
@@ -365,6 +366,13 @@ public class StreamingAppMasterService extends CompositeService
       return (criticalPathInfo == null) ? 0 : criticalPathInfo.latency;
     }
 
+    @AutoMetric
+    @Override
+    public long getStatsProcessingLagMillis()
+    {
+      return dnmgr.getStatsProcessingLagMillis();
+    }
+
     @Override
     public long getWindowStartMillis()
     {
@@ -547,6 +555,7 @@ public class StreamingAppMasterService extends CompositeService
     }
     dag.setAttribute(LogicalPlan.APPLICATION_ATTEMPT_ID, appAttemptID.getAttemptId());
     FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(dag.assertAppPath(), conf);
+    recoveryHandler.setSnapshotFormat(dag.getValue(LogicalPlan.RECOVERY_SNAPSHOT_FORMAT));
     this.dnmgr = StreamingContainerManager.getInstance(recoveryHandler, dag, true);
     dag = this.dnmgr.getLogicalPlan();
     this.appContext = new ClusterAppContextImpl(dag.getAttributes());
@@ -578,6 +587,8 @@ public class StreamingAppMasterService extends CompositeService
       this.appDataPushAgent = new AppDataPushAgent(dnmgr, appContext);
       addService(this.appDataPushAgent);
     }
+    this.statsPushAgent = new StatsPushAgent(dnmgr);
+    addService(this.statsPushAgent);
     // initialize all services added above
     super.serviceInit(conf);
   }
@@ -689,6 +700,9 @@ public class StreamingAppMasterService extends CompositeService
     LOG.info("Blacklist removal time in millis = {}, max consecutive node failure count = {}", blacklistRemovalTime, maxConsecutiveContainerFailures);
     // for locality relaxation fall back
     Map<StreamingContainerAgent.ContainerStartRequest, MutablePair<Integer, ContainerRequest>> requestedResources = Maps.newHashMap();
+    // outstanding requests for standby containers by priority
+    Map<Integer, ContainerRequest> standbyRequests = Maps.newHashMap();
+    int numStandbyContainers = dag.getValue(LogicalPlan.STANDBY_CONTAINERS);
 
     // Setup heartbeat emitter
     // TODO poll RM every now and then with an empty request to let RM know that we are alive
@@ -793,6 +807,10 @@ public class StreamingAppMasterService extends CompositeService
           if(csr.container.getRequiredVCores() < minVcores){
             csr.container.setRequiredVCores(minVcores);
           }
+          if (dnmgr.assignStandbyContainer(csr.container) != null) {
+            // the standby container is already running, no need to wait for the RM
+            continue;
+          }
           csr.container.setResourceRequestPriority(nextRequestPriority++);
           ContainerRequest cr = resourceRequestor.createContainerRequest(csr, true);
           MutablePair<Integer, ContainerRequest> pair = new MutablePair<Integer, ContainerRequest>(loopCounter, cr);
@@ -815,6 +833,22 @@ public class StreamingAppMasterService extends CompositeService
         }
       }
 
+      // refill the standby pool in the background, once the containers of the plan were requested
+      if (numStandbyContainers > 0 && requestedResources.isEmpty()) {
+        PTContainer template = getStandbyTemplate();
+        int numMissing = numStandbyContainers - dnmgr.getStandbyContainerCount() - standbyRequests.size();
+        if (template != null && numMissing > 0) {
+          Resource capability = Resource.newInstance(Math.max(Math.min(template.getRequiredMemoryMB(), maxMem), minMem),
+              Math.max(Math.min(template.getRequiredVCores(), maxVcores), minVcores));
+          for (int i = 0; i < numMissing; i++) {
+            ContainerRequest cr = new ContainerRequest(capability, null, null, Priority.newInstance(nextRequestPriority++));
+            standbyRequests.put(cr.getPriority().getPriority(), cr);
+            containerRequests.add(cr);
+          }
+          LOG.info("Requesting {} standby containers with {}", numMissing, capability);
+        }
+      }
+
      /* Remove nodes from blacklist after timeout */
       long currentTime = System.currentTimeMillis();
       List<String> blacklistRemovals = new ArrayList<String>();
@@ -857,6 +891,25 @@ public class StreamingAppMasterService extends CompositeService
         LOG.info("Got new container." + ", containerId=" + allocatedContainer.getId() + ", containerNode=" + allocatedContainer.getNodeId() + ", containerNodeURI=" + allocatedContainer.getNodeHttpAddress() + ", containerResourceMemory" + allocatedContainer.getResource().getMemory() + ", priority" + allocatedContainer.getPriority());
         // + ", containerToken" + allocatedContainer.getContainerToken().getIdentifier().toString());
 
+        if (standbyRequests.remove(allocatedContainer.getPriority().getPriority()) != null) {
+          PTContainer template = getStandbyTemplate();
+          if (template == null) {
+            LOG.info("Releasing standby container {} as there are no containers to deploy", allocatedContainer.getId());
+            releasedContainers.add(allocatedContainer.getId());
+            continue;
+          }
+          AllocatedContainer allocatedContainerHolder = new AllocatedContainer(allocatedContainer);
+          this.allocatedContainers.put(allocatedContainer.getId().toString(), allocatedContainerHolder);
+          ByteBuffer tokens = getTokens(allocatedContainerHolder);
+          new LaunchContainerRunnable(allocatedContainer, nmClient, dag, template.getOperators(), tokens).run();
+          dnmgr.addStandbyContainer(new ContainerResource(allocatedContainer.getPriority().getPriority(), allocatedContainer.getId().toString(), allocatedContainer.getNodeId().toString(), allocatedContainer.getResource().getMemory(), allocatedContainer.getResource().getVirtualCores(), allocatedContainer.getNodeHttpAddress()));
+
+          StramEvent ev = new StramEvent.StartContainerEvent(allocatedContainer.getId().toString(), allocatedContainer.getNodeId().toString());
+          ev.setTimestamp(timestamp);
+          dnmgr.recordEventAsync(ev);
+          continue;
+        }
+
         boolean alreadyAllocated = true;
         StreamingContainerAgent.ContainerStartRequest csr = null;
         for (Map.Entry<StreamingContainerAgent.ContainerStartRequest, MutablePair<Integer, ContainerRequest>> entry : requestedResources.entrySet()) {
@@ -890,14 +943,7 @@ public class StreamingAppMasterService extends CompositeService
         else {
           AllocatedContainer allocatedContainerHolder = new AllocatedContainer(allocatedContainer);
           this.allocatedContainers.put(allocatedContainer.getId().toString(), allocatedContainerHolder);
-          ByteBuffer tokens = null;
-          if (UserGroupInformation.isSecurityEnabled()) {
-            UserGroupInformation ugi = UserGroupInformation.getLoginUser();
-            Token<StramDelegationTokenIdentifier> delegationToken = allocateDelegationToken(ugi.getUserName(), heartbeatListener.getAddress());
-            allocatedContainerHolder.delegationToken = delegationToken;
-            //ByteBuffer tokens = LaunchContainerRunnable.getTokens(delegationTokenManager, heartbeatListener.getAddress());
-            tokens = LaunchContainerRunnable.getTokens(ugi, delegationToken);
-          }
+          ByteBuffer tokens = getTokens(allocatedContainerHolder);
           LaunchContainerRunnable launchContainer = new LaunchContainerRunnable(allocatedContainer, nmClient, sca, tokens);
           // Thread launchThread = new Thread(runnableLaunchContainer);
           // launchThreads.add(launchThread);
@@ -930,6 +976,14 @@ public class StreamingAppMasterService extends CompositeService
           UserGroupInformation ugi = UserGroupInformation.getLoginUser();
           delegationTokenManager.cancelToken(allocatedContainer.delegationToken, ugi.getUserName());
         }
+        if (dnmgr.removeStandbyContainer(containerStatus.getContainerId().toString()) != null) {
+          // never assigned, the pool is refilled with the next request
+          LOG.info("Standby container {} terminated", containerStatus.getContainerId());
+          StramEvent ev = new StramEvent.StopContainerEvent(containerStatus.getContainerId().toString(), containerStatus.getExitStatus());
+          ev.setReason(containerStatus.getDiagnostics());
+          dnmgr.recordEventAsync(ev);
+          continue;
+        }
         int exitStatus = containerStatus.getExitStatus();
         if (0 != exitStatus) {
           if (allocatedContainer != null) {
@@ -1009,7 +1063,8 @@ public class StreamingAppMasterService extends CompositeService
         finalStatus = FinalApplicationStatus.FAILED;
         appDone = true;
       }
-      else if (allocatedContainers.isEmpty() && numRequestedContainers == 0 && dnmgr.containerStartRequests.isEmpty()) {
+      else if (allocatedContainers.size() == dnmgr.getStandbyContainerCount() && numRequestedContainers == standbyRequests.size() && dnmgr.containerStartRequests.isEmpty()) {
+        // standby containers are stopped when the application master unregisters
         LOG.debug("Exiting as no more containers are allocated or requested");
         finalStatus = FinalApplicationStatus.SUCCEEDED;
         appDone = true;
@@ -1024,6 +1079,35 @@ public class StreamingAppMasterService extends CompositeService
     finishApplication(finalStatus, numTotalContainers);
   }
 
+  private ByteBuffer getTokens(AllocatedContainer allocatedContainerHolder) throws IOException
+  {
+    ByteBuffer tokens = null;
+    if (UserGroupInformation.isSecurityEnabled()) {
+      UserGroupInformation ugi = UserGroupInformation.getLoginUser();
+      Token<StramDelegationTokenIdentifier> delegationToken = allocateDelegationToken(ugi.getUserName(), heartbeatListener.getAddress());
+      allocatedContainerHolder.delegationToken = delegationToken;
+      //ByteBuffer tokens = LaunchContainerRunnable.getTokens(delegationTokenManager, heartbeatListener.getAddress());
+      tokens = LaunchContainerRunnable.getTokens(ugi, delegationToken);
+    }
+    return tokens;
+  }
+
+  /**
+   * Returns the container of the physical plan with the largest resource requirement, standby containers are sized
+   * and configured for it so that they can take over any container.
+   */
+  private PTContainer getStandbyTemplate()
+  {
+    PTContainer template = null;
+    for (PTContainer c : dnmgr.getPhysicalPlan().getContainers()) {
+      if (template == null || c.getRequiredMemoryMB() > template.getRequiredMemoryMB()
+          || (c.getRequiredMemoryMB() == template.getRequiredMemoryMB() && c.getRequiredVCores() > template.getRequiredVCores())) {
+        template = c;
+      }
+    }
+    return template;
+  }
+
   private void finishApplication(FinalApplicationStatus finalStatus, int numTotalContainers) throws YarnException, IOException
   {
     LOG.info("Application completed. Signalling finish to RM");
@@ -42,6 +42,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultiset;
 
 import net.engio.mbassy.bus.MBassador;
 import net.engio.mbassy.bus.config.BusConfiguration;
@@ -86,10 +87,13 @@ import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.common.util.NumberAggregate;
 import com.datatorrent.common.util.Pair;
+import com.datatorrent.common.util.TieredFSStorageAgent;
 import com.datatorrent.stram.Journal.Recoverable;
 import com.datatorrent.stram.StreamingContainerAgent.ContainerStartRequest;
 import com.datatorrent.stram.api.*;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.*;
+import com.datatorrent.stram.codec.LogicalPlanKryoSerializer;
+import com.datatorrent.stram.codec.LogicalPlanSerializer;
 import com.datatorrent.stram.engine.OperatorResponse;
 import com.datatorrent.stram.engine.StreamingContainer;
 import com.datatorrent.stram.engine.WindowGenerator;
@@ -143,6 +147,8 @@ public class StreamingContainerManager implements PlanContext
   public final static Recoverable SET_OPERATOR_PROPERTY = new SetOperatorProperty();
   public final static Recoverable SET_PHYSICAL_OPERATOR_PROPERTY = new SetPhysicalOperatorProperty();
   public final static int METRIC_QUEUE_SIZE = 1000;
+  // fraction of the heartbeat timeout after which checkpoint updates visit all operators
+  private static final int FULL_CHECKPOINT_UPDATES_PER_HEARTBEAT_TIMEOUT = 3;
 
   private final FinalVars vars;
   private final PhysicalPlan plan;
@@ -159,8 +165,25 @@ public class StreamingContainerManager implements PlanContext
   protected String shutdownDiagnosticsMessage = "";
   private long lastResourceRequest = 0;
   private final Map<String, StreamingContainerAgent> containers = new ConcurrentHashMap<String, StreamingContainerAgent>();
+  // launched containers that wait for operators, see LogicalPlan.STANDBY_CONTAINERS
+  private final Map<String, ContainerResource> standbyContainers = new ConcurrentHashMap<>();
+  // JSON representation of the logical plan by includeModules, reset when the plan is modified
+  private final Map<Boolean, Map<String, Object>> logicalPlanMaps = new HashMap<>();
   private final List<Pair<PTOperator, Long>> purgeCheckpoints = new ArrayList<Pair<PTOperator, Long>>();
+  private final ConcurrentMap<InetSocketAddress, BufferServerController> bufferServerControllers = Maps.newConcurrentMap();
   private Map<OperatorMeta, Set<OperatorMeta>> checkpointGroups;
+  // operators that reported a new checkpoint since the last checkpoint update
+  private final Set<PTOperator> checkpointChangedOperators = Collections.newSetFromMap(new ConcurrentHashMap<PTOperator, Boolean>());
+  private volatile boolean fullCheckpointUpdate = true;
+  private long lastFullCheckpointUpdateTms;
+  // recovery window of every operator as of the last checkpoint update, the first entry is the committed window
+  private final Map<PTOperator, Long> recoveryWindowIds = new HashMap<>();
+  private final TreeMultiset<Long> sortedRecoveryWindowIds = TreeMultiset.create();
+  // Heartbeats of different containers are processed concurrently by the RPC handler threads. Heartbeat state is kept
+  // with the operator, which is only reported by its own container, and changes that the planning thread acts upon are
+  // handed off through lock free queues, so that heartbeats of different containers do not contend.
+  private final ConcurrentLinkedQueue<Pair<Long, PTOperator>> deactivatedOperators = new ConcurrentLinkedQueue<>();
+  // window id to operators deactivated at that window, only accessed by the planning thread
   private final Map<Long, Set<PTOperator>> shutdownOperators = new HashMap<>();
   private CriticalPathInfo criticalPathInfo;
   private final ConcurrentMap<PTOperator, PTOperator> reportStats = Maps.newConcurrentMap();
@@ -169,14 +192,15 @@ public class StreamingContainerManager implements PlanContext
   private MBassador<StramEvent> eventBus; // event bus for publishing stram events
   final private Journal journal;
   private RecoveryHandler recoveryHandler;
-  // window id to node id to end window stats
-  private final ConcurrentSkipListMap<Long, Map<Integer, EndWindowStats>> endWindowStatsOperatorMap = new ConcurrentSkipListMap<Long, Map<Integer, EndWindowStats>>();
+  // window id to end window stats
+  private final ConcurrentSkipListMap<Long, WindowEndStats> endWindowStatsOperatorMap = new ConcurrentSkipListMap<>();
+  private long lastCriticalPathMillis;
+  private volatile long statsProcessingLagMillis;
+  // incremented by the planning thread after each pass over the plan and stats
+  private volatile long statsVersion;
   private final ConcurrentMap<PTOperator, PTOperator> slowestUpstreamOp = new ConcurrentHashMap<>();
   private long committedWindowId;
-  // (operator id, port name) to timestamp
-  private final Map<Pair<Integer, String>, Long> operatorPortLastEndWindowTimestamps = Maps.newConcurrentMap();
-  private final Map<Integer, Long> operatorLastEndWindowTimestamps = Maps.newConcurrentMap();
-  private long lastStatsTimestamp = System.currentTimeMillis();
+  private volatile long lastStatsTimestamp = System.currentTimeMillis();
   private long currentEndWindowStatsWindowId;
   private long completeEndWindowStatsWindowId;
   private final ConcurrentHashMap<String, MovingAverageLong> rpcLatencies = new ConcurrentHashMap<String, MovingAverageLong>();
@@ -228,6 +252,35 @@ public class StreamingContainerManager implements PlanContext
     Map<String, Object> metrics;
   }
 
+  /**
+   * End window stats of all operators for a window. Operators that report counters or metrics are grouped by
+   * logical operator as the stats arrive, so that aggregation only visits the operators that need it.
+   */
+  private static class WindowEndStats
+  {
+    // node id to end window stats
+    final Map<Integer, EndWindowStats> operatorStats = new ConcurrentSkipListMap<>();
+    final ConcurrentMap<OperatorMeta, Queue<Integer>> aggregatedOperators = new ConcurrentHashMap<>();
+    // time when the last operator reported the window
+    volatile long completedMillis;
+
+    void put(PTOperator oper, EndWindowStats endWindowStats)
+    {
+      operatorStats.put(oper.getId(), endWindowStats);
+      if (endWindowStats.counters != null || endWindowStats.metrics != null) {
+        Queue<Integer> operators = aggregatedOperators.get(oper.getOperatorMeta());
+        if (operators == null) {
+          Queue<Integer> newOperators = new ConcurrentLinkedQueue<>();
+          operators = aggregatedOperators.putIfAbsent(oper.getOperatorMeta(), newOperators);
+          if (operators == null) {
+            operators = newOperators;
+          }
+        }
+        operators.add(oper.getId());
+      }
+    }
+  }
+
   public static class CriticalPathInfo
   {
     long latency;
@@ -525,6 +578,10 @@ public class StreamingContainerManager implements PlanContext
     if(poolExecutor != null) {
       poolExecutor.shutdown();
     }
+    for (BufferServerController bsc : bufferServerControllers.values()) {
+      bsc.close();
+    }
+    bufferServerControllers.clear();
   }
 
   public void subscribeToEvents(Object listener)
@@ -743,12 +800,14 @@ public class StreamingContainerManager implements PlanContext
 
     // events that may modify the plan
     processEvents();
+    compactRecoveryLog();
 
     committedWindowId = updateCheckpoints(false);
     calculateEndWindowStats();
     if (this.vars.enableStatsRecording) {
       recordStats(currentTms);
     }
+    statsVersion++;
   }
 
   private void recordStats(long currentTms)
@@ -772,25 +831,26 @@ public class StreamingContainerManager implements PlanContext
         while (endWindowStatsOperatorMap.size() > this.vars.maxWindowsBehindForStats) {
           LOG.debug("Removing incomplete end window stats for window id {}. Collected operator set: {}. Complete set: {}",
             endWindowStatsOperatorMap.firstKey(),
-            endWindowStatsOperatorMap.get(endWindowStatsOperatorMap.firstKey()).keySet(), allCurrentOperators);
-          endWindowStatsOperatorMap.remove(endWindowStatsOperatorMap.firstKey());
+            endWindowStatsOperatorMap.get(endWindowStatsOperatorMap.firstKey()).operatorStats.keySet(), allCurrentOperators);
+          Map.Entry<Long, WindowEndStats> entry = endWindowStatsOperatorMap.pollFirstEntry();
+          aggregateMetrics(entry.getKey(), entry.getValue());
         }
       }
       //logicalMetrics.clear();
       int numOperators = allCurrentOperators.size();
+      long currentTms = clock.getTime();
+      long lagMillis = 0;
       Long windowId = endWindowStatsOperatorMap.firstKey();
       while (windowId != null) {
-        Map<Integer, EndWindowStats> endWindowStatsMap = endWindowStatsOperatorMap.get(windowId);
-        Set<Integer> endWindowStatsOperators = endWindowStatsMap.keySet();
-
-        aggregateMetrics(windowId, endWindowStatsMap);
-        criticalPathInfo = findCriticalPath();
+        WindowEndStats windowEndStats = endWindowStatsOperatorMap.get(windowId);
+        Set<Integer> endWindowStatsOperators = windowEndStats.operatorStats.keySet();
 
         if (allCurrentOperators.containsAll(endWindowStatsOperators)) {
-          if (endWindowStatsMap.size() < numOperators) {
+          if (endWindowStatsOperators.size() < numOperators) {
             if (windowId < completeEndWindowStatsWindowId) {
               LOG.debug("Disregarding stale end window stats for window {}", windowId);
               endWindowStatsOperatorMap.remove(windowId);
+              aggregateMetrics(windowId, windowEndStats);
             }
             else {
               break;
@@ -798,7 +858,11 @@ public class StreamingContainerManager implements PlanContext
           }
           else {
             endWindowStatsOperatorMap.remove(windowId);
+            aggregateMetrics(windowId, windowEndStats);
             currentEndWindowStatsWindowId = windowId;
+            if (windowEndStats.completedMillis > 0) {
+              lagMillis = Math.max(lagMillis, currentTms - windowEndStats.completedMillis);
+            }
           }
         }
         else {
@@ -806,59 +870,60 @@ public class StreamingContainerManager implements PlanContext
           // this is probably right after a partition happens.
           LOG.debug("Stats for non-existent operators detected. Disregarding end window stats for window {}", windowId);
           endWindowStatsOperatorMap.remove(windowId);
+          aggregateMetrics(windowId, windowEndStats);
         }
         windowId = endWindowStatsOperatorMap.higherKey(windowId);
       }
+      statsProcessingLagMillis = lagMillis;
+
+      // the critical path only depends on the latest latency averages, it is sampled rather than computed per window
+      if (currentTms - lastCriticalPathMillis >= plan.getLogicalPlan().getValue(LogicalPlan.CRITICAL_PATH_INTERVAL_MILLIS)) {
+        criticalPathInfo = findCriticalPath();
+        lastCriticalPathMillis = currentTms;
+      }
     }
   }
 
-  private void aggregateMetrics(long windowId, Map<Integer, EndWindowStats> endWindowStatsMap)
+  /**
+   * Aggregates the counters and metrics reported for the window, per logical operator. Stats of operators that were
+   * removed from the plan in the meantime are ignored.
+   */
+  private void aggregateMetrics(long windowId, WindowEndStats windowEndStats)
   {
-    Collection<OperatorMeta> logicalOperators = getLogicalPlan().getAllOperators();
-    //for backward compatibility
-    for (OperatorMeta operatorMeta : logicalOperators) {
-      @SuppressWarnings("deprecation")
-      Context.CountersAggregator aggregator = operatorMeta.getValue(OperatorContext.COUNTERS_AGGREGATOR);
-      if (aggregator == null) {
-        continue;
-      }
-      Collection<PTOperator> physicalOperators = plan.getAllOperators(operatorMeta);
+    Map<Integer, PTOperator> allOperators = plan.getAllOperators();
+    for (Map.Entry<OperatorMeta, Queue<Integer>> entry : windowEndStats.aggregatedOperators.entrySet()) {
+      OperatorMeta operatorMeta = entry.getKey();
       List<Object> counters = Lists.newArrayList();
-      for (PTOperator operator : physicalOperators) {
-        EndWindowStats stats = endWindowStatsMap.get(operator.getId());
-        if (stats != null && stats.counters != null) {
+      List<AutoMetric.PhysicalMetricsContext> metricPool = Lists.newArrayList();
+      for (Integer operatorId : entry.getValue()) {
+        EndWindowStats stats = windowEndStats.operatorStats.get(operatorId);
+        if (stats == null || !allOperators.containsKey(operatorId)) {
+          continue;
+        }
+        if (stats.counters != null) {
           counters.add(stats.counters);
         }
+        if (stats.metrics != null) {
+          metricPool.add(new PhysicalMetricsContextImpl(operatorId, stats.metrics));
+        }
       }
-      if (counters.size() > 0) {
+
+      //for backward compatibility
+      @SuppressWarnings("deprecation")
+      Context.CountersAggregator countersAggregator = operatorMeta.getValue(OperatorContext.COUNTERS_AGGREGATOR);
+      if (countersAggregator != null && counters.size() > 0) {
         @SuppressWarnings("deprecation")
-        Object aggregate = aggregator.aggregate(counters);
+        Object aggregate = countersAggregator.aggregate(counters);
         latestLogicalCounters.put(operatorMeta.getName(), aggregate);
       }
-    }
 
-    for (OperatorMeta operatorMeta : logicalOperators) {
       AutoMetric.Aggregator aggregator = operatorMeta.getMetricAggregatorMeta() != null ?
         operatorMeta.getMetricAggregatorMeta().getAggregator() : null;
-      if (aggregator == null) {
-        continue;
-      }
-      Collection<PTOperator> physicalOperators = plan.getAllOperators(operatorMeta);
-      List<AutoMetric.PhysicalMetricsContext> metricPool = Lists.newArrayList();
-
-      for (PTOperator operator : physicalOperators) {
-        EndWindowStats stats = endWindowStatsMap.get(operator.getId());
-        if (stats != null && stats.metrics != null) {
-          PhysicalMetricsContextImpl physicalMetrics = new PhysicalMetricsContextImpl(operator.getId(), stats.metrics);
-          metricPool.add(physicalMetrics);
-        }
-      }
-      if (metricPool.isEmpty()) {
+      if (aggregator == null || metricPool.isEmpty()) {
         //nothing to aggregate
         continue;
       }
       Map<String, Object> lm = aggregator.aggregate(windowId, metricPool);
-
       if (lm != null && lm.size() > 0) {
         Queue<Pair<Long, Map<String, Object>>> windowMetrics = logicalMetrics.get(operatorMeta.getName());
         if (windowMetrics == null) {
@@ -971,6 +1036,11 @@ public class StreamingContainerManager implements PlanContext
         }
       }
       o.stats.lastWindowedStats = stats;
+      if (!o.isUnifier()) {
+        LogicalOperatorStatus logicalStatus = o.getOperatorMeta().getStatus();
+        logicalStatus.totalTuplesProcessed += o.stats.pendingLogicalTuplesProcessed.getAndSet(0);
+        logicalStatus.totalTuplesEmitted += o.stats.pendingLogicalTuplesEmitted.getAndSet(0);
+      }
       o.stats.operatorResponses = null;
       if (!o.stats.responses.isEmpty()) {
         o.stats.operatorResponses = new ArrayList<>();
@@ -988,18 +1058,25 @@ public class StreamingContainerManager implements PlanContext
       reportStats.remove(o);
     }
 
+    Pair<Long, PTOperator> deactivated;
+    while ((deactivated = deactivatedOperators.poll()) != null) {
+      Set<PTOperator> deactivatedOpers = shutdownOperators.get(deactivated.first);
+      if (deactivatedOpers == null) {
+        shutdownOperators.put(deactivated.first, deactivatedOpers = new HashSet<>());
+      }
+      deactivatedOpers.add(deactivated.second);
+    }
+
     if (!this.shutdownOperators.isEmpty()) {
-      synchronized (this.shutdownOperators) {
-        Iterator<Map.Entry<Long, Set<PTOperator>>> it = shutdownOperators.entrySet().iterator();
-        while (it.hasNext()) {
-          Map.Entry<Long, Set<PTOperator>> windowAndOpers = it.next();
-          if (windowAndOpers.getKey().longValue() <= this.committedWindowId || checkDownStreamOperators(windowAndOpers)) {
-            LOG.info("Removing inactive operators at window {} {}", Codec.getStringWindowId(windowAndOpers.getKey()), windowAndOpers.getValue());
-            for (PTOperator oper : windowAndOpers.getValue()) {
-              plan.removeTerminatedPartition(oper);
-            }
-            it.remove();
+      Iterator<Map.Entry<Long, Set<PTOperator>>> it = shutdownOperators.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<Long, Set<PTOperator>> windowAndOpers = it.next();
+        if (windowAndOpers.getKey().longValue() <= this.committedWindowId || checkDownStreamOperators(windowAndOpers)) {
+          LOG.info("Removing inactive operators at window {} {}", Codec.getStringWindowId(windowAndOpers.getKey()), windowAndOpers.getValue());
+          for (PTOperator oper : windowAndOpers.getValue()) {
+            plan.removeTerminatedPartition(oper);
           }
+          it.remove();
         }
       }
     }
@@ -1028,6 +1105,7 @@ public class StreamingContainerManager implements PlanContext
     }
 
     if (count > 0) {
+      fullCheckpointUpdate = true;
       try {
         checkpoint();
       } catch (Exception e) {
@@ -1131,6 +1209,14 @@ public class StreamingContainerManager implements PlanContext
       containerAgent.container.setFinishedTime(System.currentTimeMillis());
       containerAgent.container.setState(PTContainer.State.KILLED);
       completedContainers.put(containerId, containerAgent.getContainerInfo());
+      // the buffer server of the container is gone along with it
+      InetSocketAddress address = containerAgent.container.bufferServerAddress;
+      if (address != null) {
+        BufferServerController bsc = bufferServerControllers.remove(address);
+        if (bsc != null) {
+          bsc.close();
+        }
+      }
     }
   }
 
@@ -1199,7 +1285,11 @@ public class StreamingContainerManager implements PlanContext
       LOG.debug("Containers waiting for allocation {}", pendingAllocation);
       return null;
     }
+    return assignContainer(container, resource, bufferServerAddr);
+  }
 
+  private StreamingContainerAgent assignContainer(PTContainer container, ContainerResource resource, InetSocketAddress bufferServerAddr)
+  {
     pendingAllocation.remove(container);
     container.setState(PTContainer.State.ALLOCATED);
     if (container.getExternalId() != null) {
@@ -1226,6 +1316,73 @@ public class StreamingContainerManager implements PlanContext
     return sca;
   }
 
+  /**
+   * Adds a launched container to the standby pool. The container waits for operators until a container that needs
+   * to be deployed is assigned to it with {@link #assignStandbyContainer(PTContainer)}.
+   *
+   * @param resource launched container
+   */
+  public void addStandbyContainer(ContainerResource resource)
+  {
+    standbyContainers.put(resource.containerId, resource);
+    LOG.info("Added standby container {}", resource);
+  }
+
+  /**
+   * Removes a container from the standby pool, for example when it terminated before it was assigned.
+   *
+   * @param containerId
+   * @return the removed container, or null when the container is not in the standby pool
+   */
+  public ContainerResource removeStandbyContainer(String containerId)
+  {
+    return standbyContainers.remove(containerId);
+  }
+
+  public boolean isStandbyContainer(String containerId)
+  {
+    return standbyContainers.containsKey(containerId);
+  }
+
+  public int getStandbyContainerCount()
+  {
+    return standbyContainers.size();
+  }
+
+  /**
+   * Assign operators of a container that waits for allocation to a standby container with sufficient resources on a
+   * host that satisfies the node locality of the operators. The standby container picks up the operators with its
+   * next request for the init context, without a round trip to the resource manager. Called by the master loop only.
+   *
+   * @param container container waiting for allocation
+   * @return streaming container agent, or null when no standby container fits
+   */
+  public StreamingContainerAgent assignStandbyContainer(PTContainer container)
+  {
+    for (ContainerResource resource : standbyContainers.values()) {
+      if (resource.memoryMB < container.getRequiredMemoryMB() || resource.vCores < container.getRequiredVCores()) {
+        continue;
+      }
+      boolean hostMatches = true;
+      for (PTOperator oper : container.getOperators()) {
+        String host = oper.getNodeLocalOperators().getHost();
+        if (host != null && !resource.host.startsWith(host + ":")) {
+          hostMatches = false;
+          break;
+        }
+      }
+      if (hostMatches) {
+        container.setResourceRequestPriority(resource.priority);
+        LOG.info("Assigning standby container {} to {}", resource.containerId, container);
+        // register the agent before the container leaves the standby pool, so that its requests are never unknown
+        StreamingContainerAgent sca = assignContainer(container, resource, null);
+        standbyContainers.remove(resource.containerId);
+        return sca;
+      }
+    }
+    return null;
+  }
+
   private StreamingContainerContext newStreamingContainerContext(PTContainer container)
   {
     try {
@@ -1293,13 +1450,7 @@ public class StreamingContainerManager implements PlanContext
                 windowId = ohb.windowStats.get(ohb.windowStats.size()-1).windowId;
               }
               LOG.debug("Operator {} deactivated at window {}", oper, windowId);
-              synchronized (this.shutdownOperators) {
-                Set<PTOperator> deactivatedOpers = this.shutdownOperators.get(windowId);
-                if (deactivatedOpers == null) {
-                  this.shutdownOperators.put(windowId, deactivatedOpers = new HashSet<>());
-                }
-                deactivatedOpers.add(oper);
-              }
+              deactivatedOperators.add(new Pair<>(windowId, oper));
               sca.undeployOpers.add(oper.getId());
               slowestUpstreamOp.remove(oper);
               // record operator stop event
@@ -1360,6 +1511,7 @@ public class StreamingContainerManager implements PlanContext
     // count failure transitions *->FAILED, applies to initialization as well as intermittent failures
     if (oper.getState() == PTOperator.State.ACTIVE) {
       oper.setState(PTOperator.State.INACTIVE);
+      fullCheckpointUpdate = true;
       oper.failureCount++;
       oper.getOperatorMeta().getStatus().failureCount++;
       LOG.warn("Operator failure: {} count: {}", oper, oper.failureCount);
@@ -1552,18 +1704,14 @@ public class StreamingContainerManager implements PlanContext
               tuplesProcessed += s.tupleCount;
               endWindowStats.dequeueTimestamps.put(s.id, s.endWindowTimestamp);
 
-              Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
-              Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
-              if (lastEndWindowTimestamp == null) {
-                lastEndWindowTimestamp = lastStatsTimestamp;
-              }
+              long lastEndWindowTimestamp = ps.lastEndWindowTimestamp < 0 ? lastStatsTimestamp : ps.lastEndWindowTimestamp;
               long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
-              //LOG.debug("=== PROCESSED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
+              //LOG.debug("=== PROCESSED TUPLE COUNT for {}: {}, {}, {}, {}", s.id, s.tupleCount, portElapsedMillis, ps.lastEndWindowTimestamp, lastStatsTimestamp);
               ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
               ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
               ps.queueSizeMA.add(s.queueSize);
 
-              operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
+              ps.lastEndWindowTimestamp = s.endWindowTimestamp;
               if (maxEndWindowTimestamp < s.endWindowTimestamp) {
                 maxEndWindowTimestamp = s.endWindowTimestamp;
               }
@@ -1596,17 +1744,13 @@ public class StreamingContainerManager implements PlanContext
               ps.recordingId = s.recordingId;
 
               tuplesEmitted += s.tupleCount;
-              Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
-              Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
-              if (lastEndWindowTimestamp == null) {
-                lastEndWindowTimestamp = lastStatsTimestamp;
-              }
+              long lastEndWindowTimestamp = ps.lastEndWindowTimestamp < 0 ? lastStatsTimestamp : ps.lastEndWindowTimestamp;
               long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
-              //LOG.debug("=== EMITTED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
+              //LOG.debug("=== EMITTED TUPLE COUNT for {}: {}, {}, {}, {}", s.id, s.tupleCount, portElapsedMillis, ps.lastEndWindowTimestamp, lastStatsTimestamp);
               ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
               ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
 
-              operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
+              ps.lastEndWindowTimestamp = s.endWindowTimestamp;
               if (maxEndWindowTimestamp < s.endWindowTimestamp) {
                 maxEndWindowTimestamp = s.endWindowTimestamp;
               }
@@ -1646,16 +1790,16 @@ public class StreamingContainerManager implements PlanContext
           }
 
           if (stats.windowId > currentEndWindowStatsWindowId) {
-            Map<Integer, EndWindowStats> endWindowStatsMap = endWindowStatsOperatorMap.get(stats.windowId);
-            if (endWindowStatsMap == null) {
-              endWindowStatsMap = new ConcurrentSkipListMap<Integer, EndWindowStats>();
-              Map<Integer, EndWindowStats> endWindowStatsMapPrevious =
-                  endWindowStatsOperatorMap.putIfAbsent(stats.windowId, endWindowStatsMap);
-              if (endWindowStatsMapPrevious != null) {
-                endWindowStatsMap = endWindowStatsMapPrevious;
+            WindowEndStats windowEndStats = endWindowStatsOperatorMap.get(stats.windowId);
+            if (windowEndStats == null) {
+              windowEndStats = new WindowEndStats();
+              WindowEndStats windowEndStatsPrevious = endWindowStatsOperatorMap.putIfAbsent(stats.windowId, windowEndStats);
+              if (windowEndStatsPrevious != null) {
+                windowEndStats = windowEndStatsPrevious;
               }
             }
-            endWindowStatsMap.put(shb.getNodeId(), endWindowStats);
+            windowEndStats.put(oper, endWindowStats);
+            Map<Integer, EndWindowStats> endWindowStatsMap = windowEndStats.operatorStats;
 
             if (!oper.getInputs().isEmpty()) {
               long latency = Long.MAX_VALUE;
@@ -1698,21 +1842,19 @@ public class StreamingContainerManager implements PlanContext
 
             Set<Integer> allCurrentOperators = plan.getAllOperators().keySet();
             int numOperators = plan.getAllOperators().size();
-            if (allCurrentOperators.containsAll(endWindowStatsMap.keySet()) && endWindowStatsMap.size() == numOperators) {
+            if (endWindowStatsMap.size() == numOperators && allCurrentOperators.containsAll(endWindowStatsMap.keySet())) {
               completeEndWindowStatsWindowId = stats.windowId;
+              windowEndStats.completedMillis = currentTimeMillis;
             }
           }
         }
 
         status.totalTuplesProcessed.add(tuplesProcessed);
         status.totalTuplesEmitted.add(tuplesEmitted);
-        OperatorMeta logicalOperator = oper.getOperatorMeta();
-        LogicalOperatorStatus logicalStatus = logicalOperator.getStatus();
-        if (!oper.isUnifier()) {
-          logicalStatus.totalTuplesProcessed += tuplesProcessed;
-          logicalStatus.totalTuplesEmitted += tuplesEmitted;
-        }
-        long lastMaxEndWindowTimestamp = operatorLastEndWindowTimestamps.containsKey(oper.getId()) ? operatorLastEndWindowTimestamps.get(oper.getId()) : lastStatsTimestamp;
+        // partitions of the logical operator report from different containers, the planning thread sums them up
+        status.pendingLogicalTuplesProcessed.addAndGet(tuplesProcessed);
+        status.pendingLogicalTuplesEmitted.addAndGet(tuplesEmitted);
+        long lastMaxEndWindowTimestamp = status.lastMaxEndWindowTimestamp < 0 ? lastStatsTimestamp : status.lastMaxEndWindowTimestamp;
         if (maxEndWindowTimestamp >= lastMaxEndWindowTimestamp) {
           double tuplesProcessedPMSMA = 0.0;
           double tuplesEmittedPMSMA = 0.0;
@@ -1733,7 +1875,7 @@ public class StreamingContainerManager implements PlanContext
         else {
           //LOG.warn("This timestamp for {} is lower than the previous!! {} < {}", oper.getId(), maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
         }
-        operatorLastEndWindowTimestamps.put(oper.getId(), maxEndWindowTimestamp);
+        status.lastMaxEndWindowTimestamp = maxEndWindowTimestamp;
         status.listenerStats.add(statsList);
         this.reportStats.put(oper, oper);
 
@@ -1873,6 +2015,8 @@ public class StreamingContainerManager implements PlanContext
         node.checkpoints.add(checkpoint);
       }
     }
+    // after the list update, so that the next checkpoint update sees the checkpoint
+    checkpointChangedOperators.add(node);
   }
 
   public static class UpdateCheckpointsContext
@@ -1907,19 +2051,7 @@ public class StreamingContainerManager implements PlanContext
    */
   public void updateRecoveryCheckpoints(PTOperator operator, UpdateCheckpointsContext ctx)
   {
-    if (operator.getRecoveryCheckpoint().windowId < ctx.committedWindowId.longValue()) {
-      ctx.committedWindowId.setValue(operator.getRecoveryCheckpoint().windowId);
-    }
-
-    if (operator.getState() == PTOperator.State.ACTIVE && (ctx.currentTms - operator.stats.lastWindowIdChangeTms) > operator.stats.windowProcessingTimeoutMillis) {
-      // if the checkpoint is ahead, then it is not blocked but waiting for activation (state-less recovery, at-most-once)
-      if (ctx.committedWindowId.longValue() >= operator.getRecoveryCheckpoint().windowId) {
-        LOG.debug("Marking operator {} blocked committed window {}, recovery window {}", operator,
-            Codec.getStringWindowId(ctx.committedWindowId.longValue()),
-            Codec.getStringWindowId(operator.getRecoveryCheckpoint().windowId));
-        ctx.blocked.add(operator);
-      }
-    }
+    updateCommittedWindowAndBlocked(operator, ctx);
 
     // the most recent checkpoint eligible for recovery based on downstream state
     Checkpoint maxCheckpoint = Checkpoint.INITIAL_CHECKPOINT;
@@ -2033,6 +2165,88 @@ public class StreamingContainerManager implements PlanContext
 
   }
 
+  private void updateCommittedWindowAndBlocked(PTOperator operator, UpdateCheckpointsContext ctx)
+  {
+    if (operator.getRecoveryCheckpoint().windowId < ctx.committedWindowId.longValue()) {
+      ctx.committedWindowId.setValue(operator.getRecoveryCheckpoint().windowId);
+    }
+
+    if (operator.getState() == PTOperator.State.ACTIVE && (ctx.currentTms - operator.stats.lastWindowIdChangeTms) > operator.stats.windowProcessingTimeoutMillis) {
+      // if the checkpoint is ahead, then it is not blocked but waiting for activation (state-less recovery, at-most-once)
+      if (ctx.committedWindowId.longValue() >= operator.getRecoveryCheckpoint().windowId) {
+        LOG.debug("Marking operator {} blocked committed window {}, recovery window {}", operator,
+            Codec.getStringWindowId(ctx.committedWindowId.longValue()),
+            Codec.getStringWindowId(operator.getRecoveryCheckpoint().windowId));
+        ctx.blocked.add(operator);
+      }
+    }
+  }
+
+  /**
+   * Find the operators whose recovery checkpoint may have changed since the last update. A new checkpoint
+   * can only move the recovery checkpoint of the reporting operator, its checkpoint group and its upstream
+   * operators. All operators are visited after changes to the deployment, while operators are not active, and at
+   * least every {@link #getFullCheckpointUpdateIntervalMillis()} to detect blocked operators.
+   *
+   * @return the operators to update or null when all operators need to be visited
+   */
+  private Set<PTOperator> getCheckpointUpdateOperators(long currentTms)
+  {
+    if (fullCheckpointUpdate || currentTms - lastFullCheckpointUpdateTms >= getFullCheckpointUpdateIntervalMillis()) {
+      fullCheckpointUpdate = false;
+      lastFullCheckpointUpdateTms = currentTms;
+      checkpointChangedOperators.clear();
+      return null;
+    }
+
+    Set<PTOperator> affected = new HashSet<>();
+    Deque<PTOperator> pending = new ArrayDeque<>();
+    Iterator<PTOperator> it = checkpointChangedOperators.iterator();
+    while (it.hasNext()) {
+      pending.add(it.next());
+      it.remove();
+    }
+    PTOperator oper;
+    while ((oper = pending.poll()) != null) {
+      if (!affected.add(oper)) {
+        continue;
+      }
+      Set<OperatorMeta> checkpointGroup = getCheckpointGroups().get(oper.getOperatorMeta());
+      if (checkpointGroup != null && checkpointGroup.size() > 1) {
+        for (OperatorMeta om : checkpointGroup) {
+          pending.addAll(plan.getAllOperators(om));
+        }
+      }
+      for (PTInput input : oper.getInputs()) {
+        pending.add(input.source.source);
+      }
+    }
+    return affected;
+  }
+
+  /**
+   * Returns the interval of the checkpoint updates that visit all operators, a third of the heartbeat timeout of the
+   * application, 10s by default. Blocked operators are only detected by these updates, so an operator is reported
+   * blocked up to one interval after its window processing timeout expired. A shorter heartbeat timeout detects
+   * blocked operators sooner, at the cost of more frequent traversals of the physical plan.
+   *
+   * @return interval in milliseconds
+   */
+  long getFullCheckpointUpdateIntervalMillis()
+  {
+    return this.vars.heartbeatTimeoutMillis / FULL_CHECKPOINT_UPDATES_PER_HEARTBEAT_TIMEOUT;
+  }
+
+  private void updateRecoveryWindowId(PTOperator operator)
+  {
+    Long windowId = operator.getRecoveryCheckpoint().windowId;
+    Long previous = recoveryWindowIds.put(operator, windowId);
+    if (previous != null) {
+      sortedRecoveryWindowIds.remove(previous);
+    }
+    sortedRecoveryWindowIds.add(windowId);
+  }
+
   public long windowIdToMillis(long windowId)
   {
     int widthMillis = plan.getLogicalPlan().getValue(LogicalPlan.STREAMING_WINDOW_SIZE_MILLIS);
@@ -2067,17 +2281,56 @@ public class StreamingContainerManager implements PlanContext
    * Visit all operators to update current checkpoint based on updated downstream state.
    * Purge older checkpoints that are no longer needed.
    */
-  private long updateCheckpoints(boolean recovery)
+  long updateCheckpoints(boolean recovery)
   {
     UpdateCheckpointsContext ctx = new UpdateCheckpointsContext(clock, recovery, getCheckpointGroups());
-    for (OperatorMeta logicalOperator : plan.getLogicalPlan().getRootOperators()) {
-      //LOG.debug("Updating checkpoints for operator {}", logicalOperator.getName());
-      List<PTOperator> operators = plan.getOperators(logicalOperator);
-      if (operators != null) {
-        for (PTOperator operator : operators) {
+    Set<PTOperator> affected = recovery ? null : getCheckpointUpdateOperators(ctx.currentTms);
+    if (affected == null) {
+      for (OperatorMeta logicalOperator : plan.getLogicalPlan().getRootOperators()) {
+        //LOG.debug("Updating checkpoints for operator {}", logicalOperator.getName());
+        List<PTOperator> operators = plan.getOperators(logicalOperator);
+        if (operators != null) {
+          for (PTOperator operator : operators) {
+            updateRecoveryCheckpoints(operator, ctx);
+          }
+        }
+      }
+      recoveryWindowIds.clear();
+      sortedRecoveryWindowIds.clear();
+      for (PTOperator operator : plan.getAllOperators().values()) {
+        updateRecoveryWindowId(operator);
+        if (operator.getState() != PTOperator.State.ACTIVE) {
+          // deployment in progress, checkpoints may be frozen or reset
+          fullCheckpointUpdate = true;
+        }
+      }
+    } else {
+      // operators outside of the affected set retain their recovery checkpoint, the committed window is the lowest
+      // recovery window as of the last update, as in a full update
+      if (!sortedRecoveryWindowIds.isEmpty()) {
+        ctx.committedWindowId.setValue(sortedRecoveryWindowIds.firstEntry().getElement());
+      }
+      for (PTOperator operator : affected) {
+        for (PTOperator.PTOutput out : operator.getOutputs()) {
+          for (PTOperator.PTInput sink : out.sinks) {
+            if (!affected.contains(sink.target)) {
+              ctx.visited.add(sink.target);
+            }
+          }
+        }
+      }
+      for (PTOperator operator : affected) {
+        if (!ctx.visited.contains(operator)) {
           updateRecoveryCheckpoints(operator, ctx);
         }
       }
+      for (PTOperator operator : affected) {
+        updateRecoveryWindowId(operator);
+      }
+      if (!sortedRecoveryWindowIds.isEmpty()) {
+        // the lowest recovery window may have moved with the affected operators
+        ctx.committedWindowId.setValue(sortedRecoveryWindowIds.firstEntry().getElement());
+      }
     }
     purgeCheckpoints();
 
@@ -2091,31 +2344,71 @@ public class StreamingContainerManager implements PlanContext
     return ctx.committedWindowId.longValue();
   }
 
+  /**
+   * Get the controller connection to the buffer server of the operator's container. Connections are shared
+   * by all requests to the same buffer server and replaced when closed or when the container token changes.
+   */
   private BufferServerController getBufferServerClient(PTOperator operator)
   {
-    BufferServerController bsc = new BufferServerController(operator.getLogicalId());
-    bsc.setToken(operator.getContainer().getBufferServerToken());
     InetSocketAddress address = operator.getContainer().bufferServerAddress;
+    byte[] token = operator.getContainer().getBufferServerToken();
+    BufferServerController bsc = bufferServerControllers.get(address);
+    if (bsc != null) {
+      if (!bsc.isClosed() && Arrays.equals(token, bsc.token)) {
+        return bsc;
+      }
+      bufferServerControllers.remove(address, bsc);
+      bsc.close();
+    }
+    bsc = new BufferServerController(address.toString());
+    bsc.addr = address;
+    bsc.token = token;
+    bsc.setToken(token);
+    BufferServerController existing = bufferServerControllers.putIfAbsent(address, bsc);
+    if (existing != null) {
+      return existing;
+    }
     StreamingContainer.eventloop.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address, bsc);
     return bsc;
   }
 
   private void purgeCheckpoints()
   {
+    // group by operator, so that the storage agent can delete all windows of an operator in a single task
+    Map<PTOperator, List<Long>> operatorWindows = new LinkedHashMap<>();
     for (Pair<PTOperator, Long> p : purgeCheckpoints) {
-      final PTOperator operator = p.getFirst();
+      List<Long> windowIds = operatorWindows.get(p.getFirst());
+      if (windowIds == null) {
+        windowIds = new ArrayList<>();
+        operatorWindows.put(p.getFirst(), windowIds);
+      }
+      windowIds.add(p.getSecond());
+    }
+
+    for (Map.Entry<PTOperator, List<Long>> e : operatorWindows.entrySet()) {
+      final PTOperator operator = e.getKey();
       if (!operator.isOperatorStateLess()) {
-        final long windowId = p.getSecond();
+        final long[] windowIds = new long[e.getValue().size()];
+        for (int i = 0; i < windowIds.length; i++) {
+          windowIds[i] = e.getValue().get(i);
+        }
         Runnable r = new Runnable()
         {
           @Override
           public void run()
           {
+            StorageAgent agent = operator.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT);
             try {
-              operator.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT).delete(operator.getId(), windowId);
+              if (agent instanceof StorageAgent.BatchDeleteStorageAgent) {
+                ((StorageAgent.BatchDeleteStorageAgent)agent).delete(operator.getId(), windowIds);
+              } else {
+                for (long windowId : windowIds) {
+                  agent.delete(operator.getId(), windowId);
+                }
+              }
             }
             catch (IOException ex) {
-              LOG.error("Failed to purge checkpoint for operator {} for windowId {}", operator, windowId, ex);
+              LOG.error("Failed to purge checkpoints for operator {} for windowIds {}", operator, Arrays.toString(windowIds), ex);
             }
           }
         };
@@ -2192,6 +2485,7 @@ public class StreamingContainerManager implements PlanContext
     for (PTOperator operator : c.getOperators()) {
       operator.setState(PTOperator.State.INACTIVE);
     }
+    fullCheckpointUpdate = true;
   }
 
   @Override
@@ -2199,6 +2493,7 @@ public class StreamingContainerManager implements PlanContext
   {
     try {
       this.deployChangeInProgress.set(true);
+      this.fullCheckpointUpdate = true;
 
       Map<PTContainer, List<PTOperator>> undeployGroups = groupByContainer(undeploy);
 
@@ -2305,6 +2600,23 @@ public class StreamingContainerManager implements PlanContext
     return o == null ? null : fillPhysicalOperatorInfo(o);
   }
 
+  /**
+   * Returns the statistics of the last checkpoint reported by the physical operator. The field breakdown is only
+   * present when the storage agent of the operator profiles checkpoints.
+   *
+   * @param operatorId physical operator id
+   * @return checkpoint statistics, empty when no checkpoint was reported yet, or null when the operator does not exist
+   */
+  public Stats.CheckpointStats getCheckpointStats(int operatorId)
+  {
+    PTOperator o = this.plan.getAllOperators().get(operatorId);
+    if (o == null) {
+      return null;
+    }
+    Stats.CheckpointStats checkpointStats = o.stats.checkpointStats;
+    return checkpointStats == null ? new Stats.CheckpointStats() : checkpointStats;
+  }
+
   public List<OperatorInfo> getOperatorInfoList()
   {
     List<OperatorInfo> infoList = new ArrayList<OperatorInfo>();
@@ -2718,6 +3030,7 @@ public class StreamingContainerManager implements PlanContext
   {
     Map<String, String> properties = Collections.singletonMap(propertyName, propertyValue);
     LogicalPlanConfiguration.setOperatorProperties(logicalOperator.getOperator(), properties);
+    resetLogicalPlanMaps();
 
     List<PTOperator> operators = plan.getOperators(logicalOperator);
     for (PTOperator o : operators) {
@@ -2868,6 +3181,32 @@ public class StreamingContainerManager implements PlanContext
     return plan.getLogicalPlan();
   }
 
+  /**
+   * Returns the logical plan in the form of {@link LogicalPlanSerializer#convertToMap}. The result is computed once
+   * and reused until the plan is modified, so callers must not modify it.
+   *
+   * @param includeModules whether to include the modules
+   * @return map representation of the logical plan
+   */
+  public Map<String, Object> getLogicalPlanMap(boolean includeModules)
+  {
+    synchronized (logicalPlanMaps) {
+      Map<String, Object> map = logicalPlanMaps.get(includeModules);
+      if (map == null) {
+        map = LogicalPlanSerializer.convertToMap(plan.getLogicalPlan(), includeModules);
+        logicalPlanMaps.put(includeModules, map);
+      }
+      return map;
+    }
+  }
+
+  private void resetLogicalPlanMaps()
+  {
+    synchronized (logicalPlanMaps) {
+      logicalPlanMaps.clear();
+    }
+  }
+
   /**
    * Asynchronously process the logical, physical plan and execution layer changes.
    * Caller can use the returned future to block until processing is complete.
@@ -2899,12 +3238,7 @@ public class StreamingContainerManager implements PlanContext
     {
       // clone logical plan, for dry run and validation
       LOG.info("Begin plan changes: {}", requests);
-      LogicalPlan lp = plan.getLogicalPlan();
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      LogicalPlan.write(lp, bos);
-      bos.flush();
-      ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
-      lp = LogicalPlan.read(bis);
+      LogicalPlan lp = LogicalPlanKryoSerializer.clone(plan.getLogicalPlan());
 
       PlanModifier pm = new PlanModifier(lp);
       for (LogicalPlanRequest request : requests) {
@@ -2923,6 +3257,7 @@ public class StreamingContainerManager implements PlanContext
         recordEventAsync(new StramEvent.ChangeLogicalPlanEvent(request));
       }
       pm.applyChanges(StreamingContainerManager.this);
+      resetLogicalPlanMaps();
       LOG.info("Plan changes applied: {}", requests);
       return null;
     }
@@ -2934,6 +3269,45 @@ public class StreamingContainerManager implements PlanContext
     return criticalPathInfo;
   }
 
+  /**
+   * Returns the time between the last operator reporting a window and the end window stats of that window being
+   * processed by the master, the maximum over the windows processed in the last pass.
+   *
+   * @return lag in milliseconds
+   */
+  public long getStatsProcessingLagMillis()
+  {
+    return statsProcessingLagMillis;
+  }
+
+  /**
+   * Returns the version of the plan and stats, which changes whenever the master has processed a round of
+   * heartbeats and plan changes. Information derived from the plan does not need to be rebuilt while the version
+   * remains the same.
+   *
+   * @return stats version
+   */
+  public long getStatsVersion()
+  {
+    return statsVersion;
+  }
+
+  /**
+   * Write a new snapshot when the recovery log exceeds the configured size. The snapshot subsumes the log,
+   * which limits the number of operations replayed on restart.
+   */
+  private void compactRecoveryLog()
+  {
+    if (recoveryHandler != null && journal.getSize() > plan.getLogicalPlan().getValue(LogicalPlan.RECOVERY_LOG_COMPACTION_BYTES)) {
+      LOG.info("Compacting recovery log of {} bytes", journal.getSize());
+      try {
+        checkpoint();
+      } catch (Exception e) {
+        throw new RuntimeException("Failed to checkpoint state.", e);
+      }
+    }
+  }
+
   private void checkpoint() throws IOException
   {
     if (recoveryHandler != null) {
@@ -3101,19 +3475,31 @@ public class StreamingContainerManager implements PlanContext
 
       this.finals = new FinalVars(finals, lp);
       StorageAgent sa = lp.getValue(OperatorContext.STORAGE_AGENT);
-      if(sa instanceof AsyncFSStorageAgent){
+      if (sa instanceof TieredFSStorageAgent) {
+        // replace the default storage agent, if present, keeping the memory tier settings
+        TieredFSStorageAgent fssa = (TieredFSStorageAgent)sa;
+        if (fssa.path.contains(oldAppId)) {
+          TieredFSStorageAgent newAgent = new TieredFSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+          newAgent.setSyncCheckpoint(fssa.isSyncCheckpoint());
+          newAgent.setMaxMemoryCheckpoints(fssa.getMaxMemoryCheckpoints());
+          newAgent.setProfileCheckpoints(fssa.isProfileCheckpoints());
+          lp.setAttribute(OperatorContext.STORAGE_AGENT, newAgent);
+        }
+      } else if (sa instanceof AsyncFSStorageAgent) {
         // replace the default storage agent, if present
         AsyncFSStorageAgent fssa = (AsyncFSStorageAgent) sa;
         if (fssa.path.contains(oldAppId)) {
-          fssa = new AsyncFSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
-          lp.setAttribute(OperatorContext.STORAGE_AGENT, fssa);
+          AsyncFSStorageAgent newAgent = new AsyncFSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+          newAgent.setProfileCheckpoints(fssa.isProfileCheckpoints());
+          lp.setAttribute(OperatorContext.STORAGE_AGENT, newAgent);
         }
       } else if (sa instanceof FSStorageAgent) {
         // replace the default storage agent, if present
         FSStorageAgent fssa = (FSStorageAgent) sa;
         if (fssa.path.contains(oldAppId)) {
-          fssa = new FSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
-          lp.setAttribute(OperatorContext.STORAGE_AGENT, fssa);
+          FSStorageAgent newAgent = new FSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+          newAgent.setProfileCheckpoints(fssa.isProfileCheckpoints());
+          lp.setAttribute(OperatorContext.STORAGE_AGENT, newAgent);
         }
       }
     }
@@ -172,8 +172,14 @@ public class StreamingContainerParent extends org.apache.hadoop.service.Composit
   @Override
   public StreamingContainerContext getInitContext(String containerId)
       throws IOException {
+    if (dagManager.isStandbyContainer(containerId)) {
+      // no operators assigned yet, the standby container asks again
+      return null;
+    }
     StreamingContainerAgent sca = dagManager.getContainerAgent(containerId);
-
+    if (sca == null) {
+      throw new IOException("Unknown container " + containerId);
+    }
     return sca.getInitContext();
   }
 
@@ -0,0 +1,467 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datatorrent.api.Stats;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+import com.datatorrent.api.StatsListener;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+
+/**
+ * Compact binary encoding of the {@link ContainerHeartbeat}.
+ * <p>
+ * Numbers are written as variable length integers and the stats of consecutive windows of an operator are written
+ * relative to the previous window: window ids and end window timestamps as differences and optional values only
+ * when they are set. Strings such as port names are written once per heartbeat and referenced thereafter. Values of
+ * arbitrary type, such as custom metrics and stats listener responses, fall back to Java serialization.
+ * </p>
+ * <p>
+ * The encoding does not depend on earlier heartbeats, so that a lost or repeated heartbeat and a restarted
+ * application master do not require resynchronization.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class ContainerHeartbeatCodec
+{
+  public static final byte VERSION = 1;
+
+  private static final int CHECKPOINT = 1;
+  private static final int INPUT_PORTS = 1 << 1;
+  private static final int OUTPUT_PORTS = 1 << 2;
+  private static final int CHECKPOINT_STATS = 1 << 3;
+  private static final int COUNTERS = 1 << 4;
+  private static final int METRICS = 1 << 5;
+  private static final int RECORDING_ID = 1 << 6;
+
+  private static final byte CHECKPOINT_WINDOW = 1;
+  private static final byte CHECKPOINT_OBJECT = 2;
+
+  private static final byte VALUE_OBJECT = 0;
+  private static final byte VALUE_LONG = 1;
+  private static final byte VALUE_INTEGER = 2;
+  private static final byte VALUE_DOUBLE = 3;
+  private static final byte VALUE_STRING = 4;
+
+  private final Map<String, Integer> writeStrings = new HashMap<>();
+  private final List<String> readStrings = new ArrayList<>();
+
+  private ContainerHeartbeatCodec()
+  {
+  }
+
+  public static void write(DataOutput out, ContainerHeartbeat heartbeat) throws IOException
+  {
+    new ContainerHeartbeatCodec().writeHeartbeat(out, heartbeat);
+  }
+
+  public static void read(DataInput in, ContainerHeartbeat heartbeat) throws IOException
+  {
+    new ContainerHeartbeatCodec().readHeartbeat(in, heartbeat);
+  }
+
+  private void writeHeartbeat(DataOutput out, ContainerHeartbeat heartbeat) throws IOException
+  {
+    out.writeByte(VERSION);
+    writeString(out, heartbeat.bufferServerHost);
+    writeVarLong(out, heartbeat.bufferServerPort);
+    writeString(out, heartbeat.jvmName);
+    writeVarLong(out, heartbeat.memoryMBFree);
+    out.writeBoolean(heartbeat.restartRequested);
+    writeVarLong(out, heartbeat.gcCollectionTime);
+    writeVarLong(out, heartbeat.gcCollectionCount);
+    out.writeLong(heartbeat.sentTms);
+
+    ContainerStats stats = heartbeat.stats;
+    out.writeBoolean(stats != null);
+    if (stats != null) {
+      writeString(out, stats.id);
+      writeVarLong(out, stats.operators.size());
+      for (OperatorHeartbeat operator : stats.operators) {
+        writeOperator(out, operator, heartbeat.sentTms);
+      }
+    }
+  }
+
+  private void readHeartbeat(DataInput in, ContainerHeartbeat heartbeat) throws IOException
+  {
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported heartbeat encoding version " + version);
+    }
+    heartbeat.bufferServerHost = readString(in);
+    heartbeat.bufferServerPort = (int)readVarLong(in);
+    heartbeat.jvmName = readString(in);
+    heartbeat.memoryMBFree = (int)readVarLong(in);
+    heartbeat.restartRequested = in.readBoolean();
+    heartbeat.gcCollectionTime = readVarLong(in);
+    heartbeat.gcCollectionCount = readVarLong(in);
+    heartbeat.sentTms = in.readLong();
+
+    if (in.readBoolean()) {
+      ContainerStats stats = new ContainerStats(readString(in));
+      int count = (int)readVarLong(in);
+      stats.operators.ensureCapacity(count);
+      for (int i = 0; i < count; i++) {
+        stats.operators.add(readOperator(in, heartbeat.sentTms));
+      }
+      heartbeat.stats = stats;
+    } else {
+      heartbeat.stats = null;
+    }
+  }
+
+  private void writeOperator(DataOutput out, OperatorHeartbeat operator, long sentTms) throws IOException
+  {
+    writeVarLong(out, operator.nodeId);
+    writeVarLong(out, zigZag(operator.generatedTms - sentTms));
+    writeVarLong(out, operator.intervalMs);
+    out.writeByte(operator.state == null ? 0 : operator.state.ordinal() + 1);
+    writeObject(out, operator.requestResponse);
+
+    writeVarLong(out, operator.windowStats.size());
+    OperatorStats previous = null;
+    for (OperatorStats stats : operator.windowStats) {
+      writeOperatorStats(out, stats, previous);
+      previous = stats;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private OperatorHeartbeat readOperator(DataInput in, long sentTms) throws IOException
+  {
+    OperatorHeartbeat operator = new OperatorHeartbeat();
+    operator.nodeId = (int)readVarLong(in);
+    operator.generatedTms = sentTms + unZigZag(readVarLong(in));
+    operator.intervalMs = readVarLong(in);
+    int state = in.readByte();
+    operator.state = state == 0 ? null : OperatorHeartbeat.DeployState.values()[state - 1];
+    operator.requestResponse = (ArrayList<StatsListener.OperatorResponse>)readObject(in);
+
+    int count = (int)readVarLong(in);
+    operator.windowStats.ensureCapacity(count);
+    OperatorStats previous = null;
+    for (int i = 0; i < count; i++) {
+      OperatorStats stats = readOperatorStats(in, previous);
+      operator.windowStats.add(stats);
+      previous = stats;
+    }
+    return operator;
+  }
+
+  @SuppressWarnings("deprecation")
+  private void writeOperatorStats(DataOutput out, OperatorStats stats, OperatorStats previous) throws IOException
+  {
+    int flags = 0;
+    if (stats.checkpoint != null) {
+      flags |= CHECKPOINT;
+    }
+    if (stats.inputPorts != null) {
+      flags |= INPUT_PORTS;
+    }
+    if (stats.outputPorts != null) {
+      flags |= OUTPUT_PORTS;
+    }
+    if (stats.checkpointStats != null) {
+      flags |= CHECKPOINT_STATS;
+    }
+    if (stats.counters != null) {
+      flags |= COUNTERS;
+    }
+    if (stats.metrics != null) {
+      flags |= METRICS;
+    }
+    if (stats.recordingId != null) {
+      flags |= RECORDING_ID;
+    }
+    out.writeByte(flags);
+    writeVarLong(out, zigZag(stats.windowId - (previous == null ? 0 : previous.windowId)));
+    writeVarLong(out, stats.cpuTimeUsed);
+
+    if (stats.checkpoint != null) {
+      if (stats.checkpoint.getClass() == Checkpoint.class) {
+        Checkpoint checkpoint = (Checkpoint)stats.checkpoint;
+        out.writeByte(CHECKPOINT_WINDOW);
+        writeVarLong(out, zigZag(checkpoint.windowId));
+        writeVarLong(out, checkpoint.applicationWindowCount);
+        writeVarLong(out, checkpoint.checkpointWindowCount);
+      } else {
+        out.writeByte(CHECKPOINT_OBJECT);
+        writeObject(out, stats.checkpoint);
+      }
+    }
+    if (stats.inputPorts != null) {
+      writePorts(out, stats.inputPorts, previous == null ? null : previous.inputPorts);
+    }
+    if (stats.outputPorts != null) {
+      writePorts(out, stats.outputPorts, previous == null ? null : previous.outputPorts);
+    }
+    if (stats.checkpointStats != null) {
+      writeVarLong(out, stats.checkpointStats.checkpointStartTime);
+      writeVarLong(out, stats.checkpointStats.checkpointTime);
+      writeObject(out, stats.checkpointStats.fieldStats);
+    }
+    if (stats.counters != null) {
+      writeObject(out, stats.counters);
+    }
+    if (stats.metrics != null) {
+      writeVarLong(out, stats.metrics.size());
+      for (Map.Entry<String, Object> entry : stats.metrics.entrySet()) {
+        writeString(out, entry.getKey());
+        writeValue(out, entry.getValue());
+      }
+    }
+    if (stats.recordingId != null) {
+      writeString(out, stats.recordingId);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "deprecation"})
+  private OperatorStats readOperatorStats(DataInput in, OperatorStats previous) throws IOException
+  {
+    OperatorStats stats = new OperatorStats();
+    int flags = in.readByte();
+    stats.windowId = (previous == null ? 0 : previous.windowId) + unZigZag(readVarLong(in));
+    stats.cpuTimeUsed = readVarLong(in);
+
+    if ((flags & CHECKPOINT) != 0) {
+      if (in.readByte() == CHECKPOINT_WINDOW) {
+        long windowId = unZigZag(readVarLong(in));
+        stats.checkpoint = new Checkpoint(windowId, (int)readVarLong(in), (int)readVarLong(in));
+      } else {
+        stats.checkpoint = (Stats.Checkpoint)readObject(in);
+      }
+    }
+    if ((flags & INPUT_PORTS) != 0) {
+      stats.inputPorts = readPorts(in, previous == null ? null : previous.inputPorts);
+    }
+    if ((flags & OUTPUT_PORTS) != 0) {
+      stats.outputPorts = readPorts(in, previous == null ? null : previous.outputPorts);
+    }
+    if ((flags & CHECKPOINT_STATS) != 0) {
+      stats.checkpointStats = new Stats.CheckpointStats();
+      stats.checkpointStats.checkpointStartTime = readVarLong(in);
+      stats.checkpointStats.checkpointTime = readVarLong(in);
+      stats.checkpointStats.fieldStats = (Map<String, Stats.CheckpointStats.FieldStats>)readObject(in);
+    }
+    if ((flags & COUNTERS) != 0) {
+      stats.counters = readObject(in);
+    }
+    if ((flags & METRICS) != 0) {
+      int count = (int)readVarLong(in);
+      stats.metrics = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        String key = readString(in);
+        stats.metrics.put(key, readValue(in));
+      }
+    }
+    if ((flags & RECORDING_ID) != 0) {
+      stats.recordingId = readString(in);
+    }
+    return stats;
+  }
+
+  /**
+   * Writes the port stats. The end window timestamp is written relative to the same port of the previous window
+   * when the ports are listed in the same order, which is the case for all windows of a deployed operator.
+   */
+  private void writePorts(DataOutput out, ArrayList<PortStats> ports, ArrayList<PortStats> previous) throws IOException
+  {
+    writeVarLong(out, ports.size());
+    for (int i = 0; i < ports.size(); i++) {
+      PortStats port = ports.get(i);
+      writeString(out, port.id);
+      writeVarLong(out, port.tupleCount);
+      writeVarLong(out, zigZag(port.endWindowTimestamp - previousEndWindowTimestamp(previous, i)));
+      writeVarLong(out, port.bufferServerBytes);
+      writeVarLong(out, port.queueSize);
+      writeString(out, port.recordingId);
+    }
+  }
+
+  private ArrayList<PortStats> readPorts(DataInput in, ArrayList<PortStats> previous) throws IOException
+  {
+    int count = (int)readVarLong(in);
+    ArrayList<PortStats> ports = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      PortStats port = new PortStats(readString(in));
+      port.tupleCount = (int)readVarLong(in);
+      port.endWindowTimestamp = previousEndWindowTimestamp(previous, i) + unZigZag(readVarLong(in));
+      port.bufferServerBytes = readVarLong(in);
+      port.queueSize = (int)readVarLong(in);
+      port.recordingId = readString(in);
+      ports.add(port);
+    }
+    return ports;
+  }
+
+  private static long previousEndWindowTimestamp(ArrayList<PortStats> previous, int index)
+  {
+    return previous != null && index < previous.size() ? previous.get(index).endWindowTimestamp : 0;
+  }
+
+  private void writeValue(DataOutput out, Object value) throws IOException
+  {
+    if (value instanceof Long) {
+      out.writeByte(VALUE_LONG);
+      writeVarLong(out, zigZag((Long)value));
+    } else if (value instanceof Integer) {
+      out.writeByte(VALUE_INTEGER);
+      writeVarLong(out, zigZag((Integer)value));
+    } else if (value instanceof Double) {
+      out.writeByte(VALUE_DOUBLE);
+      out.writeDouble((Double)value);
+    } else if (value instanceof String) {
+      out.writeByte(VALUE_STRING);
+      writeString(out, (String)value);
+    } else {
+      out.writeByte(VALUE_OBJECT);
+      writeObject(out, value);
+    }
+  }
+
+  private Object readValue(DataInput in) throws IOException
+  {
+    byte type = in.readByte();
+    switch (type) {
+      case VALUE_LONG:
+        return unZigZag(readVarLong(in));
+      case VALUE_INTEGER:
+        return (int)unZigZag(readVarLong(in));
+      case VALUE_DOUBLE:
+        return in.readDouble();
+      case VALUE_STRING:
+        return readString(in);
+      default:
+        return readObject(in);
+    }
+  }
+
+  /**
+   * Writes the string once per heartbeat, subsequent occurrences are written as reference to the first one.
+   */
+  private void writeString(DataOutput out, String value) throws IOException
+  {
+    if (value == null) {
+      writeVarLong(out, 0);
+      return;
+    }
+    Integer index = writeStrings.get(value);
+    if (index == null) {
+      writeStrings.put(value, writeStrings.size());
+      writeVarLong(out, 1);
+      out.writeUTF(value);
+    } else {
+      writeVarLong(out, index + 2);
+    }
+  }
+
+  private String readString(DataInput in) throws IOException
+  {
+    int index = (int)readVarLong(in);
+    if (index == 0) {
+      return null;
+    }
+    if (index == 1) {
+      String value = in.readUTF();
+      readStrings.add(value);
+      return value;
+    }
+    return readStrings.get(index - 2);
+  }
+
+  private static void writeObject(DataOutput out, Object value) throws IOException
+  {
+    if (value == null) {
+      writeVarLong(out, 0);
+      return;
+    }
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(value);
+    }
+    writeVarLong(out, bos.size());
+    out.write(bos.toByteArray());
+  }
+
+  private static Object readObject(DataInput in) throws IOException
+  {
+    int length = (int)readVarLong(in);
+    if (length == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static long zigZag(long value)
+  {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value)
+  {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Writes the value with 7 bits per byte, the value is expected to be non negative in the common case.
+   */
+  private static void writeVarLong(DataOutput out, long value) throws IOException
+  {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int)((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int)value);
+  }
+
+  private static long readVarLong(DataInput in) throws IOException
+  {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long)(b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length integer");
+  }
+}
@@ -494,4 +494,71 @@ public abstract class StramEvent
 
   }
 
+  /**
+   * Summarizes events of one type that were not recorded individually, either because they exceeded the rate limit
+   * of the event recorder or because its queue was full.
+   */
+  public static class EventSummaryEvent extends StramEvent
+  {
+    private String eventType;
+    private long numEvents;
+    private long startTime;
+    private long endTime;
+
+    public EventSummaryEvent(String eventType, long numEvents, long startTime, long endTime)
+    {
+      this.eventType = eventType;
+      this.numEvents = numEvents;
+      this.startTime = startTime;
+      this.endTime = endTime;
+    }
+
+    @Override
+    public String getType()
+    {
+      return "EventSummary";
+    }
+
+    public String getEventType()
+    {
+      return eventType;
+    }
+
+    public void setEventType(String eventType)
+    {
+      this.eventType = eventType;
+    }
+
+    public long getNumEvents()
+    {
+      return numEvents;
+    }
+
+    public void setNumEvents(long numEvents)
+    {
+      this.numEvents = numEvents;
+    }
+
+    public long getStartTime()
+    {
+      return startTime;
+    }
+
+    public void setStartTime(long startTime)
+    {
+      this.startTime = startTime;
+    }
+
+    public long getEndTime()
+    {
+      return endTime;
+    }
+
+    public void setEndTime(long endTime)
+    {
+      this.endTime = endTime;
+    }
+
+  }
+
 }
@@ -18,6 +18,8 @@
  */
 package com.datatorrent.stram.api;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -211,6 +213,29 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol {
   {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Wire encoding of the heartbeat. The application master detects the encoding of each heartbeat, so that
+     * containers can use either.
+     */
+    public enum Encoding
+    {
+      /**
+       * Java serialization of all fields.
+       */
+      JAVA,
+      /**
+       * Compact encoding of {@link ContainerHeartbeatCodec}.
+       */
+      BINARY
+    }
+
+    /**
+     * Written in place of the length of the Java serialized fields, which cannot be negative.
+     */
+    private static final int BINARY_ENCODING_MARKER = -1;
+
+    private Encoding encoding = Encoding.JAVA;
+
     /**
      * Buffer server address for this container.
      * Port numbers are dynamically assigned and the master uses this info to deploy subscribers.
@@ -240,6 +265,40 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol {
       return stats.id;
     }
 
+    public Encoding getEncoding()
+    {
+      return encoding;
+    }
+
+    public void setEncoding(Encoding encoding)
+    {
+      this.encoding = encoding;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException
+    {
+      if (encoding == Encoding.BINARY) {
+        out.writeInt(BINARY_ENCODING_MARKER);
+        ContainerHeartbeatCodec.write(out, this);
+      } else {
+        super.write(out);
+      }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException
+    {
+      int len = in.readInt();
+      if (len == BINARY_ENCODING_MARKER) {
+        encoding = Encoding.BINARY;
+        ContainerHeartbeatCodec.read(in, this);
+      } else {
+        encoding = Encoding.JAVA;
+        readFields(in, len);
+      }
+    }
+
   }
 
   /**
@@ -28,6 +28,11 @@ import java.security.PrivilegedExceptionAction;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.core.MediaType;
@@ -110,11 +115,11 @@ public class DTCli
   private FileSystem fs;
   private StramAgent stramAgent;
   private final YarnClient yarnClient = YarnClient.createYarnClient();
-  private ApplicationReport currentApp = null;
+  ApplicationReport currentApp = null;
   private boolean consolePresent;
   private String[] commandsToExecute;
   private final Map<String, CommandSpec> globalCommands = new TreeMap<String, CommandSpec>();
-  private final Map<String, CommandSpec> connectedCommands = new TreeMap<String, CommandSpec>();
+  final Map<String, CommandSpec> connectedCommands = new TreeMap<String, CommandSpec>();
   private final Map<String, CommandSpec> logicalPlanChangeCommands = new TreeMap<String, CommandSpec>();
   private final Map<String, String> aliases = new HashMap<String, String>();
   private final Map<String, List<String>> macros = new HashMap<String, List<String>>();
@@ -131,13 +136,23 @@ public class DTCli
   private int verboseLevel = 0;
   private final Tokenizer tokenizer = new Tokenizer();
   private final Map<String, String> variableMap = new HashMap<String, String>();
-  private static boolean lastCommandError = false;
+  static boolean lastCommandError = false;
   private Thread mainThread;
   private Thread commandThread;
   private String prompt;
   private String forcePrompt;
   private String kerberosPrincipal;
   private String kerberosKeyTab;
+  // commands queued between begin-batch and end-batch, null when not in a batch
+  private List<String[]> batchCommands;
+  private int batchParallelism;
+  // output of the batch command executed by the current thread
+  private final ThreadLocal<PrintStream> batchOutput = new ThreadLocal<PrintStream>();
+  private static final int DEFAULT_BATCH_PARALLELISM = 8;
+  // commands that only issue a request to the application master and can run concurrently in a batch
+  private static final Set<String> BATCH_COMMANDS = Sets.newHashSet("list-containers", "list-operators",
+      "get-operator-attributes", "get-operator-properties", "get-physical-operator-properties", "set-operator-property",
+      "set-physical-operator-property", "get-app-attributes", "get-port-attributes", "get-app-info");
 
   private static class FileLineReader extends ConsoleReader
   {
@@ -334,7 +349,7 @@ public class DTCli
 
   }
 
-  private interface Command
+  interface Command
   {
     void execute(String[] args, ConsoleReader reader) throws Exception;
 
@@ -410,10 +425,15 @@ public class DTCli
   }
 
   AppPackage newAppPackageInstance(File f) throws IOException, ZipException
+  {
+    return newAppPackageInstance(f, true);
+  }
+
+  AppPackage newAppPackageInstance(File f, boolean processAppDirectory) throws IOException, ZipException
   {
     PrintStream outputStream = suppressOutput();
     try {
-      return new AppPackage(f, true);
+      return new AppPackage(f, processAppDirectory);
     } finally {
       restoreOutput(outputStream);
     }
@@ -450,7 +470,7 @@ public class DTCli
     }
   }
 
-  private static class CommandSpec
+  static class CommandSpec
   {
     Command command;
     Arg[] requiredArgs;
@@ -720,6 +740,14 @@ public class DTCli
       new Arg[]{new Arg("operator-name"), new Arg("port-name")},
       new Arg[]{new Arg("attribute-name")},
       "Get attributes of a port"));
+    connectedCommands.put("begin-batch", new CommandSpec(new BeginBatchCommand(),
+        null,
+        new Arg[]{new Arg("parallelism")},
+        "Begin a batch of independent commands, which are executed concurrently by end-batch"));
+    connectedCommands.put("end-batch", new CommandSpec(new EndBatchCommand(),
+        null,
+        null,
+        "Execute the commands of the batch and print their output in order"));
     connectedCommands.put("begin-logical-plan-change", new CommandSpec(new BeginLogicalPlanChangeCommand(),
       null,
       null,
@@ -835,8 +863,12 @@ public class DTCli
     printJson(new JSONArray(mapper.writeValueAsString(list)), name);
   }
 
-  private PrintStream getOutputPrintStream() throws IOException
+  PrintStream getOutputPrintStream() throws IOException
   {
+    PrintStream os = batchOutput.get();
+    if (os != null) {
+      return os;
+    }
     if (pagerCommand == null) {
       pagerProcess = null;
       return System.out;
@@ -850,7 +882,7 @@ public class DTCli
 
   private void closeOutputPrintStream(PrintStream os)
   {
-    if (os != System.out) {
+    if (os != System.out && os != batchOutput.get()) {
       os.close();
       try {
         pagerProcess.waitFor();
@@ -1366,7 +1398,7 @@ public class DTCli
     return s.substring(i);
   }
 
-  private void processLine(String line, final ConsoleReader reader, boolean expandMacroAlias)
+  void processLine(String line, final ConsoleReader reader, boolean expandMacroAlias)
   {
     try {
       // clear interrupt flag
@@ -1443,6 +1475,13 @@ public class DTCli
             cs.printUsage(args[0]);
             throw ex;
           }
+          if (batchCommands != null && !(cs.command instanceof EndBatchCommand)) {
+            if (!BATCH_COMMANDS.contains(args[0])) {
+              throw new CliException("\"" + args[0] + "\" cannot be used in a batch. Type \"end-batch\" to execute the batch");
+            }
+            batchCommands.add(args);
+            continue;
+          }
           final Command command = cs.command;
           commandThread = new Thread()
           {
@@ -1664,9 +1703,8 @@ public class DTCli
       throw new CliException("Application terminated");
     }
 
-    WebServicesClient wsClient = new WebServicesClient();
     try {
-      return stramAgent.issueStramWebRequest(wsClient, appReport.getApplicationId().toString(), uriSpec, handler);
+      return stramAgent.issueStramWebRequest(appReport.getApplicationId().toString(), uriSpec, handler);
     } catch (Exception e) {
       // check the application status as above may have failed due application termination etc.
       if (appReport == currentApp) {
@@ -2761,6 +2799,97 @@ public class DTCli
 
   }
 
+  private class BeginBatchCommand implements Command
+  {
+    @Override
+    public void execute(String[] args, ConsoleReader reader) throws Exception
+    {
+      if (batchCommands != null) {
+        throw new CliException("Already in a batch");
+      }
+      if (changingLogicalPlan) {
+        throw new CliException("Batches cannot be used when changing the logical plan");
+      }
+      int parallelism = DEFAULT_BATCH_PARALLELISM;
+      if (args.length > 1) {
+        try {
+          parallelism = Integer.parseInt(args[1]);
+        } catch (NumberFormatException ex) {
+          parallelism = 0;
+        }
+      }
+      if (parallelism < 1) {
+        throw new CliException("Invalid parallelism " + args[1]);
+      }
+      batchParallelism = parallelism;
+      batchCommands = new ArrayList<String[]>();
+    }
+
+  }
+
+  private class EndBatchCommand implements Command
+  {
+    @Override
+    public void execute(String[] args, final ConsoleReader reader) throws Exception
+    {
+      if (batchCommands == null) {
+        throw new CliException("Not in a batch. Type \"begin-batch\" to begin a batch");
+      }
+      List<String[]> commands = batchCommands;
+      batchCommands = null;
+      if (commands.isEmpty()) {
+        return;
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(batchParallelism, commands.size()));
+      try {
+        List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final String[] commandArgs : commands) {
+          final Command command = connectedCommands.get(commandArgs[0]).command;
+          final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+          outputs.add(bos);
+          futures.add(executor.submit(new Callable<Void>()
+          {
+            @Override
+            public Void call() throws Exception
+            {
+              batchOutput.set(new PrintStream(bos, true));
+              try {
+                command.execute(commandArgs, reader);
+              } finally {
+                batchOutput.get().flush();
+                batchOutput.remove();
+              }
+              return null;
+            }
+
+          }));
+        }
+        boolean error = false;
+        for (int i = 0; i < futures.size(); i++) {
+          Throwable cause = null;
+          try {
+            futures.get(i).get();
+          } catch (ExecutionException ex) {
+            cause = ex.getCause();
+          }
+          System.out.print(outputs.get(i).toString());
+          if (cause != null) {
+            handleException(cause);
+            error = true;
+          }
+        }
+        System.out.flush();
+        if (error) {
+          throw new CliException("Some commands of the batch failed");
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+  }
+
   private class BeginLogicalPlanChangeCommand implements Command
   {
     @Override
@@ -2894,8 +3023,9 @@ public class DTCli
             if (args[2].equals(appInfo.name)) {
               Map<String, Object> map = new HashMap<String, Object>();
               map.put("applicationName", appInfo.name);
-              if (appInfo.dag != null) {
-                map.put("logicalPlan", LogicalPlanSerializer.convertToMap(appInfo.dag, false));
+              Map<String, Object> dag = appInfo.getDagMap();
+              if (dag != null) {
+                map.put("logicalPlan", dag);
               }
               if (appInfo.error != null) {
                 map.put("error", appInfo.error);
@@ -3739,7 +3869,8 @@ public class DTCli
       String[] tmpArgs = new String[args.length - 1];
       System.arraycopy(args, 1, tmpArgs, 0, args.length - 1);
       GetOperatorClassesCommandLineInfo commandLineInfo = getGetOperatorClassesCommandLineInfo(tmpArgs);
-      try (AppPackage ap = newAppPackageInstance(new File(expandFileName(commandLineInfo.args[0], true)))){
+      // only the jars are needed, applications are not discovered
+      try (AppPackage ap = newAppPackageInstance(new File(expandFileName(commandLineInfo.args[0], true)), false)) {
         List<String> newArgs = new ArrayList<String>();
         List<String> jars = new ArrayList<String>();
         for (String jar : ap.getAppJars()) {
@@ -3770,7 +3901,7 @@ public class DTCli
     @Override
     public void execute(String[] args, ConsoleReader reader) throws Exception
     {
-      try (AppPackage ap = newAppPackageInstance(new File(expandFileName(args[1], true)))) {
+      try (AppPackage ap = newAppPackageInstance(new File(expandFileName(args[1], true)), false)) {
         List<String> newArgs = new ArrayList<String>();
         List<String> jars = new ArrayList<String>();
         for (String jar : ap.getAppJars()) {
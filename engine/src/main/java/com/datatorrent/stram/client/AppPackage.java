@@ -18,26 +18,48 @@
  */
 package com.datatorrent.stram.client;
 
-import com.datatorrent.stram.client.StramAppLauncher.AppFactory;
-import com.datatorrent.stram.plan.logical.LogicalPlan;
 import java.io.*;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.jar.*;
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.ZipParameters;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.StreamingApplication;
+import com.datatorrent.stram.client.DTConfiguration.Scope;
+import com.datatorrent.stram.client.StramAppLauncher.AppFactory;
+import com.datatorrent.stram.codec.LogicalPlanSerializer;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.logical.LogicalPlanConfiguration;
+import com.datatorrent.stram.util.JSONSerializationProvider;
+import com.datatorrent.stram.util.VersionInfo;
+
+import net.lingala.zip4j.core.ZipFile;
+import net.lingala.zip4j.exception.ZipException;
+import net.lingala.zip4j.model.ZipParameters;
 
 /**
  * <p>
  * AppPackage class.</p>
  *
+ * <p>
+ * The metadata, configurations and the names of the application files are read from the zip directory of the package.
+ * The package is extracted only when its files are needed, see {@link #tempDirectory()}. The applications discovered
+ * in a package are cached under {@code ~/.dt/appPackageCache}, keyed by a checksum of the package content and of the
+ * configuration, or in the directory given by the system property {@value #CACHE_DIR_PROPERTY}. An empty value
+ * disables the cache. The logical plans of cached applications are created when {@link AppInfo#getDag()} is called.
+ * </p>
+ *
  * @since 1.0.3
  */
 public class AppPackage extends JarFile
@@ -49,6 +71,10 @@ public class AppPackage extends JarFile
   public static final String ATTRIBUTE_CLASS_PATH = "Class-Path";
   public static final String ATTRIBUTE_DT_APP_PACKAGE_DISPLAY_NAME = "DT-App-Package-Display-Name";
   public static final String ATTRIBUTE_DT_APP_PACKAGE_DESCRIPTION = "DT-App-Package-Description";
+  public static final String CACHE_DIR_PROPERTY = "dt.appPackage.cacheDir";
+  private static final int CACHE_FORMAT_VERSION = 1;
+  private static final long CACHE_MAX_BYTES = 64L * 1024 * 1024;
+  private static final long CACHE_MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
 
   private final String appPackageName;
   private final String appPackageVersion;
@@ -57,7 +83,11 @@ public class AppPackage extends JarFile
   private final String appPackageDescription;
   private final String appPackageDisplayName;
   private final ArrayList<String> classPath = new ArrayList<String>();
-  private final File directory;
+  private final File file;
+  private File directory;
+  private boolean extracted;
+  // set when a file of the app directory could not be processed, the result is then not cached
+  private boolean discoveryFailed;
 
   private final List<AppInfo> applications = new ArrayList<AppInfo>();
   private final List<String> appJars = new ArrayList<String>();
@@ -68,7 +98,6 @@ public class AppPackage extends JarFile
   private final Map<String, String> defaultProperties = new TreeMap<String, String>();
   private final Set<String> configs = new TreeSet<String>();
 
-  private final File resourcesDirectory;
   private final boolean cleanOnClose;
 
   public static class AppInfo
@@ -77,7 +106,16 @@ public class AppPackage extends JarFile
     public final String file;
     public final String type;
     public String displayName;
+    /**
+     * Logical plan of the application, set when the plan is created. For applications discovered from the cache it
+     * remains null until {@link #getDag()} creates the plan.
+     */
+    @JsonIgnore
     public LogicalPlan dag;
+    // logical plan of an application discovered from the cache, in the form of LogicalPlanSerializer.convertToMap
+    private Map<String, Object> dagMap;
+    // package of an application discovered from the cache, which creates the logical plan on demand
+    private AppPackage appPackage;
     public String error;
     public String errorStackTrace;
 
@@ -91,6 +129,33 @@ public class AppPackage extends JarFile
       this.type = type;
     }
 
+    /**
+     * Returns the logical plan of the application. For applications from the discovery cache, the plan is created
+     * on first call, which extracts the package and loads the application classes.
+     *
+     * @return logical plan, or null when the application could not be created
+     */
+    @JsonIgnore
+    public LogicalPlan getDag()
+    {
+      if (dag == null && appPackage != null) {
+        appPackage.createCachedApps();
+      }
+      return dag;
+    }
+
+    /**
+     * Returns the logical plan of the application as it is serialized to JSON, also for applications from the
+     * discovery cache, without creating the plan.
+     *
+     * @return logical plan, or null when the application could not be created
+     */
+    @JsonProperty("dag")
+    public Map<String, Object> getDagMap()
+    {
+      return dag != null ? LogicalPlanSerializer.convertToMap(dag, false) : dagMap;
+    }
+
   }
 
   public AppPackage(File file) throws IOException, ZipException
@@ -105,7 +170,7 @@ public class AppPackage extends JarFile
    * applications
    *
    * If contentFolder is not null, it will try to create the contentFolder, file will be retained on disk after App Package is closed
-   * If contentFolder is null, temp folder will be created and will be cleaned on close()
+   * If contentFolder is null, temp folder will be created when the content is first needed and will be cleaned on close()
    *
    * @param file
    * @param contentFolder  the folder that the app package will be extracted to
@@ -116,13 +181,13 @@ public class AppPackage extends JarFile
   public AppPackage(File file, File contentFolder, boolean processAppDirectory) throws IOException, ZipException
   {
     super(file);
+    this.file = file;
 
     if (contentFolder != null) {
       FileUtils.forceMkdir(contentFolder);
       cleanOnClose = false;
     } else {
       cleanOnClose = true;
-      contentFolder = Files.createTempDirectory("dt-appPackage-").toFile();
     }
     directory = contentFolder;
 
@@ -142,18 +207,25 @@ public class AppPackage extends JarFile
       throw new IOException("Not a valid app package.  App Package Name or Version or Class-Path is missing from MANIFEST.MF");
     }
     classPath.addAll(Arrays.asList(StringUtils.split(classPathString, " ")));
-    extractToDirectory(directory, file);
-    if (processAppDirectory) {
-      processAppDirectory(new File(directory, "app"));
+    processEntries();
+    if (contentFolder != null) {
+      // the content is retained in the given folder
+      tempDirectory();
     }
-    File confDirectory = new File(directory, "conf");
-    if (confDirectory.exists()) {
-      processConfDirectory(confDirectory);
+    if (processAppDirectory) {
+      UserCacheDirectory cacheDir = UserCacheDirectory.get(CACHE_DIR_PROPERTY, "appPackageCache", ".json");
+      File cacheFile = cacheDir == null ? null : cacheDir.getFile(getDiscoveryCacheKey());
+      if (cacheFile == null || !readDiscoveryCache(cacheFile)) {
+        processAppDirectory(new File(tempDirectory(), "app"), applications);
+        if (cacheFile != null && !discoveryFailed) {
+          writeDiscoveryCache(cacheFile);
+          cacheDir.evict(CACHE_MAX_BYTES, CACHE_MAX_AGE_MILLIS);
+        }
+      }
     }
-    resourcesDirectory = new File(directory, "resources");
 
-    File propertiesXml = new File(directory, "META-INF/properties.xml");
-    if (propertiesXml.exists()) {
+    JarEntry propertiesXml = getJarEntry("META-INF/properties.xml");
+    if (propertiesXml != null) {
       processPropertiesXml(propertiesXml, null);
     }
 
@@ -161,8 +233,8 @@ public class AppPackage extends JarFile
       for (AppInfo app : applications) {
         app.requiredProperties.addAll(requiredProperties);
         app.defaultProperties.putAll(defaultProperties);
-        File appPropertiesXml = new File(directory, "META-INF/properties-" + app.name + ".xml");
-        if (appPropertiesXml.exists()) {
+        JarEntry appPropertiesXml = getJarEntry("META-INF/properties-" + app.name + ".xml");
+        if (appPropertiesXml != null) {
           processPropertiesXml(appPropertiesXml, app);
         }
       }
@@ -175,7 +247,7 @@ public class AppPackage extends JarFile
    * If app directory is to be processed, there may be resource leak in the class loader. Only pass true for short-lived
    * applications
    *
-   * Files in app package will be extracted to tmp folder and will be cleaned on close()
+   * Files in app package will be extracted to tmp folder when first needed and will be cleaned on close()
    * The close() method could be explicitly called or implicitly called by GC finalize()
    *
    * @param file
@@ -208,8 +280,24 @@ public class AppPackage extends JarFile
     zipFile.addFolder(directory, params);
   }
 
-  public File tempDirectory()
+  /**
+   * Returns the directory with the content of the package, extracting the package on first use.
+   *
+   * @return directory
+   */
+  public synchronized File tempDirectory()
   {
+    if (!extracted) {
+      try {
+        if (directory == null) {
+          directory = Files.createTempDirectory("dt-appPackage-").toFile();
+        }
+        extractToDirectory(directory, file);
+      } catch (IOException | ZipException ex) {
+        throw new RuntimeException("Failed to extract app package " + file, ex);
+      }
+      extracted = true;
+    }
     return directory;
   }
 
@@ -222,8 +310,12 @@ public class AppPackage extends JarFile
     }
   }
 
-  public void cleanContent() throws IOException
+  public synchronized void cleanContent() throws IOException
   {
+    if (directory == null) {
+      return;
+    }
+    extracted = false;
     FileUtils.deleteDirectory(directory);
     LOG.debug("App Package {}-{} folder {} is removed", appPackageName, appPackageVersion, directory.getAbsolutePath());
   }
@@ -270,7 +362,7 @@ public class AppPackage extends JarFile
 
   public File resourcesDirectory()
   {
-    return resourcesDirectory;
+    return new File(tempDirectory(), "resources");
   }
 
   public List<AppInfo> getApplications()
@@ -303,7 +395,153 @@ public class AppPackage extends JarFile
     return Collections.unmodifiableMap(defaultProperties);
   }
 
-  private void processAppDirectory(File dir)
+  /**
+   * Lists the configurations and application files from the zip directory of the package.
+   */
+  private void processEntries()
+  {
+    Enumeration<JarEntry> entries = entries();
+    while (entries.hasMoreElements()) {
+      JarEntry entry = entries.nextElement();
+      String name = entry.getName();
+      if (entry.isDirectory()) {
+        continue;
+      }
+      if (name.startsWith("conf/") && name.indexOf('/', 5) < 0) {
+        if (name.endsWith(".xml")) {
+          configs.add(name.substring(5));
+        }
+      } else if (name.startsWith("app/") && name.indexOf('/', 4) < 0) {
+        String fileName = name.substring(4);
+        if (fileName.endsWith(".jar")) {
+          appJars.add(fileName);
+        } else if (fileName.endsWith(".json")) {
+          appJsonFiles.add(fileName);
+        } else if (fileName.endsWith(".properties")) {
+          appPropertiesFiles.add(fileName);
+        } else {
+          LOG.warn("Ignoring file {} with unknown extension in app directory", fileName);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the checksum of the package content, computed from the names, sizes and CRC-32 checksums of the entries
+   * in the zip directory, so that the package does not have to be read. The engine version is included, since it
+   * determines how applications are discovered.
+   *
+   * @return checksum
+   */
+  public String getContentChecksum()
+  {
+    StringBuilder sb = new StringBuilder(VersionInfo.APEX_VERSION.getVersion());
+    Enumeration<JarEntry> entries = entries();
+    while (entries.hasMoreElements()) {
+      JarEntry entry = entries.nextElement();
+      sb.append('\n').append(entry.getName()).append(':').append(entry.getSize()).append(':').append(entry.getCrc());
+    }
+    return DigestUtils.sha1Hex(sb.toString());
+  }
+
+  /**
+   * Returns the key of the discovered applications in the cache, the checksum of the package content combined with
+   * the {@value StreamingApplication#DT_PREFIX} properties of the configuration that the applications are created
+   * with, since the properties can change the logical plans.
+   */
+  private String getDiscoveryCacheKey()
+  {
+    StringBuilder sb = new StringBuilder(getContentChecksum());
+    Properties props = LogicalPlanConfiguration.toProperties(new Configuration(), StreamingApplication.DT_PREFIX);
+    for (Map.Entry<Object, Object> e : new TreeMap<Object, Object>(props).entrySet()) {
+      sb.append('\n').append(e.getKey()).append('=').append(e.getValue());
+    }
+    return DigestUtils.sha1Hex(sb.toString());
+  }
+
+  /**
+   * Creates the logical plans of the applications that were discovered from the cache, by processing the app
+   * directory again.
+   */
+  private synchronized void createCachedApps()
+  {
+    List<AppInfo> created = new ArrayList<AppInfo>();
+    processAppDirectory(new File(tempDirectory(), "app"), created);
+    for (AppInfo appInfo : applications) {
+      appInfo.appPackage = null;
+      for (AppInfo createdApp : created) {
+        if (createdApp.file.equals(appInfo.file) && createdApp.name.equals(appInfo.name)) {
+          appInfo.dag = createdApp.dag;
+          break;
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean readDiscoveryCache(File cacheFile)
+  {
+    if (!cacheFile.exists()) {
+      return false;
+    }
+    try {
+      Map<String, Object> cache = new ObjectMapper().readValue(cacheFile, Map.class);
+      // the JSON serialization provider writes numbers as strings
+      if (!String.valueOf(CACHE_FORMAT_VERSION).equals(String.valueOf(cache.get("version")))) {
+        return false;
+      }
+      List<AppInfo> cachedApplications = new ArrayList<AppInfo>();
+      for (Map<String, Object> m : (List<Map<String, Object>>)cache.get("applications")) {
+        AppInfo appInfo = new AppInfo((String)m.get("name"), (String)m.get("file"), (String)m.get("type"));
+        appInfo.displayName = (String)m.get("displayName");
+        appInfo.error = (String)m.get("error");
+        appInfo.errorStackTrace = (String)m.get("errorStackTrace");
+        appInfo.dagMap = (Map<String, Object>)m.get("dag");
+        if (appInfo.dagMap != null) {
+          appInfo.appPackage = this;
+        }
+        cachedApplications.add(appInfo);
+      }
+      applications.addAll(cachedApplications);
+      UserCacheDirectory.touch(cacheFile);
+      LOG.debug("Discovered {} applications of {} from cache {}", applications.size(), file, cacheFile);
+      return true;
+    } catch (Exception ex) {
+      LOG.warn("Ignoring corrupt app package cache {}", cacheFile, ex);
+      return false;
+    }
+  }
+
+  private void writeDiscoveryCache(File cacheFile)
+  {
+    try {
+      List<Map<String, Object>> apps = new ArrayList<Map<String, Object>>();
+      for (AppInfo appInfo : applications) {
+        Map<String, Object> m = new HashMap<String, Object>();
+        m.put("name", appInfo.name);
+        m.put("file", appInfo.file);
+        m.put("type", appInfo.type);
+        m.put("displayName", appInfo.displayName);
+        m.put("error", appInfo.error);
+        m.put("errorStackTrace", appInfo.errorStackTrace);
+        m.put("dag", appInfo.getDagMap());
+        apps.add(m);
+      }
+      Map<String, Object> cache = new HashMap<String, Object>();
+      cache.put("version", CACHE_FORMAT_VERSION);
+      cache.put("applications", apps);
+      // write to a temporary file first, so that concurrent readers never see a partial cache
+      File tmpFile = new File(cacheFile.getParentFile(), cacheFile.getName() + "." + System.nanoTime() + ".tmp");
+      new JSONSerializationProvider().getContext(null).writeValue(tmpFile, cache);
+      if (!tmpFile.renameTo(cacheFile)) {
+        FileUtils.deleteQuietly(tmpFile);
+      }
+    } catch (Throwable ex) {
+      LOG.warn("Cannot write app package cache {}", cacheFile, ex);
+    }
+  }
+
+  private void processAppDirectory(File dir, List<AppInfo> apps)
   {
     Configuration config = new Configuration();
 
@@ -315,34 +553,31 @@ public class AppPackage extends JarFile
       }
     }
     config.set(StramAppLauncher.LIBJARS_CONF_KEY_NAME, StringUtils.join(absClassPath, ','));
-    File[] files = dir.listFiles();
-    for (File entry : files) {
-
-      if (entry.getName().endsWith(".jar")) {
-        appJars.add(entry.getName());
-        try {
-          StramAppLauncher stramAppLauncher = new StramAppLauncher(entry, config);
-          stramAppLauncher.loadDependencies();
-          List<AppFactory> appFactories = stramAppLauncher.getBundledTopologies();
-          for (AppFactory appFactory : appFactories) {
-            String appName = stramAppLauncher.getLogicalPlanConfiguration().getAppAlias(appFactory.getName());
-            if (appName == null) {
-              appName = appFactory.getName();
-            }
-            AppInfo appInfo = new AppInfo(appName, entry.getName(), "class");
-            appInfo.displayName = appFactory.getDisplayName();
-            try {
-              appInfo.dag = appFactory.createApp(stramAppLauncher.getLogicalPlanConfiguration());
-              appInfo.dag.validate();
-            } catch (Throwable ex) {
-              appInfo.error = ex.getMessage();
-              appInfo.errorStackTrace = ExceptionUtils.getStackTrace(ex);
-            }
-            applications.add(appInfo);
+    for (String appJar : appJars) {
+      File entry = new File(dir, appJar);
+      try {
+        StramAppLauncher stramAppLauncher = new StramAppLauncher(entry, config);
+        stramAppLauncher.loadDependencies();
+        List<AppFactory> appFactories = stramAppLauncher.getBundledTopologies();
+        for (AppFactory appFactory : appFactories) {
+          String appName = stramAppLauncher.getLogicalPlanConfiguration().getAppAlias(appFactory.getName());
+          if (appName == null) {
+            appName = appFactory.getName();
           }
-        } catch (Exception ex) {
-          LOG.error("Caught exception trying to process {}", entry.getName(), ex);
+          AppInfo appInfo = new AppInfo(appName, entry.getName(), "class");
+          appInfo.displayName = appFactory.getDisplayName();
+          try {
+            appInfo.dag = appFactory.createApp(stramAppLauncher.getLogicalPlanConfiguration());
+            appInfo.dag.validate();
+          } catch (Throwable ex) {
+            appInfo.error = ex.getMessage();
+            appInfo.errorStackTrace = ExceptionUtils.getStackTrace(ex);
+          }
+          apps.add(appInfo);
         }
+      } catch (Exception ex) {
+        LOG.error("Caught exception trying to process {}", entry.getName(), ex);
+        discoveryFailed = true;
       }
     }
 
@@ -352,67 +587,60 @@ public class AppPackage extends JarFile
       absClassPath.add(new File(dir, appJar).getAbsolutePath());
     }
     config.set(StramAppLauncher.LIBJARS_CONF_KEY_NAME, StringUtils.join(absClassPath, ','));
-    files = dir.listFiles();
-    for (File entry : files) {
-      if (entry.getName().endsWith(".json")) {
-        appJsonFiles.add(entry.getName());
-        try {
-          AppFactory appFactory = new StramAppLauncher.JsonFileAppFactory(entry);
-          StramAppLauncher stramAppLauncher = new StramAppLauncher(entry.getName(), config);
-          stramAppLauncher.loadDependencies();
-          AppInfo appInfo = new AppInfo(appFactory.getName(), entry.getName(), "json");
-          appInfo.displayName = appFactory.getDisplayName();
-          try {
-            appInfo.dag = appFactory.createApp(stramAppLauncher.getLogicalPlanConfiguration());
-            appInfo.dag.validate();
-          } catch (Exception ex) {
-            appInfo.error = ex.getMessage();
-            appInfo.errorStackTrace = ExceptionUtils.getStackTrace(ex);
-          }
-          applications.add(appInfo);
-        } catch (Exception ex) {
-          LOG.error("Caught exceptions trying to process {}", entry.getName(), ex);
-        }
-      } else if (entry.getName().endsWith(".properties")) {
-        appPropertiesFiles.add(entry.getName());
+    for (String appJsonFile : appJsonFiles) {
+      File entry = new File(dir, appJsonFile);
+      try {
+        AppFactory appFactory = new StramAppLauncher.JsonFileAppFactory(entry);
+        StramAppLauncher stramAppLauncher = new StramAppLauncher(entry.getName(), config);
+        stramAppLauncher.loadDependencies();
+        AppInfo appInfo = new AppInfo(appFactory.getName(), entry.getName(), "json");
+        appInfo.displayName = appFactory.getDisplayName();
         try {
-          AppFactory appFactory = new StramAppLauncher.PropertyFileAppFactory(entry);
-          StramAppLauncher stramAppLauncher = new StramAppLauncher(entry.getName(), config);
-          stramAppLauncher.loadDependencies();
-          AppInfo appInfo = new AppInfo(appFactory.getName(), entry.getName(), "properties");
-          appInfo.displayName = appFactory.getDisplayName();
-          try {
-            appInfo.dag = appFactory.createApp(stramAppLauncher.getLogicalPlanConfiguration());
-            appInfo.dag.validate();
-          } catch (Throwable t) {
-            appInfo.error = t.getMessage();
-            appInfo.errorStackTrace = ExceptionUtils.getStackTrace(t);
-          }
-          applications.add(appInfo);
+          appInfo.dag = appFactory.createApp(stramAppLauncher.getLogicalPlanConfiguration());
+          appInfo.dag.validate();
         } catch (Exception ex) {
-          LOG.error("Caught exceptions trying to process {}", entry.getName(), ex);
+          appInfo.error = ex.getMessage();
+          appInfo.errorStackTrace = ExceptionUtils.getStackTrace(ex);
         }
-      } else if (!entry.getName().endsWith(".jar")) {
-        LOG.warn("Ignoring file {} with unknown extension in app directory", entry.getName());
+        apps.add(appInfo);
+      } catch (Exception ex) {
+        LOG.error("Caught exceptions trying to process {}", entry.getName(), ex);
+        discoveryFailed = true;
       }
     }
-  }
-
-  private void processConfDirectory(File dir)
-  {
-    File[] files = dir.listFiles();
-    for (File entry : files) {
-      if (entry.getName().endsWith(".xml")) {
-        configs.add(entry.getName());
+    for (String appPropertiesFile : appPropertiesFiles) {
+      File entry = new File(dir, appPropertiesFile);
+      try {
+        AppFactory appFactory = new StramAppLauncher.PropertyFileAppFactory(entry);
+        StramAppLauncher stramAppLauncher = new StramAppLauncher(entry.getName(), config);
+        stramAppLauncher.loadDependencies();
+        AppInfo appInfo = new AppInfo(appFactory.getName(), entry.getName(), "properties");
+        appInfo.displayName = appFactory.getDisplayName();
+        try {
+          appInfo.dag = appFactory.createApp(stramAppLauncher.getLogicalPlanConfiguration());
+          appInfo.dag.validate();
+        } catch (Throwable t) {
+          appInfo.error = t.getMessage();
+          appInfo.errorStackTrace = ExceptionUtils.getStackTrace(t);
+        }
+        apps.add(appInfo);
+      } catch (Exception ex) {
+        LOG.error("Caught exceptions trying to process {}", entry.getName(), ex);
+        discoveryFailed = true;
       }
     }
   }
 
-  private void processPropertiesXml(File file, AppInfo app)
+  private void processPropertiesXml(JarEntry jarEntry, AppInfo app)
   {
     DTConfiguration config = new DTConfiguration();
     try {
-      config.loadFile(file);
+      InputStream is = getInputStream(jarEntry);
+      try {
+        config.load(is, Scope.TRANSIENT);
+      } finally {
+        is.close();
+      }
       for (Map.Entry<String, String> entry : config) {
         String key = entry.getKey();
         String value = entry.getValue();
@@ -432,7 +660,7 @@ public class AppPackage extends JarFile
         }
       }
     } catch (Exception ex) {
-      LOG.warn("Ignoring META_INF/properties.xml because of error", ex);
+      LOG.warn("Ignoring {} because of error", jarEntry.getName(), ex);
     }
   }
 
@@ -23,6 +23,7 @@ import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.logical.LogicalPlanConfiguration;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
@@ -149,7 +150,22 @@ public class DTConfiguration implements Iterable<Map.Entry<String, String>>
 
   public void loadFile(File file, Scope defaultScope) throws IOException, ParserConfigurationException, SAXException, ConfigException
   {
-    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+    load(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file), defaultScope);
+  }
+
+  /**
+   * Loads the configuration from a stream, for example an entry of a package that is not extracted.
+   *
+   * @param is configuration xml
+   * @param defaultScope scope of properties that do not specify a scope
+   */
+  public void load(InputStream is, Scope defaultScope) throws IOException, ParserConfigurationException, SAXException, ConfigException
+  {
+    load(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is), defaultScope);
+  }
+
+  private void load(Document doc, Scope defaultScope) throws ConfigException
+  {
     Element documentElement = doc.getDocumentElement();
     if (!documentElement.getNodeName().equals("configuration")) {
       throw new ConfigException("Root element needs to be \"configuration\"");
@@ -18,12 +18,10 @@
  */
 package com.datatorrent.stram.client;
 
-import com.datatorrent.common.util.Pair;
-import com.datatorrent.stram.util.FSPartFileCollection;
 import java.io.*;
 import java.util.*;
-import org.apache.commons.io.IOUtils;
-import org.apache.hadoop.fs.*;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.codehaus.jackson.map.ser.std.ToStringSerializer;
@@ -31,6 +29,14 @@ import org.codehaus.jettison.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.*;
+
+import com.datatorrent.stram.util.FSIndexedPartFileCollection;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection.IndexEntry;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection.OffsetIndex;
+import com.datatorrent.stram.util.FSPartFileCollection;
+
 /**
  * <p>EventsAgent class.</p>
  *
@@ -48,6 +54,9 @@ public final class EventsAgent extends FSPartFileAgent
     public long endTime;
     @JsonSerialize(using = ToStringSerializer.class)
     public long numEvents;
+    // sparse index of the event timestamps, null for part files written without index
+    @JsonIgnore
+    public OffsetIndex offsetIndex;
   }
 
   public static class EventInfo
@@ -93,7 +102,15 @@ public final class EventsAgent extends FSPartFileAgent
     info.startTime = Long.valueOf(tmp[0]);
     info.endTime = Long.valueOf(tmp[1]);
     cursor = cursor2 + 1;
-    info.numEvents = Long.valueOf(line.substring(cursor));
+    cursor2 = line.indexOf(':', cursor);
+    if (cursor2 < 0) {
+      info.numEvents = Long.valueOf(line.substring(cursor));
+      return info;
+    }
+    info.numEvents = Long.valueOf(line.substring(cursor, cursor2));
+    if (line.startsWith("T:", cursor2 + 1)) {
+      info.offsetIndex = OffsetIndex.parse(line.substring(cursor2 + 3));
+    }
     return info;
   }
 
@@ -106,7 +123,7 @@ public final class EventsAgent extends FSPartFileAgent
     }
     long totalNumEvents = 0;
     IndexFileBufferedReader ifbr = null;
-    LinkedList<Pair<String, Long>> partFiles = new LinkedList<Pair<String, Long>>();
+    LinkedList<EventsIndexLine> partFiles = new LinkedList<EventsIndexLine>();
     try {
       ifbr = new IndexFileBufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.INDEX_FILE))), dir);
       EventsIndexLine indexLine;
@@ -114,7 +131,7 @@ public final class EventsAgent extends FSPartFileAgent
         if (indexLine.isEndLine) {
           continue;
         }
-        partFiles.add(new Pair<String, Long>(indexLine.partFile, indexLine.numEvents));
+        partFiles.add(indexLine);
         totalNumEvents += indexLine.numEvents;
       }
     }
@@ -128,45 +145,43 @@ public final class EventsAgent extends FSPartFileAgent
 
     long offset = 0;
     while (totalNumEvents > limit && !partFiles.isEmpty()) {
-      Pair<String, Long> head = partFiles.getFirst();
-      if (totalNumEvents - head.second < limit) {
+      EventsIndexLine head = partFiles.getFirst();
+      if (totalNumEvents - head.numEvents < limit) {
         offset = Math.max(0, totalNumEvents - limit);
         break;
       }
-      totalNumEvents -= head.second;
+      totalNumEvents -= head.numEvents;
       partFiles.removeFirst();
     }
     String lastProcessPartFile = null;
-    for (Pair<String, Long> partFile : partFiles) {
-      BufferedReader partBr = null;
+    for (EventsIndexLine partFile : partFiles) {
       try {
-        partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, partFile.first))));
-        processPartFile(partBr, null, null, offset, limit, result);
-       offset = 0;
-        lastProcessPartFile = partFile.first;
+        long position = 0;
+        if (partFile.offsetIndex != null) {
+          IndexEntry entry = FSIndexedPartFileCollection.seekOrdinal(partFile.offsetIndex.entries, offset);
+          if (entry != null) {
+            position = entry.offset;
+            offset -= entry.ordinal;
+          }
+        }
+        processPartFile(new Path(dir, partFile.partFile), position, null, null, offset, limit, result);
+        offset = 0;
+        lastProcessPartFile = partFile.partFile;
       }
       catch (Exception ex) {
         LOG.warn("Got exception when reading events", ex);
       }
-      finally {
-        IOUtils.closeQuietly(partBr);
-      }
     }
 
-    BufferedReader partBr = null;
     try {
       String extraPartFile = getNextPartFile(lastProcessPartFile);
       if (extraPartFile != null && limit > 0) {
-        partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, extraPartFile))));
-        processPartFile(partBr, null, null, 0, Integer.MAX_VALUE, result);
+        processPartFile(new Path(dir, extraPartFile), 0, null, null, 0, Integer.MAX_VALUE, result);
       }
     }
     catch (Exception ex) {
       // ignore
     }
-    finally {
-      IOUtils.closeQuietly(partBr);
-    }
     while (result.size() > limit) {
       result.removeFirst();
     }
@@ -201,30 +216,43 @@ public final class EventsAgent extends FSPartFileAgent
             return result;
           }
         }
-
-        BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))));
-        try {
-          offset = processPartFile(partBr, fromTime, toTime, offset, limit, result);
-          limit -= result.size();
+        if (result.size() >= limit) {
+          return result;
         }
-        finally {
-          partBr.close();
+
+        long position = 0;
+        OffsetIndex index = indexLine.offsetIndex;
+        if (index != null) {
+          IndexEntry entry = null;
+          if (fromTime != null && fromTime > index.minKey) {
+            // the events before the entry are before the time range
+            entry = FSIndexedPartFileCollection.seekKey(index.entries, fromTime);
+          } else if (toTime == null || toTime >= index.maxKey) {
+            // all events of the part file are in the time range
+            if (offset >= indexLine.numEvents) {
+              offset -= indexLine.numEvents;
+              continue;
+            }
+            entry = FSIndexedPartFileCollection.seekOrdinal(index.entries, offset);
+            if (entry != null) {
+              offset -= entry.ordinal;
+            }
+          }
+          if (entry != null) {
+            position = entry.offset;
+          }
         }
+        offset = processPartFile(new Path(dir, indexLine.partFile), position, fromTime, toTime, offset, limit - result.size(), result);
       }
-      BufferedReader partBr = null;
       try {
         String extraPartFile = getNextPartFile(lastProcessPartFile);
-        if (extraPartFile != null && limit > 0) {
-          partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, extraPartFile))));
-          processPartFile(partBr, fromTime, toTime, offset, limit, result);
+        if (extraPartFile != null && result.size() < limit) {
+          processPartFile(new Path(dir, extraPartFile), 0, fromTime, toTime, offset, limit - result.size(), result);
         }
       }
       catch (Exception ex) {
         // ignore
       }
-      finally {
-        IOUtils.closeQuietly(partBr);
-      }
     }
     catch (Exception ex) {
       LOG.warn("Got exception when reading events", ex);
@@ -235,6 +263,19 @@ public final class EventsAgent extends FSPartFileAgent
     return result;
   }
 
+  private long processPartFile(Path partFile, long position, Long fromTime, Long toTime, long offset, int limit, List<EventInfo> result) throws IOException
+  {
+    FSDataInputStream is = stramAgent.getFileSystem().open(partFile);
+    try {
+      if (position > 0) {
+        is.seek(position);
+      }
+      return processPartFile(new BufferedReader(new InputStreamReader(is)), fromTime, toTime, offset, limit, result);
+    } finally {
+      is.close();
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private long processPartFile(BufferedReader partBr, Long fromTime, Long toTime, long offset, int limit, List<EventInfo> result) throws IOException
   {
@@ -259,6 +300,9 @@ public final class EventsAgent extends FSPartFileAgent
           ev.data.remove("id");
           result.add(ev);
         }
+        else {
+          break;
+        }
       }
     }
     return offset;
@@ -18,27 +18,36 @@
  */
 package com.datatorrent.stram.client;
 
-import com.datatorrent.common.util.ObjectMapperString;
-import com.datatorrent.stram.client.WebServicesVersionConversion.IncompatibleVersionException;
-import com.datatorrent.stram.debug.TupleRecorder;
-import com.datatorrent.stram.util.FSPartFileCollection;
-import com.datatorrent.stram.util.WebServicesClient;
-import com.datatorrent.stram.webapp.StramWebServices;
-import com.sun.jersey.api.client.WebResource;
 import java.io.*;
 import java.util.*;
 import javax.ws.rs.core.MediaType;
 import javax.xml.bind.annotation.XmlType;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.mutable.MutableLong;
-import org.apache.hadoop.fs.*;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.codehaus.jackson.map.ser.std.ToStringSerializer;
 import org.codehaus.jettison.json.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.mutable.MutableLong;
+import org.apache.hadoop.fs.*;
+
+import com.sun.jersey.api.client.WebResource;
+
+import com.datatorrent.common.util.ObjectMapperString;
+import com.datatorrent.stram.client.WebServicesVersionConversion.IncompatibleVersionException;
+import com.datatorrent.stram.debug.FSTupleRecordingPartFileCollection;
+import com.datatorrent.stram.debug.TupleRecorder;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection.IndexEntry;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection.OffsetIndex;
+import com.datatorrent.stram.util.FSPartFileCollection;
+import com.datatorrent.stram.util.WebServicesClient;
+import com.datatorrent.stram.webapp.StramWebServices;
+
 /**
  * <p>RecordingsAgent class.</p>
  *
@@ -75,6 +84,9 @@ public final class RecordingsAgent extends FSPartFileAgent
     @JsonSerialize(using = ToStringSerializer.class)
     public long tupleCount;
     public Map<String, MutableLong> portTupleCount;
+    // sparse index of the begin window entries, null for part files written without index
+    @JsonIgnore
+    public OffsetIndex offsetIndex;
   }
 
   @XmlType(name = "port_info") // not really used, but this is to shut jackson up for conflicting xml names with TupleRecorder.PortInfo
@@ -186,18 +198,23 @@ public final class RecordingsAgent extends FSPartFileAgent
     int size = Integer.valueOf(line.substring(cursor, cursor2));
     cursor = cursor2 + 1;
     cursor2 = cursor + size;
-    JSONObject json = new JSONObject(line.substring(cursor, cursor2));
-    Iterator<?> keys = json.keys();
-    while (keys.hasNext()) {
-      String portIndex = (String)keys.next();
-      long tupleCount = json.getLong(portIndex);
-      if (!info.portTupleCount.containsKey(portIndex)) {
-        info.portTupleCount.put(portIndex, new MutableLong(tupleCount));
-      }
-      else {
-        info.portTupleCount.get(portIndex).add(tupleCount);
+    // the port counts are written as {"<port id>":"<count>",...}, which does not need a full JSON parser
+    String portCounts = line.substring(cursor + 1, cursor2 - 1);
+    if (!portCounts.isEmpty()) {
+      for (String portCount : portCounts.split(",")) {
+        int colon = portCount.indexOf(':');
+        String portIndex = portCount.substring(1, colon - 1);
+        long tupleCount = Long.parseLong(portCount.substring(colon + 2, portCount.length() - 1));
+        if (!info.portTupleCount.containsKey(portIndex)) {
+          info.portTupleCount.put(portIndex, new MutableLong(tupleCount));
+        } else {
+          info.portTupleCount.get(portIndex).add(tupleCount);
+        }
       }
     }
+    if (cursor2 < line.length() && line.charAt(cursor2) == ':') {
+      info.offsetIndex = OffsetIndex.parse(line.substring(cursor2 + 1));
+    }
     return info;
   }
 
@@ -345,7 +362,7 @@ public final class RecordingsAgent extends FSPartFileAgent
       br = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.META_FILE))));
       String line;
       line = br.readLine();
-      if (!line.equals("1.2")) {
+      if (!line.equals(TupleRecorder.VERSION) && !line.equals(TupleRecorder.BINARY_VERSION)) {
         throw new Exception("Unexpected line: " + line);
       }
       line = br.readLine();
@@ -463,6 +480,7 @@ public final class RecordingsAgent extends FSPartFileAgent
     }
     IndexFileBufferedReader ifbr = null;
     try {
+      boolean binary = isBinaryFormat(dir);
       ifbr = new IndexFileBufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.INDEX_FILE))), dir);
       long currentOffset = 0;
       boolean readPartFile = false;
@@ -519,14 +537,29 @@ public final class RecordingsAgent extends FSPartFileAgent
         }
 
         if (readPartFile) {
+          long position = 0;
+          long startOffset = currentOffset;
+          if (lastProcessPartFile == null && indexLine.offsetIndex != null && (ports == null || ports.length == 0)) {
+            // seek to the begin window entry preceding the requested tuple or window in the first part file read
+            IndexEntry entry = null;
+            if (queryType == QueryType.OFFSET) {
+              entry = FSIndexedPartFileCollection.seekOrdinal(indexLine.offsetIndex.entries, low - currentOffset);
+            } else if (queryType == QueryType.WINDOW) {
+              entry = FSIndexedPartFileCollection.seekKey(indexLine.offsetIndex.entries, low + 1);
+            }
+            if (entry != null) {
+              position = entry.offset;
+              startOffset += entry.ordinal;
+            }
+          }
           lastProcessPartFile = indexLine.partFile;
-          BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))));
+          PartFileReader partReader = openPartFile(new Path(dir, indexLine.partFile), binary, position);
           try {
-            processPartFile(partBr, queryType, low, high, limit, ports,
-                            numRemainingTuples, currentTimestamp, currentWindowLow, currentOffset, info);
+            processPartFile(partReader, queryType, low, high, limit, ports,
+                            numRemainingTuples, currentTimestamp, currentWindowLow, startOffset, info);
           }
           finally {
-            partBr.close();
+            partReader.close();
           }
         }
         currentOffset += numTuples;
@@ -534,12 +567,12 @@ public final class RecordingsAgent extends FSPartFileAgent
           return info;
         }
       }
-      BufferedReader partBr = null;
+      PartFileReader partReader = null;
       try {
         String extraPartFile = getNextPartFile(lastProcessPartFile);
         if (extraPartFile != null) {
-          partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, extraPartFile))));
-          processPartFile(partBr, queryType, low, high, limit, ports,
+          partReader = openPartFile(new Path(dir, extraPartFile), binary, 0);
+          processPartFile(partReader, queryType, low, high, limit, ports,
                           numRemainingTuples, currentTimestamp, new MutableLong(), currentOffset, info);
         }
       }
@@ -547,7 +580,7 @@ public final class RecordingsAgent extends FSPartFileAgent
         // ignore
       }
       finally {
-        IOUtils.closeQuietly(partBr);
+        IOUtils.closeQuietly(partReader);
       }
 
     }
@@ -562,33 +595,157 @@ public final class RecordingsAgent extends FSPartFileAgent
     return info;
   }
 
-  private void processPartFile(BufferedReader partBr, QueryType queryType, long low, long high, long limit, String[] ports, MutableLong numRemainingTuples, MutableLong currentTimestamp, MutableLong currentWindowLow, long currentOffset, TuplesInfo info) throws IOException
+  private boolean isBinaryFormat(String dir) throws IOException
+  {
+    BufferedReader br = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.META_FILE))));
+    try {
+      String version = br.readLine();
+      if (TupleRecorder.BINARY_VERSION.equals(version)) {
+        return true;
+      }
+      if (TupleRecorder.VERSION.equals(version)) {
+        return false;
+      }
+      throw new IOException("Unknown recording format version " + version + " in " + dir);
+    } finally {
+      br.close();
+    }
+  }
+
+  private PartFileReader openPartFile(Path path, boolean binary, long position) throws IOException
+  {
+    FSDataInputStream is = stramAgent.getFileSystem().open(path);
+    if (position > 0) {
+      is.seek(position);
+    }
+    return binary ? new BinaryPartFileReader(is) : new TextPartFileReader(is);
+  }
+
+  /**
+   * Reads the entries of a part file in either recording format.
+   */
+  private abstract static class PartFileReader implements Closeable
+  {
+    protected final InputStream is;
+    byte type;
+    long timestamp;
+    long windowId;
+    String port;
+
+    PartFileReader(InputStream is)
+    {
+      this.is = is;
+    }
+
+    abstract boolean next() throws IOException;
+
+    /**
+     * Returns the serialized tuple of the current tuple entry, or null if the entry is incomplete.
+     */
+    abstract String readData() throws IOException;
+
+    @Override
+    public void close() throws IOException
+    {
+      is.close();
+    }
+  }
+
+  private static class TextPartFileReader extends PartFileReader
+  {
+    private final BufferedReader partBr;
+    private String partLine;
+    private int dataCursor;
+
+    TextPartFileReader(InputStream is)
+    {
+      super(is);
+      partBr = new BufferedReader(new InputStreamReader(is));
+    }
+
+    @Override
+    boolean next() throws IOException
+    {
+      while ((partLine = partBr.readLine()) != null) {
+        int partCursor = 2;
+        if (partLine.startsWith("B:")) {
+          int partCursor2 = partLine.indexOf(':', partCursor);
+          type = FSTupleRecordingPartFileCollection.ENTRY_BEGIN_WINDOW;
+          timestamp = Long.valueOf(partLine.substring(partCursor, partCursor2));
+          partCursor = partCursor2 + 1;
+          windowId = Long.valueOf(partLine.substring(partCursor));
+          return true;
+        } else if (partLine.startsWith("T:")) {
+          int partCursor2 = partLine.indexOf(':', partCursor);
+          type = FSTupleRecordingPartFileCollection.ENTRY_TUPLE;
+          timestamp = Long.valueOf(partLine.substring(partCursor, partCursor2));
+          partCursor = partCursor2 + 1;
+          partCursor2 = partLine.indexOf(':', partCursor);
+          port = partLine.substring(partCursor, partCursor2);
+          partCursor = partCursor2 + 1;
+          // skip the size
+          dataCursor = partLine.indexOf(':', partCursor) + 1;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    String readData()
+    {
+      return partLine.substring(dataCursor);
+    }
+  }
+
+  private static class BinaryPartFileReader extends PartFileReader
+  {
+    private final FSTupleRecordingPartFileCollection.EntryReader reader;
+
+    BinaryPartFileReader(InputStream is)
+    {
+      super(is);
+      reader = new FSTupleRecordingPartFileCollection.EntryReader(is);
+    }
+
+    @Override
+    boolean next() throws IOException
+    {
+      if (!reader.next()) {
+        return false;
+      }
+      type = reader.type;
+      timestamp = reader.timestamp;
+      windowId = reader.windowId;
+      port = String.valueOf(reader.portId);
+      return true;
+    }
+
+    @Override
+    String readData() throws IOException
+    {
+      return reader.readData();
+    }
+  }
+
+  private void processPartFile(PartFileReader partReader, QueryType queryType, long low, long high, long limit, String[] ports, MutableLong numRemainingTuples, MutableLong currentTimestamp, MutableLong currentWindowLow, long currentOffset, TuplesInfo info) throws IOException
   {
-    String partLine;
     long tmpOffset = currentOffset;
     // advance until offset is reached
-    while ((partLine = partBr.readLine()) != null) {
-      int partCursor = 2;
-      if (partLine.startsWith("B:")) {
-        int partCursor2 = partLine.indexOf(':', partCursor);
-        currentTimestamp.setValue(Long.valueOf(partLine.substring(partCursor, partCursor2)));
-        partCursor = partCursor2 + 1;
-        currentWindowLow.setValue(Long.valueOf(partLine.substring(partCursor)));
+    while (partReader.next()) {
+      if (partReader.type == FSTupleRecordingPartFileCollection.ENTRY_BEGIN_WINDOW) {
+        currentTimestamp.setValue(partReader.timestamp);
+        currentWindowLow.setValue(partReader.windowId);
         if (limit != numRemainingTuples.longValue()) {
           WindowTuplesInfo wtinfo;
           wtinfo = new WindowTuplesInfo();
           wtinfo.windowId = currentWindowLow.longValue();
           info.tuples.add(wtinfo);
         }
-      }
-      else if (partLine.startsWith("T:")) {
-        int partCursor2 = partLine.indexOf(':', partCursor);
-        currentTimestamp.setValue(Long.valueOf(partLine.substring(partCursor, partCursor2)));
-        partCursor = partCursor2 + 1;
-        partCursor2 = partLine.indexOf(':', partCursor);
-        String port = partLine.substring(partCursor, partCursor2);
+      } else if (partReader.type == FSTupleRecordingPartFileCollection.ENTRY_TUPLE) {
+        currentTimestamp.setValue(partReader.timestamp);
+        String port = partReader.port;
         boolean portMatch = (ports == null) || (ports.length == 0) || Arrays.asList(ports).contains(port);
-        partCursor = partCursor2 + 1;
 
         if (portMatch
                 && ((queryType == QueryType.WINDOW && currentWindowLow.longValue() >= low)
@@ -596,6 +753,11 @@ public final class RecordingsAgent extends FSPartFileAgent
                 || (queryType == QueryType.TIME && currentTimestamp.longValue() >= low))) {
 
           if (numRemainingTuples.longValue() > 0) {
+            String tupleValue = partReader.readData();
+            if (tupleValue == null) {
+              // incomplete tuple at the end of the part file that is being written
+              break;
+            }
             if (info.startOffset == -1) {
               info.startOffset = tmpOffset;
             }
@@ -608,12 +770,6 @@ public final class RecordingsAgent extends FSPartFileAgent
             else {
               wtinfo = info.tuples.get(info.tuples.size() - 1);
             }
-
-            partCursor2 = partLine.indexOf(':', partCursor);
-            int size = Integer.valueOf(partLine.substring(partCursor, partCursor2));
-            partCursor = partCursor2 + 1;
-            //partCursor2 = partCursor + size;
-            String tupleValue = partLine.substring(partCursor);
             wtinfo.tuples.add(new TupleInfo(port, tupleValue));
             numRemainingTuples.decrement();
           }
@@ -19,9 +19,13 @@
 package com.datatorrent.stram.client;
 
 import com.datatorrent.common.util.ObjectMapperString;
+import com.datatorrent.stram.FSStatsRecorder;
 import com.datatorrent.stram.util.FSPartFileCollection;
+import com.datatorrent.stram.util.FSStatsPartFileCollection;
+import com.datatorrent.stram.util.FSStatsPartFileCollection.StatsRecord;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.*;
 import org.apache.commons.io.IOUtils;
@@ -85,6 +89,23 @@ public final class StatsAgent extends FSPartFileAgent
     public long endTime;
     @JsonSerialize(using = ToStringSerializer.class)
     public long count;
+    // range of the record timestamps and recorded ids, only present in the binary format
+    public Long minTimestamp;
+    public Long maxTimestamp;
+    public Set<Integer> ids;
+
+    /**
+     * Returns whether the part file may contain records in the time range that belong to one of the ids.
+     */
+    boolean mayContain(Long startTime, Long endTime, Set<Integer> ids)
+    {
+      if (minTimestamp != null) {
+        if ((startTime != null && maxTimestamp < startTime) || (endTime != null && minTimestamp > endTime)) {
+          return false;
+        }
+      }
+      return ids == null || this.ids == null || !Collections.disjoint(ids, this.ids);
+    }
   }
 
   public static class OperatorStatsInfo
@@ -148,10 +169,47 @@ public final class StatsAgent extends FSPartFileAgent
     info.startTime = Long.valueOf(tmp[0]);
     info.endTime = Long.valueOf(tmp[1]);
     cursor = cursor2 + 1;
-    info.count = Long.valueOf(line.substring(cursor));
+    cursor2 = line.indexOf(':', cursor);
+    if (cursor2 < 0) {
+      info.count = Long.valueOf(line.substring(cursor));
+      return info;
+    }
+    info.count = Long.valueOf(line.substring(cursor, cursor2));
+    // extra info of the binary format: T:<min>-<max>:<id>,<id>,...
+    String[] extraInfo = line.substring(cursor2 + 1).split(":");
+    if (extraInfo.length == 3 && extraInfo[0].equals("T")) {
+      tmp = extraInfo[1].split("-");
+      info.minTimestamp = Long.valueOf(tmp[0]);
+      info.maxTimestamp = Long.valueOf(tmp[1]);
+      info.ids = new HashSet<Integer>();
+      for (String id : extraInfo[2].split(",")) {
+        info.ids.add(Integer.valueOf(id));
+      }
+    }
     return info;
   }
 
+  /**
+   * Returns whether the stats in the directory are written in the binary format. Throws an exception when the
+   * format version is not known.
+   */
+  private boolean isBinaryFormat(String dir) throws IOException
+  {
+    BufferedReader br = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.META_FILE))));
+    try {
+      String version = br.readLine();
+      if (FSStatsRecorder.BINARY_VERSION.equals(version)) {
+        return true;
+      }
+      if (FSStatsRecorder.VERSION.equals(version)) {
+        return false;
+      }
+      throw new IOException("Unknown stats format version " + version + " in " + dir);
+    } finally {
+      br.close();
+    }
+  }
+
   public ContainersInfo getContainersInfo(String appId)
   {
     ContainersInfo info = new ContainersInfo();
@@ -175,7 +233,7 @@ public final class StatsAgent extends FSPartFileAgent
       br = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.META_FILE))));
       String line;
       line = br.readLine();
-      if (!line.equals("1.0")) {
+      if (!line.equals(FSStatsRecorder.VERSION) && !line.equals(FSStatsRecorder.BINARY_VERSION)) {
         return null;
       }
       while ((line = br.readLine()) != null) {
@@ -246,7 +304,7 @@ public final class StatsAgent extends FSPartFileAgent
       br = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.META_FILE))));
       String line;
       line = br.readLine();
-      if (!line.equals("1.0")) {
+      if (!line.equals(FSStatsRecorder.VERSION) && !line.equals(FSStatsRecorder.BINARY_VERSION)) {
         return null;
       }
       while ((line = br.readLine()) != null) {
@@ -285,6 +343,21 @@ public final class StatsAgent extends FSPartFileAgent
   }
 
   public List<OperatorStatsInfo> getOperatorsStats(String appId, String opName, Long startTime, Long endTime)
+  {
+    return getOperatorsStats(appId, opName, startTime, endTime, null);
+  }
+
+  /**
+   * Returns the stats of the physical operators of the logical operator in the time range.
+   *
+   * @param appId application id
+   * @param opName logical operator name
+   * @param startTime minimum timestamp, or null
+   * @param endTime maximum timestamp, or null
+   * @param operatorIds physical operators to return, or null for all
+   * @return operator stats
+   */
+  public List<OperatorStatsInfo> getOperatorsStats(String appId, String opName, Long startTime, Long endTime, Set<Integer> operatorIds)
   {
     List<OperatorStatsInfo> result = new ArrayList<OperatorStatsInfo>();
     String dir = getOperatorStatsDirectory(appId, opName);
@@ -295,6 +368,7 @@ public final class StatsAgent extends FSPartFileAgent
     IndexFileBufferedReader ifbr = null;
 
     try {
+      boolean binary = isBinaryFormat(dir);
       ifbr = new IndexFileBufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.INDEX_FILE))), dir);
       StatsIndexLine indexLine;
       String lastProcessPartFile = null;
@@ -312,31 +386,23 @@ public final class StatsAgent extends FSPartFileAgent
               return result;
             }
           }
-
-          BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))));
-          try {
-            processOperatorPartFile(partBr, startTime, endTime, result);
-          }
-          finally {
-            partBr.close();
+          if (!indexLine.mayContain(startTime, endTime, operatorIds)) {
+            continue;
           }
+
+          processOperatorPartFile(new Path(dir, indexLine.partFile), binary, startTime, endTime, operatorIds, result);
         }
       }
 
-      BufferedReader partBr = null;
       try {
         String extraPartFile = getNextPartFile(lastProcessPartFile);
         if (extraPartFile != null) {
-          partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, extraPartFile))));
-          processOperatorPartFile(partBr, startTime, endTime, result);
+          processOperatorPartFile(new Path(dir, extraPartFile), binary, startTime, endTime, operatorIds, result);
         }
       }
       catch (Exception ex) {
         // ignore
       }
-      finally {
-        IOUtils.closeQuietly(partBr);
-      }
     }
     catch (Exception ex) {
       LOG.warn("Got exception when reading operators stats", ex);
@@ -347,7 +413,29 @@ public final class StatsAgent extends FSPartFileAgent
     return result;
   }
 
-  private void processOperatorPartFile(BufferedReader partBr, Long startTime, Long endTime, List<OperatorStatsInfo> result) throws IOException
+  private void processOperatorPartFile(Path partFile, boolean binary, Long startTime, Long endTime, Set<Integer> operatorIds,
+      List<OperatorStatsInfo> result) throws IOException
+  {
+    InputStream is = stramAgent.getFileSystem().open(partFile);
+    try {
+      if (binary) {
+        for (StatsRecord record : FSStatsPartFileCollection.readRecords(is, startTime, endTime, operatorIds)) {
+          OperatorStatsInfo os = new OperatorStatsInfo();
+          os.operatorId = record.id;
+          os.timestamp = record.timestamp;
+          os.stats = new ObjectMapperString(record.stats);
+          result.add(os);
+        }
+      } else {
+        processOperatorPartFile(new BufferedReader(new InputStreamReader(is)), startTime, endTime, operatorIds, result);
+      }
+    } finally {
+      is.close();
+    }
+  }
+
+  private void processOperatorPartFile(BufferedReader partBr, Long startTime, Long endTime, Set<Integer> operatorIds,
+      List<OperatorStatsInfo> result) throws IOException
   {
     String partLine;
     // advance until offset is reached
@@ -362,7 +450,8 @@ public final class StatsAgent extends FSPartFileAgent
       os.timestamp = Long.valueOf(partLine.substring(cursor, cursor2));
       cursor = cursor2 + 1;
       os.stats = new ObjectMapperString(partLine.substring(cursor));
-      if ((startTime == null || os.timestamp >= startTime) && (endTime == null || os.timestamp <= endTime)) {
+      if ((startTime == null || os.timestamp >= startTime) && (endTime == null || os.timestamp <= endTime)
+          && (operatorIds == null || operatorIds.contains(os.operatorId))) {
         result.add(os);
       }
     }
@@ -378,6 +467,7 @@ public final class StatsAgent extends FSPartFileAgent
     BufferedReader br = null;
     String lastProcessPartFile = null;
     try {
+      boolean binary = isBinaryFormat(dir);
       br = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, FSPartFileCollection.INDEX_FILE))));
       String line;
 
@@ -398,29 +488,21 @@ public final class StatsAgent extends FSPartFileAgent
             return result;
           }
         }
-
-        BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))));
-        try {
-          processContainerPartFile(partBr, startTime, endTime, result);
-        }
-        finally {
-          partBr.close();
+        if (!indexLine.mayContain(startTime, endTime, null)) {
+          continue;
         }
+
+        processContainerPartFile(new Path(dir, indexLine.partFile), binary, startTime, endTime, result);
       }
-      BufferedReader partBr = null;
       try {
         String extraPartFile = getNextPartFile(lastProcessPartFile);
         if (extraPartFile != null) {
-          partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, extraPartFile))));
-          processContainerPartFile(partBr, startTime, endTime, result);
+          processContainerPartFile(new Path(dir, extraPartFile), binary, startTime, endTime, result);
         }
       }
       catch (Exception ex) {
         // ignore
       }
-      finally {
-        IOUtils.closeQuietly(partBr);
-      }
     }
     catch (Exception ex) {
       LOG.warn("Got exception when reading containers stats", ex);
@@ -431,6 +513,26 @@ public final class StatsAgent extends FSPartFileAgent
     return result;
   }
 
+  private void processContainerPartFile(Path partFile, boolean binary, Long startTime, Long endTime, List<ContainerStatsInfo> result) throws IOException
+  {
+    InputStream is = stramAgent.getFileSystem().open(partFile);
+    try {
+      if (binary) {
+        for (StatsRecord record : FSStatsPartFileCollection.readRecords(is, startTime, endTime, null)) {
+          ContainerStatsInfo cs = new ContainerStatsInfo();
+          cs.containerId = record.id;
+          cs.timestamp = record.timestamp;
+          cs.stats = new ObjectMapperString(record.stats);
+          result.add(cs);
+        }
+      } else {
+        processContainerPartFile(new BufferedReader(new InputStreamReader(is)), startTime, endTime, result);
+      }
+    } finally {
+      is.close();
+    }
+  }
+
   private void processContainerPartFile(BufferedReader partBr, Long startTime, Long endTime, List<ContainerStatsInfo> result) throws IOException
   {
     String partLine;
@@ -101,6 +101,55 @@ public class StramAgent extends FSAgent
     String user;
     SecurityInfo securityInfo;
     PermissionsInfo permissionsInfo;
+    // client shared by the requests to the app, see acquireClient
+    WebServicesClient webServicesClient;
+    // number of requests in flight with the shared client
+    int clientReferences;
+    boolean destroyed;
+
+    /**
+     * Returns the client shared by the requests to the app, so that consecutive requests reuse its connections.
+     * Each call must be paired with {@link #releaseClient()}.
+     *
+     * @return shared client, or null when the info is no longer cached
+     */
+    synchronized WebServicesClient acquireClient()
+    {
+      if (destroyed) {
+        return null;
+      }
+      if (webServicesClient == null) {
+        webServicesClient = new WebServicesClient();
+      }
+      clientReferences++;
+      return webServicesClient;
+    }
+
+    synchronized void releaseClient()
+    {
+      if (--clientReferences == 0 && destroyed) {
+        destroyClient();
+      }
+    }
+
+    /**
+     * Marks the info as no longer cached. The shared client is destroyed once the requests in flight finish.
+     */
+    synchronized void destroy()
+    {
+      destroyed = true;
+      if (clientReferences == 0) {
+        destroyClient();
+      }
+    }
+
+    private void destroyClient()
+    {
+      if (webServicesClient != null) {
+        webServicesClient.getClient().destroy();
+        webServicesClient = null;
+      }
+    }
   }
 
   private static class SecurityInfo
@@ -126,7 +175,21 @@ public class StramAgent extends FSAgent
 
   private static final Logger LOG = LoggerFactory.getLogger(StramAgent.class);
   protected String resourceManagerWebappAddress;
-  private final Map<String, StramWebServicesInfo> webServicesInfoMap = new LRUCache<String, StramWebServicesInfo>(100, true);
+  private final Map<String, StramWebServicesInfo> webServicesInfoMap = new LRUCache<String, StramWebServicesInfo>(100, true)
+  {
+    private static final long serialVersionUID = 201610190400L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, StramWebServicesInfo> entry)
+    {
+      if (super.removeEldestEntry(entry)) {
+        entry.getValue().destroy();
+        return true;
+      }
+      return false;
+    }
+
+  };
   protected String defaultStramRoot = null;
   protected Configuration conf;
 
@@ -161,12 +224,18 @@ public class StramAgent extends FSAgent
 
   private synchronized void deleteCachedWebServicesInfo(String appid)
   {
-    webServicesInfoMap.remove(appid);
+    StramWebServicesInfo info = webServicesInfoMap.remove(appid);
+    if (info != null) {
+      info.destroy();
+    }
   }
 
   private synchronized void setCachedWebServicesInfo(String appid, StramWebServicesInfo info)
   {
-    webServicesInfoMap.put(appid, info);
+    StramWebServicesInfo previous = webServicesInfoMap.put(appid, info);
+    if (previous != null && previous != info) {
+      previous.destroy();
+    }
   }
 
   private synchronized StramWebServicesInfo getCachedWebServicesInfo(String appid)
@@ -201,23 +270,26 @@ public class StramAgent extends FSAgent
   private UriBuilder getStramWebURIBuilder(WebServicesClient webServicesClient, String appid) throws IncompatibleVersionException
   {
     Client wsClient = webServicesClient.getClient();
-    wsClient.setFollowRedirects(true);
     StramWebServicesInfo info = getWebServicesInfo(appid);
     UriBuilder ub = null;
-    if (info != null) {
-      //ws = wsClient.resource("http://" + info.appMasterTrackingUrl).path(WebServices.PATH).path(info.version).path("stram");
-      // the filter should convert to the right version
-      ub = UriBuilder.fromUri("http://" + info.appMasterTrackingUrl).path(WebServices.PATH).path(WebServices.VERSION).path("stram");
-      WebServicesVersionConversion.Converter versionConverter = WebServicesVersionConversion.getConverter(info.version);
-      if (versionConverter != null) {
-        VersionConversionFilter versionConversionFilter = new VersionConversionFilter(versionConverter);
-        if (!wsClient.isFilterPreset(versionConversionFilter)) {
-          wsClient.addFilter(versionConversionFilter);
+    // the client may be shared by concurrent requests, see StramWebServicesInfo.acquireClient
+    synchronized (wsClient) {
+      wsClient.setFollowRedirects(true);
+      if (info != null) {
+        //ws = wsClient.resource("http://" + info.appMasterTrackingUrl).path(WebServices.PATH).path(info.version).path("stram");
+        // the filter should convert to the right version
+        ub = UriBuilder.fromUri("http://" + info.appMasterTrackingUrl).path(WebServices.PATH).path(WebServices.VERSION).path("stram");
+        WebServicesVersionConversion.Converter versionConverter = WebServicesVersionConversion.getConverter(info.version);
+        if (versionConverter != null) {
+          VersionConversionFilter versionConversionFilter = new VersionConversionFilter(versionConverter);
+          if (!wsClient.isFilterPreset(versionConversionFilter)) {
+            wsClient.addFilter(versionConversionFilter);
+          }
         }
-      }
-      if (info.securityInfo != null) {
-        if (!wsClient.isFilterPreset(info.securityInfo.secClientFilter)) {
-          wsClient.addFilter(info.securityInfo.secClientFilter);
+        if (info.securityInfo != null) {
+          if (!wsClient.isFilterPreset(info.securityInfo.secClientFilter)) {
+            wsClient.addFilter(info.securityInfo.secClientFilter);
+          }
         }
       }
     }
@@ -271,8 +343,19 @@ public class StramAgent extends FSAgent
   {
     int retries = STRAM_WEBSERVICE_RETRIES;
     while (true) {
+      WebServicesClient client = webServiceClient;
+      StramWebServicesInfo sharedClientInfo = null;
+      if (client == null) {
+        StramWebServicesInfo info = getWebServicesInfo(appId);
+        client = info == null ? null : info.acquireClient();
+        if (client != null) {
+          sharedClientInfo = info;
+        } else {
+          client = new WebServicesClient();
+        }
+      }
       try {
-        UriBuilder ub = getStramWebURIBuilder(webServiceClient, appId);
+        UriBuilder ub = getStramWebURIBuilder(client, appId);
         if (ub == null) {
           throw new AppNotFoundException(appId);
         }
@@ -282,7 +365,7 @@ public class StramAgent extends FSAgent
         for (Map.Entry<String, Object> entry : stramUriSpec.getQueryParams().entries()) {
           ub = ub.queryParam(entry.getKey(), entry.getValue());
         }
-        return webServiceClient.process(webServiceClient.getClient().resource(ub.build()).accept(MediaType.APPLICATION_JSON), clazz, handler);
+        return client.process(client.getClient().resource(ub.build()).accept(MediaType.APPLICATION_JSON), clazz, handler);
       } catch (ClientHandlerException ex) {
         if (retries-- > 0) {
           invalidateStramWebResource(appId);
@@ -295,6 +378,10 @@ public class StramAgent extends FSAgent
         } else {
           throw ex;
         }
+      } finally {
+        if (sharedClientInfo != null) {
+          sharedClientInfo.releaseClient();
+        }
       }
     }
   }
@@ -305,6 +392,16 @@ public class StramAgent extends FSAgent
     return issueStramWebRequest(webServiceClient, appId, stramUriSpec, JSONObject.class, handler);
   }
 
+  /**
+   * Issues a request with the client shared by the requests to the app. A client that is replaced while requests
+   * are in flight is destroyed after they finish.
+   */
+  public JSONObject issueStramWebRequest(String appId, StramUriSpec stramUriSpec, WebServicesClient.WebServicesHandler<JSONObject> handler)
+          throws AppNotFoundException, IOException, IncompatibleVersionException
+  {
+    return issueStramWebRequest(null, appId, stramUriSpec, JSONObject.class, handler);
+  }
+
   public JSONObject issueStramWebGetRequest(WebServicesClient webServiceClient, String appId, String resourcePath)
           throws AppNotFoundException, IOException, IncompatibleVersionException
   {
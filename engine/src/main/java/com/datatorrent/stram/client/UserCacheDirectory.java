@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.client;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache directory in the user DT directory, for results that are expensive to compute and are keyed by the content
+ * they are computed from. The location can be overridden with a system property, an empty value disables the cache.
+ * Entries are evicted by {@link #evict} when they were not used for the given time or when the directory grows
+ * beyond the given size, least recently used first. Readers mark an entry as used with {@link #touch}.
+ *
+ * @since 3.4.0
+ */
+public class UserCacheDirectory
+{
+  private static final Logger LOG = LoggerFactory.getLogger(UserCacheDirectory.class);
+
+  private final File dir;
+  private final String suffix;
+
+  private UserCacheDirectory(File dir, String suffix)
+  {
+    this.dir = dir;
+    this.suffix = suffix;
+  }
+
+  /**
+   * Returns the cache directory, creating it if needed.
+   *
+   * @param property system property that overrides the location
+   * @param defaultName name of the directory in the user DT directory
+   * @param suffix file name suffix of the entries
+   * @return cache directory, or null when the cache is disabled or the directory cannot be created
+   */
+  public static UserCacheDirectory get(String property, String defaultName, String suffix)
+  {
+    String path = System.getProperty(property);
+    File dir;
+    if (path == null) {
+      dir = new File(StramClientUtils.getUserDTDirectory(), defaultName);
+    } else if (path.isEmpty()) {
+      return null;
+    } else {
+      dir = new File(path);
+    }
+    if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+      LOG.debug("Cannot create cache directory {}", dir);
+      return null;
+    }
+    return new UserCacheDirectory(dir, suffix);
+  }
+
+  public File getDirectory()
+  {
+    return dir;
+  }
+
+  /**
+   * Returns the file of the entry with the given key, which may not exist.
+   *
+   * @param key key of the entry, a valid file name
+   * @return file
+   */
+  public File getFile(String key)
+  {
+    return new File(dir, key + suffix);
+  }
+
+  /**
+   * Marks the entry as recently used.
+   *
+   * @param file file of the entry
+   */
+  public static void touch(File file)
+  {
+    if (!file.setLastModified(System.currentTimeMillis())) {
+      LOG.debug("Cannot update modification time of {}", file);
+    }
+  }
+
+  /**
+   * Deletes the entries that were not used within maxAgeMillis, then the least recently used entries until the
+   * entries take at most maxBytes.
+   *
+   * @param maxBytes maximum total size of the entries
+   * @param maxAgeMillis maximum time since an entry was last used
+   */
+  public void evict(long maxBytes, long maxAgeMillis)
+  {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    final long[] lastModified = new long[files.length];
+    Integer[] order = new Integer[files.length];
+    for (int i = 0; i < files.length; i++) {
+      lastModified[i] = files[i].lastModified();
+      order[i] = i;
+    }
+    // most recently used first
+    Arrays.sort(order, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer o1, Integer o2)
+      {
+        return Long.compare(lastModified[o2], lastModified[o1]);
+      }
+
+    });
+    long expired = System.currentTimeMillis() - maxAgeMillis;
+    long totalBytes = 0;
+    for (int i : order) {
+      File file = files[i];
+      if (!file.isFile() || !file.getName().endsWith(suffix)) {
+        continue;
+      }
+      long length = file.length();
+      if (lastModified[i] < expired || totalBytes + length > maxBytes) {
+        LOG.debug("Evicting cache entry {}", file);
+        if (!file.delete()) {
+          LOG.debug("Cannot delete cache entry {}", file);
+        }
+      } else {
+        totalBytes += length;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.api.Attribute;
+import com.datatorrent.stram.plan.logical.LogicalOperatorStatus;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.logical.LogicalPlan.InputPortMeta;
+import com.datatorrent.stram.plan.logical.LogicalPlan.ModuleMeta;
+import com.datatorrent.stram.plan.logical.LogicalPlan.OperatorMeta;
+import com.datatorrent.stram.plan.logical.LogicalPlan.OutputPortMeta;
+import com.datatorrent.stram.plan.logical.LogicalPlan.StreamMeta;
+
+/**
+ * Kryo serialization of the logical plan, a faster alternative to {@link LogicalPlan#write} for copies of the plan
+ * that are read by the same version of the engine.
+ * <p>
+ * The classes of the plan are registered, so that their names are not written. Operators and modules, which are
+ * transient in the plan, are written with the same Kryo instance, instead of a separate stream per operator as with
+ * Java serialization. Annotations are written with Java serialization, since their classes are generated at runtime.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class LogicalPlanKryoSerializer
+{
+  // the registration order determines the class ids and must not change between writer and reader
+  private static final Class<?>[] REGISTERED_CLASSES = {
+    HashMap.class,
+    LinkedHashMap.class,
+    ArrayList.class,
+    HashSet.class,
+    Attribute.class,
+    Attribute.AttributeMap.DefaultAttributeMap.class,
+    LogicalOperatorStatus.class
+  };
+
+  /**
+   * Returns a Kryo instance with the classes of the plan registered.
+   *
+   * @param loader class loader to resolve the classes of operators
+   * @return new Kryo instance
+   */
+  public static Kryo newKryo(ClassLoader loader)
+  {
+    Kryo kryo = SnapshotKryoFactory.newKryo(loader);
+    for (Class<?> clazz : REGISTERED_CLASSES) {
+      kryo.register(clazz);
+    }
+    kryo.register(LogicalPlan.class, new SnapshotFieldSerializer<>(kryo, LogicalPlan.class));
+    kryo.register(OperatorMeta.class, new SnapshotFieldSerializer<>(kryo, OperatorMeta.class, "operator"));
+    kryo.register(ModuleMeta.class, new SnapshotFieldSerializer<>(kryo, ModuleMeta.class, "module"));
+    kryo.register(StreamMeta.class, new SnapshotFieldSerializer<>(kryo, StreamMeta.class));
+    kryo.register(InputPortMeta.class, new SnapshotFieldSerializer<>(kryo, InputPortMeta.class));
+    kryo.register(OutputPortMeta.class, new SnapshotFieldSerializer<>(kryo, OutputPortMeta.class));
+    return kryo;
+  }
+
+  public static void write(LogicalPlan dag, OutputStream os) throws IOException
+  {
+    write(newKryo(Thread.currentThread().getContextClassLoader()), dag, os);
+  }
+
+  public static LogicalPlan read(InputStream is) throws IOException
+  {
+    return read(newKryo(Thread.currentThread().getContextClassLoader()), is);
+  }
+
+  /**
+   * Returns a deep copy of the plan, including the operators.
+   *
+   * @param dag plan to copy
+   * @return copy of the plan
+   * @throws IOException
+   */
+  public static LogicalPlan clone(LogicalPlan dag) throws IOException
+  {
+    Kryo kryo = newKryo(Thread.currentThread().getContextClassLoader());
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    write(kryo, dag, bos);
+    return read(kryo, new ByteArrayInputStream(bos.toByteArray()));
+  }
+
+  private static void write(Kryo kryo, LogicalPlan dag, OutputStream os) throws IOException
+  {
+    Output output = new Output(os);
+    try {
+      kryo.writeObject(output, dag);
+      output.flush();
+    } catch (KryoException e) {
+      throw new IOException("Failed to write logical plan", e);
+    }
+  }
+
+  private static LogicalPlan read(Kryo kryo, InputStream is) throws IOException
+  {
+    try {
+      return kryo.readObject(new Input(is), LogicalPlan.class);
+    } catch (KryoException e) {
+      throw new IOException("Failed to read logical plan", e);
+    }
+  }
+
+}
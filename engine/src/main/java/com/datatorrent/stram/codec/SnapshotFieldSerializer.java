@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.lang.reflect.Field;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+
+/**
+ * Field serializer that retains the outer instance of inner classes, such as the meta classes of the logical plan.
+ * Annotation fields are written with Java serialization, since their classes are proxies generated at runtime.
+ * Optionally a transient field is written after the other fields.
+ *
+ * @since 3.4.0
+ */
+public class SnapshotFieldSerializer<T> extends FieldSerializer<T>
+{
+  private final Field transientField;
+
+  public SnapshotFieldSerializer(Kryo kryo, Class<T> type)
+  {
+    this(kryo, type, null);
+  }
+
+  public SnapshotFieldSerializer(Kryo kryo, Class<T> type, String transientFieldName)
+  {
+    super(kryo, type);
+    setIgnoreSyntheticFields(false);
+    JavaSerializer javaSerializer = new JavaSerializer();
+    for (CachedField<?> cachedField : getFields()) {
+      Class<?> fieldType = cachedField.getField().getType();
+      if (fieldType.isAnnotation()) {
+        cachedField.setClass(fieldType, javaSerializer);
+      }
+    }
+    if (transientFieldName != null) {
+      try {
+        transientField = type.getDeclaredField(transientFieldName);
+      } catch (NoSuchFieldException e) {
+        throw new IllegalArgumentException("No field " + transientFieldName + " in " + type, e);
+      }
+      transientField.setAccessible(true);
+    } else {
+      transientField = null;
+    }
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output, T object)
+  {
+    super.write(kryo, output, object);
+    if (transientField != null) {
+      try {
+        kryo.writeClassAndObject(output, transientField.get(object));
+      } catch (IllegalAccessException e) {
+        throw new KryoException(e);
+      }
+    }
+  }
+
+  @Override
+  public T read(Kryo kryo, Input input, Class<T> type)
+  {
+    T object = super.read(kryo, input, type);
+    if (transientField != null) {
+      try {
+        transientField.set(object, kryo.readClassAndObject(input));
+      } catch (IllegalAccessException e) {
+        throw new KryoException(e);
+      }
+    }
+    return object;
+  }
+
+}
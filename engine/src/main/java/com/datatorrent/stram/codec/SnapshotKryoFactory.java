@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+
+import com.datatorrent.api.StorageAgent;
+import com.datatorrent.stram.plan.logical.LogicalPlan.ModuleMeta;
+import com.datatorrent.stram.plan.logical.LogicalPlan.OperatorMeta;
+import com.datatorrent.stram.plan.physical.OperatorStatus;
+
+/**
+ * Creates the Kryo instances for the recovery snapshot of the physical plan and for copies of the logical plan.
+ *
+ * @since 3.4.0
+ */
+public class SnapshotKryoFactory
+{
+  private SnapshotKryoFactory()
+  {
+  }
+
+  /**
+   * Returns a Kryo instance configured for the classes of the plan.
+   *
+   * @param loader class loader to resolve the classes
+   * @return new Kryo instance
+   */
+  public static Kryo newKryo(ClassLoader loader)
+  {
+    Kryo kryo = new Kryo();
+    // the plan contains classes without default constructor
+    Kryo.DefaultInstantiatorStrategy instantiatorStrategy = new Kryo.DefaultInstantiatorStrategy();
+    instantiatorStrategy.setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+    kryo.setInstantiatorStrategy(instantiatorStrategy);
+    kryo.setDefaultSerializer(SnapshotFieldSerializer.class);
+    // storage agents re-initialize transient state in readResolve
+    kryo.addDefaultSerializer(StorageAgent.class, JavaSerializer.class);
+    kryo.addDefaultSerializer(OperatorStatus.class, OperatorStatus.KryoSerializer.class);
+    // attribute values such as stats listeners are often created with Arrays.asList
+    kryo.addDefaultSerializer(Arrays.asList().getClass(), ArraysAsListSerializer.class);
+    // operators and modules are transient in the plan and written by Java serialization hooks otherwise
+    kryo.addDefaultSerializer(OperatorMeta.class, new SnapshotFieldSerializer<>(kryo, OperatorMeta.class, "operator"));
+    kryo.addDefaultSerializer(ModuleMeta.class, new SnapshotFieldSerializer<>(kryo, ModuleMeta.class, "module"));
+    kryo.setClassLoader(loader);
+    return kryo;
+  }
+
+  /**
+   * Serializer for the lists returned by {@link Arrays#asList}, which have no default constructor and do not support
+   * {@link List#add}.
+   */
+  public static class ArraysAsListSerializer extends Serializer<List<?>>
+  {
+    @Override
+    public void write(Kryo kryo, Output output, List<?> list)
+    {
+      output.writeInt(list.size(), true);
+      for (Object element : list) {
+        kryo.writeClassAndObject(output, element);
+      }
+    }
+
+    @Override
+    public List<?> read(Kryo kryo, Input input, Class<List<?>> type)
+    {
+      Object[] elements = new Object[input.readInt(true)];
+      List<?> list = Arrays.asList(elements);
+      kryo.reference(list);
+      for (int i = 0; i < elements.length; i++) {
+        elements[i] = kryo.readClassAndObject(input);
+      }
+      return list;
+    }
+  }
+
+}
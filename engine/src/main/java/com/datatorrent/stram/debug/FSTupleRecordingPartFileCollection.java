@@ -0,0 +1,281 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.debug;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.stram.engine.WindowGenerator;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection;
+
+/**
+ * Part file collection that stores recorded tuples in a binary format.
+ * <p>
+ * A part file is a sequence of entries. Every entry starts with its type ({@code B} for begin window, {@code E} for
+ * end window, {@code T} for data tuples and {@code C} for control tuples) and its timestamp. Window entries carry
+ * the window id, tuple entries the port id and the length prefixed serialized tuple. Numbers are variable length
+ * encoded. Unlike the line based format, tuples do not need to be free of newlines and readers skip tuples they are
+ * not interested in without parsing them.
+ * </p>
+ * <p>
+ * The index line of each part file carries the window id ranges, the number of tuples per port and the sparse
+ * index of the part file as extra info:
+ * {@code <low>-<high>,...:<length>:{"<port id>":"<count>",...}:<sparse index>}. The sparse index points to begin
+ * window entries, about every {@link #getItemsPerIndexEntry()} data tuples, with the number of data tuples before
+ * the entry as ordinal and the window id as key. Readers can therefore seek to a tuple offset or a window without
+ * losing track of the current window.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class FSTupleRecordingPartFileCollection extends FSIndexedPartFileCollection
+{
+  public static final byte ENTRY_BEGIN_WINDOW = 'B';
+  public static final byte ENTRY_END_WINDOW = 'E';
+  public static final byte ENTRY_TUPLE = 'T';
+  public static final byte ENTRY_CONTROL_TUPLE = 'C';
+
+  private final Output output = new Output(4096, -1);
+  private final Map<Integer, MutableLong> portCounts = new LinkedHashMap<Integer, MutableLong>();
+  private long currentWindowId = WindowGenerator.MIN_WINDOW_ID - 1;
+  // state of the current part file, window id ranges as pairs of low and high
+  private final List<long[]> windowIdRanges = new ArrayList<long[]>();
+  private long tupleCount;
+  private long lastIndexedTupleCount = -1;
+
+  /**
+   * Adds a port whose tuple count is recorded in the index.
+   *
+   * @param portId port id
+   */
+  public void addPort(int portId)
+  {
+    portCounts.put(portId, new MutableLong());
+  }
+
+  public void writeBeginWindow(long timestamp, long windowId) throws IOException
+  {
+    if (windowId != currentWindowId + 1) {
+      if (!windowIdRanges.isEmpty()) {
+        windowIdRanges.get(windowIdRanges.size() - 1)[1] = currentWindowId;
+      }
+      windowIdRanges.add(new long[] {windowId, -1});
+    }
+    if (windowIdRanges.isEmpty()) {
+      windowIdRanges.add(new long[] {windowId, -1});
+    }
+    currentWindowId = windowId;
+    updateKeyRange(windowId);
+    if (lastIndexedTupleCount < 0 || tupleCount - lastIndexedTupleCount >= getItemsPerIndexEntry()) {
+      addIndexEntry(tupleCount);
+      lastIndexedTupleCount = tupleCount;
+    }
+    writeWindowEntry(ENTRY_BEGIN_WINDOW, timestamp, windowId);
+  }
+
+  public void writeEndWindow(long timestamp, long windowId) throws IOException
+  {
+    writeWindowEntry(ENTRY_END_WINDOW, timestamp, windowId);
+  }
+
+  private void writeWindowEntry(byte type, long timestamp, long windowId) throws IOException
+  {
+    output.clear();
+    output.writeByte(type);
+    output.writeVarLong(timestamp, true);
+    output.writeVarLong(windowId, true);
+    writeDataItem(output.toBytes(), false);
+  }
+
+  /**
+   * Writes a data tuple.
+   *
+   * @param timestamp time the tuple was recorded
+   * @param portId port id
+   * @param buffer serialized tuple
+   * @param offset offset of the serialized tuple
+   * @param length length of the serialized tuple
+   * @throws IOException
+   */
+  public void writeTuple(long timestamp, int portId, byte[] buffer, int offset, int length) throws IOException
+  {
+    MutableLong count = portCounts.get(portId);
+    if (count != null) {
+      count.increment();
+    }
+    tupleCount++;
+    writeTupleEntry(ENTRY_TUPLE, timestamp, portId, buffer, offset, length);
+  }
+
+  public void writeControlTuple(long timestamp, int portId, byte[] buffer, int offset, int length) throws IOException
+  {
+    writeTupleEntry(ENTRY_CONTROL_TUPLE, timestamp, portId, buffer, offset, length);
+  }
+
+  private void writeTupleEntry(byte type, long timestamp, int portId, byte[] buffer, int offset, int length) throws IOException
+  {
+    output.clear();
+    output.writeByte(type);
+    output.writeVarLong(timestamp, true);
+    output.writeVarInt(portId, true);
+    output.writeVarInt(length, true);
+    output.writeBytes(buffer, offset, length);
+    writeDataItem(output.toBytes(), type == ENTRY_TUPLE);
+  }
+
+  @Override
+  protected String getIndexExtraInfo()
+  {
+    if (windowIdRanges.isEmpty()) {
+      return null;
+    }
+    windowIdRanges.get(windowIdRanges.size() - 1)[1] = currentWindowId;
+    StringBuilder sb = new StringBuilder();
+    for (long[] range : windowIdRanges) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(range[0]).append('-').append(range[1]);
+    }
+    StringBuilder countStr = new StringBuilder("{");
+    for (Map.Entry<Integer, MutableLong> entry : portCounts.entrySet()) {
+      if (countStr.length() > 1) {
+        countStr.append(',');
+      }
+      countStr.append('"').append(entry.getKey()).append("\":\"").append(entry.getValue()).append('"');
+    }
+    countStr.append('}');
+    sb.append(':').append(countStr.length()).append(':').append(countStr);
+    String offsetIndex = getOffsetIndex();
+    if (offsetIndex != null) {
+      sb.append(':').append(offsetIndex);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  protected void resetIndexExtraInfo()
+  {
+    for (MutableLong count : portCounts.values()) {
+      count.setValue(0);
+    }
+    windowIdRanges.clear();
+    tupleCount = 0;
+    lastIndexedTupleCount = -1;
+    super.resetIndexExtraInfo();
+  }
+
+  /**
+   * Reads the entries of a part file. The serialized tuple of a tuple entry is only read when requested, otherwise
+   * it is skipped when moving to the next entry.
+   */
+  public static class EntryReader
+  {
+    private final Input input;
+    private int dataLength;
+    private boolean dataPending;
+    public byte type;
+    public long timestamp;
+    public long windowId;
+    public int portId;
+
+    public EntryReader(InputStream is)
+    {
+      input = new Input(is, 64 * 1024);
+    }
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return false at the end of the part file, or when the part file ends with an incomplete entry
+     * @throws IOException
+     */
+    public boolean next() throws IOException
+    {
+      try {
+        if (dataPending) {
+          dataPending = false;
+          input.skip(dataLength);
+        }
+        if (input.eof()) {
+          return false;
+        }
+        type = input.readByte();
+        timestamp = input.readVarLong(true);
+        switch (type) {
+          case ENTRY_BEGIN_WINDOW:
+          case ENTRY_END_WINDOW:
+            windowId = input.readVarLong(true);
+            break;
+          case ENTRY_TUPLE:
+          case ENTRY_CONTROL_TUPLE:
+            portId = input.readVarInt(true);
+            dataLength = input.readVarInt(true);
+            dataPending = true;
+            break;
+          default:
+            throw new IOException("Unknown entry type " + type);
+        }
+        return true;
+      } catch (KryoException ex) {
+        checkUnderflow(ex);
+        return false;
+      }
+    }
+
+    /**
+     * Reads the serialized tuple of the current tuple entry.
+     *
+     * @return serialized tuple, or null when the part file ends with an incomplete entry
+     * @throws IOException
+     */
+    public String readData() throws IOException
+    {
+      if (!dataPending) {
+        throw new IllegalStateException("No tuple data at the current entry");
+      }
+      dataPending = false;
+      try {
+        return new String(input.readBytes(dataLength), "UTF-8");
+      } catch (KryoException ex) {
+        checkUnderflow(ex);
+        return null;
+      }
+    }
+
+    private static void checkUnderflow(KryoException ex) throws IOException
+    {
+      // the part file that is currently written may end with an incomplete entry
+      if (!(ex.getCause() == null && String.valueOf(ex.getMessage()).startsWith("Buffer underflow"))) {
+        throw new IOException(ex);
+      }
+    }
+  }
+
+}
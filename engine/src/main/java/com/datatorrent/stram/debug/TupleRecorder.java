@@ -24,8 +24,11 @@ import java.beans.PropertyDescriptor;
 import java.io.*;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,24 +40,38 @@ import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.common.util.ObjectMapperString;
 import com.datatorrent.stram.engine.WindowGenerator;
 import com.datatorrent.stram.tuple.Tuple;
-import com.datatorrent.stram.util.FSPartFileCollection;
 import com.datatorrent.stram.util.SharedPubSubWebSocketClient;
 import com.datatorrent.stram.util.SharedPubSubWebSocketClient.Handler;
 
 /**
  * <p>
  * TupleRecorder class.</p>
+ * <p>
+ * The operator thread only serializes the recorded tuples and hands them to a writer thread, which writes them to
+ * the part files and publishes them to the subscribers of the recording. The writer queue holds at most
+ * {@link #getQueueCapacity()} data tuples. Data tuples recorded while the queue is full are dropped and counted,
+ * so that a slow file system or gateway does not slow down the operator. Window and control tuples are never
+ * dropped.
+ * </p>
  *
  * @since 0.3.2
  */
 public class TupleRecorder
 {
+  /**
+   * Version of the line based recording format.
+   */
   public static final String VERSION = "1.2";
-  private int totalTupleCount = 0;
+  /**
+   * Version of the binary recording format, see {@link FSTupleRecordingPartFileCollection}.
+   */
+  public static final String BINARY_VERSION = "2.0";
+  public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+  private volatile int totalTupleCount = 0;
+  private volatile long droppedTupleCount = 0;
   private final HashMap<String, PortInfo> portMap = new HashMap<String, PortInfo>(); // used for output portInfo <name, id> map
-  private final HashMap<String, PortCount> portCountMap = new HashMap<String, PortCount>(); // used for tupleCount of each port <name, count> map
   private transient long currentWindowId = WindowGenerator.MIN_WINDOW_ID - 1;
-  private transient ArrayList<Range> windowIdRanges = new ArrayList<Range>();
+  private transient boolean windowStarted = false;
   private long startTime = Stats.INVALID_TIME_MILLIS;
   private String id;
   private final String appId;
@@ -62,48 +79,16 @@ public class TupleRecorder
   private final HashMap<String, Sink<Object>> sinks = new HashMap<String, Sink<Object>>();
   private transient long endWindowTuplesProcessed = 0;
   private transient StreamCodec<Object> streamCodec;
-  private int numSubscribers = 0;
+  private volatile int numSubscribers = 0;
   private SharedPubSubWebSocketClient wsClient;
   private String recordingNameTopic;
   private long numWindows = Long.MAX_VALUE; // number of windows to record
   private Runnable stopProcedure; // stop procedure to execute
-  private final FSPartFileCollection storage = new FSPartFileCollection()
-  {
-    @Override
-    protected String getIndexExtraInfo()
-    {
-      if (windowIdRanges.isEmpty()) {
-        return null;
-      }
-      String str;
-      windowIdRanges.get(windowIdRanges.size() - 1).high = TupleRecorder.this.currentWindowId;
-      str = convertToString(windowIdRanges);
-      int i = 0;
-      str += ":";
-      StringBuilder countStr = new StringBuilder("{");
-      for (PortCount pc: portCountMap.values()) {
-        if (i != 0) {
-          countStr.append(",");
-        }
-        countStr.append("\"").append(pc.id).append("\":\"").append(pc.count).append("\"");
-        i++;
-      }
-      countStr.append("}");
-      str += countStr.length();
-      str += ":" + countStr.toString();
-      return str;
-    }
-
-    @Override
-    protected void resetIndexExtraInfo()
-    {
-      for (PortCount pc: portCountMap.values()) {
-        pc.count = 0;
-      }
-      windowIdRanges.clear();
-    }
-
-  };
+  private final FSTupleRecordingPartFileCollection storage = new FSTupleRecordingPartFileCollection();
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+  private final BlockingQueue<WriteOperation> queue = new LinkedBlockingQueue<WriteOperation>();
+  private final AtomicInteger numQueuedTuples = new AtomicInteger();
+  private final WriterThread writerThread = new WriterThread();
 
   public TupleRecorder(String id, String appId)
   {
@@ -111,7 +96,7 @@ public class TupleRecorder
     this.appId = appId;
   }
 
-  public FSPartFileCollection getStorage()
+  public FSTupleRecordingPartFileCollection getStorage()
   {
     return storage;
   }
@@ -150,6 +135,29 @@ public class TupleRecorder
     return totalTupleCount;
   }
 
+  /**
+   * Returns the number of data tuples that were not recorded because the writer queue was full.
+   */
+  public long getDroppedTupleCount()
+  {
+    return droppedTupleCount;
+  }
+
+  public int getQueueCapacity()
+  {
+    return queueCapacity;
+  }
+
+  /**
+   * Sets the maximum number of data tuples waiting to be written, must be set before setup.
+   *
+   * @param queueCapacity
+   */
+  public void setQueueCapacity(int queueCapacity)
+  {
+    this.queueCapacity = queueCapacity;
+  }
+
   public Map<String, Sink<Object>> getSinkMap()
   {
     return Collections.unmodifiableMap(sinks);
@@ -232,10 +240,7 @@ public class TupleRecorder
     portInfo.type = "input";
     portInfo.id = nextPortIndex++;
     portMap.put(portName, portInfo);
-    PortCount pc = new PortCount();
-    pc.id = portInfo.id;
-    pc.count = 0;
-    portCountMap.put(portName, pc);
+    storage.addPort(portInfo.id);
   }
 
   public void addOutputPortInfo(String portName, String streamName)
@@ -246,15 +251,25 @@ public class TupleRecorder
     portInfo.type = "output";
     portInfo.id = nextPortIndex++;
     portMap.put(portName, portInfo);
-    PortCount pc = new PortCount();
-    pc.id = portInfo.id;
-    pc.count = 0;
-    portCountMap.put(portName, pc);
+    storage.addPort(portInfo.id);
   }
 
   public void teardown()
   {
     logger.info("Closing down tuple recorder.");
+    if (writerThread.isAlive()) {
+      // the writer thread drains the queue before it exits
+      queue.add(WriteOperation.STOP);
+      try {
+        writerThread.join();
+      } catch (InterruptedException ex) {
+        logger.error("Error joining with {}", writerThread.getName(), ex);
+      }
+    }
+    if (droppedTupleCount > 0) {
+      logger.warn("Dropped {} of {} tuples of recording {} since the writer could not keep up", droppedTupleCount,
+          totalTupleCount + droppedTupleCount, id);
+    }
     this.storage.teardown();
   }
 
@@ -268,7 +283,7 @@ public class TupleRecorder
       }
 
       ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      bos.write((VERSION + "\n").getBytes());
+      bos.write((BINARY_VERSION + "\n").getBytes());
 
       RecordInfo recordInfo = new RecordInfo();
       recordInfo.startTime = startTime;
@@ -311,6 +326,9 @@ public class TupleRecorder
         recordingNameTopic = "applications." + appId + ".tupleRecorder." + getStartTime();
         setupWsClient();
       }
+      writerThread.setName("TupleRecorderWriter-" + id);
+      writerThread.setDaemon(true);
+      writerThread.start();
     }
     catch (Exception ex) {
       logger.error("Trouble setting up tuple recorder", ex);
@@ -341,44 +359,18 @@ public class TupleRecorder
 
   public void beginWindow(long windowId)
   {
-    if (this.currentWindowId != windowId) {
-      if (windowId != this.currentWindowId + 1) {
-        if (!windowIdRanges.isEmpty()) {
-          windowIdRanges.get(windowIdRanges.size() - 1).high = this.currentWindowId;
-        }
-        Range range = new Range();
-        range.low = windowId;
-        windowIdRanges.add(range);
-      }
-      if (windowIdRanges.isEmpty()) {
-        Range range = new Range();
-        range.low = windowId;
-        windowIdRanges.add(range);
-      }
+    if (!windowStarted || this.currentWindowId != windowId) {
+      windowStarted = true;
       this.currentWindowId = windowId;
       endWindowTuplesProcessed = 0;
-      try {
-        storage.writeDataItem(("B:" + System.currentTimeMillis() + ":" + windowId + "\n").getBytes(), false);
-      }
-      catch (IOException ex) {
-        logger.error(ex.toString());
-      }
+      queue.add(new WriteOperation(FSTupleRecordingPartFileCollection.ENTRY_BEGIN_WINDOW, windowId, 0, null, 0));
     }
   }
 
   public void endWindow()
   {
     if (++endWindowTuplesProcessed == portMap.size()) {
-      try {
-        storage.writeDataItem(("E:" + System.currentTimeMillis() + ":" + currentWindowId + "\n").getBytes(), false);
-        logger.debug("Got last end window tuple.  Flushing...");
-        if (!storage.flushData() && wsClient != null) {
-          wsClient.publish(SharedPubSubWebSocketClient.LAST_INDEX_TOPIC_PREFIX + ".tuple." + storage.getBasePath(), storage.getLatestIndexLine());
-        }
-      }
-      catch (IOException ex) {
-        logger.error("Exception caught in endWindow", ex);
-      }
+      queue.add(new WriteOperation(FSTupleRecordingPartFileCollection.ENTRY_END_WINDOW, currentWindowId, 0, null, 0));
     }
     if (stopProcedure != null && --numWindows <= 0) {
       stopProcedure.run();
@@ -387,76 +379,62 @@ public class TupleRecorder
 
   public void writeTuple(Object obj, String port)
   {
-    if (windowIdRanges.isEmpty()) {
+    if (!windowStarted) {
       throw new RuntimeException("Data tuples received from tuple recorder before any BEGIN_WINDOW");
     }
-    try {
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      Slice f = streamCodec.toByteArray(obj);
-      PortInfo pi = portMap.get(port);
-      String str = "T:" + System.currentTimeMillis() + ":" + pi.id + ":" + f.length + ":";
-      bos.write(str.getBytes());
-      bos.write(f.buffer, f.offset, f.length);
-      bos.write("\n".getBytes());
-      PortCount pc = portCountMap.get(port);
-      pc.count++;
-      portCountMap.put(port, pc);
-
-      storage.writeDataItem(bos.toByteArray(), true);
-      //logger.debug("Writing tuple for port id {}", pi.id);
-      //fsOutput.hflush();
-      ++totalTupleCount;
-      if (numSubscribers > 0) {
-        // this is not asynchronous.  we need to fix this
-        publishTupleData(pi.id, obj);
-      }
-    }
-    catch (IOException ex) {
-      logger.error(ex.toString());
+    if (numQueuedTuples.get() >= queueCapacity) {
+      droppedTupleCount++;
+      return;
     }
+    // the tuple is serialized on the operator thread since the operator may modify it once it is emitted
+    Slice f = streamCodec.toByteArray(obj);
+    PortInfo pi = portMap.get(port);
+    numQueuedTuples.incrementAndGet();
+    queue.add(new WriteOperation(FSTupleRecordingPartFileCollection.ENTRY_TUPLE, currentWindowId, pi.id, f, ++totalTupleCount));
   }
 
   public void writeControlTuple(Tuple tuple, String port)
   {
-    try {
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      PortInfo pi = portMap.get(port);
-      Slice f = streamCodec.toByteArray(tuple);
-      String str = "C:" + System.currentTimeMillis() + ":" + pi.id + ":" + f.length + ":";
-      bos.write(str.getBytes());
-      bos.write(f.buffer, f.offset, f.length);
-      bos.write("\n".getBytes());
-      storage.writeDataItem(bos.toByteArray(), false);
-    }
-    catch (IOException ex) {
-      logger.error(ex.toString());
-    }
+    PortInfo pi = portMap.get(port);
+    Slice f = streamCodec.toByteArray(tuple);
+    queue.add(new WriteOperation(FSTupleRecordingPartFileCollection.ENTRY_CONTROL_TUPLE, currentWindowId, pi.id, f, 0));
   }
 
-  private static String convertToString(List<Range> ranges)
+  private void write(WriteOperation op) throws IOException
   {
-    String result = "";
-    int i = 0;
-    for (Range range: ranges) {
-      if (i++ > 0) {
-        result += ",";
-      }
-      result += String.valueOf(range.low);
-      result += "-";
-      result += String.valueOf(range.high);
+    switch (op.type) {
+      case FSTupleRecordingPartFileCollection.ENTRY_BEGIN_WINDOW:
+        storage.writeBeginWindow(op.timestamp, op.windowId);
+        break;
+      case FSTupleRecordingPartFileCollection.ENTRY_END_WINDOW:
+        storage.writeEndWindow(op.timestamp, op.windowId);
+        logger.debug("Got last end window tuple.  Flushing...");
+        if (!storage.flushData() && wsClient != null) {
+          wsClient.publish(SharedPubSubWebSocketClient.LAST_INDEX_TOPIC_PREFIX + ".tuple." + storage.getBasePath(), storage.getLatestIndexLine());
+        }
+        break;
+      case FSTupleRecordingPartFileCollection.ENTRY_TUPLE:
+        numQueuedTuples.decrementAndGet();
+        storage.writeTuple(op.timestamp, op.portId, op.data.buffer, op.data.offset, op.data.length);
+        if (numSubscribers > 0) {
+          publishTupleData(op);
+        }
+        break;
+      default:
+        storage.writeControlTuple(op.timestamp, op.portId, op.data.buffer, op.data.offset, op.data.length);
+        break;
     }
-    return result;
   }
 
-  private void publishTupleData(int portId, Object obj)
+  private void publishTupleData(WriteOperation op)
   {
     try {
       if (wsClient != null && wsClient.isConnectionOpen()) {
         HashMap<String, Object> map = new HashMap<String, Object>();
-        map.put("portId", String.valueOf(portId));
-        map.put("windowId", currentWindowId);
-        map.put("tupleCount", totalTupleCount);
-        map.put("data", obj);
+        map.put("portId", String.valueOf(op.portId));
+        map.put("windowId", op.windowId);
+        map.put("tupleCount", op.tupleCount);
+        map.put("data", new ObjectMapperString(op.data.stringValue()));
         wsClient.publish(recordingNameTopic, map);
       }
     }
@@ -471,6 +449,48 @@ public class TupleRecorder
     this.stopProcedure = stopProcedure;
   }
 
+  private static class WriteOperation
+  {
+    static final WriteOperation STOP = new WriteOperation((byte)0, 0, 0, null, 0);
+    final byte type;
+    final long timestamp = System.currentTimeMillis();
+    final long windowId;
+    final int portId;
+    final Slice data;
+    final int tupleCount;
+
+    WriteOperation(byte type, long windowId, int portId, Slice data, int tupleCount)
+    {
+      this.type = type;
+      this.windowId = windowId;
+      this.portId = portId;
+      this.data = data;
+      this.tupleCount = tupleCount;
+    }
+  }
+
+  private class WriterThread extends Thread
+  {
+    @Override
+    public void run()
+    {
+      while (true) {
+        try {
+          WriteOperation op = queue.take();
+          if (op == WriteOperation.STOP) {
+            return;
+          }
+          write(op);
+        } catch (InterruptedException ex) {
+          return;
+        } catch (Exception ex) {
+          logger.error("Caught exception while writing recording", ex);
+        }
+      }
+    }
+
+  }
+
   public class RecorderSink implements Sink<Object>
   {
     private final String portName;
@@ -66,6 +66,7 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
   private String gatewayUserName;
   private String gatewayPassword;
   private long tupleRecordingPartFileTimeMillis;
+  private int tupleRecordingQueueCapacity;
   private String appPath;
   private String appId;
   private SharedPubSubWebSocketClient wsClient;
@@ -82,6 +83,7 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
   {
     tupleRecordingPartFileSize = ctx.getValue(LogicalPlan.TUPLE_RECORDING_PART_FILE_SIZE);
     tupleRecordingPartFileTimeMillis = ctx.getValue(LogicalPlan.TUPLE_RECORDING_PART_FILE_TIME_MILLIS);
+    tupleRecordingQueueCapacity = ctx.getValue(LogicalPlan.TUPLE_RECORDING_QUEUE_CAPACITY);
     appId = ctx.getValue(LogicalPlan.APPLICATION_ID);
     gatewayAddress = ctx.getValue(LogicalPlan.GATEWAY_CONNECT_ADDRESS);
     gatewayUseSsl = ctx.getValue(LogicalPlan.GATEWAY_USE_SSL);
@@ -179,6 +181,7 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
 
       TupleRecorder tupleRecorder = new TupleRecorder(id, appId);
       tupleRecorder.setWebSocketClient(wsClient);
+      tupleRecorder.setQueueCapacity(tupleRecordingQueueCapacity);
 
       HashMap<String, Sink<Object>> sinkMap = new HashMap<String, Sink<Object>>();
       for (Map.Entry<String, PortContextPair<InputPort<?>>> entry : descriptor.inputPorts.entrySet()) {
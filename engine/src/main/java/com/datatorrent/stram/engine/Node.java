@@ -69,6 +69,7 @@ import com.datatorrent.api.StatsListener.OperatorRequest;
 import com.datatorrent.api.StorageAgent;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
+import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.common.util.Pair;
 import com.datatorrent.netlet.util.DTThrowable;
 import com.datatorrent.stram.api.Checkpoint;
@@ -505,6 +506,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
           checkpointStats = new Stats.CheckpointStats();
           checkpointStats.checkpointStartTime = System.currentTimeMillis();
           ba.save(operator, id, windowId);
+          if (ba instanceof FSStorageAgent) {
+            checkpointStats.fieldStats = ((FSStorageAgent)ba).removeCheckpointProfile(id);
+          }
           if (ba instanceof AsyncFSStorageAgent) {
             AsyncFSStorageAgent asyncFSStorageAgent = (AsyncFSStorageAgent) ba;
             if (!asyncFSStorageAgent.isSyncCheckpoint()) {
@@ -75,6 +75,7 @@ import com.datatorrent.bufferserver.server.Server;
 import com.datatorrent.bufferserver.storage.DiskStorage;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.common.util.ScheduledThreadPoolExecutor;
+import com.datatorrent.common.util.TieredFSStorageAgent;
 import com.datatorrent.netlet.DefaultEventLoop;
 import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.ComponentContextPair;
@@ -129,6 +130,7 @@ import net.engio.mbassy.bus.config.BusConfiguration;
 public class StreamingContainer extends YarnContainerMain
 {
   public static final String PROP_APP_PATH = StreamingApplication.DT_PREFIX + Context.DAGContext.APPLICATION_PATH.getName();
+  private static final long STANDBY_POLL_INTERVAL_MILLIS = 100;
   private final transient String jvmName;
   private final String containerId;
   private final transient StreamingContainerUmbilicalProtocol umbilical;
@@ -304,6 +306,11 @@ public class StreamingContainer extends YarnContainerMain
     final String childId = System.getProperty(StreamingApplication.DT_PREFIX + "cid");
     try {
       StreamingContainerContext ctx = umbilical.getInitContext(childId);
+      while (ctx == null) {
+        // standby container, wait until the master assigns operators
+        Thread.sleep(STANDBY_POLL_INTERVAL_MILLIS);
+        ctx = umbilical.getInitContext(childId);
+      }
       StreamingContainer stramChild = new StreamingContainer(childId, umbilical);
       logger.debug("Container Context = {}", ctx);
       stramChild.setup(ctx);
@@ -615,6 +622,7 @@ public class StreamingContainer extends YarnContainerMain
       logger.debug("token: {}", token);
     }
     String hdfsKeyTabFile = containerContext.getValue(LogicalPlan.KEY_TAB_FILE);
+    ContainerHeartbeat.Encoding heartbeatEncoding = containerContext.getValue(LogicalPlan.HEARTBEAT_ENCODING);
     while (!exitHeartbeatLoop) {
 
       if (UserGroupInformation.isSecurityEnabled() && System.currentTimeMillis() >= expiryTime && hdfsKeyTabFile != null) {
@@ -631,6 +639,7 @@ public class StreamingContainer extends YarnContainerMain
 
       long currentTime = System.currentTimeMillis();
       ContainerHeartbeat msg = new ContainerHeartbeat();
+      msg.setEncoding(heartbeatEncoding);
       msg.jvmName = jvmName;
       if (this.bufferServerAddress != null) {
         msg.bufferServerHost = this.bufferServerAddress.getHostName();
@@ -759,6 +768,11 @@ public class StreamingContainer extends YarnContainerMain
       lastCommittedWindowId = rsp.committedWindowId;
       OperatorRequest nr = null;
       for (Entry<Integer, Node<?>> e : nodes.entrySet()) {
+        StorageAgent agent = e.getValue().context.getValue(OperatorContext.STORAGE_AGENT);
+        if (agent instanceof TieredFSStorageAgent) {
+          ((TieredFSStorageAgent)agent).committed(e.getKey(), lastCommittedWindowId);
+        }
+
         final Thread thread = e.getValue().context.getThread();
         if (thread == null || !thread.isAlive()) {
           continue;
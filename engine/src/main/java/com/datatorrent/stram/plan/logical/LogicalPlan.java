@@ -65,6 +65,7 @@ import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.yarn.api.records.LocalResourceVisibility;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 
 import com.google.common.collect.ArrayListMultimap;
@@ -95,6 +96,8 @@ import com.datatorrent.common.metric.SingleMetricAggregator;
 import com.datatorrent.common.metric.sum.DoubleSumAggregator;
 import com.datatorrent.common.metric.sum.LongSumAggregator;
 import com.datatorrent.common.util.FSStorageAgent;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
+import com.datatorrent.stram.codec.SnapshotFormat;
 import com.datatorrent.stram.engine.DefaultUnifier;
 import com.datatorrent.stram.engine.Slider;
 
@@ -174,6 +177,20 @@ public class LogicalPlan implements Serializable, DAG
    * containers.
    */
   public static Attribute<String> FILES = new Attribute<String>(new StringCodec.String2String());
+  /**
+   * Directory in the distributed file system that holds library jars by content hash, relative paths are resolved
+   * against the DT root directory. A jar is only uploaded if no jar with the same content was launched before, the
+   * cached jar is reused by all applications that share the directory. When not set, the jars are copied to the
+   * application directory on every launch.
+   */
+  public static Attribute<String> LIBRARY_JARS_CACHE_PATH = new Attribute<String>((String)null, new StringCodec.String2String());
+  /**
+   * Visibility of the jars in the {@link #LIBRARY_JARS_CACHE_PATH} when localized by the node managers. With PUBLIC
+   * or PRIVATE visibility, a node manager localizes a jar once for all applications (of the user), instead of once per
+   * application. PUBLIC visibility requires that the cache directory and all its parents are executable by everyone,
+   * otherwise the jars are localized with PRIVATE visibility.
+   */
+  public static Attribute<LocalResourceVisibility> LIBRARY_JARS_CACHE_VISIBILITY = new Attribute<>(LocalResourceVisibility.APPLICATION);
   /**
    * The maximum number of containers (excluding the application master) that the application is allowed to request.
    * If the DAG plan requires less containers, remaining count won't be allocated from the resource manager.
@@ -182,11 +199,55 @@ public class LogicalPlan implements Serializable, DAG
    */
   public static Attribute<Integer> CONTAINERS_MAX_COUNT = new Attribute<Integer>(Integer.MAX_VALUE);
 
+  /**
+   * Number of idle containers that the application master keeps launched ahead of demand. When a container fails,
+   * its operators are assigned to a standby container right away instead of waiting for the resource manager to
+   * allocate and the node manager to start a new one. Standby containers are sized like the largest container of the
+   * physical plan and the pool is refilled in the background. The default of 0 disables the pool.
+   */
+  public static Attribute<Integer> STANDBY_CONTAINERS = new Attribute<>(0);
+
   /**
    * The application attempt ID from YARN
    */
   public static Attribute<Integer> APPLICATION_ATTEMPT_ID = new Attribute<>(1);
 
+  /**
+   * Serialization format of the application master recovery snapshot. The format of an existing snapshot is
+   * detected on restore, this setting only affects the snapshots written by the application master.
+   */
+  public static Attribute<SnapshotFormat> RECOVERY_SNAPSHOT_FORMAT = new Attribute<>(SnapshotFormat.JAVA);
+
+  /**
+   * Size in bytes of the recovery log after which the application master writes a new snapshot, so that the
+   * log that needs to be replayed on restart does not grow without bound.
+   */
+  public static Attribute<Long> RECOVERY_LOG_COMPACTION_BYTES = new Attribute<>(64L * 1024 * 1024);
+
+  /**
+   * Encoding of the heartbeats sent by the containers to the application master. The application master accepts
+   * both encodings, the legacy Java serialization can be selected for troubleshooting.
+   */
+  public static Attribute<ContainerHeartbeat.Encoding> HEARTBEAT_ENCODING = new Attribute<>(ContainerHeartbeat.Encoding.BINARY);
+
+  /**
+   * Minimum interval in milliseconds between two computations of the critical path by the application master. The
+   * critical path is recomputed from the latest latency averages, not for every window.
+   */
+  public static Attribute<Long> CRITICAL_PATH_INTERVAL_MILLIS = new Attribute<>(1000L);
+
+  /**
+   * Interval in milliseconds at which operator and container stats are published to subscribers through the
+   * gateway pub/sub.
+   */
+  public static Attribute<Long> STATS_PUSH_INTERVAL_MILLIS = new Attribute<>(500L);
+
+  /**
+   * Maximum number of recorded data tuples waiting to be written by the tuple recorder. Tuples recorded while the
+   * queue is full are dropped, so that recording does not slow down the operator.
+   */
+  public static Attribute<Integer> TUPLE_RECORDING_QUEUE_CAPACITY = new Attribute<>(10000);
+
   static {
     Attribute.AttributeMap.AttributeInitializer.initialize(LogicalPlan.class);
   }
@@ -31,6 +31,7 @@ import java.lang.reflect.Type;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.regex.Pattern;
 
 
 import javax.validation.ValidationException;
@@ -927,8 +928,12 @@ public class LogicalPlanConfiguration {
 
     protected String id;
 
+    // the id compiled as regular expression, ids are matched against the names of all elements while the plan is built
+    private Pattern idPattern;
+
     public void setId(String id) {
       this.id = id;
+      this.idPattern = null;
     }
 
     public String getId() {
@@ -1024,15 +1029,11 @@ public class LogicalPlanConfiguration {
             match = true;
           }
         } else {
-          // Also treat WILDCARD as match any character string when running regular express match
-          if (key.equals(WILDCARD)) {
-            key = WILDCARD_PATTERN;
-          }
-          if (name.matches(key)) {
-            match = true;
-          }
           if (name.equals(key)) {
+            match = true;
             exact = true;
+          } else if (key != null && entry.getValue().matchesId(name)) {
+            match = true;
           }
         }
         // There will be a better match preference order
@@ -1047,6 +1048,22 @@ public class LogicalPlanConfiguration {
       return childConfs;
     }
 
+    /**
+     * Matches the name of an element against the id of this {@link Conf} as regular expression. The expression is
+     * compiled on first use. {@link LogicalPlanConfiguration#WILDCARD} matches any name.
+     * @param name The name of the element.
+     * @return Whether the id matches the name.
+     */
+    protected boolean matchesId(String name) {
+      Pattern pattern = idPattern;
+      if (pattern == null) {
+        // Also treat WILDCARD as match any character string when running regular express match
+        pattern = Pattern.compile(WILDCARD.equals(id) ? WILDCARD_PATTERN : id);
+        idPattern = pattern;
+      }
+      return pattern.matcher(name).matches();
+    }
+
     /**
      * Returns the {@link Conf} corresponding to the given id from the given map. If a {@link Conf} with the
      * given id is not present in the given map, then a new {@link Conf} of the given class is created and added
@@ -1239,19 +1256,19 @@ public class LogicalPlanConfiguration {
     public void setProperty(String name, String value)
     {
       if (name.equals(TEMPLATE_appNameRegExp)) {
-        appNameRegExp = value;
+        appNameRegExp = Pattern.compile(value);
       } else if (name.equals(TEMPLATE_idRegExp)) {
-        idRegExp = value;
+        idRegExp = Pattern.compile(value);
       } else if (name.equals(TEMPLATE_classNameRegExp)) {
-        classNameRegExp = value;
+        classNameRegExp = Pattern.compile(value);
       } else {
         super.setProperty(name, value);
       }
     }
 
-    private String idRegExp;
-    private String appNameRegExp;
-    private String classNameRegExp;
+    private Pattern idRegExp;
+    private Pattern appNameRegExp;
+    private Pattern classNameRegExp;
 
   }
 
@@ -1965,7 +1982,8 @@ public class LogicalPlanConfiguration {
     return this.properties;
   }
 
-  public Map<String, String> getAppAliases() {
+  public Map<String, String> getAppAliases()
+  {
     return Collections.unmodifiableMap(this.stramConf.appAliases);
   }
 
@@ -2244,13 +2262,13 @@ public class LogicalPlanConfiguration {
   {
     TreeMap<Integer, TemplateConf> tm = Maps.newTreeMap();
     for (TemplateConf t : templates.values()) {
-      if ((t.idRegExp != null && pa.name.matches(t.idRegExp))) {
+      if ((t.idRegExp != null && t.idRegExp.matcher(pa.name).matches())) {
         tm.put(1, t);
       } else if (appName != null && t.appNameRegExp != null
-          && appName.matches(t.appNameRegExp)) {
+          && t.appNameRegExp.matcher(appName).matches()) {
         tm.put(2, t);
       } else if (t.classNameRegExp != null
-          && pa.className.matches(t.classNameRegExp)) {
+          && t.classNameRegExp.matcher(pa.className).matches()) {
         tm.put(3, t);
       }
     }
@@ -23,6 +23,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 
 import com.datatorrent.api.Stats;
 import com.datatorrent.api.Stats.OperatorStats;
@@ -54,6 +60,10 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
     public final TimedMovingAverageLong tuplesPMSMA;
     public final TimedMovingAverageLong bufferServerBytesPMSMA;
     public final MovingAverageLong queueSizeMA;
+    /**
+     * End window timestamp of the last reported window, -1 before the first report.
+     */
+    public long lastEndWindowTimestamp = -1;
 
     public PortStatus()
     {
@@ -84,6 +94,15 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
   public final int windowProcessingTimeoutMillis;
   public final ConcurrentLinkedQueue<StatsListener.OperatorResponse> responses = new ConcurrentLinkedQueue<>();
   public List<StatsListener.OperatorResponse> operatorResponses;
+  /**
+   * Maximum end window timestamp of the last heartbeat with stats, -1 before the first one.
+   */
+  public long lastMaxEndWindowTimestamp = -1;
+  /**
+   * Tuples counted since the logical operator totals were last updated by the planning thread.
+   */
+  public final AtomicLong pendingLogicalTuplesProcessed = new AtomicLong();
+  public final AtomicLong pendingLogicalTuplesEmitted = new AtomicLong();
 
   private final LogicalPlan.OperatorMeta operatorMeta;
   private final int throughputCalculationInterval;
@@ -185,4 +204,26 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
   {
     return new SerializationProxy(this);
   }
+
+  /**
+   * Kryo equivalent of {@link SerializationProxy}: only the identity of the operator is retained, stats start over
+   * after restore.
+   */
+  public static class KryoSerializer extends Serializer<OperatorStatus>
+  {
+    @Override
+    public void write(Kryo kryo, Output output, OperatorStatus s)
+    {
+      output.writeInt(s.operatorId);
+      kryo.writeObject(output, s.operatorMeta);
+    }
+
+    @Override
+    public OperatorStatus read(Kryo kryo, Input input, Class<OperatorStatus> type)
+    {
+      int operatorId = input.readInt();
+      LogicalPlan.OperatorMeta operatorMeta = kryo.readObject(input, LogicalPlan.OperatorMeta.class);
+      return new OperatorStatus(operatorId, operatorMeta);
+    }
+  }
 }
@@ -37,7 +37,19 @@ public abstract class AbstractWritableAdapter implements Writable, Serializable
   @Override
   public void readFields(DataInput arg0) throws IOException
   {
-    int len = arg0.readInt();
+    readFields(arg0, arg0.readInt());
+  }
+
+  /**
+   * Reads the Java serialized fields after the length prefix was consumed by a subclass that supports
+   * alternative encodings.
+   *
+   * @param arg0 input
+   * @param len length of the serialized fields
+   * @throws IOException
+   */
+  protected void readFields(DataInput arg0, int len) throws IOException
+  {
     byte[] bytes = new byte[len];
     arg0.readFully(bytes);
     try {
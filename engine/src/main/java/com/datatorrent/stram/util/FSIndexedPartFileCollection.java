@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Part file collection that maintains a sparse index of every part file, so that readers can seek to an item
+ * instead of reading the part file from the beginning.
+ * <p>
+ * Every {@link #getItemsPerIndexEntry()} items, the ordinal of the item within the part file, its byte offset and a
+ * key are recorded. Keys are supplied by the writer, for example the timestamp of an event. The recorded key is the
+ * maximum key of the items up to and including the indexed item, so that all items before an entry have a key that
+ * is not greater than the key of the entry. The index is written as extra info of the index line, along with the
+ * range of the keys in the part file: {@code <min key>-<max key>:<ordinal>@<offset>@<key>,<ordinal>@<offset>@<key>,...}
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class FSIndexedPartFileCollection extends FSPartFileCollection
+{
+  public static final int DEFAULT_ITEMS_PER_INDEX_ENTRY = 256;
+  private int itemsPerIndexEntry = DEFAULT_ITEMS_PER_INDEX_ENTRY;
+  // state of the current part file
+  private final StringBuilder offsetIndex = new StringBuilder();
+  private long itemCount;
+  private long byteCount;
+  private long minKey = Long.MAX_VALUE;
+  private long maxKey = Long.MIN_VALUE;
+
+  public int getItemsPerIndexEntry()
+  {
+    return itemsPerIndexEntry;
+  }
+
+  public void setItemsPerIndexEntry(int itemsPerIndexEntry)
+  {
+    this.itemsPerIndexEntry = itemsPerIndexEntry;
+  }
+
+  /**
+   * Writes an item and records it in the sparse index when due.
+   *
+   * @param bytes item
+   * @param key key of the item
+   * @throws IOException
+   */
+  public void writeDataItem(byte[] bytes, long key) throws IOException
+  {
+    updateKeyRange(key);
+    if (itemCount % itemsPerIndexEntry == 0) {
+      addIndexEntry(itemCount);
+    }
+    writeDataItem(bytes, true);
+    itemCount++;
+  }
+
+  @Override
+  public void writeDataItem(byte[] bytes, boolean incrementItemCount) throws IOException
+  {
+    super.writeDataItem(bytes, incrementItemCount);
+    byteCount += bytes.length;
+  }
+
+  /**
+   * Includes the key of the item that is written next in the key range of the part file.
+   *
+   * @param key key of the item
+   */
+  protected void updateKeyRange(long key)
+  {
+    minKey = Math.min(minKey, key);
+    maxKey = Math.max(maxKey, key);
+  }
+
+  /**
+   * Adds an index entry for the item that is written next. Subclasses that write items of different kinds can
+   * choose the items to index and how to count them.
+   *
+   * @param ordinal ordinal of the item
+   */
+  protected void addIndexEntry(long ordinal)
+  {
+    if (offsetIndex.length() > 0) {
+      offsetIndex.append(',');
+    }
+    offsetIndex.append(ordinal).append('@').append(byteCount).append('@').append(maxKey);
+  }
+
+  /**
+   * Returns the sparse index of the current part file, or null when no item was written.
+   */
+  protected String getOffsetIndex()
+  {
+    return offsetIndex.length() == 0 ? null : minKey + "-" + maxKey + ":" + offsetIndex;
+  }
+
+  @Override
+  protected String getIndexExtraInfo()
+  {
+    return getOffsetIndex();
+  }
+
+  @Override
+  protected void resetIndexExtraInfo()
+  {
+    offsetIndex.setLength(0);
+    itemCount = 0;
+    byteCount = 0;
+    minKey = Long.MAX_VALUE;
+    maxKey = Long.MIN_VALUE;
+  }
+
+  /**
+   * Entry of the sparse index of a part file.
+   */
+  public static class IndexEntry
+  {
+    public final long ordinal;
+    public final long offset;
+    public final long key;
+
+    public IndexEntry(long ordinal, long offset, long key)
+    {
+      this.ordinal = ordinal;
+      this.offset = offset;
+      this.key = key;
+    }
+  }
+
+  /**
+   * Sparse index of a part file.
+   */
+  public static class OffsetIndex
+  {
+    public long minKey;
+    public long maxKey;
+    public final List<IndexEntry> entries = new ArrayList<IndexEntry>();
+
+    /**
+     * Parses the sparse index written as extra info of an index line.
+     *
+     * @param str sparse index
+     * @return index
+     */
+    public static OffsetIndex parse(String str)
+    {
+      OffsetIndex index = new OffsetIndex();
+      int cursor = str.indexOf(':');
+      String[] keyRange = str.substring(0, cursor).split("-", 2);
+      index.minKey = Long.parseLong(keyRange[0]);
+      index.maxKey = Long.parseLong(keyRange[1]);
+      for (String entry : str.substring(cursor + 1).split(",")) {
+        String[] values = entry.split("@");
+        index.entries.add(new IndexEntry(Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2])));
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Returns the entry to start reading from to find the first item at or after the given ordinal.
+   */
+  public static IndexEntry seekOrdinal(List<IndexEntry> entries, long ordinal)
+  {
+    IndexEntry result = null;
+    for (IndexEntry entry : entries) {
+      if (entry.ordinal > ordinal) {
+        break;
+      }
+      result = entry;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the entry to start reading from to find the first item with a key at or after the given key.
+   */
+  public static IndexEntry seekKey(List<IndexEntry> entries, long key)
+  {
+    IndexEntry result = null;
+    for (IndexEntry entry : entries) {
+      if (entry.key >= key) {
+        break;
+      }
+      result = entry;
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,265 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.codehaus.jettison.json.JSONObject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.common.codec.JsonStreamCodec;
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * Part file collection that stores stats records in a compact binary format.
+ * <p>
+ * A part file is a sequence of entries. A field name entry assigns a number to a stats field name on its first use
+ * in the part file. A record entry holds the id of the operator or container, the timestamp as delta to the
+ * previous record, the length of the field values and the values. Numbers are variable length encoded, values of
+ * types other than numbers, strings and booleans are stored as JSON. Readers can therefore skip the values of
+ * records outside the requested time range or ids.
+ * </p>
+ * <p>
+ * The index line of each part file carries the minimum and maximum record timestamp and the ids recorded in the
+ * file as extra info: {@code <min>-<max>:<id>,<id>,...}, so that readers only open the part files that contain
+ * the requested range.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class FSStatsPartFileCollection extends FSPartFileCollection
+{
+  public static final String VERSION = "2.0";
+  private static final byte ENTRY_FIELD_NAME = 0;
+  private static final byte ENTRY_RECORD = 1;
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_LONG = 1;
+  private static final byte TYPE_DOUBLE = 2;
+  private static final byte TYPE_STRING = 3;
+  private static final byte TYPE_BOOLEAN = 4;
+  private static final byte TYPE_JSON = 5;
+
+  private final StreamCodec<Object> jsonCodec = new JsonStreamCodec<Object>();
+  private final Output output = new Output(4096, -1);
+  private final Output values = new Output(4096, -1);
+  // state of the current part file
+  private final Map<String, Integer> fieldNames = new HashMap<String, Integer>();
+  private final Set<Integer> ids = new TreeSet<Integer>();
+  private long lastTimestamp;
+  private long minTimestamp = Long.MAX_VALUE;
+  private long maxTimestamp = Long.MIN_VALUE;
+
+  /**
+   * Writes a stats record. Records must be written in the order of their timestamps.
+   *
+   * @param id operator id or container index
+   * @param timestamp stats timestamp
+   * @param stats stats fields
+   * @throws IOException
+   */
+  public void writeRecord(int id, long timestamp, Map<String, Object> stats) throws IOException
+  {
+    output.clear();
+    values.clear();
+    values.writeVarInt(stats.size(), true);
+    for (Map.Entry<String, Object> entry : stats.entrySet()) {
+      Integer fieldIndex = fieldNames.get(entry.getKey());
+      if (fieldIndex == null) {
+        fieldIndex = fieldNames.size();
+        fieldNames.put(entry.getKey(), fieldIndex);
+        output.writeByte(ENTRY_FIELD_NAME);
+        output.writeVarInt(fieldIndex, true);
+        output.writeString(entry.getKey());
+      }
+      values.writeVarInt(fieldIndex, true);
+      writeValue(entry.getValue());
+    }
+    output.writeByte(ENTRY_RECORD);
+    output.writeVarInt(id, true);
+    output.writeVarLong(timestamp - lastTimestamp, false);
+    output.writeVarInt(values.position(), true);
+    output.writeBytes(values.getBuffer(), 0, values.position());
+    lastTimestamp = timestamp;
+    minTimestamp = Math.min(minTimestamp, timestamp);
+    maxTimestamp = Math.max(maxTimestamp, timestamp);
+    ids.add(id);
+    writeDataItem(output.toBytes(), true);
+  }
+
+  private void writeValue(Object value)
+  {
+    if (value == null) {
+      values.writeByte(TYPE_NULL);
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      values.writeByte(TYPE_LONG);
+      values.writeVarLong(((Number)value).longValue(), false);
+    } else if (value instanceof Double || value instanceof Float) {
+      values.writeByte(TYPE_DOUBLE);
+      values.writeDouble(((Number)value).doubleValue());
+    } else if (value instanceof String) {
+      values.writeByte(TYPE_STRING);
+      values.writeString((String)value);
+    } else if (value instanceof Boolean) {
+      values.writeByte(TYPE_BOOLEAN);
+      values.writeBoolean((Boolean)value);
+    } else {
+      Slice slice = jsonCodec.toByteArray(value);
+      values.writeByte(TYPE_JSON);
+      values.writeVarInt(slice.length, true);
+      values.writeBytes(slice.buffer, slice.offset, slice.length);
+    }
+  }
+
+  @Override
+  protected String getIndexExtraInfo()
+  {
+    if (ids.isEmpty()) {
+      return null;
+    }
+    return minTimestamp + "-" + maxTimestamp + ":" + StringUtils.join(ids, ',');
+  }
+
+  @Override
+  protected void resetIndexExtraInfo()
+  {
+    // the next part file starts with an empty field name table
+    fieldNames.clear();
+    ids.clear();
+    lastTimestamp = 0;
+    minTimestamp = Long.MAX_VALUE;
+    maxTimestamp = Long.MIN_VALUE;
+  }
+
+  /**
+   * Stats record read from a part file, with the stats fields as JSON object.
+   */
+  public static class StatsRecord
+  {
+    public int id;
+    public long timestamp;
+    public String stats;
+  }
+
+  /**
+   * Reads the records of a part file that fall into the time range and belong to one of the ids.
+   *
+   * @param is part file stream
+   * @param startTime minimum timestamp, or null
+   * @param endTime maximum timestamp, or null
+   * @param ids ids to read, or null for all
+   * @return records
+   * @throws IOException
+   */
+  public static List<StatsRecord> readRecords(InputStream is, Long startTime, Long endTime, Set<Integer> ids) throws IOException
+  {
+    List<StatsRecord> result = new ArrayList<StatsRecord>();
+    List<String> fieldNames = new ArrayList<String>();
+    Input input = new Input(is, 64 * 1024);
+    long timestamp = 0;
+    try {
+      while (!input.eof()) {
+        byte entryType = input.readByte();
+        if (entryType == ENTRY_FIELD_NAME) {
+          int index = input.readVarInt(true);
+          String name = input.readString();
+          while (fieldNames.size() <= index) {
+            fieldNames.add(null);
+          }
+          fieldNames.set(index, name);
+        } else if (entryType == ENTRY_RECORD) {
+          int id = input.readVarInt(true);
+          timestamp += input.readVarLong(false);
+          int length = input.readVarInt(true);
+          if (endTime != null && timestamp > endTime) {
+            // records are in timestamp order
+            break;
+          }
+          if ((startTime != null && timestamp < startTime) || (ids != null && !ids.contains(id))) {
+            input.skip(length);
+            continue;
+          }
+          StatsRecord record = new StatsRecord();
+          record.id = id;
+          record.timestamp = timestamp;
+          record.stats = readStats(input, fieldNames);
+          result.add(record);
+        } else {
+          throw new IOException("Unknown entry type " + entryType);
+        }
+      }
+    } catch (KryoException ex) {
+      // the part file that is currently written may end with an incomplete entry
+      if (!(ex.getCause() == null && String.valueOf(ex.getMessage()).startsWith("Buffer underflow"))) {
+        throw new IOException(ex);
+      }
+    }
+    return result;
+  }
+
+  private static String readStats(Input input, List<String> fieldNames) throws IOException
+  {
+    StringBuilder sb = new StringBuilder("{");
+    int count = input.readVarInt(true);
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(JSONObject.quote(fieldNames.get(input.readVarInt(true)))).append(':');
+      byte type = input.readByte();
+      switch (type) {
+        case TYPE_NULL:
+          sb.append("null");
+          break;
+        case TYPE_LONG:
+          sb.append(input.readVarLong(false));
+          break;
+        case TYPE_DOUBLE:
+          double value = input.readDouble();
+          sb.append(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+          break;
+        case TYPE_STRING:
+          sb.append(JSONObject.quote(input.readString()));
+          break;
+        case TYPE_BOOLEAN:
+          sb.append(input.readBoolean());
+          break;
+        case TYPE_JSON:
+          sb.append(new String(input.readBytes(input.readVarInt(true)), "UTF-8"));
+          break;
+        default:
+          throw new IOException("Unknown value type " + type);
+      }
+    }
+    return sb.append('}').toString();
+  }
+
+}
@@ -99,6 +99,30 @@ public class SharedPubSubWebSocketClient extends PubSubWebSocketClient
     }
   }
 
+  public synchronized void removeHandler(String topic, boolean numSubscribers, Handler handler)
+  {
+    String originalTopic = topic;
+    if (numSubscribers) {
+      topic += ".numSubscribers";
+    }
+    List<Handler> handlers = topicHandlers.get(topic);
+    if (handlers == null || !handlers.remove(handler) || !handlers.isEmpty()) {
+      return;
+    }
+    topicHandlers.remove(topic);
+    try {
+      if (isConnectionOpen()) {
+        if (numSubscribers) {
+          unsubscribeNumSubscribers(originalTopic);
+        } else {
+          unsubscribe(topic);
+        }
+      }
+    } catch (IOException ex) {
+      LOG.warn("Cannot unsubscribe from {}", topic);
+    }
+  }
+
   @Override
   public void publish(String topic, Object data) throws IOException
   {
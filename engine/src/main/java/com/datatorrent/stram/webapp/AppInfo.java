@@ -105,6 +105,13 @@ public class AppInfo {
       return 0;
     }
 
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getStatsProcessingLagMillis()
+    {
+      return 0;
+    }
+
     @javax.xml.bind.annotation.XmlElement
     public long getWindowStartMillis()
     {
@@ -0,0 +1,385 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.webapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.stram.client.UserCacheDirectory;
+import com.datatorrent.stram.webapp.asm.FastClassIndexReader;
+
+/**
+ * Index of the classes and resources of a jar file, as needed to build the {@link TypeGraph}.
+ * <p>
+ * Building the type graph requires the name, super class, interfaces and instantiability of every class in the
+ * jars to scan. Parsing every class of every jar dominates the time to build the graph, while the jars rarely
+ * change between calls. The index of a jar is therefore stored in a cache directory, keyed by the name, length and
+ * modification time of the jar, so that only new or changed jars are parsed again. As the key does not depend on the
+ * directory, the index is shared by copies of the jar, such as the jars of an app package extracted to a new
+ * temporary directory on every call. Indexes that were not used for 30 days or exceed the size of the cache are
+ * evicted, least recently used first.
+ * Indexes of distinct jars are built in parallel by {@link #getIndexes(List)}, the classes of a large jar are
+ * parsed in parallel as well.
+ * </p>
+ * <p>
+ * The cache directory defaults to {@code typegraph-cache} in the user DT directory and can be set with the system
+ * property {@value #CACHE_DIR_PROPERTY}. An empty value disables the cache. The cache is state on the local disk
+ * that outlives the process: at most 256MB of indexes, one file per jar, which can be deleted at any time. The
+ * application master disables the cache unless the property is set in its JVM options.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class JarClassIndex
+{
+  public static final String CACHE_DIR_PROPERTY = "dt.typeGraph.cacheDir";
+  private static final Logger LOG = LoggerFactory.getLogger(JarClassIndex.class);
+  private static final int FORMAT_VERSION = 2;
+  private static final long CACHE_MAX_BYTES = 256L * 1024 * 1024;
+  private static final long CACHE_MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+  public final String path;
+  public final long length;
+  public final long lastModified;
+  public final List<ClassEntry> classes = new ArrayList<>();
+  // non-class entries, excluding directories
+  public final List<String> resources = new ArrayList<>();
+  // entries with javadoc generated by the xml doclet
+  public final List<String> javadocs = new ArrayList<>();
+
+  private JarClassIndex(String path, long length, long lastModified)
+  {
+    this.path = path;
+    this.length = length;
+    this.lastModified = lastModified;
+  }
+
+  /**
+   * Type information of a class, names are in internal form with '/' as separator.
+   */
+  public static class ClassEntry
+  {
+    public final String name;
+    public final String superName;
+    public final String[] interfaces;
+    public final boolean instantiable;
+
+    public ClassEntry(String name, String superName, String[] interfaces, boolean instantiable)
+    {
+      this.name = name;
+      this.superName = superName;
+      this.interfaces = interfaces;
+      this.instantiable = instantiable;
+    }
+
+    public static ClassEntry read(InputStream is) throws IOException
+    {
+      FastClassIndexReader reader = new FastClassIndexReader(is);
+      return new ClassEntry(reader.getName(), reader.getSuperName(), reader.getInterfaces(), reader.isInstantiable());
+    }
+  }
+
+  /**
+   * Returns the index of the jar, from the cache if the jar did not change since it was cached.
+   *
+   * @param jarFile jar
+   * @return index
+   * @throws IOException
+   */
+  public static JarClassIndex getIndex(File jarFile) throws IOException
+  {
+    UserCacheDirectory cacheDir = UserCacheDirectory.get(CACHE_DIR_PROPERTY, "typegraph-cache", ".idx");
+    String name = jarFile.getName();
+    long length = jarFile.length();
+    long lastModified = jarFile.lastModified();
+    File cacheFile = cacheDir == null ? null : cacheDir.getFile(DigestUtils.md5Hex(name + ":" + length + ":" + lastModified));
+    if (cacheFile != null && cacheFile.exists()) {
+      try {
+        JarClassIndex index = read(cacheFile, jarFile);
+        if (index != null) {
+          UserCacheDirectory.touch(cacheFile);
+          return index;
+        }
+      } catch (IOException | KryoException ex) {
+        LOG.warn("Ignoring corrupt index {} of {}", cacheFile, jarFile, ex);
+      }
+    }
+    JarClassIndex index = build(jarFile);
+    if (cacheFile != null) {
+      try {
+        index.write(cacheFile);
+        cacheDir.evict(CACHE_MAX_BYTES, CACHE_MAX_AGE_MILLIS);
+      } catch (IOException ex) {
+        LOG.warn("Cannot write index {} of {}", cacheFile, jarFile, ex);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Returns the indexes of the jars in the order of the given list, building the indexes of distinct jars in
+   * parallel. Jars that cannot be read are skipped with a warning.
+   *
+   * @param jarFiles jars
+   * @return indexes
+   */
+  public static List<JarClassIndex> getIndexes(List<File> jarFiles)
+  {
+    return getIndexes(jarFiles, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Returns the indexes of the jars in the order of the given list. The jars and the classes of large jars are
+   * parsed by a fork-join pool with the given parallelism.
+   *
+   * @param jarFiles jars
+   * @param parallelism number of threads
+   * @return indexes
+   */
+  public static List<JarClassIndex> getIndexes(final List<File> jarFiles, int parallelism)
+  {
+    final List<JarClassIndex> result = new ArrayList<>(jarFiles.size());
+    if (jarFiles.isEmpty()) {
+      return result;
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new RecursiveAction()
+      {
+        @Override
+        protected void compute()
+        {
+          List<IndexTask> tasks = new ArrayList<>(jarFiles.size());
+          for (File jarFile : jarFiles) {
+            tasks.add(new IndexTask(jarFile));
+          }
+          invokeAll(tasks);
+          for (IndexTask task : tasks) {
+            if (task.index != null) {
+              result.add(task.index);
+            }
+          }
+        }
+      });
+    } finally {
+      pool.shutdownNow();
+    }
+    return result;
+  }
+
+  private static class IndexTask extends RecursiveAction
+  {
+    private final File jarFile;
+    private JarClassIndex index;
+
+    private IndexTask(File jarFile)
+    {
+      this.jarFile = jarFile;
+    }
+
+    @Override
+    protected void compute()
+    {
+      try {
+        index = getIndex(jarFile);
+      } catch (IOException | RuntimeException ex) {
+        LOG.warn("Cannot index {}", jarFile, ex);
+      }
+    }
+  }
+
+  /**
+   * Parses a range of the class entries of a jar. Within a fork-join pool, ranges larger than
+   * {@link #MIN_ENTRIES_PER_TASK} are split and parsed in parallel, outside of a pool they are parsed in the calling
+   * thread. Reads from the jar file are synchronized by the jar file, inflating and parsing are not.
+   */
+  private static class ParseTask extends RecursiveTask<List<ClassEntry>>
+  {
+    private static final int MIN_ENTRIES_PER_TASK = 512;
+    private final JarFile jar;
+    private final List<JarEntry> entries;
+
+    private ParseTask(JarFile jar, List<JarEntry> entries)
+    {
+      this.jar = jar;
+      this.entries = entries;
+    }
+
+    @Override
+    protected List<ClassEntry> compute()
+    {
+      if (entries.size() > MIN_ENTRIES_PER_TASK && inForkJoinPool()) {
+        int middle = entries.size() / 2;
+        ParseTask head = new ParseTask(jar, entries.subList(0, middle));
+        ParseTask tail = new ParseTask(jar, entries.subList(middle, entries.size()));
+        tail.fork();
+        List<ClassEntry> result = head.compute();
+        result.addAll(tail.join());
+        return result;
+      }
+      List<ClassEntry> result = new ArrayList<>(entries.size());
+      for (JarEntry jarEntry : entries) {
+        try {
+          InputStream is = jar.getInputStream(jarEntry);
+          try {
+            result.add(ClassEntry.read(is));
+          } finally {
+            is.close();
+          }
+        } catch (IOException | RuntimeException ex) {
+          // unsupported class file version or malformed class
+          LOG.debug("Cannot parse class {} in {}", jarEntry.getName(), jar.getName(), ex);
+        }
+      }
+      return result;
+    }
+  }
+
+  private static JarClassIndex build(File jarFile) throws IOException
+  {
+    LOG.debug("Indexing {}", jarFile);
+    JarClassIndex index = new JarClassIndex(jarFile.getAbsolutePath(), jarFile.length(), jarFile.lastModified());
+    JarFile jar = new JarFile(jarFile);
+    try {
+      List<JarEntry> classEntries = new ArrayList<>();
+      Enumeration<JarEntry> entriesEnum = jar.entries();
+      while (entriesEnum.hasMoreElements()) {
+        JarEntry jarEntry = entriesEnum.nextElement();
+        String entryName = jarEntry.getName();
+        if (jarEntry.isDirectory()) {
+          continue;
+        }
+        if (entryName.endsWith(".class")) {
+          classEntries.add(jarEntry);
+        } else {
+          if (entryName.endsWith("-javadoc.xml")) {
+            index.javadocs.add(entryName);
+          }
+          index.resources.add(entryName);
+        }
+      }
+      index.classes.addAll(new ParseTask(jar, classEntries).compute());
+    } finally {
+      jar.close();
+    }
+    return index;
+  }
+
+  /**
+   * Reads the index of the jar from the cache file, returns null if the file holds the index of another jar.
+   */
+  private static JarClassIndex read(File file, File jarFile) throws IOException
+  {
+    Input input = new Input(new FileInputStream(file), 64 * 1024);
+    try {
+      if (input.readVarInt(true) != FORMAT_VERSION || !jarFile.getName().equals(input.readString())) {
+        return null;
+      }
+      JarClassIndex index = new JarClassIndex(jarFile.getAbsolutePath(), input.readLong(), input.readLong());
+      if (index.length != jarFile.length() || index.lastModified != jarFile.lastModified()) {
+        return null;
+      }
+      for (int i = input.readVarInt(true); i > 0; i--) {
+        String name = input.readString();
+        String superName = input.readString();
+        String[] interfaces = new String[input.readVarInt(true)];
+        for (int j = 0; j < interfaces.length; j++) {
+          interfaces[j] = input.readString();
+        }
+        index.classes.add(new ClassEntry(name, superName, interfaces, input.readBoolean()));
+      }
+      readStrings(input, index.resources);
+      readStrings(input, index.javadocs);
+      return index;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private static void readStrings(Input input, List<String> strings)
+  {
+    for (int i = input.readVarInt(true); i > 0; i--) {
+      strings.add(input.readString());
+    }
+  }
+
+  private void write(File file) throws IOException
+  {
+    // write to a temporary file first, concurrent readers see either the old or the new index
+    File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    Output output = new Output(new FileOutputStream(tmpFile), 64 * 1024);
+    try {
+      output.writeVarInt(FORMAT_VERSION, true);
+      output.writeString(new File(path).getName());
+      output.writeLong(length);
+      output.writeLong(lastModified);
+      output.writeVarInt(classes.size(), true);
+      for (ClassEntry entry : classes) {
+        output.writeString(entry.name);
+        output.writeString(entry.superName);
+        output.writeVarInt(entry.interfaces.length, true);
+        for (String iface : entry.interfaces) {
+          output.writeString(iface);
+        }
+        output.writeBoolean(entry.instantiable);
+      }
+      writeStrings(output, resources);
+      writeStrings(output, javadocs);
+    } finally {
+      output.close();
+    }
+    if (!tmpFile.renameTo(file)) {
+      file.delete();
+      if (!tmpFile.renameTo(file)) {
+        tmpFile.delete();
+        throw new IOException("Cannot rename " + tmpFile + " to " + file);
+      }
+    }
+  }
+
+  private static void writeStrings(Output output, List<String> strings)
+  {
+    output.writeVarInt(strings.size(), true);
+    for (String s : strings) {
+      output.writeString(s);
+    }
+  }
+
+}
@@ -19,7 +19,6 @@
 package com.datatorrent.stram.webapp;
 
 import com.datatorrent.api.Operator;
-import com.datatorrent.netlet.util.DTThrowable;
 import com.datatorrent.stram.util.ObjectMapperFactory;
 import com.datatorrent.stram.webapp.TypeDiscoverer.UI_TYPE;
 import com.datatorrent.stram.webapp.TypeGraph.TypeGraphVertex;
@@ -39,8 +38,6 @@ import java.io.InputStream;
 import java.lang.reflect.*;
 import java.net.*;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -304,85 +301,74 @@ public class OperatorDiscoverer
 
   public void buildTypeGraph()
   {
-    Map<String, JarFile> openJarFiles = new HashMap<String, JarFile>();
-    Map<String, File> openClassFiles = new HashMap<String, File>();
-    // use global cache to load resource in/out of the same jar as the classes
-    Set<String> resourceCacheSet = new HashSet<>();
-    try {
-      for (String path : pathsToScan) {
-        File f = null;
+    List<File> jarFiles = new ArrayList<>();
+    for (String path : pathsToScan) {
+      File f = new File(path);
+      if (f.exists() && !f.isDirectory() && f.getName().endsWith("jar") && !GENERATED_CLASSES_JAR.equals(f.getName())) {
+        jarFiles.add(f);
+      }
+    }
+    // index the jars in parallel, unchanged jars are loaded from the index cache
+    Map<String, JarClassIndex> jarIndexes = new HashMap<>();
+    for (JarClassIndex index : JarClassIndex.getIndexes(jarFiles)) {
+      jarIndexes.put(index.path, index);
+    }
+
+    List<String> resources = new ArrayList<>();
+    for (String path : pathsToScan) {
+      File f = new File(path);
+      if (!f.exists() || f.isDirectory()) {
+        continue;
+      }
+      if (f.getName().endsWith("class")) {
         try {
-          f = new File(path);
-          if (!f.exists() || f.isDirectory() || (!f.getName().endsWith("jar") && !f.getName().endsWith("class"))) {
-            continue;
-          }
-          if (GENERATED_CLASSES_JAR.equals(f.getName())) {
-            continue;
-          }
-          if (f.getName().endsWith("class")) {
-            typeGraph.addNode(f);
-            openClassFiles.put(path, f);
-          } else {
-            JarFile jar = new JarFile(path);
-            openJarFiles.put(path, jar);
-            java.util.Enumeration<JarEntry> entriesEnum = jar.entries();
-            while (entriesEnum.hasMoreElements()) {
-              final java.util.jar.JarEntry jarEntry = entriesEnum.nextElement();
-              String entryName = jarEntry.getName();
-              if (jarEntry.isDirectory()) {
-                continue;
-              }
-              if (entryName.endsWith("-javadoc.xml")) {
-                try {
-                  processJavadocXml(jar.getInputStream(jarEntry));
-                  // break;
-                } catch (Exception ex) {
-                  LOG.warn("Cannot process javadoc {} : ", entryName, ex);
-                }
-              } else if (entryName.endsWith(".class")) {
-                TypeGraph.TypeGraphVertex newNode = typeGraph.addNode(jarEntry, jar);
-                // check if any visited resources belong to this type
-                for (Iterator<String> iter = resourceCacheSet.iterator(); iter.hasNext(); ) {
-                  String entry = iter.next();
-                  if (entry.startsWith(entryName.substring(0, entryName.length() - 6))) {
-                    newNode.setHasResource(true);
-                    iter.remove();
-                  }
-                }
-              } else {
-                String className = entryName;
-                boolean foundClass = false;
-                // check if this resource belongs to any visited type
-                while (className.contains("/")) {
-                  className = className.substring(0, className.lastIndexOf('/'));
-                  TypeGraph.TypeGraphVertex tgv = typeGraph.getNode(className.replace('/', '.'));
-                  if (tgv != null) {
-                    tgv.setHasResource(true);
-                    foundClass = true;
-                    break;
-                  }
-                }
-                if (!foundClass) {
-                  resourceCacheSet.add(entryName);
-                }
-              }
-            }
-          }
+          typeGraph.addNode(f);
         } catch (IOException ex) {
           LOG.warn("Cannot process file {}", f, ex);
         }
+        continue;
+      }
+      JarClassIndex index = jarIndexes.get(f.getAbsolutePath());
+      if (index == null) {
+        continue;
+      }
+      for (JarClassIndex.ClassEntry classEntry : index.classes) {
+        typeGraph.addNode(classEntry, path);
+      }
+      resources.addAll(index.resources);
+      if (!index.javadocs.isEmpty()) {
+        processJavadocXml(f, index.javadocs);
+      }
+    }
+
+    // mark the types that have resources in or out of the same jar as the classes
+    for (String entryName : resources) {
+      String className = entryName;
+      while (className.contains("/")) {
+        className = className.substring(0, className.lastIndexOf('/'));
+        TypeGraph.TypeGraphVertex tgv = typeGraph.getNode(className.replace('/', '.'));
+        if (tgv != null) {
+          tgv.setHasResource(true);
+          break;
+        }
       }
+    }
 
-      typeGraph.trim();
+    typeGraph.trim();
+  }
 
-    } finally {
-      for (Entry<String, JarFile> entry : openJarFiles.entrySet()) {
+  private void processJavadocXml(File jarFile, List<String> entryNames)
+  {
+    try (JarFile jar = new JarFile(jarFile)) {
+      for (String entryName : entryNames) {
         try {
-          entry.getValue().close();
-        } catch (IOException e) {
-          DTThrowable.wrapIfChecked(e);
+          processJavadocXml(jar.getInputStream(jar.getJarEntry(entryName)));
+        } catch (Exception ex) {
+          LOG.warn("Cannot process javadoc {} : ", entryName, ex);
         }
       }
+    } catch (IOException ex) {
+      LOG.warn("Cannot process file {}", jarFile, ex);
     }
   }
 
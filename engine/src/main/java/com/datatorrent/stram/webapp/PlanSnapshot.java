@@ -0,0 +1,280 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.webapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.stram.StreamingContainerAgent;
+import com.datatorrent.stram.StreamingContainerManager;
+
+/**
+ * Immutable view of the physical plan and its statistics as of one stats version of the
+ * {@link StreamingContainerManager}. A snapshot is built at most once per version and shared by all web service
+ * requests, so that polling clients do not rebuild the operator information for every request.
+ * <p>
+ * Every operator carries the version at which its information last changed, which allows clients to request only
+ * the operators that changed since the version they have seen.
+ * </p>
+ *
+ * @since 3.4.0
+ */
+public class PlanSnapshot
+{
+  /**
+   * Number of removed operators that are remembered for delta requests.
+   */
+  static final int MAX_REMOVED_OPERATORS = 1000;
+  // distinguishes versions of different application master attempts
+  private static final String EPOCH = Long.toHexString(System.currentTimeMillis());
+
+  private final long version;
+  private final List<OperatorInfo> operators;
+  private final Map<String, OperatorInfo> operatorsById;
+  private final Map<String, String> operatorJson;
+  private final Map<String, Long> operatorVersions;
+  // operator id to the version at which it was removed, in the order of removal
+  private final LinkedHashMap<String, Long> removedOperators;
+  // the oldest version for which removed operators are known
+  private final long removedSinceVersion;
+  private final List<StreamInfo> streams;
+  private final List<LogicalOperatorInfo> logicalOperators;
+  private final List<ContainerInfo> containers;
+
+  private volatile JSONObject operatorsResponse;
+  private volatile JSONObject streamsResponse;
+  private volatile JSONObject logicalOperatorsResponse;
+
+  private PlanSnapshot(long version, List<OperatorInfo> operators, Map<String, String> operatorJson,
+      Map<String, Long> operatorVersions, LinkedHashMap<String, Long> removedOperators, long removedSinceVersion,
+      List<StreamInfo> streams, List<LogicalOperatorInfo> logicalOperators, List<ContainerInfo> containers)
+  {
+    this.version = version;
+    this.operators = Collections.unmodifiableList(operators);
+    this.operatorsById = new HashMap<>();
+    for (OperatorInfo oi : operators) {
+      operatorsById.put(oi.id, oi);
+    }
+    this.operatorJson = operatorJson;
+    this.operatorVersions = operatorVersions;
+    this.removedOperators = removedOperators;
+    this.removedSinceVersion = removedSinceVersion;
+    this.streams = Collections.unmodifiableList(streams);
+    this.logicalOperators = Collections.unmodifiableList(logicalOperators);
+    this.containers = Collections.unmodifiableList(containers);
+  }
+
+  /**
+   * Builds the snapshot for the current stats version of the container manager.
+   *
+   * @param dnmgr container manager
+   * @param objectMapper mapper used to detect changed operators
+   * @param previous the previous snapshot, or null
+   * @return new snapshot
+   */
+  public static PlanSnapshot create(StreamingContainerManager dnmgr, ObjectMapper objectMapper, PlanSnapshot previous)
+  {
+    long version = dnmgr.getStatsVersion();
+    List<OperatorInfo> operators = dnmgr.getOperatorInfoList();
+    Map<String, String> operatorJson = new HashMap<>();
+    Map<String, Long> operatorVersions = new HashMap<>();
+    for (OperatorInfo oi : operators) {
+      String json = toJson(objectMapper, oi);
+      operatorJson.put(oi.id, json);
+      Long lastVersion = previous == null ? null : previous.operatorVersions.get(oi.id);
+      if (lastVersion != null && json != null && json.equals(previous.operatorJson.get(oi.id))) {
+        operatorVersions.put(oi.id, lastVersion);
+      } else {
+        operatorVersions.put(oi.id, version);
+      }
+    }
+
+    LinkedHashMap<String, Long> removedOperators = new LinkedHashMap<>();
+    long removedSinceVersion = version;
+    if (previous != null) {
+      removedOperators.putAll(previous.removedOperators);
+      removedSinceVersion = previous.removedSinceVersion;
+      for (String id : previous.operatorVersions.keySet()) {
+        if (!operatorVersions.containsKey(id)) {
+          removedOperators.put(id, version);
+        }
+      }
+      removedOperators.keySet().removeAll(operatorVersions.keySet());
+      Iterator<Map.Entry<String, Long>> it = removedOperators.entrySet().iterator();
+      while (removedOperators.size() > MAX_REMOVED_OPERATORS && it.hasNext()) {
+        removedSinceVersion = Math.max(removedSinceVersion, it.next().getValue());
+        it.remove();
+      }
+    }
+
+    List<ContainerInfo> containers = new ArrayList<>(dnmgr.getCompletedContainerInfo());
+    containers.add(dnmgr.getAppMasterContainerInfo());
+    for (StreamingContainerAgent sca : dnmgr.getContainerAgents()) {
+      containers.add(sca.getContainerInfo());
+    }
+
+    return new PlanSnapshot(version, operators, operatorJson, operatorVersions, removedOperators, removedSinceVersion,
+        dnmgr.getStreamInfoList(), dnmgr.getLogicalOperatorInfoList(), containers);
+  }
+
+  private static String toJson(ObjectMapper objectMapper, OperatorInfo oi)
+  {
+    try {
+      return objectMapper.writeValueAsString(oi);
+    } catch (IOException ex) {
+      // operator is reported as changed in every snapshot
+      LOG.debug("Cannot serialize operator {}", oi.id, ex);
+      return null;
+    }
+  }
+
+  public long getVersion()
+  {
+    return version;
+  }
+
+  /**
+   * Returns the entity tag that identifies this snapshot in HTTP responses.
+   *
+   * @return quoted entity tag
+   */
+  public String getETag()
+  {
+    return "\"" + EPOCH + "-" + version + "\"";
+  }
+
+  public List<OperatorInfo> getOperators()
+  {
+    return operators;
+  }
+
+  public OperatorInfo getOperator(String operatorId)
+  {
+    return operatorsById.get(operatorId);
+  }
+
+  public List<StreamInfo> getStreams()
+  {
+    return streams;
+  }
+
+  public List<LogicalOperatorInfo> getLogicalOperators()
+  {
+    return logicalOperators;
+  }
+
+  public List<ContainerInfo> getContainers()
+  {
+    return containers;
+  }
+
+  /**
+   * Returns the operators whose information changed after the given version.
+   *
+   * @param sinceVersion version the client has seen
+   * @return changed operators
+   */
+  public List<OperatorInfo> getChangedOperators(long sinceVersion)
+  {
+    List<OperatorInfo> changed = new ArrayList<>();
+    for (OperatorInfo oi : operators) {
+      if (operatorVersions.get(oi.id) > sinceVersion) {
+        changed.add(oi);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Returns the ids of the operators removed after the given version.
+   *
+   * @param sinceVersion version the client has seen
+   * @return removed operator ids, or null when the removals are no longer known for that version
+   */
+  public List<String> getRemovedOperators(long sinceVersion)
+  {
+    if (sinceVersion < removedSinceVersion) {
+      return null;
+    }
+    List<String> removed = new ArrayList<>();
+    for (Map.Entry<String, Long> entry : removedOperators.entrySet()) {
+      if (entry.getValue() > sinceVersion) {
+        removed.add(entry.getKey());
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Returns the operator list response, which is built once per snapshot. The response must not be modified.
+   */
+  JSONObject getOperatorsResponse(ObjectMapper objectMapper) throws IOException, JSONException
+  {
+    JSONObject response = operatorsResponse;
+    if (response == null) {
+      OperatorsInfo nodeList = new OperatorsInfo();
+      nodeList.operators = operators;
+      // To get around the nasty JAXB problem for lists
+      response = operatorsResponse = new JSONObject(objectMapper.writeValueAsString(nodeList));
+    }
+    return response;
+  }
+
+  /**
+   * Returns the stream list response, which is built once per snapshot. The response must not be modified.
+   */
+  JSONObject getStreamsResponse(ObjectMapper objectMapper) throws IOException, JSONException
+  {
+    JSONObject response = streamsResponse;
+    if (response == null) {
+      StreamsInfo streamList = new StreamsInfo();
+      streamList.streams = streams;
+      response = streamsResponse = new JSONObject(objectMapper.writeValueAsString(streamList));
+    }
+    return response;
+  }
+
+  /**
+   * Returns the logical operator list response, which is built once per snapshot. The response must not be modified.
+   */
+  JSONObject getLogicalOperatorsResponse(ObjectMapper objectMapper) throws IOException, JSONException
+  {
+    JSONObject response = logicalOperatorsResponse;
+    if (response == null) {
+      LogicalOperatorsInfo nodeList = new LogicalOperatorsInfo();
+      nodeList.operators = logicalOperators;
+      response = logicalOperatorsResponse = new JSONObject(objectMapper.writeValueAsString(nodeList));
+    }
+    return response;
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(PlanSnapshot.class);
+}
@@ -23,7 +23,9 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.ExceptionMapper;
 import javax.ws.rs.ext.Provider;
 import javax.xml.bind.JAXBContext;
 
@@ -92,6 +94,22 @@ public class StramWebApp extends WebApp {
 
   }
 
+  /**
+   * Responds with 304 (Not Modified) when the client already has the plan snapshot, which the generic exception
+   * handler would report as an internal server error.
+   */
+  @Singleton
+  @Provider
+  public static class NotModifiedExceptionMapper implements ExceptionMapper<StramWebServices.NotModifiedException>
+  {
+    @Override
+    public Response toResponse(StramWebServices.NotModifiedException e)
+    {
+      return e.getResponse();
+    }
+
+  }
+
   /**
    *
    */
@@ -99,6 +117,7 @@ public class StramWebApp extends WebApp {
   public void setup() {
     bind(JAXBContextResolver.class);
     bind(GenericExceptionHandler.class);
+    bind(NotModifiedExceptionMapper.class);
     bind(WebServices.class);
     bind(StramWebServices.class);
     bind(StreamingContainerManager.class).toInstance(this.moduleManager);
@@ -31,7 +31,9 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import org.apache.commons.beanutils.BeanMap;
 import org.apache.commons.beanutils.BeanUtils;
@@ -60,13 +62,13 @@ import com.google.inject.Singleton;
 import com.datatorrent.api.Attribute;
 import com.datatorrent.api.Context.DAGContext;
 import com.datatorrent.api.Operator;
+import com.datatorrent.api.Stats;
 import com.datatorrent.api.StringCodec;
 
 import com.datatorrent.stram.StramAppContext;
 import com.datatorrent.stram.StreamingContainerAgent;
 import com.datatorrent.stram.StreamingContainerManager;
 import com.datatorrent.stram.StringCodecs;
-import com.datatorrent.stram.codec.LogicalPlanSerializer;
 import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.logical.LogicalPlan.ModuleMeta;
 import com.datatorrent.stram.plan.logical.LogicalPlan.OperatorMeta;
@@ -96,6 +98,8 @@ public class StramWebServices
   public static final String PATH_PHYSICAL_PLAN_OPERATORS = PATH_PHYSICAL_PLAN + "/operators";
   public static final String PATH_PHYSICAL_PLAN_STREAMS = PATH_PHYSICAL_PLAN + "/streams";
   public static final String PATH_PHYSICAL_PLAN_CONTAINERS = PATH_PHYSICAL_PLAN + "/containers";
+  public static final String PATH_CHECKPOINT_PROFILE = "checkpointProfile";
+  public static final String PATH_DELTA = "delta";
   public static final String PATH_SHUTDOWN = "shutdown";
   public static final String PATH_RECORDINGS = "recordings";
   public static final String PATH_RECORDINGS_START = PATH_RECORDINGS + "/start";
@@ -116,8 +120,12 @@ public class StramWebServices
   private StreamingContainerManager dagManager;
   private ObjectMapper objectMapper = new JSONSerializationProvider().getContext(null);
   private boolean initialized = false;
+  private final Object planSnapshotLock = new Object();
+  private volatile PlanSnapshot planSnapshot;
 
-  private OperatorDiscoverer operatorDiscoverer = new OperatorDiscoverer();
+  // created on first use, building the type graph prototype is expensive and most requests do not need it
+  private final Object operatorDiscovererLock = new Object();
+  private volatile OperatorDiscoverer operatorDiscoverer;
 
   @Inject
   public StramWebServices(StramAppContext context)
@@ -125,6 +133,21 @@ public class StramWebServices
     this.appCtx = context;
   }
 
+  private OperatorDiscoverer getOperatorDiscoverer()
+  {
+    OperatorDiscoverer discoverer = operatorDiscoverer;
+    if (discoverer == null) {
+      synchronized (operatorDiscovererLock) {
+        discoverer = operatorDiscoverer;
+        if (discoverer == null) {
+          discoverer = new OperatorDiscoverer();
+          operatorDiscoverer = discoverer;
+        }
+      }
+    }
+    return discoverer;
+  }
+
   Boolean hasAccess(HttpServletRequest request)
   {
     String remoteUser = request.getRemoteUser();
@@ -171,6 +194,60 @@ public class StramWebServices
     }
   }
 
+  /**
+   * Returns the snapshot of the current stats version, which is built by the first request after the version
+   * changed and shared by all other requests.
+   */
+  private PlanSnapshot getPlanSnapshot()
+  {
+    PlanSnapshot snapshot = planSnapshot;
+    if (snapshot == null || snapshot.getVersion() != dagManager.getStatsVersion()) {
+      synchronized (planSnapshotLock) {
+        snapshot = planSnapshot;
+        if (snapshot == null || snapshot.getVersion() != dagManager.getStatsVersion()) {
+          snapshot = PlanSnapshot.create(dagManager, objectMapper, snapshot);
+          planSnapshot = snapshot;
+        }
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Sets the entity tag of the snapshot on the response and responds with 304 (Not Modified) when the client
+   * already has the snapshot.
+   */
+  private PlanSnapshot getPlanSnapshot(String ifNoneMatch)
+  {
+    PlanSnapshot snapshot = getPlanSnapshot();
+    String etag = snapshot.getETag();
+    if (ifNoneMatch != null) {
+      for (String tag : StringUtils.split(ifNoneMatch, ',')) {
+        tag = tag.trim();
+        if (tag.equals(etag) || tag.equals("*")) {
+          throw new NotModifiedException(etag);
+        }
+      }
+    }
+    httpResponse.setHeader(HttpHeaders.ETAG, etag);
+    return snapshot;
+  }
+
+  /**
+   * Thrown when the client already has the requested plan snapshot, mapped to 304 (Not Modified) by
+   * {@link StramWebApp.NotModifiedExceptionMapper}.
+   */
+  public static class NotModifiedException extends WebApplicationException
+  {
+    private static final long serialVersionUID = 201610190300L;
+
+    NotModifiedException(String etag)
+    {
+      super(Response.notModified().header(HttpHeaders.ETAG, etag).build());
+    }
+
+  }
+
   void checkAccess(HttpServletRequest request)
   {
     if (!hasAccess(request)) {
@@ -197,45 +274,69 @@ public class StramWebServices
   @GET
   @Path(PATH_PHYSICAL_PLAN)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getPhysicalPlan() throws Exception
+  public JSONObject getPhysicalPlan(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws Exception
   {
     init();
+    PlanSnapshot snapshot = getPlanSnapshot(ifNoneMatch);
     Map<String, Object> result = new HashMap<String, Object>();
-    result.put("operators", dagManager.getOperatorInfoList());
-    result.put("streams", dagManager.getStreamInfoList());
+    result.put("operators", snapshot.getOperators());
+    result.put("streams", snapshot.getStreams());
     return new JSONObject(objectMapper.writeValueAsString(result));
   }
 
   @GET
   @Path(PATH_PHYSICAL_PLAN_OPERATORS)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getOperatorsInfo() throws Exception
+  public JSONObject getOperatorsInfo(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws Exception
   {
     init();
-    OperatorsInfo nodeList = new OperatorsInfo();
-    nodeList.operators = dagManager.getOperatorInfoList();
-    // To get around the nasty JAXB problem for lists
-    return new JSONObject(objectMapper.writeValueAsString(nodeList));
+    return getPlanSnapshot(ifNoneMatch).getOperatorsResponse(objectMapper);
+  }
+
+  /**
+   * Returns the physical operators that changed after the given version, along with the ids of the removed
+   * operators. All operators are returned when the removals since the version are no longer known.
+   */
+  @GET
+  @Path(PATH_PHYSICAL_PLAN_OPERATORS + "/" + PATH_DELTA)
+  @Produces(MediaType.APPLICATION_JSON)
+  public JSONObject getOperatorsDelta(@QueryParam("since") @DefaultValue("-1") long sinceVersion,
+      @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws Exception
+  {
+    init();
+    PlanSnapshot snapshot = getPlanSnapshot(ifNoneMatch);
+    List<String> removed = snapshot.getRemovedOperators(sinceVersion);
+    Map<String, Object> result = new HashMap<String, Object>();
+    result.put("version", snapshot.getVersion());
+    if (sinceVersion < 0 || removed == null) {
+      result.put("full", true);
+      result.put("operators", snapshot.getOperators());
+      result.put("removed", Collections.emptyList());
+    } else {
+      result.put("full", false);
+      result.put("operators", snapshot.getChangedOperators(sinceVersion));
+      result.put("removed", removed);
+    }
+    return new JSONObject(objectMapper.writeValueAsString(result));
   }
 
   @GET
   @Path(PATH_PHYSICAL_PLAN_STREAMS)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getStreamsInfo() throws Exception
+  public JSONObject getStreamsInfo(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws Exception
   {
     init();
-    StreamsInfo streamList = new StreamsInfo();
-    streamList.streams = dagManager.getStreamInfoList();
-    return new JSONObject(objectMapper.writeValueAsString(streamList));
+    return getPlanSnapshot(ifNoneMatch).getStreamsResponse(objectMapper);
   }
 
   @GET
   @Path(PATH_PHYSICAL_PLAN_OPERATORS + "/{operatorId:\\d+}")
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getOperatorInfo(@PathParam("operatorId") int operatorId) throws Exception
+  public JSONObject getOperatorInfo(@PathParam("operatorId") int operatorId,
+      @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws Exception
   {
     init();
-    OperatorInfo oi = dagManager.getOperatorInfo(operatorId);
+    OperatorInfo oi = getPlanSnapshot(ifNoneMatch).getOperator(Integer.toString(operatorId));
     if (oi == null) {
       throw new NotFoundException();
     }
@@ -275,6 +376,43 @@ public class StramWebServices
     throw new NotFoundException();
   }
 
+  @GET
+  @Path(PATH_PHYSICAL_PLAN_OPERATORS + "/{operatorId:\\d+}/" + PATH_CHECKPOINT_PROFILE)
+  @Produces(MediaType.APPLICATION_JSON)
+  public JSONObject getCheckpointProfile(@PathParam("operatorId") int operatorId) throws Exception
+  {
+    init();
+    Stats.CheckpointStats checkpointStats = dagManager.getCheckpointStats(operatorId);
+    if (checkpointStats == null) {
+      throw new NotFoundException();
+    }
+    JSONObject response = new JSONObject();
+    response.put("checkpointStartTime", checkpointStats.checkpointStartTime);
+    response.put("checkpointTime", checkpointStats.checkpointTime);
+    JSONArray fields = new JSONArray();
+    if (checkpointStats.fieldStats != null) {
+      List<Map.Entry<String, Stats.CheckpointStats.FieldStats>> entries = new ArrayList<>(checkpointStats.fieldStats.entrySet());
+      Collections.sort(entries, new Comparator<Map.Entry<String, Stats.CheckpointStats.FieldStats>>()
+      {
+        @Override
+        public int compare(Map.Entry<String, Stats.CheckpointStats.FieldStats> o1, Map.Entry<String, Stats.CheckpointStats.FieldStats> o2)
+        {
+          return Long.compare(o2.getValue().bytes, o1.getValue().bytes);
+        }
+      });
+      for (Map.Entry<String, Stats.CheckpointStats.FieldStats> entry : entries) {
+        JSONObject field = new JSONObject();
+        field.put("name", entry.getKey());
+        field.put("count", entry.getValue().count);
+        field.put("bytes", entry.getValue().bytes);
+        field.put("serializationNanos", entry.getValue().serializationNanos);
+        fields.put(field);
+      }
+    }
+    response.put("fields", fields);
+    return response;
+  }
+
   @GET
   @Path(PATH_OPERATOR_CLASSES)
   @Produces(MediaType.APPLICATION_JSON)
@@ -294,7 +432,7 @@ public class StramWebServices
     }
 
     try {
-      Set<String> operatorClasses = operatorDiscoverer.getOperatorClasses(parent, searchTerm);
+      Set<String> operatorClasses = getOperatorDiscoverer().getOperatorClasses(parent, searchTerm);
 
       for (String clazz : operatorClasses) {
         JSONObject j = new JSONObject();
@@ -325,7 +463,7 @@ public class StramWebServices
     try {
       Class<?> clazz = Class.forName(className);
       if (Operator.class.isAssignableFrom(clazz)) {
-        return operatorDiscoverer.describeOperator(className);
+        return getOperatorDiscoverer().describeOperator(className);
       }
       else {
         throw new NotFoundException();
@@ -423,7 +561,8 @@ public class StramWebServices
   @GET
   @Path(PATH_PHYSICAL_PLAN_CONTAINERS)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject listContainers(@QueryParam("states") String states) throws Exception
+  public JSONObject listContainers(@QueryParam("states") String states,
+      @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws Exception
   {
     init();
     Set<String> stateSet = null;
@@ -432,20 +571,8 @@ public class StramWebServices
       stateSet.addAll(Arrays.asList(StringUtils.split(states, ',')));
     }
     ContainersInfo ci = new ContainersInfo();
-    for (ContainerInfo containerInfo : dagManager.getCompletedContainerInfo()) {
-      if (stateSet == null || stateSet.contains(containerInfo.state)) {
-        ci.add(containerInfo);
-      }
-    }
-
-    Collection<StreamingContainerAgent> containerAgents = dagManager.getContainerAgents();
-    // add itself (app master container)
-    ContainerInfo appMasterContainerInfo = dagManager.getAppMasterContainerInfo();
-    if (stateSet == null || stateSet.contains(appMasterContainerInfo.state)) {
-      ci.add(appMasterContainerInfo);
-    }
-    for (StreamingContainerAgent sca : containerAgents) {
-      ContainerInfo containerInfo = sca.getContainerInfo();
+    // completed containers, the app master container and the deployed containers
+    for (ContainerInfo containerInfo : getPlanSnapshot(ifNoneMatch).getContainers()) {
       if (stateSet == null || stateSet.contains(containerInfo.state)) {
         ci.add(containerInfo);
       }
@@ -515,12 +642,10 @@ public class StramWebServices
   @GET
   @Path(PATH_LOGICAL_PLAN_OPERATORS)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getLogicalOperators() throws Exception
+  public JSONObject getLogicalOperators(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws Exception
   {
     init();
-    LogicalOperatorsInfo nodeList = new LogicalOperatorsInfo();
-    nodeList.operators = dagManager.getLogicalOperatorInfoList();
-    return new JSONObject(objectMapper.writeValueAsString(nodeList));
+    return getPlanSnapshot(ifNoneMatch).getLogicalOperatorsResponse(objectMapper);
   }
 
   @GET
@@ -840,8 +965,7 @@ public class StramWebServices
   public JSONObject getLogicalPlan(@QueryParam("includeModules") String includeModules) throws JSONException, IOException
   {
     init();
-    return new JSONObject(objectMapper.writeValueAsString(LogicalPlanSerializer.convertToMap(
-        dagManager.getLogicalPlan(), includeModules != null)));
+    return new JSONObject(objectMapper.writeValueAsString(dagManager.getLogicalPlanMap(includeModules != null)));
   }
 
   @POST // not supported by WebAppProxyServlet, can only be called directly
@@ -73,7 +73,6 @@ import com.datatorrent.stram.webapp.asm.CompactClassNode;
 import com.datatorrent.stram.webapp.asm.CompactFieldNode;
 import com.datatorrent.stram.webapp.asm.CompactMethodNode;
 import com.datatorrent.stram.webapp.asm.CompactUtil;
-import com.datatorrent.stram.webapp.asm.FastClassIndexReader;
 import com.datatorrent.stram.webapp.asm.MethodSignatureVisitor;
 import com.datatorrent.stram.webapp.asm.Type;
 import com.datatorrent.stram.webapp.asm.Type.ArrayTypeNode;
@@ -267,51 +266,61 @@ public class TypeGraph
   private TypeGraphVertex addNode(InputStream input, String resName) throws IOException
   {
     try {
+      return addNode(JarClassIndex.ClassEntry.read(input), resName);
+    } finally {
+      if (input != null) {
+        input.close();
+      }
+    }
+  }
 
-      FastClassIndexReader fastClassIndexReader = new FastClassIndexReader(input);
-      String typeName = fastClassIndexReader.getName().replace('/', '.');
-      TypeGraphVertex tgv;
-      TypeGraphVertex ptgv;
-      if (typeGraph.containsKey(typeName)) {
-        tgv = typeGraph.get(typeName);
-        tgv.setIsRealNode(true);
-        tgv.setJarName(resName); // If tgv was already populated for superclass/interface, jar name needs to be updated
-        tgv.setIsInstantiable(fastClassIndexReader.isInstantiable());
-      } else {
-        tgv = new TypeGraphVertex(this, typeName, resName, true, fastClassIndexReader.isInstantiable());
-        typeGraph.put(typeName, tgv);
+  /**
+   * Adds the class of the index entry, either parsed from the class file or read from the index of a jar.
+   *
+   * @param classEntry type information of the class
+   * @param resName jar or class file the class was loaded from
+   * @return vertex of the class
+   */
+  public TypeGraphVertex addNode(JarClassIndex.ClassEntry classEntry, String resName)
+  {
+    String typeName = classEntry.name.replace('/', '.');
+    TypeGraphVertex tgv;
+    TypeGraphVertex ptgv;
+    if (typeGraph.containsKey(typeName)) {
+      tgv = typeGraph.get(typeName);
+      tgv.setIsRealNode(true);
+      tgv.setJarName(resName); // If tgv was already populated for superclass/interface, jar name needs to be updated
+      tgv.setIsInstantiable(classEntry.instantiable);
+    } else {
+      tgv = new TypeGraphVertex(this, typeName, resName, true, classEntry.instantiable);
+      typeGraph.put(typeName, tgv);
+    }
+    String immediateP = classEntry.superName;
+    if (immediateP != null) {
+      immediateP = immediateP.replace('/', '.');
+      ptgv = typeGraph.get(immediateP);
+      if (ptgv == null) {
+        ptgv = new TypeGraphVertex(this, immediateP, resName);
+        typeGraph.put(immediateP, ptgv);
       }
-      String immediateP = fastClassIndexReader.getSuperName();
-      if (immediateP != null) {
-        immediateP = immediateP.replace('/', '.');
-        ptgv = typeGraph.get(immediateP);
+      tgv.ancestors.add(ptgv);
+      ptgv.descendants.add(tgv);
+    }
+    if (classEntry.interfaces != null) {
+      for (String iface : classEntry.interfaces) {
+        iface = iface.replace('/', '.');
+        ptgv = typeGraph.get(iface);
         if (ptgv == null) {
-          ptgv = new TypeGraphVertex(this, immediateP, resName);
-          typeGraph.put(immediateP, ptgv);
+          ptgv = new TypeGraphVertex(this, iface, resName);
+          typeGraph.put(iface, ptgv);
         }
         tgv.ancestors.add(ptgv);
         ptgv.descendants.add(tgv);
       }
-      if (fastClassIndexReader.getInterfaces() != null) {
-        for (String iface : fastClassIndexReader.getInterfaces()) {
-          iface = iface.replace('/', '.');
-          ptgv = typeGraph.get(iface);
-          if (ptgv == null) {
-            ptgv = new TypeGraphVertex(this, iface, resName);
-            typeGraph.put(iface, ptgv);
-          }
-          tgv.ancestors.add(ptgv);
-          ptgv.descendants.add(tgv);
-        }
-      }
-
-      updateInstantiableDescendants(tgv);
-      return tgv;
-    } finally {
-      if (input != null) {
-        input.close();
-      }
     }
+
+    updateInstantiableDescendants(tgv);
+    return tgv;
   }
 
   public TypeGraphVertex addNode(File file) throws IOException
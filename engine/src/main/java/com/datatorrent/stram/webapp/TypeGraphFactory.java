@@ -21,11 +21,10 @@ package com.datatorrent.stram.webapp;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,28 +68,17 @@ public class TypeGraphFactory
 
     tg = new TypeGraph();
 
-
+    List<File> jarFiles = new ArrayList<>();
     for (String path : pathsToScan) {
-      try {
-        File f = new File(path);
-        if (!f.exists() || !f.getName().endsWith("jar")) {
-          continue;
-        }
-        JarFile jar = new JarFile(path);
-        try {
-          java.util.Enumeration<JarEntry> entriesEnum = jar.entries();
-          while (entriesEnum.hasMoreElements()) {
-            java.util.jar.JarEntry jarEntry = entriesEnum.nextElement();
-            if (!jarEntry.isDirectory() && jarEntry.getName().endsWith(".class")) {
-              tg.addNode(jarEntry, jar);
-            }
-          }
-
-        } finally {
-          jar.close();
-        }
-      } catch (IOException ex) {
-        LOG.warn("Some error happens when parsing the file {}", path, ex);
+      File f = new File(path);
+      if (f.exists() && f.getName().endsWith("jar")) {
+        jarFiles.add(f);
+      }
+    }
+    // index the jars in parallel, unchanged jars are loaded from the index cache
+    for (JarClassIndex index : JarClassIndex.getIndexes(jarFiles)) {
+      for (JarClassIndex.ClassEntry classEntry : index.classes) {
+        tg.addNode(classEntry, index.path);
       }
     }
 
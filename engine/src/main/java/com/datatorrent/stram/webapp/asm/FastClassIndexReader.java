@@ -32,11 +32,11 @@ import org.apache.xbean.asm5.Opcodes;
  * whether it has a public non-arg default constructor (instantiable)
  * This class skip most parts that are not necessary and parse only the information above
  *
- * And also it use shared buffer to load classes which makes it faster in our performance test
+ * And also it use a buffer shared by the readers of a thread to load classes which makes it faster in our performance test
  *
  * Overall it is 8-9x faster than ASM class reader
  *
- * Keep in mind it is NOT thread safe
+ * Keep in mind an instance is NOT thread safe, it must be used in the thread that created it
  *
  *
  * @since 3.3.0
@@ -114,10 +114,19 @@ public class FastClassIndexReader
    */
   static final int INDY = 18;
 
-  // shared buffer to hold the content of the file
-  private static byte[] b = new byte[64 * 1024];
+  // buffer to hold the content of the file, shared by the readers of a thread
+  private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>()
+  {
+    @Override
+    protected byte[] initialValue()
+    {
+      return new byte[64 * 1024];
+    }
+  };
+
+  private byte[] b;
 
-  private static int bSize = 0;
+  private int bSize = 0;
 
   private int[] items;
 
@@ -146,7 +155,7 @@ public class FastClassIndexReader
   }
 
   /**
-   * Read class file content into shared buffer from input stream
+   * Read class file content into the buffer of the current thread from input stream
    * Stream won't be closed
    * @param is
    * @throws IOException
@@ -156,6 +165,7 @@ public class FastClassIndexReader
     if (is == null) {
       throw new IOException("Class not found");
     }
+    b = BUFFER.get();
     bSize = 0;
     while (true) {
       int n = is.read(b, bSize, b.length - bSize);
@@ -167,6 +177,7 @@ public class FastClassIndexReader
         byte[] c = new byte[b.length << 2];
         System.arraycopy(b, 0, c, 0, b.length);
         b = c;
+        BUFFER.set(b);
       }
     }
   }
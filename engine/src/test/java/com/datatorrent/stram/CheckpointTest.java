@@ -35,10 +35,12 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.hadoop.yarn.util.Clock;
 import org.apache.hadoop.yarn.util.SystemClock;
+import org.apache.log4j.Level;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.DAG;
 import com.datatorrent.api.DAG.Locality;
 import com.datatorrent.api.DefaultOutputPort;
@@ -46,6 +48,7 @@ import com.datatorrent.api.InputOperator;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.api.annotation.Stateless;
+import com.datatorrent.common.partitioner.StatelessPartitioner;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.common.util.BaseOperator;
 import com.datatorrent.common.util.FSStorageAgent;
@@ -334,6 +337,98 @@ public class CheckpointTest
     return list;
   }
 
+  @Test
+  public void testIncrementalUpdateCheckpoints()
+  {
+    // the plan and the journal log every operator, which would buffer more output than the test runner can hold
+    org.apache.log4j.Logger planLogger = org.apache.log4j.Logger.getLogger(PhysicalPlan.class);
+    org.apache.log4j.Logger journalLogger = org.apache.log4j.Logger.getLogger(Journal.class);
+    Level planLevel = planLogger.getLevel();
+    Level journalLevel = journalLogger.getLevel();
+    planLogger.setLevel(Level.ERROR);
+    journalLogger.setLevel(Level.ERROR);
+    int numOperators;
+    long fullNanos;
+    long incrementalNanos;
+    try {
+      MockClock clock = new MockClock();
+      final int partitionCount = 5000;
+
+      dag.setAttribute(com.datatorrent.api.Context.OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+
+      GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+      GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+      GenericTestOperator o3 = dag.addOperator("o3", GenericTestOperator.class);
+      dag.setAttribute(o1, OperatorContext.PARTITIONER, new StatelessPartitioner<GenericTestOperator>(partitionCount));
+      dag.setInputPortAttribute(o2.inport1, PortContext.PARTITION_PARALLEL, true);
+      dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+      dag.addStream("o2.outport1", o2.outport1, o3.inport1);
+      // all streams inline, no buffer server purge
+      dag.setAttribute(LogicalPlan.CONTAINERS_MAX_COUNT, 1);
+
+      StreamingContainerManager scm = new StreamingContainerManager(dag, clock);
+      PhysicalPlan plan = scm.getPhysicalPlan();
+      numOperators = plan.getAllOperators().size();
+      Assert.assertTrue("number of operators", numOperators > 2 * partitionCount);
+
+      for (PTOperator oper : plan.getAllOperators().values()) {
+        oper.setState(PTOperator.State.ACTIVE);
+        scm.addCheckpoint(oper, new Checkpoint(1L, 0, 0));
+        scm.addCheckpoint(oper, new Checkpoint(2L, 0, 0));
+      }
+
+      long start = System.nanoTime();
+      scm.updateCheckpoints(false);
+      fullNanos = System.nanoTime() - start;
+      scm.updateCheckpoints(false);
+
+      PTOperator o1p1 = plan.getOperators(dag.getMeta(o1)).get(0);
+      PTOperator o2p1 = plan.getOperators(dag.getMeta(o2)).get(0);
+      for (PTOperator oper : plan.getAllOperators().values()) {
+        Assert.assertEquals("recovery checkpoint " + oper, 2L, oper.getRecoveryCheckpoint().windowId);
+      }
+
+      // new checkpoint of a partition only affects the partition and its upstream
+      scm.addCheckpoint(o2p1, new Checkpoint(3L, 0, 0));
+      scm.addCheckpoint(o1p1, new Checkpoint(3L, 0, 0));
+      start = System.nanoTime();
+      scm.updateCheckpoints(false);
+      incrementalNanos = System.nanoTime() - start;
+      // downstream of the partition did not move
+      Assert.assertEquals("recovery checkpoint " + o1p1, 2L, o1p1.getRecoveryCheckpoint().windowId);
+      Assert.assertEquals("recovery checkpoint " + o2p1, 2L, o2p1.getRecoveryCheckpoint().windowId);
+
+      for (PTOperator oper : plan.getAllOperators().values()) {
+        scm.addCheckpoint(oper, new Checkpoint(3L, 0, 0));
+      }
+      scm.updateCheckpoints(false);
+      for (PTOperator oper : plan.getAllOperators().values()) {
+        Assert.assertEquals("recovery checkpoint " + oper, 3L, oper.getRecoveryCheckpoint().windowId);
+      }
+      scm.addCheckpoint(o2p1, new Checkpoint(4L, 0, 0));
+      scm.updateCheckpoints(false);
+
+      // incremental update needs to match full traversal
+      Map<PTOperator, Checkpoint> recoveryCheckpoints = Maps.newHashMap();
+      for (PTOperator oper : plan.getAllOperators().values()) {
+        recoveryCheckpoints.put(oper, oper.getRecoveryCheckpoint());
+      }
+      UpdateCheckpointsContext ctx = new UpdateCheckpointsContext(clock);
+      for (PTOperator oper : plan.getOperators(dag.getMeta(o1))) {
+        scm.updateRecoveryCheckpoints(oper, ctx);
+      }
+      for (PTOperator oper : plan.getAllOperators().values()) {
+        Assert.assertEquals("recovery checkpoint " + oper, recoveryCheckpoints.get(oper), oper.getRecoveryCheckpoint());
+      }
+    } finally {
+      planLogger.setLevel(planLevel);
+      journalLogger.setLevel(journalLevel);
+    }
+
+    LOG.info("Checkpoint update for {} operators: full {} ms, incremental {} ms", numOperators,
+        fullNanos / 1000000, incrementalNanos / 1000000);
+  }
+
   public class MockClock implements Clock
   {
     public long time = 0;
@@ -425,6 +520,20 @@ public class CheckpointTest
 
   }
 
+  @Test
+  public void testFullCheckpointUpdateInterval()
+  {
+    dag.setAttribute(com.datatorrent.api.Context.OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+    dag.addOperator("o1", GenericTestOperator.class);
+
+    StreamingContainerManager scm = new StreamingContainerManager(dag, false, new MockClock());
+    Assert.assertEquals("default interval", 10000, scm.getFullCheckpointUpdateIntervalMillis());
+
+    dag.setAttribute(DAG.HEARTBEAT_TIMEOUT_MILLIS, 3000);
+    scm = new StreamingContainerManager(dag, false, new MockClock());
+    Assert.assertEquals("interval of heartbeat timeout", 1000, scm.getFullCheckpointUpdateIntervalMillis());
+  }
+
   @Test
   public void testBlockedOperatorContainerRestart()
   {
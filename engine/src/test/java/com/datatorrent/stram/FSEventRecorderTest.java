@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.commons.io.FileUtils;
+
+import com.datatorrent.stram.api.StramEvent;
+import com.datatorrent.stram.client.EventsAgent;
+import com.datatorrent.stram.support.StramTestSupport.TestMeta;
+import com.datatorrent.stram.util.SharedPubSubWebSocketClient;
+
+public class FSEventRecorderTest
+{
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  @Test
+  public void testRateLimit() throws Exception
+  {
+    FSEventRecorder recorder = new FSEventRecorder("application_test_id_1");
+    recorder.setBasePath("file:" + testMeta.getAbsolutePath());
+    recorder.setMaxEventsPerTypePerSecond(2);
+    recorder.setup();
+    recorder.recordEventAsync(new StramEvent.ContainerErrorEvent("container1", "error"));
+    for (int i = 0; i < 5; i++) {
+      recorder.recordEventAsync(new StramEvent.StartOperatorEvent("o1", i, "container1"));
+    }
+    recorder.teardown();
+
+    Assert.assertEquals("dropped", 0, recorder.getDroppedEventCount());
+    Assert.assertEquals("suppressed", 3, recorder.getSuppressedEventCount());
+    List<String> lines = FileUtils.readLines(new File(testMeta.getAbsolutePath(), "part0.txt"));
+    Assert.assertEquals("events " + lines, 4, lines.size());
+    Assert.assertTrue(lines.get(0), lines.get(0).contains(":ContainerError:"));
+    Assert.assertTrue(lines.get(1), lines.get(1).contains(":StartOperator:"));
+    Assert.assertTrue(lines.get(2), lines.get(2).contains(":StartOperator:"));
+    Assert.assertTrue(lines.get(3), lines.get(3).contains(":EventSummary:"));
+    Assert.assertTrue(lines.get(3), lines.get(3).contains("\"eventType\":\"StartOperator\""));
+    Assert.assertTrue(lines.get(3), lines.get(3).contains("\"numEvents\":\"3\""));
+  }
+
+  /**
+   * Records the published messages and reports one subscriber for every topic, without connecting to a gateway.
+   */
+  private static class RecordingWebSocketClient extends SharedPubSubWebSocketClient
+  {
+    private final Map<String, List<Object>> messages = new HashMap<String, List<Object>>();
+
+    RecordingWebSocketClient()
+    {
+      super(URI.create("ws://localhost:9090/pubsub"), 0);
+    }
+
+    @Override
+    public synchronized void addHandler(String topic, boolean numSubscribers, Handler handler)
+    {
+      handler.onMessage("data", topic + ".numSubscribers", "1");
+    }
+
+    @Override
+    public synchronized void publish(String topic, Object data)
+    {
+      List<Object> topicMessages = messages.get(topic);
+      if (topicMessages == null) {
+        topicMessages = new ArrayList<Object>();
+        messages.put(topic, topicMessages);
+      }
+      // the list of a batch is reused by the recorder once it is published
+      topicMessages.add(data instanceof List ? new ArrayList<Object>((List<?>)data) : data);
+    }
+
+    synchronized List<Object> getMessages(String topic)
+    {
+      List<Object> topicMessages = messages.get(topic);
+      return topicMessages == null ? new ArrayList<Object>() : new ArrayList<Object>(topicMessages);
+    }
+
+  }
+
+  @Test
+  public void testPublishedMessages() throws Exception
+  {
+    RecordingWebSocketClient wsClient = new RecordingWebSocketClient();
+    FSEventRecorder recorder = new FSEventRecorder("application_test_id_1");
+    recorder.setBasePath("file:" + testMeta.getAbsolutePath());
+    recorder.setWebSocketClient(wsClient);
+    recorder.setup();
+    for (int i = 0; i < 3; i++) {
+      recorder.recordEventAsync(new StramEvent.StartOperatorEvent("o1", i, "container1"));
+    }
+    recorder.teardown();
+
+    String topic = "applications.application_test_id_1.events";
+    List<Object> events = wsClient.getMessages(topic);
+    Assert.assertEquals("events " + events, 3, events.size());
+    for (Object event : events) {
+      Assert.assertTrue("single event " + event, event instanceof EventsAgent.EventInfo);
+      Assert.assertEquals("type", "StartOperator", ((EventsAgent.EventInfo)event).type);
+    }
+
+    int numBatchEvents = 0;
+    for (Object batch : wsClient.getMessages(topic + "." + FSEventRecorder.BATCH_TOPIC_SUFFIX)) {
+      Assert.assertTrue("batch " + batch, batch instanceof List);
+      numBatchEvents += ((List<?>)batch).size();
+    }
+    Assert.assertEquals("batch events", 3, numBatchEvents);
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.yarn.api.records.LocalResource;
+import org.apache.hadoop.yarn.api.records.LocalResourceType;
+import org.apache.hadoop.yarn.api.records.LocalResourceVisibility;
+
+import com.datatorrent.stram.support.StramTestSupport;
+
+public class StramClientTest
+{
+  @Rule
+  public StramTestSupport.TestMeta testMeta = new StramTestSupport.TestMeta();
+
+  @Test
+  public void testJarCache() throws Exception
+  {
+    Configuration conf = new Configuration(false);
+    FileSystem fs = FileSystem.getLocal(conf);
+    File jar1 = new File(testMeta.getPath(), "lib/test1.jar");
+    File jar2 = new File(testMeta.getPath(), "lib/test2.jar");
+    File otherJar = new File(testMeta.getPath(), "lib/other.jar");
+    FileUtils.writeStringToFile(jar1, "content1");
+    FileUtils.writeStringToFile(jar2, "content2");
+    FileUtils.writeStringToFile(otherJar, "other");
+    Path cacheDir = fs.makeQualified(new Path(testMeta.getPath(), "jarCache"));
+
+    StramClient client = new StramClient(conf, StramTestSupport.createDAG(testMeta));
+    Path cachedJar1 = new Path(client.copyToJarCache(fs, cacheDir, new String[]{jar1.getAbsolutePath()}, false));
+    Assert.assertEquals("cache directory", cacheDir, cachedJar1.getParent().getParent());
+    Assert.assertEquals("cached content", "content1", FileUtils.readFileToString(new File(cachedJar1.toUri())));
+    // cached by a launch without public access
+    fs.setPermission(cachedJar1, new FsPermission((short)0600));
+    long modificationTime = fs.getFileStatus(cachedJar1).getModificationTime();
+
+    Map<String, LocalResource> localResources = new HashMap<>();
+    LaunchContainerRunnable.addFilesToLocalResources(LocalResourceType.FILE, cachedJar1.toString(), localResources, fs,
+        cacheDir.toString(), LocalResourceVisibility.PUBLIC);
+    Assert.assertEquals("not readable by everyone", LocalResourceVisibility.PRIVATE, localResources.get("test1.jar").getVisibility());
+
+    String[] cached = client.copyToJarCache(fs, cacheDir, new String[]{jar1.getAbsolutePath(), jar2.getAbsolutePath()}, true)
+        .split(StramClient.LIB_JARS_SEP);
+    Assert.assertEquals("cache hit", cachedJar1.toString(), cached[0]);
+    Assert.assertEquals("not copied again", modificationTime, fs.getFileStatus(cachedJar1).getModificationTime());
+    for (String file : cached) {
+      FileStatus status = fs.getFileStatus(new Path(file));
+      Assert.assertTrue("readable by everyone " + status, status.getPermission().getOtherAction().implies(FsAction.READ));
+    }
+
+    // public localization also depends on the parents of the test directory, which are outside of the test
+    LocalResourceVisibility expected = LocalResourceVisibility.PUBLIC;
+    for (File dir = new File(testMeta.getPath()).getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+      if (!Files.getPosixFilePermissions(dir.toPath()).contains(PosixFilePermission.OTHERS_EXECUTE)) {
+        expected = LocalResourceVisibility.PRIVATE;
+      }
+    }
+    String files = cached[0] + StramClient.LIB_JARS_SEP + cached[1] + StramClient.LIB_JARS_SEP + otherJar.getAbsolutePath();
+    localResources.clear();
+    LaunchContainerRunnable.addFilesToLocalResources(LocalResourceType.FILE, files, localResources, fs, cacheDir.toString(),
+        LocalResourceVisibility.PUBLIC);
+    Assert.assertEquals("visibility", expected, localResources.get("test1.jar").getVisibility());
+    Assert.assertEquals("visibility", expected, localResources.get("test2.jar").getVisibility());
+    Assert.assertEquals("outside of cache", LocalResourceVisibility.APPLICATION, localResources.get("other.jar").getVisibility());
+
+    // a parent directory that is not executable by everyone prevents public localization
+    fs.setPermission(cacheDir.getParent(), new FsPermission((short)0700));
+    try {
+      localResources.clear();
+      LaunchContainerRunnable.addFilesToLocalResources(LocalResourceType.FILE, files, localResources, fs,
+          cacheDir.toString(), LocalResourceVisibility.PUBLIC);
+      Assert.assertEquals("parent not executable", LocalResourceVisibility.PRIVATE, localResources.get("test1.jar").getVisibility());
+      Assert.assertEquals("parent not executable", LocalResourceVisibility.PRIVATE, localResources.get("test2.jar").getVisibility());
+    } finally {
+      fs.setPermission(cacheDir.getParent(), new FsPermission((short)0755));
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.commons.io.IOUtils;
+
+import com.datatorrent.stram.StramLoadTestCluster.DelayingProxy;
+
+public class StramLoadTestClusterTest
+{
+  @Test
+  public void testDelayingProxy() throws Exception
+  {
+    final ServerSocket echoServer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    Thread echo = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        try {
+          Socket socket = echoServer.accept();
+          IOUtils.copy(socket.getInputStream(), socket.getOutputStream());
+          socket.close();
+        } catch (IOException e) {
+          // closed by the test
+        }
+      }
+
+    };
+    echo.setDaemon(true);
+    echo.start();
+
+    long latencyMillis = 200;
+    DelayingProxy proxy = new DelayingProxy((InetSocketAddress)echoServer.getLocalSocketAddress(), latencyMillis);
+    Socket client = new Socket(proxy.getAddress().getAddress(), proxy.getAddress().getPort());
+    try {
+      byte[] data = "hello buffer server".getBytes();
+      long start = System.currentTimeMillis();
+      client.getOutputStream().write(data);
+      byte[] echoed = new byte[data.length];
+      new DataInputStream(client.getInputStream()).readFully(echoed);
+      long elapsed = System.currentTimeMillis() - start;
+      Assert.assertArrayEquals("echoed", data, echoed);
+      // the latency applies in each direction
+      Assert.assertTrue("round trip " + elapsed, elapsed >= 2 * latencyMillis);
+    } finally {
+      client.close();
+      proxy.close();
+      echoServer.close();
+    }
+  }
+
+}
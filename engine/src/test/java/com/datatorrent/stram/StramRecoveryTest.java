@@ -47,14 +47,18 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.Lists;
 
 import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.StatsListener;
 import com.datatorrent.api.StorageAgent;
 
+import com.datatorrent.common.partitioner.StatelessPartitioner;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.common.util.FSStorageAgent;
+import com.datatorrent.common.util.TieredFSStorageAgent;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+import com.datatorrent.stram.codec.SnapshotFormat;
 import com.datatorrent.stram.engine.GenericTestOperator;
 import com.datatorrent.stram.engine.TestGeneratorInputOperator;
 import com.datatorrent.stram.plan.TestPlanContext;
@@ -146,6 +150,43 @@ public class StramRecoveryTest
     testPhysicalPlanSerialization(new AsyncFSStorageAgent(testMeta.getPath(), null));
   }
 
+  private long testRestoreLargePlan(SnapshotFormat format, int partitionCount) throws Exception
+  {
+    dag = StramTestSupport.createDAG(testMeta, "/" + format.name());
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new FSStorageAgent(dag.assertAppPath() + "/" + LogicalPlan.SUBDIR_CHECKPOINTS, null));
+    dag.setAttribute(LogicalPlan.RECOVERY_SNAPSHOT_FORMAT, format);
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    GenericTestOperator o3 = dag.addOperator("o3", GenericTestOperator.class);
+    dag.setAttribute(o1, OperatorContext.PARTITIONER, new StatelessPartitioner<GenericTestOperator>(partitionCount));
+    dag.setInputPortAttribute(o2.inport1, PortContext.PARTITION_PARALLEL, true);
+    dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+    dag.addStream("o2.outport1", o2.outport1, o3.inport1);
+
+    FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(dag.assertAppPath(), new Configuration(false));
+    recoveryHandler.setSnapshotFormat(format);
+    StreamingContainerManager scm = StreamingContainerManager.getInstance(recoveryHandler, dag, false);
+    int operatorCount = scm.getPhysicalPlan().getAllOperators().size();
+    File snapshotFile = new File(recoveryHandler.getDir(), FSRecoveryHandler.FILE_SNAPSHOT);
+
+    LogicalPlan restoreDag = StramTestSupport.createDAG(testMeta, "/" + format.name());
+    long startTms = System.nanoTime();
+    scm = StreamingContainerManager.getInstance(new FSRecoveryHandler(restoreDag.assertAppPath(), new Configuration(false)), restoreDag, false);
+    long restoreNanos = System.nanoTime() - startTms;
+
+    assertEquals("physical operators after restore", operatorCount, scm.getPhysicalPlan().getAllOperators().size());
+    assertEquals("partitions after restore", partitionCount, scm.getPhysicalPlan().getOperators(scm.getLogicalPlan().getOperatorMeta("o2")).size());
+    LOG.info("Restored {} physical operators from {} snapshot of {} bytes in {} ms", operatorCount, format, snapshotFile.length(), restoreNanos / 1000000);
+    return restoreNanos;
+  }
+
+  @Test
+  public void testRestoreLargePlan() throws Exception
+  {
+    testRestoreLargePlan(SnapshotFormat.JAVA, 500);
+    testRestoreLargePlan(SnapshotFormat.KRYO, 500);
+  }
+
   public static class StatsListeningOperator extends TestGeneratorInputOperator implements StatsListener
   {
     int processStatsCnt = 0;
@@ -386,7 +427,7 @@ public class StramRecoveryTest
     scm.setPhysicalOperatorProperty(o1p1.getId(), "maxTuples", "50");
   }
 
-  private void testRestartApp(StorageAgent agent, String appPath1) throws Exception
+  private StorageAgent testRestartApp(StorageAgent agent, String appPath1) throws Exception
   {
     String appId1 = "app1";
     String appId2 = "app2";
@@ -440,6 +481,9 @@ public class StramRecoveryTest
     ids = new FSStorageAgent(appPath2 + "/" + LogicalPlan.SUBDIR_CHECKPOINTS, new Configuration()).getWindowIds(o1p1.getId());
     Assert.assertArrayEquals("checkpoints copied", new long[] {o1p1.getRecoveryCheckpoint().getWindowId()}, ids);
 
+    StorageAgent restoredAgent = dag.getValue(OperatorContext.STORAGE_AGENT);
+    assertEquals("storage agent type", agent.getClass(), restoredAgent.getClass());
+    return restoredAgent;
   }
 
   @Test
@@ -456,6 +500,21 @@ public class StramRecoveryTest
     testRestartApp(new AsyncFSStorageAgent(appPath1 + "/" + LogicalPlan.SUBDIR_CHECKPOINTS, null), appPath1);
   }
 
+  @Test
+  public void testRestartAppWithTieredAgent() throws Exception
+  {
+    final String appPath1 = testMeta.getPath() + "/app1";
+    TieredFSStorageAgent agent = new TieredFSStorageAgent(appPath1 + "/" + LogicalPlan.SUBDIR_CHECKPOINTS, null);
+    agent.setSyncCheckpoint(true);
+    agent.setMaxMemoryCheckpoints(3);
+    agent.setProfileCheckpoints(true);
+    TieredFSStorageAgent restoredAgent = (TieredFSStorageAgent)testRestartApp(agent, appPath1);
+    assertEquals("checkpoint path", testMeta.getPath() + "/app2/" + LogicalPlan.SUBDIR_CHECKPOINTS, restoredAgent.path);
+    Assert.assertTrue("sync checkpoint", restoredAgent.isSyncCheckpoint());
+    assertEquals("max memory checkpoints", 3, restoredAgent.getMaxMemoryCheckpoints());
+    Assert.assertTrue("profile checkpoints", restoredAgent.isProfileCheckpoints());
+  }
+
   @Test
   public void testRpcFailover() throws Exception
   {
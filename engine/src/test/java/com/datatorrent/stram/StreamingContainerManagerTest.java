@@ -22,11 +22,18 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
+import org.codehaus.jettison.json.JSONException;
+
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.DataInputByteBuffer;
 import org.apache.hadoop.io.DataOutputByteBuffer;
+import org.apache.hadoop.yarn.util.Clock;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -68,6 +75,8 @@ import com.datatorrent.stram.engine.*;
 import com.datatorrent.stram.plan.TestPlanContext;
 import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.logical.LogicalPlan.OperatorMeta;
+import com.datatorrent.stram.plan.logical.requests.RemoveOperatorRequest;
+import com.datatorrent.stram.plan.logical.requests.RemoveStreamRequest;
 import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
 import com.datatorrent.stram.plan.physical.PTContainer;
 import com.datatorrent.stram.plan.physical.PTOperator;
@@ -409,6 +418,38 @@ public class StreamingContainerManagerTest
 
   }
 
+  @Test
+  public void testStandbyContainer() throws Exception
+  {
+    GenericTestOperator node1 = dag.addOperator("node1", GenericTestOperator.class);
+    GenericTestOperator node2 = dag.addOperator("node2", GenericTestOperator.class);
+    dag.addStream("n1n2", node1.outport1, node2.inport1);
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+
+    StreamingContainerManager scm = new StreamingContainerManager(dag);
+    scm.containerStartRequests.clear();
+    PTContainer c1 = scm.getPhysicalPlan().getContainers().get(0);
+    assignContainer(scm, "container1");
+    assignContainer(scm, "container2");
+
+    ContainerResource small = new ContainerResource(10, "standby1", "localhost:0", c1.getRequiredMemoryMB() - 1, 1, null);
+    ContainerResource large = new ContainerResource(11, "standby2", "localhost:0", c1.getRequiredMemoryMB(), c1.getRequiredVCores(), null);
+    scm.addStandbyContainer(small);
+    scm.addStandbyContainer(large);
+    Assert.assertTrue("standby", scm.isStandbyContainer("standby2"));
+
+    scm.scheduleContainerRestart(c1.getExternalId());
+    ContainerStartRequest csr = scm.containerStartRequests.poll();
+    Assert.assertEquals("restarted container", c1, csr.container);
+    StreamingContainerAgent sca = scm.assignStandbyContainer(csr.container);
+    Assert.assertNotNull("assigned", sca);
+    Assert.assertEquals("container id", "standby2", c1.getExternalId());
+    Assert.assertEquals("allocated memory", large.memoryMB, c1.getAllocatedMemoryMB());
+    Assert.assertEquals("agent", sca, scm.getContainerAgent("standby2"));
+    Assert.assertFalse("standby", scm.isStandbyContainer("standby2"));
+    Assert.assertEquals("standby containers", 1, scm.getStandbyContainerCount());
+  }
+
   @Test
   public void testRecoveryUpstreamInline() throws Exception
   {
@@ -970,6 +1011,104 @@ public class StreamingContainerManagerTest
     }
   }
 
+  @Test
+  public void testStatsPush() throws Exception
+  {
+    final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+    EmbeddedWebSocketServer server = new EmbeddedWebSocketServer(0);
+    server.setWebSocket(new WebSocket.OnTextMessage()
+    {
+
+      @Override
+      public void onMessage(String data)
+      {
+        messages.add(data);
+      }
+
+      @Override
+      public void onOpen(WebSocket.Connection connection)
+      {
+      }
+
+      @Override
+      public void onClose(int closeCode, String message)
+      {
+      }
+    });
+    try {
+      server.start();
+      TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+      GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+      dag.addStream("o1.outport", o1.outport, o2.inport1);
+      dag.setAttribute(OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+      dag.setAttribute(LogicalPlan.APPLICATION_ID, "app1");
+      dag.setAttribute(LogicalPlan.GATEWAY_CONNECT_ADDRESS, "localhost:" + server.getPort());
+      StreamingContainerManager scm = new StreamingContainerManager(dag);
+      PhysicalPlan plan = scm.getPhysicalPlan();
+      Assert.assertEquals("number containers", 2, plan.getContainers().size());
+      for (PTContainer c : plan.getContainers()) {
+        new MockContainer(scm, c);
+      }
+      PTContainer container = plan.getOperators(dag.getMeta(o1)).get(0).getContainer();
+      String topic = "applications.app1.stats.containers." + container.getExternalId();
+
+      StatsPushAgent pushAgent = new StatsPushAgent(scm);
+      pushAgent.init(new Configuration(false));
+      pushAgent.pushStats();
+      awaitMessage(messages, "subscribeNumSubscribers", topic);
+
+      scm.getWsClient().onMessage("data", topic + ".numSubscribers", "1");
+      pushAgent.pushStats();
+      JSONObject data = awaitMessage(messages, "publish", topic).getJSONObject("data");
+      Assert.assertTrue("full", data.getBoolean("full"));
+      Assert.assertEquals("operators of container", 1, data.getJSONArray("operators").length());
+      Assert.assertEquals("container", container.getExternalId(), data.getJSONArray("containers").getJSONObject(0).getString("id"));
+      for (String message : messages) {
+        Assert.assertFalse("published to topic without subscribers " + message,
+            message.contains("publish\"") && !message.contains(topic));
+      }
+
+      messages.clear();
+      scm.removeContainerAgent(container.getExternalId());
+      pushAgent.pushStats();
+      data = awaitMessage(messages, "publish", topic).getJSONObject("data");
+      Assert.assertEquals("removed container", container.getExternalId(), data.getJSONArray("removedContainers").getString(0));
+      awaitMessage(messages, "unsubscribeNumSubscribers", topic);
+      pushAgent.close();
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static JSONObject awaitMessage(final List<String> messages, final String type, final String topic) throws Exception
+  {
+    final JSONObject[] result = new JSONObject[1];
+    StramTestSupport.awaitCompletion(new StramTestSupport.WaitCondition()
+    {
+      @Override
+      public boolean isComplete()
+      {
+        synchronized (messages) {
+          for (String message : messages) {
+            try {
+              JSONObject json = new JSONObject(message);
+              if (type.equals(json.getString("type")) && topic.equals(json.getString("topic"))) {
+                result[0] = json;
+                return true;
+              }
+            } catch (JSONException ex) {
+              throw new RuntimeException(ex);
+            }
+          }
+        }
+        return false;
+      }
+
+    }, 5000);
+    Assert.assertNotNull(type + " " + topic, result[0]);
+    return result[0];
+  }
+
   public static class TestMetricTransport implements AutoMetric.Transport, Serializable
   {
     private String prefix;
@@ -1094,4 +1233,285 @@ public class StreamingContainerManagerTest
         criticalPathInfo.latency > latency);
     lc.shutdown();
   }
+
+  /**
+   * Records the counters of every window it aggregates.
+   */
+  @SuppressWarnings("deprecation")
+  public static class RecordingCountersAggregator implements Context.CountersAggregator, Serializable
+  {
+    private static final long serialVersionUID = 201610190000L;
+    static final List<Object> aggregatedCounters = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public Object aggregate(Collection<?> countersList)
+    {
+      aggregatedCounters.addAll(countersList);
+      return countersList.size();
+    }
+  }
+
+  private static class TestClock implements Clock
+  {
+    long time = 1;
+
+    @Override
+    public long getTime()
+    {
+      return time;
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  private static void sendEndWindowStats(StreamingContainerManager scm, PTOperator oper, long windowId, Object counters)
+  {
+    OperatorStats stats = new OperatorStats();
+    stats.windowId = windowId;
+    stats.counters = counters;
+    OperatorHeartbeat ohb = new OperatorHeartbeat();
+    ohb.setNodeId(oper.getId());
+    ohb.setState(DeployState.ACTIVE);
+    ohb.windowStats = Lists.newArrayList(stats);
+    ContainerStats cstats = new ContainerStats(oper.getContainer().getExternalId());
+    cstats.operators.add(ohb);
+    ContainerHeartbeat hb = new ContainerHeartbeat();
+    hb.setContainerStats(cstats);
+    scm.processHeartbeat(hb);
+  }
+
+  private StreamingContainerManager deployEndWindowStatsPlan(Clock clock)
+  {
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    dag.addStream("o1.outport", o1.outport, o2.inport1);
+    dag.setAttribute(o1, OperatorContext.COUNTERS_AGGREGATOR, new RecordingCountersAggregator());
+    dag.setAttribute(o2, OperatorContext.COUNTERS_AGGREGATOR, new RecordingCountersAggregator());
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+    RecordingCountersAggregator.aggregatedCounters.clear();
+
+    StreamingContainerManager scm = new StreamingContainerManager(dag, clock);
+    // assign all containers first, deploy needs the buffer server address of the upstream containers
+    List<MockContainer> containers = new ArrayList<>();
+    for (PTContainer c : scm.getPhysicalPlan().getContainers()) {
+      containers.add(new MockContainer(scm, c));
+    }
+    for (MockContainer mc : containers) {
+      mc.deploy();
+    }
+    for (MockContainer mc : containers) {
+      // skip buffer server purge in monitorHeartbeat
+      mc.container.bufferServerAddress = null;
+    }
+    return scm;
+  }
+
+  private static List<String> sorted(List<Object> counters)
+  {
+    List<String> result = new ArrayList<>();
+    synchronized (counters) {
+      for (Object c : counters) {
+        result.add((String)c);
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  private PTOperator getOperator(StreamingContainerManager scm, String name)
+  {
+    return scm.getPhysicalPlan().getOperators(dag.getOperatorMeta(name)).get(0);
+  }
+
+  @Test
+  public void testEndWindowStatsAggregatedOnce() throws Exception
+  {
+    StreamingContainerManager scm = deployEndWindowStatsPlan(new TestClock());
+    PTOperator o1p1 = getOperator(scm, "o1");
+    PTOperator o2p1 = getOperator(scm, "o2");
+    List<Object> aggregated = RecordingCountersAggregator.aggregatedCounters;
+
+    sendEndWindowStats(scm, o1p1, 1, "o1w1");
+    scm.monitorHeartbeat();
+    Assert.assertEquals("incomplete window is not aggregated", Collections.emptyList(), aggregated);
+
+    sendEndWindowStats(scm, o2p1, 1, "o2w1");
+    scm.monitorHeartbeat();
+    Assert.assertEquals("complete window", Lists.newArrayList("o1w1", "o2w1"), sorted(aggregated));
+
+    scm.monitorHeartbeat();
+    Assert.assertEquals("not aggregated again", 2, aggregated.size());
+
+    sendEndWindowStats(scm, o1p1, 2, "o1w2");
+    sendEndWindowStats(scm, o2p1, 2, "o2w2");
+    scm.monitorHeartbeat();
+    scm.monitorHeartbeat();
+    Assert.assertEquals("aggregated once", Lists.newArrayList("o1w1", "o1w2", "o2w1", "o2w2"), sorted(aggregated));
+  }
+
+  @Test
+  public void testStaleAndTrimmedEndWindowStats() throws Exception
+  {
+    dag.setAttribute(Context.DAGContext.STATS_MAX_ALLOWABLE_WINDOWS_LAG, 2);
+    StreamingContainerManager scm = deployEndWindowStatsPlan(new TestClock());
+    PTOperator o1p1 = getOperator(scm, "o1");
+    PTOperator o2p1 = getOperator(scm, "o2");
+    List<Object> aggregated = RecordingCountersAggregator.aggregatedCounters;
+
+    // window 1 remains incomplete and becomes stale once window 2 completes
+    sendEndWindowStats(scm, o1p1, 1, "o1w1");
+    sendEndWindowStats(scm, o1p1, 2, "o1w2");
+    sendEndWindowStats(scm, o2p1, 2, "o2w2");
+    scm.monitorHeartbeat();
+    Assert.assertEquals("stale and complete window", Lists.newArrayList("o1w1", "o1w2", "o2w2"), sorted(aggregated));
+
+    // o2 falls behind by more than the allowed lag, the oldest window is trimmed
+    sendEndWindowStats(scm, o1p1, 3, "o1w3");
+    sendEndWindowStats(scm, o1p1, 4, "o1w4");
+    sendEndWindowStats(scm, o1p1, 5, "o1w5");
+    scm.monitorHeartbeat();
+    scm.monitorHeartbeat();
+    Assert.assertEquals("trimmed window", Lists.newArrayList("o1w1", "o1w2", "o1w3", "o2w2"), sorted(aggregated));
+
+    // window 4 contains stats of o2, which is then removed from the plan
+    sendEndWindowStats(scm, o2p1, 4, "o2w4");
+    RemoveStreamRequest rsr = new RemoveStreamRequest();
+    rsr.setStreamName("o1.outport");
+    RemoveOperatorRequest ror = new RemoveOperatorRequest();
+    ror.setOperatorName("o2");
+    FutureTask<?> lpmf = scm.logicalPlanModification(Lists.newArrayList(rsr, ror));
+    while (!lpmf.isDone()) {
+      scm.monitorHeartbeat();
+    }
+    Assert.assertNull(lpmf.get());
+    Assert.assertFalse("o2 removed", scm.getPhysicalPlan().getAllOperators().containsKey(o2p1.getId()));
+    scm.monitorHeartbeat();
+    Assert.assertEquals("stats of removed operator ignored", Lists.newArrayList("o1w1", "o1w2", "o1w3", "o1w4", "o1w5", "o2w2"),
+        sorted(aggregated));
+  }
+
+  @Test
+  public void testCriticalPathInterval() throws Exception
+  {
+    TestClock clock = new TestClock();
+    dag.setAttribute(LogicalPlan.CRITICAL_PATH_INTERVAL_MILLIS, 1000L);
+    StreamingContainerManager scm = deployEndWindowStatsPlan(clock);
+    PTOperator o1p1 = getOperator(scm, "o1");
+    PTOperator o2p1 = getOperator(scm, "o2");
+
+    long windowId = 0;
+    clock.time = 1000;
+    windowId++;
+    sendEndWindowStats(scm, o1p1, windowId, null);
+    sendEndWindowStats(scm, o2p1, windowId, null);
+    scm.monitorHeartbeat();
+    StreamingContainerManager.CriticalPathInfo criticalPathInfo = scm.getCriticalPathInfo();
+    Assert.assertNotNull("critical path", criticalPathInfo);
+
+    for (int i = 0; i < 3; i++) {
+      clock.time += 300;
+      windowId++;
+      sendEndWindowStats(scm, o1p1, windowId, null);
+      sendEndWindowStats(scm, o2p1, windowId, null);
+      scm.monitorHeartbeat();
+      Assert.assertSame("critical path not recomputed within the interval", criticalPathInfo, scm.getCriticalPathInfo());
+    }
+
+    clock.time += 100;
+    windowId++;
+    sendEndWindowStats(scm, o1p1, windowId, null);
+    sendEndWindowStats(scm, o2p1, windowId, null);
+    scm.monitorHeartbeat();
+    Assert.assertNotSame("critical path recomputed after the interval", criticalPathInfo, scm.getCriticalPathInfo());
+  }
+
+  /**
+   * Simulates heartbeats of 500 containers that are processed concurrently, as by the RPC handler threads of the
+   * application master, and verifies that no stats updates are lost.
+   */
+  @Test
+  public void testConcurrentHeartbeats() throws Exception
+  {
+    final int numContainers = 500;
+    final int numRounds = 20;
+    final int windowsPerHeartbeat = 5;
+
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    dag.setAttribute(o1, OperatorContext.PARTITIONER, new StatelessPartitioner<TestGeneratorInputOperator>(numContainers));
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+
+    final StreamingContainerManager scm = new StreamingContainerManager(dag);
+    PhysicalPlan plan = scm.getPhysicalPlan();
+    Assert.assertEquals("number containers", numContainers, plan.getContainers().size());
+
+    // assign all containers first, deploy needs the buffer server address of the upstream containers
+    final List<MockContainer> containers = new ArrayList<>();
+    for (PTContainer c : plan.getContainers()) {
+      containers.add(new MockContainer(scm, c));
+    }
+    for (MockContainer mc : containers) {
+      mc.deploy();
+      for (PTOperator oper : mc.container.getOperators()) {
+        mc.stats(oper.getId()).deployState(DeployState.ACTIVE);
+      }
+      mc.sendHeartbeat();
+      mc.container.bufferServerAddress = null;
+    }
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      Assert.assertEquals("state " + oper, PTOperator.State.ACTIVE, oper.getState());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    List<Future<?>> futures = new ArrayList<>();
+    for (final MockContainer mc : containers) {
+      futures.add(executor.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          long windowId = 0;
+          for (int round = 0; round < numRounds; round++) {
+            ContainerStats cstats = new ContainerStats(mc.sca.container.getExternalId());
+            for (PTOperator oper : mc.container.getOperators()) {
+              OperatorHeartbeat ohb = new OperatorHeartbeat();
+              ohb.setNodeId(oper.getId());
+              ohb.setState(DeployState.ACTIVE);
+              for (int i = 0; i < windowsPerHeartbeat; i++) {
+                OperatorStats stats = new OperatorStats();
+                stats.windowId = ++windowId;
+                if (i == 0) {
+                  stats.checkpoint = new Checkpoint(windowId, 0, 0);
+                }
+                stats.outputPorts = Lists.newArrayList();
+                PortStats ps = new PortStats(TestGeneratorInputOperator.OUTPUT_PORT);
+                ps.tupleCount = 1;
+                ps.endWindowTimestamp = windowId * 100;
+                stats.outputPorts.add(ps);
+                ohb.windowStats.add(stats);
+              }
+              cstats.operators.add(ohb);
+            }
+            ContainerHeartbeat hb = new ContainerHeartbeat();
+            hb.setContainerStats(cstats);
+            scm.processHeartbeat(hb);
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    scm.processEvents();
+
+    long expectedTuples = numRounds * windowsPerHeartbeat;
+    long expectedWindowId = numRounds * windowsPerHeartbeat;
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      Assert.assertEquals("tuples " + oper, expectedTuples, oper.stats.totalTuplesEmitted.get());
+      Assert.assertEquals("window " + oper, expectedWindowId, oper.stats.currentWindowId.get());
+      Assert.assertEquals("checkpoint " + oper, expectedWindowId - windowsPerHeartbeat + 1, oper.getRecentCheckpoint().windowId);
+    }
+    Assert.assertEquals("logical tuples", numContainers * expectedTuples, dag.getMeta(o1).getStatus().totalTuplesEmitted);
+  }
+
 }
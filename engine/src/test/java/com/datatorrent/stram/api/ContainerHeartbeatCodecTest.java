@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Stats;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+
+public class ContainerHeartbeatCodecTest
+{
+  private static ContainerHeartbeat createHeartbeat()
+  {
+    ContainerHeartbeat heartbeat = new ContainerHeartbeat();
+    heartbeat.bufferServerHost = "localhost";
+    heartbeat.bufferServerPort = 51234;
+    heartbeat.jvmName = "1234@localhost";
+    heartbeat.memoryMBFree = 512;
+    heartbeat.gcCollectionCount = 10;
+    heartbeat.gcCollectionTime = -1;
+    heartbeat.sentTms = 1461000000000L;
+    heartbeat.stats = new ContainerStats("container_1");
+
+    long windowId = 0x5712345600000001L;
+    for (int nodeId = 1; nodeId <= 10; nodeId++) {
+      OperatorHeartbeat hb = new OperatorHeartbeat();
+      hb.nodeId = nodeId;
+      hb.generatedTms = heartbeat.sentTms - 5;
+      hb.intervalMs = 1000;
+      hb.state = OperatorHeartbeat.DeployState.ACTIVE;
+      for (int i = 0; i < 10; i++) {
+        OperatorStats stats = new OperatorStats();
+        stats.windowId = windowId + i;
+        stats.cpuTimeUsed = 1000 * i;
+        stats.inputPorts = new ArrayList<>();
+        PortStats input = new PortStats("input");
+        input.tupleCount = 100;
+        input.endWindowTimestamp = heartbeat.sentTms - 500 + 50 * i;
+        input.bufferServerBytes = 1000;
+        input.queueSize = 2;
+        stats.inputPorts.add(input);
+        stats.outputPorts = new ArrayList<>();
+        PortStats output = new PortStats("output");
+        output.tupleCount = 50;
+        output.endWindowTimestamp = heartbeat.sentTms - 490 + 50 * i;
+        stats.outputPorts.add(output);
+        if (i == 5) {
+          stats.checkpoint = new Checkpoint(stats.windowId, 1, 5);
+          stats.checkpointStats = new Stats.CheckpointStats();
+          stats.checkpointStats.checkpointStartTime = heartbeat.sentTms - 200;
+          stats.checkpointStats.checkpointTime = 15;
+        }
+        stats.metrics = new HashMap<>();
+        stats.metrics.put("count", (long)i);
+        stats.metrics.put("rate", 1.5);
+        hb.windowStats.add(stats);
+      }
+      heartbeat.stats.addNodeStats(hb);
+    }
+    return heartbeat;
+  }
+
+  private static byte[] write(ContainerHeartbeat heartbeat) throws IOException
+  {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    heartbeat.write(out);
+    out.flush();
+    return bos.toByteArray();
+  }
+
+  private static ContainerHeartbeat read(byte[] bytes) throws IOException
+  {
+    ContainerHeartbeat heartbeat = new ContainerHeartbeat();
+    heartbeat.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+    return heartbeat;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException
+  {
+    ContainerHeartbeat heartbeat = createHeartbeat();
+    heartbeat.setEncoding(ContainerHeartbeat.Encoding.BINARY);
+    byte[] binary = write(heartbeat);
+    heartbeat.setEncoding(ContainerHeartbeat.Encoding.JAVA);
+    byte[] java = write(heartbeat);
+    Assert.assertTrue("binary " + binary.length + " java " + java.length, binary.length * 5 < java.length);
+
+    ContainerHeartbeat legacy = read(java);
+    Assert.assertEquals("legacy encoding", ContainerHeartbeat.Encoding.JAVA, legacy.getEncoding());
+    Assert.assertEquals("legacy operators", heartbeat.stats.operators.size(), legacy.stats.operators.size());
+
+    ContainerHeartbeat decoded = read(binary);
+    Assert.assertEquals("encoding", ContainerHeartbeat.Encoding.BINARY, decoded.getEncoding());
+    Assert.assertEquals("bufferServerHost", heartbeat.bufferServerHost, decoded.bufferServerHost);
+    Assert.assertEquals("bufferServerPort", heartbeat.bufferServerPort, decoded.bufferServerPort);
+    Assert.assertEquals("jvmName", heartbeat.jvmName, decoded.jvmName);
+    Assert.assertEquals("memoryMBFree", heartbeat.memoryMBFree, decoded.memoryMBFree);
+    Assert.assertEquals("gcCollectionTime", heartbeat.gcCollectionTime, decoded.gcCollectionTime);
+    Assert.assertEquals("sentTms", heartbeat.sentTms, decoded.sentTms);
+    Assert.assertEquals("container id", heartbeat.stats.id, decoded.stats.id);
+    Assert.assertEquals("operators", heartbeat.stats.operators.size(), decoded.stats.operators.size());
+
+    for (int i = 0; i < heartbeat.stats.operators.size(); i++) {
+      OperatorHeartbeat expected = heartbeat.stats.operators.get(i);
+      OperatorHeartbeat actual = decoded.stats.operators.get(i);
+      Assert.assertEquals("nodeId", expected.nodeId, actual.nodeId);
+      Assert.assertEquals("generatedTms", expected.generatedTms, actual.generatedTms);
+      Assert.assertEquals("state", expected.state, actual.state);
+      for (int j = 0; j < expected.windowStats.size(); j++) {
+        OperatorStats expectedStats = expected.windowStats.get(j);
+        OperatorStats actualStats = actual.windowStats.get(j);
+        Assert.assertEquals("window stats", expectedStats.toString(), actualStats.toString());
+        Assert.assertEquals("checkpoint", expectedStats.checkpoint, actualStats.checkpoint);
+        Assert.assertEquals("metrics", expectedStats.metrics, actualStats.metrics);
+        Assert.assertEquals("input endWindowTimestamp", expectedStats.inputPorts.get(0).endWindowTimestamp,
+            actualStats.inputPorts.get(0).endWindowTimestamp);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.InputOperator;
+import com.datatorrent.common.util.BaseOperator;
+
+/**
+ * Input operator that emits {@link LoadTuple}s with a configurable payload size, rate and key distribution.
+ */
+public class LoadGeneratorInputOperator extends BaseOperator implements InputOperator
+{
+  public enum KeyDistribution
+  {
+    /**
+     * Keys 0 to keyCount - 1 in turn.
+     */
+    SEQUENTIAL,
+    /**
+     * Keys drawn uniformly from 0 to keyCount - 1.
+     */
+    UNIFORM,
+    /**
+     * Keys drawn from a Zipf distribution with exponent 1, key 0 being the most frequent.
+     */
+    ZIPF
+  }
+
+  private int tupleSize = 64;
+  private int tuplesPerSecond;
+  private int batchSize = 1000;
+  private int keyCount = 1000;
+  private KeyDistribution keyDistribution = KeyDistribution.UNIFORM;
+  private long seed = 0;
+  private transient Random random;
+  private transient double[] zipfCumulative;
+  private transient long startMillis;
+  private transient long emittedTuples;
+  private transient int sequence;
+
+  public final transient DefaultOutputPort<LoadTuple> output = new DefaultOutputPort<>();
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    random = new Random(seed + context.getId());
+    if (keyDistribution == KeyDistribution.ZIPF) {
+      zipfCumulative = new double[keyCount];
+      double sum = 0;
+      for (int i = 0; i < keyCount; i++) {
+        sum += 1.0 / (i + 1);
+        zipfCumulative[i] = sum;
+      }
+      for (int i = 0; i < keyCount; i++) {
+        zipfCumulative[i] /= sum;
+      }
+    }
+    startMillis = System.currentTimeMillis();
+    emittedTuples = 0;
+  }
+
+  @Override
+  public void emitTuples()
+  {
+    int count = batchSize;
+    if (tuplesPerSecond > 0) {
+      long due = (System.currentTimeMillis() - startMillis) * tuplesPerSecond / 1000 - emittedTuples;
+      count = (int)Math.min(count, due);
+    }
+    for (int i = 0; i < count; i++) {
+      byte[] payload = new byte[tupleSize];
+      Arrays.fill(payload, (byte)i);
+      output.emit(new LoadTuple(nextKey(), payload));
+    }
+    emittedTuples += count;
+  }
+
+  private int nextKey()
+  {
+    switch (keyDistribution) {
+      case SEQUENTIAL:
+        return sequence++ % keyCount;
+      case ZIPF:
+        int index = Arrays.binarySearch(zipfCumulative, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, keyCount - 1);
+      default:
+        return random.nextInt(keyCount);
+    }
+  }
+
+  public int getTupleSize()
+  {
+    return tupleSize;
+  }
+
+  /**
+   * Sets the payload size of the tuples in bytes.
+   *
+   * @param tupleSize payload size
+   */
+  public void setTupleSize(int tupleSize)
+  {
+    this.tupleSize = tupleSize;
+  }
+
+  public int getTuplesPerSecond()
+  {
+    return tuplesPerSecond;
+  }
+
+  /**
+   * Sets the rate of emitted tuples, 0 emits as fast as the downstream operators accept.
+   *
+   * @param tuplesPerSecond rate
+   */
+  public void setTuplesPerSecond(int tuplesPerSecond)
+  {
+    this.tuplesPerSecond = tuplesPerSecond;
+  }
+
+  public int getBatchSize()
+  {
+    return batchSize;
+  }
+
+  /**
+   * Sets the maximum number of tuples emitted per call of {@link #emitTuples()}.
+   *
+   * @param batchSize maximum number of tuples
+   */
+  public void setBatchSize(int batchSize)
+  {
+    this.batchSize = batchSize;
+  }
+
+  public int getKeyCount()
+  {
+    return keyCount;
+  }
+
+  public void setKeyCount(int keyCount)
+  {
+    this.keyCount = keyCount;
+  }
+
+  public KeyDistribution getKeyDistribution()
+  {
+    return keyDistribution;
+  }
+
+  public void setKeyDistribution(KeyDistribution keyDistribution)
+  {
+    this.keyDistribution = keyDistribution;
+  }
+
+  public long getSeed()
+  {
+    return seed;
+  }
+
+  public void setSeed(long seed)
+  {
+    this.seed = seed;
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.benchmark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.common.util.BaseOperator;
+
+/**
+ * Sink that counts the received tuples and payload bytes. The counts are kept in a static registry by counter name,
+ * so that the test can read them while the operators run in the local cluster; all partitions of a sink share the
+ * counter.
+ */
+public class LoadSinkOperator extends BaseOperator
+{
+  private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+  private String counterName = "sink";
+  private transient Counter counter;
+  // counts of the current window, added to the counter at the end of the window
+  private transient long tuples;
+  private transient long bytes;
+
+  public static class Counter
+  {
+    public final AtomicLong tuples = new AtomicLong();
+    public final AtomicLong bytes = new AtomicLong();
+  }
+
+  public final transient DefaultInputPort<LoadTuple> input = new DefaultInputPort<LoadTuple>()
+  {
+    @Override
+    public void process(LoadTuple tuple)
+    {
+      tuples++;
+      bytes += tuple.payload.length;
+    }
+
+  };
+
+  @Override
+  public void beginWindow(long windowId)
+  {
+    if (counter == null) {
+      counter = getCounter(counterName);
+    }
+  }
+
+  @Override
+  public void endWindow()
+  {
+    counter.tuples.addAndGet(tuples);
+    counter.bytes.addAndGet(bytes);
+    tuples = 0;
+    bytes = 0;
+  }
+
+  public String getCounterName()
+  {
+    return counterName;
+  }
+
+  public void setCounterName(String counterName)
+  {
+    this.counterName = counterName;
+  }
+
+  public static Counter getCounter(String counterName)
+  {
+    Counter counter = COUNTERS.get(counterName);
+    if (counter == null) {
+      COUNTERS.putIfAbsent(counterName, new Counter());
+      counter = COUNTERS.get(counterName);
+    }
+    return counter;
+  }
+
+  public static void resetCounters()
+  {
+    COUNTERS.clear();
+  }
+
+}
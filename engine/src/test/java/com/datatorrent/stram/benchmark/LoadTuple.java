@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.benchmark;
+
+/**
+ * Tuple of the load generator. The hash code is the key, so that the default stream codec partitions by key.
+ */
+public class LoadTuple
+{
+  public int key;
+  public byte[] payload;
+
+  public LoadTuple()
+  {
+  }
+
+  public LoadTuple(int key, byte[] payload)
+  {
+    this.key = key;
+    this.payload = payload;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return key;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    return obj instanceof LoadTuple && ((LoadTuple)obj).key == key;
+  }
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.benchmark;
+
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.annotation.InputPortFieldAnnotation;
+import com.datatorrent.common.util.BaseOperator;
+
+/**
+ * Stateless operator that emits the tuples of both input ports unchanged, for linear, fan-in and partitioned
+ * topologies.
+ */
+public class PassThroughOperator extends BaseOperator
+{
+  public final transient DefaultOutputPort<LoadTuple> output = new DefaultOutputPort<>();
+
+  public final transient DefaultInputPort<LoadTuple> input = new DefaultInputPort<LoadTuple>()
+  {
+    @Override
+    public void process(LoadTuple tuple)
+    {
+      output.emit(tuple);
+    }
+
+  };
+
+  @InputPortFieldAnnotation(optional = true)
+  public final transient DefaultInputPort<LoadTuple> input2 = new DefaultInputPort<LoadTuple>()
+  {
+    @Override
+    public void process(LoadTuple tuple)
+    {
+      output.emit(tuple);
+    }
+
+  };
+
+}
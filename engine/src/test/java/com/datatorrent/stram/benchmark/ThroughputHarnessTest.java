@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.benchmark;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.common.partitioner.StatelessPartitioner;
+import com.datatorrent.stram.StramLocalCluster;
+import com.datatorrent.stram.StreamingContainerManager;
+import com.datatorrent.stram.benchmark.LoadGeneratorInputOperator.KeyDistribution;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.physical.PTOperator;
+import com.datatorrent.stram.support.StramTestSupport;
+
+/**
+ * Measures the throughput of the engine for basic topologies of the load generator operators in the local cluster.
+ * The harness only runs when the run time of each topology is set with the system property
+ * {@value #RUN_MILLIS_PROPERTY}, for example {@code -Dbenchmark.runMillis=9000}; the first third of the run is not
+ * measured.
+ */
+public class ThroughputHarnessTest
+{
+  private static final Logger LOG = LoggerFactory.getLogger(ThroughputHarnessTest.class);
+  public static final String RUN_MILLIS_PROPERTY = "benchmark.runMillis";
+
+  @Rule
+  public StramTestSupport.TestMeta testMeta = new StramTestSupport.TestMeta();
+
+  private LogicalPlan dag;
+  private final List<String> sinkNames = Lists.newArrayList();
+
+  @Before
+  public void setup()
+  {
+    Assume.assumeNotNull(System.getProperty(RUN_MILLIS_PROPERTY));
+    dag = StramTestSupport.createDAG(testMeta);
+    sinkNames.clear();
+    LoadSinkOperator.resetCounters();
+  }
+
+  @Test
+  public void testLinear() throws Exception
+  {
+    LoadGeneratorInputOperator gen = addGenerator("gen");
+    PassThroughOperator pass = dag.addOperator("pass", PassThroughOperator.class);
+    LoadSinkOperator sink = addSink("sink");
+    dag.addStream("genToPass", gen.output, pass.input);
+    dag.addStream("passToSink", pass.output, sink.input);
+    run("linear");
+  }
+
+  @Test
+  public void testFanOut() throws Exception
+  {
+    LoadGeneratorInputOperator gen = addGenerator("gen");
+    LoadSinkOperator sink1 = addSink("sink1");
+    LoadSinkOperator sink2 = addSink("sink2");
+    dag.addStream("genToSinks", gen.output, sink1.input, sink2.input);
+    run("fan-out");
+  }
+
+  @Test
+  public void testFanIn() throws Exception
+  {
+    LoadGeneratorInputOperator gen1 = addGenerator("gen1");
+    LoadGeneratorInputOperator gen2 = addGenerator("gen2");
+    PassThroughOperator merge = dag.addOperator("merge", PassThroughOperator.class);
+    LoadSinkOperator sink = addSink("sink");
+    dag.addStream("gen1ToMerge", gen1.output, merge.input);
+    dag.addStream("gen2ToMerge", gen2.output, merge.input2);
+    dag.addStream("mergeToSink", merge.output, sink.input);
+    run("fan-in");
+  }
+
+  @Test
+  public void testPartitioned() throws Exception
+  {
+    LoadGeneratorInputOperator gen = addGenerator("gen");
+    gen.setKeyDistribution(KeyDistribution.ZIPF);
+    PassThroughOperator pass = dag.addOperator("pass", PassThroughOperator.class);
+    dag.setAttribute(pass, OperatorContext.PARTITIONER, new StatelessPartitioner<PassThroughOperator>(2));
+    LoadSinkOperator sink = addSink("sink");
+    dag.addStream("genToPass", gen.output, pass.input);
+    // the partitions are merged by the default unifier
+    dag.addStream("passToSink", pass.output, sink.input);
+    run("partitioned");
+  }
+
+  private LoadGeneratorInputOperator addGenerator(String name)
+  {
+    return dag.addOperator(name, LoadGeneratorInputOperator.class);
+  }
+
+  private LoadSinkOperator addSink(String name)
+  {
+    LoadSinkOperator sink = dag.addOperator(name, LoadSinkOperator.class);
+    sink.setCounterName(name);
+    sinkNames.add(name);
+    return sink;
+  }
+
+  private void run(String topology) throws Exception
+  {
+    final long runMillis = Long.getLong(RUN_MILLIS_PROPERTY);
+    final StramLocalCluster lc = new StramLocalCluster(dag);
+    final long[] start = new long[3];
+    final long[] end = new long[3];
+    final long[] latencyMillis = new long[1];
+    final long startMillis = System.currentTimeMillis();
+
+    // sample the counters from the master loop after the warm up and at the end of the run
+    lc.setExitCondition(new Callable<Boolean>()
+    {
+      @Override
+      public Boolean call() throws Exception
+      {
+        long now = System.currentTimeMillis();
+        if (start[0] == 0 && now - startMillis >= runMillis / 3) {
+          sample(start, now);
+        }
+        if (now - startMillis >= runMillis) {
+          sample(end, now);
+          latencyMillis[0] = getLatencyMillis(lc.getStreamingContainerManager());
+          return true;
+        }
+        return false;
+      }
+
+    });
+    lc.run();
+
+    Assert.assertTrue("measured " + topology, end[0] > start[0] && start[0] > 0);
+    long tuples = end[1] - start[1];
+    long bytes = end[2] - start[2];
+    double seconds = (end[0] - start[0]) / 1000.0;
+    LOG.info("Topology {}: {} tuples/s, {} bytes/s, window latency {} ms", topology, (long)(tuples / seconds),
+        (long)(bytes / seconds), latencyMillis[0]);
+    Assert.assertTrue("tuples " + topology, tuples > 0);
+  }
+
+  private void sample(long[] sample, long now)
+  {
+    sample[0] = now;
+    sample[1] = 0;
+    sample[2] = 0;
+    for (String sinkName : sinkNames) {
+      LoadSinkOperator.Counter counter = LoadSinkOperator.getCounter(sinkName);
+      sample[1] += counter.tuples.get();
+      sample[2] += counter.bytes.get();
+    }
+  }
+
+  private long getLatencyMillis(StreamingContainerManager dnmgr)
+  {
+    long latency = 0;
+    LogicalPlan plan = dnmgr.getLogicalPlan();
+    for (String sinkName : sinkNames) {
+      for (PTOperator oper : dnmgr.getPhysicalPlan().getAllOperators(plan.getOperatorMeta(sinkName))) {
+        latency = Math.max(latency, oper.stats.getLatencyMA());
+      }
+    }
+    return latency;
+  }
+
+}
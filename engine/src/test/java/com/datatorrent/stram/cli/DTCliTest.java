@@ -18,7 +18,10 @@
  */
 package com.datatorrent.stram.cli;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.PrintStream;
 import com.datatorrent.stram.client.AppPackage;
 import com.datatorrent.stram.client.ConfigPackage;
 import com.datatorrent.stram.client.DTConfiguration;
@@ -28,12 +31,17 @@ import static com.datatorrent.stram.support.StramTestSupport.setEnv;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import jline.UnsupportedTerminal;
+import jline.console.ConsoleReader;
 
 /**
  *
@@ -175,4 +183,66 @@ public class DTCliTest
     Assert.assertEquals("app-default", props.get("dt.test.5"));
     Assert.assertEquals("package-default", props.get("dt.test.6"));
   }
+
+  @Test
+  public void testBatch() throws Exception
+  {
+    final DTCli batchCli = new DTCli();
+    batchCli.currentApp = Mockito.mock(ApplicationReport.class);
+    // the first command takes longest, its output is still printed first
+    batchCli.connectedCommands.put("get-app-info", batchCommand(batchCli, "first", 200, false));
+    batchCli.connectedCommands.put("list-containers", batchCommand(batchCli, "second", 0, false));
+    batchCli.connectedCommands.put("get-app-attributes", batchCommand(batchCli, "third", 0, true));
+    ConsoleReader reader = new ConsoleReader(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(),
+        new UnsupportedTerminal());
+
+    PrintStream out = System.out;
+    PrintStream err = System.err;
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    ByteArrayOutputStream berr = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(bout, true));
+    System.setErr(new PrintStream(berr, true));
+    try {
+      batchCli.processLine("begin-batch x", reader, true);
+      Assert.assertTrue("invalid parallelism", DTCli.lastCommandError);
+      Assert.assertTrue(berr.toString(), berr.toString().contains("Invalid parallelism x"));
+      berr.reset();
+
+      batchCli.processLine("begin-batch 2", reader, true);
+      batchCli.processLine("get-app-info; list-containers; get-app-attributes", reader, true);
+      Assert.assertEquals("queued commands are not executed", "", bout.toString());
+
+      batchCli.processLine("shutdown-app", reader, true);
+      Assert.assertTrue("rejected", DTCli.lastCommandError);
+      Assert.assertTrue(berr.toString(), berr.toString().contains("\"shutdown-app\" cannot be used in a batch"));
+      berr.reset();
+
+      batchCli.processLine("end-batch", reader, true);
+      Assert.assertEquals("output in order", "first\nsecond\nthird\n", bout.toString());
+      Assert.assertTrue("failed command", DTCli.lastCommandError);
+      Assert.assertTrue(berr.toString(), berr.toString().contains("third failed"));
+      Assert.assertTrue(berr.toString(), berr.toString().contains("Some commands of the batch failed"));
+    } finally {
+      System.setOut(out);
+      System.setErr(err);
+    }
+  }
+
+  private static DTCli.CommandSpec batchCommand(final DTCli cli, final String output, final long sleepMillis, final boolean fail)
+  {
+    return new DTCli.CommandSpec(new DTCli.Command()
+    {
+      @Override
+      public void execute(String[] args, ConsoleReader reader) throws Exception
+      {
+        Thread.sleep(sleepMillis);
+        cli.getOutputPrintStream().println(output);
+        if (fail) {
+          throw new IllegalStateException(output + " failed");
+        }
+      }
+
+    }, null, null, output);
+  }
+
 }
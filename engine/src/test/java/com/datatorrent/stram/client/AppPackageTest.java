@@ -30,6 +30,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import org.junit.AfterClass;
@@ -45,6 +46,8 @@ public class AppPackageTest
   private static AppPackage yap;
   private static JSONSerializationProvider jomp;
   private static JSONObject json;
+  private static File file;
+  private static String savedCacheDir;
 
   String appPackageDir = "src/test/resources/testAppPackage/mydtapp";
 
@@ -52,7 +55,9 @@ public class AppPackageTest
   public static void starting()
   {
     try {
-      File file = StramTestSupport.createAppPackageFile();
+      savedCacheDir = System.getProperty(AppPackage.CACHE_DIR_PROPERTY);
+      System.setProperty(AppPackage.CACHE_DIR_PROPERTY, "");
+      file = StramTestSupport.createAppPackageFile();
       // Set up test instance
       ap = new AppPackage(file, true);
       // set up another instance
@@ -76,6 +81,11 @@ public class AppPackageTest
   @AfterClass
   public static void finished()
   {
+    if (savedCacheDir == null) {
+      System.clearProperty(AppPackage.CACHE_DIR_PROPERTY);
+    } else {
+      System.setProperty(AppPackage.CACHE_DIR_PROPERTY, savedCacheDir);
+    }
     StramTestSupport.removeAppPackageFile();
   }
 
@@ -126,4 +136,46 @@ public class AppPackageTest
     }
     Assert.fail("Should consist of an app called MyFirstApplication");
   }
+
+  @Test
+  public void testDiscoveryCache() throws Exception
+  {
+    File cacheDir = new File("target/" + AppPackageTest.class.getName() + "/cache");
+    FileUtils.deleteDirectory(cacheDir);
+    System.setProperty(AppPackage.CACHE_DIR_PROPERTY, cacheDir.getPath());
+    try {
+      JSONObject discovered;
+      try (AppPackage pkg = new AppPackage(file, true)) {
+        discovered = new JSONObject(jomp.getContext(null).writeValueAsString(pkg));
+        Assert.assertNotNull("dag field of discovered application", pkg.getApplications().get(0).dag);
+      }
+      Assert.assertEquals("cache files", 1, cacheDir.list().length);
+
+      try (AppPackage pkg = new AppPackage(file, true)) {
+        JSONObject cached = new JSONObject(jomp.getContext(null).writeValueAsString(pkg));
+        JSONObject application = cached.getJSONArray("applications").getJSONObject(0);
+        Assert.assertEquals("MyFirstApplication", application.getString("name"));
+        Assert.assertEquals("There are two operator", 2, application.getJSONObject("dag").getJSONArray("operators").length());
+        Assert.assertEquals("app level required properties", "dt.test.required.2", application.getJSONArray("requiredProperties").getString(0));
+        Assert.assertEquals("applications", discovered.getJSONArray("applications").length(), cached.getJSONArray("applications").length());
+
+        // the logical plan is created on demand
+        AppPackage.AppInfo appInfo = pkg.getApplications().get(0);
+        Assert.assertNull("dag field of cached application", appInfo.dag);
+        Assert.assertNotNull("dag of cached application", appInfo.getDag());
+        Assert.assertSame("dag field is set with the plan", appInfo.getDag(), appInfo.dag);
+        Assert.assertEquals("operators", 2, appInfo.getDag().getAllOperators().size());
+      }
+
+      // metadata is read without extracting the package
+      try (AppPackage pkg = new AppPackage(file, false)) {
+        Assert.assertEquals("mydtapp", pkg.getAppPackageName());
+        Assert.assertEquals("app jars", Arrays.asList("mydtapp-1.0-SNAPSHOT.jar"), pkg.getAppJars());
+        Assert.assertEquals("required properties", 2, pkg.getRequiredProperties().size());
+        Assert.assertTrue("app jar extracted on demand", new File(pkg.tempDirectory(), "app/mydtapp-1.0-SNAPSHOT.jar").exists());
+      }
+    } finally {
+      System.setProperty(AppPackage.CACHE_DIR_PROPERTY, "");
+    }
+  }
 }
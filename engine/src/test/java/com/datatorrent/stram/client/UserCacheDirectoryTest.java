@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.client;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.commons.io.FileUtils;
+
+public class UserCacheDirectoryTest
+{
+  private static final String PROPERTY = "dt.test.cacheDir";
+  private final File dir = new File("target/" + UserCacheDirectoryTest.class.getName());
+
+  @Before
+  public void setup() throws Exception
+  {
+    FileUtils.deleteDirectory(dir);
+    System.setProperty(PROPERTY, dir.getPath());
+  }
+
+  @After
+  public void teardown()
+  {
+    System.clearProperty(PROPERTY);
+  }
+
+  @Test
+  public void testEvict() throws Exception
+  {
+    UserCacheDirectory cacheDir = UserCacheDirectory.get(PROPERTY, "unused", ".dat");
+    Assert.assertNotNull("cache directory", cacheDir);
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 4; i++) {
+      File file = cacheDir.getFile("entry" + i);
+      FileUtils.writeByteArrayToFile(file, new byte[100]);
+      // entry0 is the most recently used
+      Assert.assertTrue(file.setLastModified(now - i * 60000L));
+    }
+    File other = new File(dir, "other.tmp");
+    FileUtils.writeByteArrayToFile(other, new byte[1000]);
+
+    cacheDir.evict(250, 150000);
+    Assert.assertTrue("entry0", cacheDir.getFile("entry0").exists());
+    Assert.assertTrue("entry1", cacheDir.getFile("entry1").exists());
+    Assert.assertFalse("entry2 exceeds size", cacheDir.getFile("entry2").exists());
+    Assert.assertFalse("entry3 expired", cacheDir.getFile("entry3").exists());
+    Assert.assertTrue("files of other suffix", other.exists());
+
+    System.setProperty(PROPERTY, "");
+    Assert.assertNull("disabled", UserCacheDirectory.get(PROPERTY, "unused", ".dat"));
+  }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.StatsListener;
+import com.datatorrent.common.partitioner.StatelessPartitioner;
+import com.datatorrent.stram.PartitioningTest.PartitionLoadWatch;
+import com.datatorrent.stram.engine.GenericTestOperator;
+import com.datatorrent.stram.engine.TestGeneratorInputOperator;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.logical.LogicalPlan.OperatorMeta;
+import com.datatorrent.stram.plan.logical.LogicalPlan.StreamMeta;
+
+public class LogicalPlanKryoSerializerTest
+{
+  @Test
+  public void testClone() throws Exception
+  {
+    LogicalPlan dag = new LogicalPlan();
+    TestGeneratorInputOperator input = dag.addOperator("input", TestGeneratorInputOperator.class);
+    input.setMaxTuples(10);
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    o1.setMyStringProperty("myValue");
+    dag.setAttribute(o1, OperatorContext.PARTITIONER, new StatelessPartitioner<GenericTestOperator>(2));
+    dag.setAttribute(o1, OperatorContext.APPLICATION_WINDOW_COUNT, 5);
+    dag.setAttribute(o1, OperatorContext.STATS_LISTENERS, Arrays.asList(new StatsListener[]{new PartitionLoadWatch()}));
+    dag.addStream("inputToO1", input.outport, o1.inport1);
+    dag.setAttribute(LogicalPlan.CONTAINERS_MAX_COUNT, 3);
+
+    LogicalPlan clone = LogicalPlanKryoSerializer.clone(dag);
+
+    Assert.assertEquals("operators", 2, clone.getAllOperators().size());
+    Assert.assertEquals("dag attribute", 3, (int)clone.getValue(LogicalPlan.CONTAINERS_MAX_COUNT));
+    OperatorMeta o1Meta = clone.getOperatorMeta("o1");
+    Assert.assertNotSame("operator copied", o1, o1Meta.getOperator());
+    GenericTestOperator o1Clone = (GenericTestOperator)o1Meta.getOperator();
+    Assert.assertEquals("property", "myValue", o1Clone.getMyStringProperty());
+    Assert.assertEquals("operator attribute", 5, (int)o1Meta.getValue(OperatorContext.APPLICATION_WINDOW_COUNT));
+    Assert.assertNotNull("partitioner", o1Meta.getValue(OperatorContext.PARTITIONER));
+    Collection<StatsListener> listeners = o1Meta.getValue(OperatorContext.STATS_LISTENERS);
+    Assert.assertEquals("stats listeners " + listeners, 1, listeners.size());
+    Assert.assertTrue("stats listener", listeners.iterator().next() instanceof PartitionLoadWatch);
+    Assert.assertEquals("max tuples", 10, ((TestGeneratorInputOperator)clone.getOperatorMeta("input").getOperator()).getMaxTuples());
+
+    // ports of the copied operators map to the copied plan
+    StreamMeta stream = clone.getStream("inputToO1");
+    Assert.assertSame("sink", o1Meta.getMeta(o1Clone.inport1), stream.getSinks().iterator().next());
+    Assert.assertSame("source", clone.getOperatorMeta("input"), stream.getSource().getOperatorMeta());
+    clone.validate();
+  }
+
+}
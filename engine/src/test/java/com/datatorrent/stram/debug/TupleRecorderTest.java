@@ -29,6 +29,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
@@ -39,6 +40,7 @@ import com.datatorrent.api.Context;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.stram.engine.StreamingContainer;
 import com.datatorrent.stram.StramLocalCluster;
+import com.datatorrent.stram.debug.FSTupleRecordingPartFileCollection.EntryReader;
 import com.datatorrent.stram.debug.TupleRecorder.PortInfo;
 import com.datatorrent.stram.engine.GenericTestOperator;
 import com.datatorrent.stram.engine.TestGeneratorInputOperator;
@@ -46,6 +48,9 @@ import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.physical.PTOperator;
 import com.datatorrent.stram.support.StramTestSupport;
 import com.datatorrent.stram.support.StramTestSupport.WaitCondition;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection.IndexEntry;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection.OffsetIndex;
 import com.datatorrent.stram.util.FSPartFileCollection;
 import org.codehaus.jettison.json.JSONObject;
 
@@ -139,7 +144,7 @@ public class TupleRecorderTest
         line = br.readLine();
         //    Assert.assertEquals("check index", "B:1000:T:0:part0.txt", line);
         Assert.assertTrue("check index", line
-            .matches("F:part0.txt:\\d+-\\d+:4:T:1000-1000:33:\\{\"3\":\"1\",\"1\":\"1\",\"0\":\"1\",\"2\":\"1\"\\}"));
+            .matches("F:part0.txt:\\d+-\\d+:4:T:1000-1000:33:\\{\"0\":\"1\",\"1\":\"1\",\"2\":\"1\",\"3\":\"1\"\\}:1000-1000:0@0@1000"));
       }
       path = new Path(recorder.getStorage().getBasePath(), FSPartFileCollection.META_FILE);
       try (FSDataInputStream is = fs.open(path);
@@ -147,7 +152,7 @@ public class TupleRecorderTest
 
         ObjectMapper mapper = new ObjectMapper();
         line = br.readLine();
-        Assert.assertEquals("check version", "1.2", line);
+        Assert.assertEquals("check version", TupleRecorder.BINARY_VERSION, line);
         br.readLine(); // RecordInfo
         //RecordInfo ri = mapper.readValue(line, RecordInfo.class);
         line = br.readLine();
@@ -170,35 +175,102 @@ public class TupleRecorderTest
         //line = br.readLine();
       }
       path = new Path(recorder.getStorage().getBasePath(), "part0.txt");
-      try (FSDataInputStream is = fs.open(path);
-          BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-
-        line = br.readLine();
-        Assert.assertTrue("check part0", line.startsWith("B:"));
-        Assert.assertTrue("check part0", line.endsWith(":1000"));
-
-        line = br.readLine();
-        Assert.assertTrue("check part0 1", line.startsWith("T:"));
-        Assert.assertTrue("check part0 1", line.endsWith(":0:30:{\"key\":\"speed\",\"value\":\"5m/h\"}"));
-
-        line = br.readLine();
-        Assert.assertTrue("check part0 2", line.startsWith("T:"));
-        Assert.assertTrue("check part0 2", line.endsWith(":2:30:{\"key\":\"speed\",\"value\":\"4m/h\"}"));
+      try (FSDataInputStream is = fs.open(path)) {
+        EntryReader reader = new EntryReader(is);
+
+        Assert.assertTrue("check part0", reader.next());
+        Assert.assertEquals("check part0", FSTupleRecordingPartFileCollection.ENTRY_BEGIN_WINDOW, reader.type);
+        Assert.assertEquals("check part0", 1000, reader.windowId);
+
+        assertTuple(reader, 0, "{\"key\":\"speed\",\"value\":\"5m/h\"}");
+        assertTuple(reader, 2, "{\"key\":\"speed\",\"value\":\"4m/h\"}");
+        assertTuple(reader, 1, "{\"key\":\"speed\",\"value\":\"6m/h\"}");
+        assertTuple(reader, 3, "{\"key\":\"speed\",\"value\":\"2m/h\"}");
+
+        Assert.assertTrue("check part0 5", reader.next());
+        Assert.assertEquals("check part0 5", FSTupleRecordingPartFileCollection.ENTRY_END_WINDOW, reader.type);
+        Assert.assertEquals("check part0 5", 1000, reader.windowId);
+        Assert.assertFalse("end of part0", reader.next());
+      }
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
 
-        line = br.readLine();
-        Assert.assertTrue("check part0 3", line.startsWith("T:"));
-        Assert.assertTrue("check part0 3", line.endsWith(":1:30:{\"key\":\"speed\",\"value\":\"6m/h\"}"));
+  private static void assertTuple(EntryReader reader, int portId, String data) throws IOException
+  {
+    Assert.assertTrue("tuple " + data, reader.next());
+    Assert.assertEquals("type " + data, FSTupleRecordingPartFileCollection.ENTRY_TUPLE, reader.type);
+    Assert.assertEquals("port " + data, portId, reader.portId);
+    Assert.assertEquals("data", data, reader.readData());
+  }
 
-        line = br.readLine();
-        Assert.assertTrue("check part0 4", line.startsWith("T:"));
-        Assert.assertTrue("check part0 4", line.endsWith(":3:30:{\"key\":\"speed\",\"value\":\"2m/h\"}"));
+  @Test
+  public void testDropOnOverflow() throws IOException
+  {
+    TupleRecorder recorder = new TupleRecorder(null, "application_test_id_1");
+    recorder.getStorage().setLocalMode(true);
+    recorder.getStorage().setBasePath("file://" + testWorkDir.getAbsolutePath() + "/recordingsOverflow");
+    recorder.setQueueCapacity(0);
+    recorder.addInputPortInfo("ip1", "str1");
+    recorder.setup(null, null);
+
+    recorder.beginWindow(1000);
+    Tuple t1 = new Tuple();
+    t1.key = "speed";
+    t1.value = "5m/h";
+    recorder.writeTuple(t1, "ip1");
+    recorder.writeTuple(t1, "ip1");
+    recorder.endWindow();
+    recorder.teardown();
+
+    Assert.assertEquals("recorded tuples", 0, recorder.getTotalTupleCount());
+    Assert.assertEquals("dropped tuples", 2, recorder.getDroppedTupleCount());
+    String index = FileUtils.readFileToString(new File(testWorkDir, "recordingsOverflow/" + FSPartFileCollection.INDEX_FILE));
+    Assert.assertTrue("index " + index, index.startsWith("F:part0.txt:") && index.contains(":0:T:1000-1000:"));
+  }
 
-        line = br.readLine();
-        Assert.assertTrue("check part0 5", line.startsWith("E:"));
-        Assert.assertTrue("check part0 5", line.endsWith(":1000"));
+  @Test
+  public void testIndexSeek() throws IOException
+  {
+    TupleRecorder recorder = new TupleRecorder(null, "application_test_id_1");
+    recorder.getStorage().setLocalMode(true);
+    recorder.getStorage().setBasePath("file://" + testWorkDir.getAbsolutePath() + "/recordingsIndex");
+    recorder.addInputPortInfo("ip1", "str1");
+    recorder.setup(null, null);
+
+    Tuple t1 = new Tuple();
+    t1.key = "speed";
+    for (int windowId = 1000; windowId < 1010; windowId++) {
+      recorder.beginWindow(windowId);
+      for (int i = 0; i < 100; i++) {
+        t1.value = windowId + "/" + i;
+        recorder.writeTuple(t1, "ip1");
       }
-    } catch (IOException ex) {
-      throw new RuntimeException(ex);
+      recorder.endWindow();
+    }
+    recorder.teardown();
+
+    String index = FileUtils.readFileToString(new File(testWorkDir, "recordingsIndex/" + FSPartFileCollection.INDEX_FILE));
+    String line = index.substring(0, index.indexOf('\n'));
+    OffsetIndex offsetIndex = OffsetIndex.parse(line.substring(line.lastIndexOf('}') + 2));
+    Assert.assertEquals("min window", 1000, offsetIndex.minKey);
+    Assert.assertEquals("max window", 1009, offsetIndex.maxKey);
+    Assert.assertEquals("entries", 4, offsetIndex.entries.size());
+
+    IndexEntry entry = FSIndexedPartFileCollection.seekOrdinal(offsetIndex.entries, 650);
+    Assert.assertEquals("ordinal", 600, entry.ordinal);
+    Assert.assertEquals("window", 1006, entry.key);
+    entry = FSIndexedPartFileCollection.seekKey(offsetIndex.entries, 1006);
+    Assert.assertEquals("window", 1003, entry.key);
+
+    try (InputStream is = new FileInputStream(new File(testWorkDir, "recordingsIndex/part0.txt"))) {
+      Assert.assertEquals("skipped", entry.offset, is.skip(entry.offset));
+      EntryReader reader = new EntryReader(is);
+      Assert.assertTrue("begin window", reader.next());
+      Assert.assertEquals("begin window", FSTupleRecordingPartFileCollection.ENTRY_BEGIN_WINDOW, reader.type);
+      Assert.assertEquals("begin window", 1003, reader.windowId);
+      assertTuple(reader, 0, "{\"key\":\"speed\",\"value\":\"1003/0\"}");
     }
   }
 
@@ -265,7 +337,7 @@ public class TupleRecorderTest
 
     try (BufferedReader br = new BufferedReader(new FileReader(file))) {
       line = br.readLine();
-      Assert.assertEquals("version should be 1.2", "1.2", line);
+      Assert.assertEquals("version should be " + TupleRecorder.BINARY_VERSION, TupleRecorder.BINARY_VERSION, line);
       line = br.readLine();
       JSONObject json = new JSONObject(line);
       Assert.assertEquals("Start time verification", startTime, json.getLong("startTime"));
@@ -334,15 +406,15 @@ public class TupleRecorderTest
         Assert.assertTrue(partFile + " should be greater than 1KB", file.length() >= 1024);
       }
       Assert.assertTrue(partFile + " should exist", file.exists());
-      try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-        while ((line = br.readLine()) != null) {
-          if (line.startsWith("B:")) {
+      try (InputStream is = new FileInputStream(file)) {
+        EntryReader reader = new EntryReader(is);
+        while (reader.next()) {
+          if (reader.type == FSTupleRecordingPartFileCollection.ENTRY_BEGIN_WINDOW) {
             beginWindowExists = true;
-          } else if (line.startsWith("E:")) {
+          } else if (reader.type == FSTupleRecordingPartFileCollection.ENTRY_END_WINDOW) {
             endWindowExists = true;
-          } else if (line.startsWith("T:")) {
-            String[] parts = line.split(":");
-            tupleCount[Integer.valueOf(parts[2])]++;
+          } else if (reader.type == FSTupleRecordingPartFileCollection.ENTRY_TUPLE) {
+            tupleCount[reader.portId]++;
           }
         }
       }
@@ -644,6 +644,60 @@ public class LogicalPlanConfigurationTest {
     Assert.assertEquals(true, operator2.isBooleanProperty());
   }
 
+  /**
+   * Applies a large property set with exact and wildcard keys to a DAG with many operators and logs the time it
+   * takes, every operator and port is matched against all operator and port configurations.
+   */
+  @Test
+  public void testPrepareDAGPerformance()
+  {
+    final int numOperators = 500;
+    String prefix = StreamingApplication.DT_PREFIX + "application.BenchApp.";
+    Properties props = new Properties();
+    for (int i = 0; i < numOperators; i++) {
+      props.put(prefix + "operator.o" + i + ".prop.myStringProperty", "v" + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      // wildcards that do not match any operator
+      props.put(prefix + "operator.x" + i + "[0-9]+.prop.myStringProperty", "x" + i);
+    }
+    props.put(prefix + "operator.o[0-9]*5.prop.emitFormat", "fmt5");
+    props.put(prefix + "operator.*." + OperatorContext.APPLICATION_WINDOW_COUNT.getName(), "2");
+    props.put(prefix + "operator.*.port.*." + PortContext.QUEUE_CAPACITY.getName(), "" + 16 * 1024);
+
+    StreamingApplication app = new StreamingApplication()
+    {
+      @Override
+      public void populateDAG(DAG dag, Configuration conf)
+      {
+        GenericTestOperator previous = dag.addOperator("o0", GenericTestOperator.class);
+        for (int i = 1; i < numOperators; i++) {
+          GenericTestOperator operator = dag.addOperator("o" + i, GenericTestOperator.class);
+          dag.addStream("s" + i, previous.outport1, operator.inport1);
+          previous = operator;
+        }
+      }
+    };
+
+    LogicalPlanConfiguration dagBuilder = new LogicalPlanConfiguration(new Configuration(false));
+    dagBuilder.addFromProperties(props, null);
+    LogicalPlan dag = new LogicalPlan();
+    long start = System.currentTimeMillis();
+    dagBuilder.prepareDAG(dag, app, "BenchApp");
+    LOG.info("Preparing a DAG with {} operators and {} properties took {} ms", numOperators, props.size(),
+        System.currentTimeMillis() - start);
+
+    OperatorMeta om7 = dag.getOperatorMeta("o7");
+    GenericTestOperator o7 = (GenericTestOperator)om7.getOperator();
+    Assert.assertEquals("o7.myStringProperty", "v7", o7.getMyStringProperty());
+    Assert.assertNull("o7.emitFormat", o7.getEmitFormat());
+    Assert.assertEquals("o7.APPLICATION_WINDOW_COUNT", Integer.valueOf(2), om7.getValue(OperatorContext.APPLICATION_WINDOW_COUNT));
+    Assert.assertEquals("o7.inport1.QUEUE_CAPACITY", Integer.valueOf(16 * 1024), om7.getMeta(o7.inport1).getValue(PortContext.QUEUE_CAPACITY));
+    GenericTestOperator o125 = (GenericTestOperator)dag.getOperatorMeta("o125").getOperator();
+    Assert.assertEquals("o125.myStringProperty", "v125", o125.getMyStringProperty());
+    Assert.assertEquals("o125.emitFormat", "fmt5", o125.getEmitFormat());
+  }
+
   @Test
   @SuppressWarnings("UnnecessaryBoxing")
   public void testPortLevelAttributes() {
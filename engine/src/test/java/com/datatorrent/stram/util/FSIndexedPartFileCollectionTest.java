@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+
+import com.datatorrent.stram.client.EventsAgent;
+import com.datatorrent.stram.client.EventsAgent.EventInfo;
+import com.datatorrent.stram.client.StramAgent;
+
+import com.datatorrent.stram.support.StramTestSupport.TestMeta;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection.IndexEntry;
+import com.datatorrent.stram.util.FSIndexedPartFileCollection.OffsetIndex;
+
+public class FSIndexedPartFileCollectionTest
+{
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  @Test
+  public void testSeek() throws Exception
+  {
+    int numItems = 10000;
+    FSIndexedPartFileCollection storage = new FSIndexedPartFileCollection();
+    storage.setBasePath("file:" + testMeta.getAbsolutePath());
+    storage.setItemsPerIndexEntry(100);
+    storage.setup();
+    for (int i = 0; i < numItems; i++) {
+      // timestamps slightly out of order
+      long key = 1000 + i * 10 + (i % 2 == 0 ? 5 : 0);
+      storage.writeDataItem((key + ":" + i + "\n").getBytes(), key);
+    }
+    storage.teardown();
+
+    String index = FileUtils.readFileToString(new File(testMeta.getAbsolutePath(), FSPartFileCollection.INDEX_FILE));
+    int cursor = index.indexOf(":T:");
+    Assert.assertTrue("index " + index, cursor > 0);
+    OffsetIndex offsetIndex = OffsetIndex.parse(index.substring(cursor + 3, index.indexOf('\n', cursor)));
+    Assert.assertEquals("min key", 1005, offsetIndex.minKey);
+    Assert.assertEquals("max key", 100990, offsetIndex.maxKey);
+    Assert.assertEquals("entries", numItems / 100, offsetIndex.entries.size());
+
+    IndexEntry entry = FSIndexedPartFileCollection.seekOrdinal(offsetIndex.entries, 5050);
+    Assert.assertEquals("ordinal", 5000, entry.ordinal);
+    Assert.assertEquals("item at offset", "51005:5000", readLine(entry.offset));
+
+    // the entry of item 5000 has key 51005, items with key 51000 may precede it
+    entry = FSIndexedPartFileCollection.seekKey(offsetIndex.entries, 51000);
+    Assert.assertEquals("ordinal", 4900, entry.ordinal);
+    Assert.assertEquals("item at offset", "50005:4900", readLine(entry.offset));
+    Assert.assertNull("before first entry", FSIndexedPartFileCollection.seekKey(offsetIndex.entries, 1005));
+  }
+
+  @Test
+  public void testReadEvents() throws Exception
+  {
+    int numEvents = 3000;
+    FSIndexedPartFileCollection storage = new FSIndexedPartFileCollection();
+    storage.setBasePath("file:" + testMeta.getAbsolutePath() + "/events");
+    storage.setItemsPerIndexEntry(100);
+    storage.setBytesPerPartFile(20000);
+    storage.setup();
+    for (int i = 0; i < numEvents; i++) {
+      long timestamp = 1000 + i * 10;
+      storage.writeDataItem((timestamp + ":Test:{\"id\":\"" + i + "\"}\n").getBytes(), timestamp);
+      storage.flushData();
+    }
+    storage.teardown();
+    Assert.assertTrue("multiple part files", new File(testMeta.getAbsolutePath(), "events/part2.txt").exists());
+
+    StramAgent stramAgent = Mockito.mock(StramAgent.class);
+    Mockito.when(stramAgent.getAppPath("app1")).thenReturn("file:" + testMeta.getAbsolutePath());
+    Mockito.when(stramAgent.getFileSystem()).thenReturn(FileSystem.getLocal(new Configuration()));
+    EventsAgent eventsAgent = new EventsAgent(stramAgent);
+
+    assertEventIds(2150, 20, eventsAgent.getEvents("app1", null, null, 2150, 20));
+    // events before the time range are skipped through the index, the offset applies to the events in range
+    assertEventIds(1560, 5, eventsAgent.getEvents("app1", 1000L + 1500 * 10, null, 60, 5));
+    assertEventIds(numEvents - 25, 25, eventsAgent.getLatestEvents("app1", 25));
+  }
+
+  private static void assertEventIds(int firstId, int count, List<EventInfo> events)
+  {
+    Assert.assertEquals("events", count, events.size());
+    for (int i = 0; i < count; i++) {
+      EventInfo event = events.get(i);
+      Assert.assertEquals("id", firstId + i, event.id);
+      Assert.assertEquals("timestamp", 1000 + (firstId + i) * 10, event.timestamp);
+      Assert.assertEquals("type", "Test", event.type);
+    }
+  }
+
+  private String readLine(long offset) throws Exception
+  {
+    FileInputStream is = new FileInputStream(new File(testMeta.getAbsolutePath(), "part0.txt"));
+    try {
+      Assert.assertEquals("skipped", offset, is.skip(offset));
+      return new BufferedReader(new InputStreamReader(is)).readLine();
+    } finally {
+      is.close();
+    }
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.commons.io.FileUtils;
+
+import com.datatorrent.stram.support.StramTestSupport.TestMeta;
+import com.datatorrent.stram.util.FSStatsPartFileCollection.StatsRecord;
+
+public class FSStatsPartFileCollectionTest
+{
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  @Test
+  public void testWriteRead() throws Exception
+  {
+    FSStatsPartFileCollection storage = new FSStatsPartFileCollection();
+    storage.setBasePath("file:" + testMeta.getAbsolutePath());
+    storage.setup();
+    storage.writeMetaData((FSStatsPartFileCollection.VERSION + "\n").getBytes());
+    for (int i = 0; i < 100; i++) {
+      for (int id = 1; id <= 3; id++) {
+        Map<String, Object> stats = new HashMap<String, Object>();
+        stats.put("totalTuplesProcessed", (long)i * id);
+        stats.put("cpuPercentageMA", 0.5);
+        stats.put("host", "localhost");
+        stats.put("counters", null);
+        stats.put("ports", Collections.singletonMap("name", "input"));
+        storage.writeRecord(id, 1000 + i * 10, stats);
+      }
+    }
+    storage.teardown();
+
+    String index = FileUtils.readFileToString(new File(testMeta.getAbsolutePath(), FSPartFileCollection.INDEX_FILE));
+    Assert.assertTrue("index " + index, index.contains(":T:1000-1990:1,2,3"));
+
+    InputStream is = new FileInputStream(new File(testMeta.getAbsolutePath(), "part0.txt"));
+    try {
+      List<StatsRecord> records = FSStatsPartFileCollection.readRecords(is, 1500L, 1600L, new HashSet<Integer>(Arrays.asList(2)));
+      Assert.assertEquals("records", 11, records.size());
+      StatsRecord record = records.get(0);
+      Assert.assertEquals("id", 2, record.id);
+      Assert.assertEquals("timestamp", 1500, record.timestamp);
+      JSONObject stats = new JSONObject(record.stats);
+      Assert.assertEquals("totalTuplesProcessed", 100, stats.getLong("totalTuplesProcessed"));
+      Assert.assertEquals("cpuPercentageMA", 0.5, stats.getDouble("cpuPercentageMA"), 0);
+      Assert.assertEquals("host", "localhost", stats.getString("host"));
+      Assert.assertTrue("counters", stats.isNull("counters"));
+      Assert.assertEquals("ports", "input", stats.getJSONObject("ports").getString("name"));
+    } finally {
+      is.close();
+    }
+  }
+
+}
@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.webapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.datatorrent.common.util.BaseOperator;
+import com.datatorrent.stram.support.StramTestSupport.TestMeta;
+
+public class JarClassIndexTest
+{
+  private static final Logger LOG = LoggerFactory.getLogger(JarClassIndexTest.class);
+  private static final String PERFORMANCE_PROPERTY = "jarClassIndex.performance";
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  private File cacheDir;
+  private String savedCacheDir;
+
+  @Before
+  public void setCacheDir()
+  {
+    savedCacheDir = System.getProperty(JarClassIndex.CACHE_DIR_PROPERTY);
+    cacheDir = new File(testMeta.getPath(), "cache");
+    System.setProperty(JarClassIndex.CACHE_DIR_PROPERTY, cacheDir.getAbsolutePath());
+  }
+
+  @After
+  public void restoreCacheDir()
+  {
+    if (savedCacheDir == null) {
+      System.clearProperty(JarClassIndex.CACHE_DIR_PROPERTY);
+    } else {
+      System.setProperty(JarClassIndex.CACHE_DIR_PROPERTY, savedCacheDir);
+    }
+  }
+
+  @Test
+  public void testCache() throws Exception
+  {
+    File jarFile = createJar("test.jar");
+    JarClassIndex index = JarClassIndex.getIndex(jarFile);
+    assertIndex(index);
+    Assert.assertEquals("cached indexes", 1, cacheDir.list().length);
+
+    // the cached index is used while the jar does not change, a corrupt jar of the same length would fail to parse
+    File cacheFile = cacheDir.listFiles()[0];
+    Assert.assertTrue(cacheFile.setLastModified(cacheFile.lastModified() - 60000));
+    long cacheModified = cacheFile.lastModified();
+    long jarModified = jarFile.lastModified();
+    FileUtils.writeByteArrayToFile(jarFile, new byte[(int)jarFile.length()]);
+    Assert.assertTrue(jarFile.setLastModified(jarModified));
+    index = JarClassIndex.getIndex(jarFile);
+    assertIndex(index);
+    Assert.assertTrue("cache entry marked as used", cacheFile.lastModified() > cacheModified);
+
+    // copies of the jar in other directories share the index
+    File copy = new File(testMeta.getPath(), "copy/test.jar");
+    FileUtils.copyFile(jarFile, copy, true);
+    index = JarClassIndex.getIndex(copy);
+    assertIndex(index);
+    Assert.assertEquals("path", copy.getAbsolutePath(), index.path);
+    Assert.assertEquals("cached indexes", 1, cacheDir.list().length);
+
+    // a changed jar is indexed again
+    jarFile = createJar("test.jar");
+    Assert.assertTrue(jarFile.setLastModified(jarModified - 10000));
+    index = JarClassIndex.getIndex(jarFile);
+    assertIndex(index);
+    Assert.assertEquals("last modified", jarFile.lastModified(), index.lastModified);
+  }
+
+  @Test
+  public void testParallel() throws Exception
+  {
+    List<File> jarFiles = Arrays.asList(createJar("test1.jar"), createJar("test2.jar"), createJar("test3.jar"));
+    List<JarClassIndex> indexes = JarClassIndex.getIndexes(jarFiles);
+    Assert.assertEquals("indexes", jarFiles.size(), indexes.size());
+    for (int i = 0; i < jarFiles.size(); i++) {
+      Assert.assertEquals("order", jarFiles.get(i).getAbsolutePath(), indexes.get(i).path);
+      assertIndex(indexes.get(i));
+    }
+
+    TypeGraph tg = new TypeGraph();
+    for (JarClassIndex index : indexes) {
+      for (JarClassIndex.ClassEntry classEntry : index.classes) {
+        tg.addNode(classEntry, index.path);
+      }
+    }
+    Assert.assertTrue("ancestor", tg.isAncestor(BaseOperator.class.getName(), TestOperator.class.getName()));
+  }
+
+  /**
+   * Compares sequential and parallel type graph construction over the test classpath, which includes the Hadoop
+   * dependencies, and the jdk. Takes long, only runs when the system property {@value #PERFORMANCE_PROPERTY} is set.
+   */
+  @Test
+  public void testPerformance() throws Exception
+  {
+    Assume.assumeNotNull(System.getProperty(PERFORMANCE_PROPERTY));
+    // measure parsing, not the cache
+    System.setProperty(JarClassIndex.CACHE_DIR_PROPERTY, "");
+    List<File> jarFiles = new ArrayList<>();
+    for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      if (path.endsWith(".jar") && new File(path).exists()) {
+        jarFiles.add(new File(path));
+      }
+    }
+    jarFiles.add(new File(System.getProperty("java.home"), "lib/rt.jar"));
+
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    int numClasses = 0;
+    for (int parallelism : new int[]{1, numThreads, 1, numThreads}) {
+      long time = System.currentTimeMillis();
+      List<JarClassIndex> indexes = JarClassIndex.getIndexes(jarFiles, parallelism);
+      long indexTime = System.currentTimeMillis() - time;
+      TypeGraph tg = new TypeGraph();
+      for (JarClassIndex index : indexes) {
+        for (JarClassIndex.ClassEntry classEntry : index.classes) {
+          tg.addNode(classEntry, index.path);
+        }
+      }
+      LOG.info("Indexing {} jars with {} threads took {} ms, building the type graph of {} types took {} ms",
+          jarFiles.size(), parallelism, indexTime, tg.size(), System.currentTimeMillis() - time - indexTime);
+      if (numClasses != 0) {
+        Assert.assertEquals("types", numClasses, tg.size());
+      }
+      numClasses = tg.size();
+    }
+  }
+
+  private void assertIndex(JarClassIndex index)
+  {
+    Assert.assertEquals("classes", 2, index.classes.size());
+    JarClassIndex.ClassEntry classEntry = index.classes.get(1);
+    Assert.assertEquals("name", TestOperator.class.getName().replace('.', '/'), classEntry.name);
+    Assert.assertEquals("super name", BaseOperator.class.getName().replace('.', '/'), classEntry.superName);
+    Assert.assertEquals("interfaces", 0, classEntry.interfaces.length);
+    Assert.assertTrue("instantiable", classEntry.instantiable);
+    Assert.assertEquals("resources", Arrays.asList("com/example/schema.json", "com/example/op-javadoc.xml"), index.resources);
+    Assert.assertEquals("javadocs", Arrays.asList("com/example/op-javadoc.xml"), index.javadocs);
+  }
+
+  private File createJar(String name) throws Exception
+  {
+    File jarFile = new File(testMeta.getPath(), name);
+    jarFile.getParentFile().mkdirs();
+    JarOutputStream jos = new JarOutputStream(new FileOutputStream(jarFile));
+    try {
+      jos.putNextEntry(new JarEntry("com/example/"));
+      addClass(jos, BaseOperator.class);
+      addClass(jos, TestOperator.class);
+      jos.putNextEntry(new JarEntry("com/example/schema.json"));
+      jos.write("{}".getBytes());
+      jos.putNextEntry(new JarEntry("com/example/op-javadoc.xml"));
+      jos.write("<root/>".getBytes());
+    } finally {
+      jos.close();
+    }
+    return jarFile;
+  }
+
+  private void addClass(JarOutputStream jos, Class<?> clazz) throws Exception
+  {
+    String resource = clazz.getName().replace('.', '/') + ".class";
+    jos.putNextEntry(new JarEntry(resource));
+    InputStream is = clazz.getClassLoader().getResourceAsStream(resource);
+    try {
+      IOUtils.copy(is, jos);
+    } finally {
+      is.close();
+    }
+  }
+
+  public static class TestOperator extends BaseOperator
+  {
+  }
+
+}
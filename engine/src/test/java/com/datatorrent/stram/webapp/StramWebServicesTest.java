@@ -28,6 +28,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -142,6 +143,7 @@ public class StramWebServicesTest extends JerseyTest
         bind(JAXBContextResolver.class);
         bind(StramWebServices.class);
         bind(GenericExceptionHandler.class);
+        bind(StramWebApp.NotModifiedExceptionMapper.class);
         bind(StramAppContext.class).toInstance(appContext);
         bind(StreamingContainerManager.class).toInstance(streamingContainerManager);
         bind(Configuration.class).toInstance(conf);
@@ -349,6 +351,35 @@ public class StramWebServicesTest extends JerseyTest
         attrs.getString(Context.DAGContext.METRICS_TRANSPORT.getSimpleName()));
   }
 
+  @Test
+  public void testPlanSnapshotETag() throws Exception
+  {
+    WebResource r = resource();
+    ClientResponse response = r.path(StramWebServices.PATH).path(StramWebServices.PATH_PHYSICAL_PLAN_OPERATORS)
+        .accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
+    assertEquals(Status.OK, response.getClientResponseStatus());
+    String etag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+    assertNotNull("ETag", etag);
+
+    response = r.path(StramWebServices.PATH).path(StramWebServices.PATH_PHYSICAL_PLAN_OPERATORS)
+        .header(HttpHeaders.IF_NONE_MATCH, etag).accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
+    assertEquals(Status.NOT_MODIFIED, response.getClientResponseStatus());
+
+    response = r.path(StramWebServices.PATH).path(StramWebServices.PATH_PHYSICAL_PLAN_OPERATORS)
+        .path(StramWebServices.PATH_DELTA).accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
+    assertEquals(Status.OK, response.getClientResponseStatus());
+    JSONObject json = response.getEntity(JSONObject.class);
+    assertTrue("full", json.getBoolean("full"));
+    long version = json.getLong("version");
+
+    response = r.path(StramWebServices.PATH).path(StramWebServices.PATH_PHYSICAL_PLAN_OPERATORS)
+        .path(StramWebServices.PATH_DELTA).queryParam("since", Long.toString(version))
+        .accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
+    json = response.getEntity(JSONObject.class);
+    assertFalse("full", json.getBoolean("full"));
+    assertEquals("version", version, json.getLong("version"));
+  }
+
   @Test
   public void testSubmitLogicalPlanChange() throws JSONException, Exception
   {